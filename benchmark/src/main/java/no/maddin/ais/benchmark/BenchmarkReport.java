@@ -0,0 +1,65 @@
+package no.maddin.ais.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * The JSON file written by {@link ScenarioRunner} and read by {@link ResultComparison}.
+ *
+ * @param commit git commit of the measured tree, with {@code -dirty} if it had local changes
+ */
+public record BenchmarkReport(String commit, Instant started, String java, int processors, long maxHeapBytes, List<ScenarioResult> scenarios) {
+
+    static final ObjectMapper MAPPER = new ObjectMapper()
+        .findAndRegisterModules()
+        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+        .disable(SerializationFeature.WRITE_DURATIONS_AS_TIMESTAMPS)
+        .enable(SerializationFeature.INDENT_OUTPUT);
+
+    public static BenchmarkReport read(Path file) throws IOException {
+        return MAPPER.readValue(file.toFile(), BenchmarkReport.class);
+    }
+
+    public void write(Path file) throws IOException {
+        MAPPER.writeValue(file.toFile(), this);
+    }
+
+    /**
+     * The measured iterations of a scenario, warm-up runs are not included.
+     */
+    public record ScenarioResult(Scenario scenario, List<Measurement> iterations) {
+
+        public double median(ToDoubleFunction<Measurement> value) {
+            double[] values = iterations.stream().mapToDouble(value).sorted().toArray();
+            if (values.length == 0) {
+                return Double.NaN;
+            }
+            int middle = values.length / 2;
+            return values.length % 2 == 1 ? values[middle] : (values[middle - 1] + values[middle]) / 2;
+        }
+    }
+
+    /**
+     * One run of a scenario.
+     *
+     * @param requests                 requests served by the synthetic server, including failed and retried ones
+     * @param request                  latency of successful provider requests, {@code ais.provider.request}
+     * @param write                    latency of successful bulk writes, {@code ais.writer.batch}
+     * @param peakHeapBytes            sum of the peaks of the heap pools, an upper bound of the peak heap usage
+     * @param allocatedBytesPerSecond  allocation rate of all threads except those of the synthetic server
+     */
+    public record Measurement(long records, int vessels, int failedVessels, long requests, double seconds, double recordsPerSecond,
+                              Latency request, Latency write, long peakHeapBytes, double allocatedBytesPerSecond, long gcPauseMillis) {
+    }
+
+    public record Latency(long count, double p50Millis, double p99Millis, double maxMillis) {
+
+        public static final Latency NONE = new Latency(0, Double.NaN, Double.NaN, Double.NaN);
+    }
+}
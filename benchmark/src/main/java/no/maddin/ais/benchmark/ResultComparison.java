@@ -0,0 +1,88 @@
+package no.maddin.ais.benchmark;
+
+import no.maddin.ais.benchmark.BenchmarkReport.Measurement;
+import no.maddin.ais.benchmark.BenchmarkReport.ScenarioResult;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Compares two reports of {@link ScenarioRunner} by the medians of their iterations:
+ * {@code ResultComparison baseline.json current.json [tolerance=10]}.
+ * Exits with 1 if the throughput of a scenario dropped by more than {@code tolerance} percent.
+ */
+public final class ResultComparison {
+
+    private static final List<Metric> METRICS = List.of(
+        new Metric("records/s", Measurement::recordsPerSecond, true),
+        new Metric("request p50 ms", m -> m.request().p50Millis(), false),
+        new Metric("request p99 ms", m -> m.request().p99Millis(), false),
+        new Metric("write p99 ms", m -> m.write().p99Millis(), false),
+        new Metric("peak heap MB", m -> m.peakHeapBytes() / 1e6, false),
+        new Metric("alloc MB/s", m -> m.allocatedBytesPerSecond() / 1e6, false),
+        new Metric("gc ms", Measurement::gcPauseMillis, false)
+    );
+
+    private ResultComparison() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("ResultComparison baseline.json current.json [tolerance=10]");
+            System.exit(2);
+        }
+        double tolerance = args.length > 2 ? Double.parseDouble(args[2].replace("tolerance=", "")) : 10;
+        boolean regressed = compare(BenchmarkReport.read(Path.of(args[0])), BenchmarkReport.read(Path.of(args[1])), tolerance, System.out);
+        System.exit(regressed ? 1 : 0);
+    }
+
+    static void print(BenchmarkReport report) {
+        System.out.printf(Locale.ROOT, "%ncommit %s, java %s, %d cpus%n", report.commit(), report.java(), report.processors());
+        for (ScenarioResult result : report.scenarios()) {
+            System.out.printf(Locale.ROOT, "%-16s", result.scenario().name());
+            for (Metric metric : METRICS) {
+                System.out.printf(Locale.ROOT, "  %s %.1f", metric.name(), result.median(metric.value()));
+            }
+            System.out.println();
+        }
+    }
+
+    /**
+     * @return whether the throughput of a scenario dropped by more than {@code tolerance} percent
+     */
+    static boolean compare(BenchmarkReport baseline, BenchmarkReport current, double tolerance, PrintStream out) {
+        Map<String, ScenarioResult> before = baseline.scenarios().stream()
+            .collect(Collectors.toMap(result -> result.scenario().name(), Function.identity()));
+        out.printf(Locale.ROOT, "%s -> %s%n", baseline.commit(), current.commit());
+        boolean regressed = false;
+        for (ScenarioResult after : current.scenarios()) {
+            ScenarioResult previous = before.get(after.scenario().name());
+            if (previous == null) {
+                out.printf(Locale.ROOT, "%-16s not in baseline%n", after.scenario().name());
+                continue;
+            }
+            out.printf(Locale.ROOT, "%s%n", after.scenario().name());
+            for (Metric metric : METRICS) {
+                double old = previous.median(metric.value());
+                double now = after.median(metric.value());
+                double change = (now - old) / old * 100;
+                boolean worse = metric.higherIsBetter() ? change < -tolerance : change > tolerance;
+                out.printf(Locale.ROOT, "  %-16s %12.1f %12.1f %+8.1f%%%s%n", metric.name(), old, now, change, worse ? "  <--" : "");
+                if (worse && metric.higherIsBetter()) {
+                    regressed = true;
+                }
+            }
+        }
+        return regressed;
+    }
+
+    private record Metric(String name, ToDoubleFunction<Measurement> value, boolean higherIsBetter) {
+    }
+}
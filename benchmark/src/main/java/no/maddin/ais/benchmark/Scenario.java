@@ -0,0 +1,32 @@
+package no.maddin.ais.benchmark;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One end-to-end run: {@link #vessels()} vessels, each read from {@link #days()} days ago until now from the synthetic server.
+ * MarineTraffic windows are at most 190 days long, so a vessel needs {@code days / 190 + 1} requests.
+ *
+ * @param properties db-updater properties on top of the defaults of {@link ScenarioRunner}, e.g. the writer batch size
+ */
+public record Scenario(String name, int vessels, int days, SyntheticMarineTraffic.Settings provider, Map<String, Object> properties) {
+
+    private static final long SEED = 42;
+
+    public static List<Scenario> defaults() {
+        return List.of(
+            // many vessels with short tracks, dominated by request overhead
+            new Scenario("small-fleet", 500, 30, new SyntheticMarineTraffic.Settings(200, Duration.ofMillis(20), 0, 0, -1, SEED),
+                Map.of("ais.reader.concurrency", 16)),
+            // few vessels with long tracks, dominated by decoding and writing
+            new Scenario("long-tracks", 10, 4 * 190 + 100, new SyntheticMarineTraffic.Settings(20_000, Duration.ofMillis(50), 0, 0, -1, SEED), Map.of()),
+            // a slow provider, shows whether the request concurrency hides the latency
+            new Scenario("slow-provider", 100, 190 + 100, new SyntheticMarineTraffic.Settings(1000, Duration.ofMillis(500), 0, 0, -1, SEED), Map.of()),
+            // every tenth request fails with 503 and one in twenty is throttled
+            new Scenario("flaky-provider", 200, 100, new SyntheticMarineTraffic.Settings(1000, Duration.ofMillis(20), 0.1, 0.05, -1, SEED), Map.of()),
+            // the credits run out after half of the vessels, the others fail fast
+            new Scenario("out-of-credits", 200, 100, new SyntheticMarineTraffic.Settings(1000, Duration.ofMillis(20), 0, 0, 100, SEED), Map.of())
+        );
+    }
+}
@@ -0,0 +1,277 @@
+package no.maddin.ais.benchmark;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import lombok.extern.slf4j.Slf4j;
+import no.maddin.ais.DbUpdaterApplication;
+import no.maddin.ais.benchmark.BenchmarkReport.Latency;
+import no.maddin.ais.benchmark.BenchmarkReport.Measurement;
+import no.maddin.ais.benchmark.BenchmarkReport.ScenarioResult;
+import no.maddin.ais.data.IngestResult;
+import no.maddin.ais.reader.AisReaderService;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.testcontainers.containers.MongoDBContainer;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadInfo;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Runs {@link Scenario}s end to end: a db-updater context reads the fleet of the scenario from a {@link SyntheticMarineTraffic}
+ * server through {@link AisReaderService#readFleet()} into Mongo. Each run gets a fresh database, which is dropped afterwards.
+ * <p>
+ * Arguments are scenario names (all {@link Scenario#defaults()} if none) and options:
+ * <ul>
+ *     <li>{@code mongodb=<uri>}: the Mongo server to write to, a testcontainer if not set</li>
+ *     <li>{@code iterations=3}, {@code warmups=1}: measured and unmeasured runs per scenario</li>
+ *     <li>{@code output=target/benchmark-results}: directory of the JSON reports, the last one is also written to {@code latest.json}</li>
+ *     <li>{@code commit=<id>}: recorded in the report, {@code git rev-parse HEAD} if not set</li>
+ * </ul>
+ * Provider and writer latencies come from the pipeline's own Micrometer timers. Heap and allocation figures cover the whole
+ * JVM except the threads of the synthetic server, so the Mongo driver and Netty client are included.
+ */
+@Slf4j
+public final class ScenarioRunner {
+
+    private static final String MONGO_IMAGE = "mongo:8.0.0-noble";
+
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss").withZone(ZoneOffset.UTC);
+
+    private final String mongoUri;
+
+    private ScenarioRunner(String mongoUri) {
+        this.mongoUri = mongoUri;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new HashMap<>();
+        List<String> names = new ArrayList<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq > 0) {
+                options.put(arg.substring(0, eq), arg.substring(eq + 1));
+            } else {
+                names.add(arg);
+            }
+        }
+        List<Scenario> scenarios = names.isEmpty() ? Scenario.defaults() : names.stream().map(ScenarioRunner::scenario).toList();
+        int iterations = Integer.parseInt(options.getOrDefault("iterations", "3"));
+        int warmups = Integer.parseInt(options.getOrDefault("warmups", "1"));
+        Path output = Path.of(options.getOrDefault("output", "target/benchmark-results"));
+        String commit = options.getOrDefault("commit", gitCommit());
+
+        Instant started = Instant.now();
+        List<ScenarioResult> results = new ArrayList<>();
+        MongoDBContainer container = null;
+        try {
+            String uri = options.get("mongodb");
+            if (uri == null) {
+                container = new MongoDBContainer(MONGO_IMAGE);
+                container.start();
+                uri = container.getConnectionString();
+            }
+            var runner = new ScenarioRunner(uri);
+            for (Scenario scenario : scenarios) {
+                for (int i = 0; i < warmups; i++) {
+                    log.info("{}: warm-up {}", scenario.name(), i + 1);
+                    runner.run(scenario);
+                }
+                List<Measurement> measurements = new ArrayList<>();
+                for (int i = 0; i < iterations; i++) {
+                    Measurement measurement = runner.run(scenario);
+                    log.info("{}: iteration {}: {}", scenario.name(), i + 1, measurement);
+                    measurements.add(measurement);
+                }
+                results.add(new ScenarioResult(scenario, measurements));
+            }
+        } finally {
+            if (container != null) {
+                container.stop();
+            }
+        }
+
+        var report = new BenchmarkReport(commit, started, Runtime.version().toString(), Runtime.getRuntime().availableProcessors(),
+            Runtime.getRuntime().maxMemory(), results);
+        Files.createDirectories(output);
+        Path file = output.resolve(FILE_TIMESTAMP.format(started) + "-" + commit + ".json");
+        report.write(file);
+        Files.copy(file, output.resolve("latest.json"), StandardCopyOption.REPLACE_EXISTING);
+        ResultComparison.print(report);
+        log.info("Wrote {}", file);
+    }
+
+    private static Scenario scenario(String name) {
+        return Scenario.defaults().stream()
+            .filter(scenario -> scenario.name().equals(name))
+            .findFirst()
+            .orElseThrow(() -> new IllegalArgumentException("Unknown scenario " + name + ", known are "
+                + Scenario.defaults().stream().map(Scenario::name).toList()));
+    }
+
+    Measurement run(Scenario scenario) throws IOException {
+        Path mmsiFile = Files.createTempFile("benchmark-", ".mmsi");
+        Files.write(mmsiFile, IntStream.range(0, scenario.vessels()).mapToObj(i -> Integer.toString(200_000_000 + i)).toList(), StandardCharsets.US_ASCII);
+        try (var server = SyntheticMarineTraffic.start(scenario.provider());
+             ConfigurableApplicationContext context = new SpringApplicationBuilder(DbUpdaterApplication.class)
+                 .profiles("benchmark")
+                 .logStartupInfo(false)
+                 .run(arguments(scenario, server, mmsiFile))) {
+            try {
+                return measure(context, server);
+            } finally {
+                context.getBean(ReactiveMongoTemplate.class).getMongoDatabase()
+                    .flatMap(database -> Mono.from(database.drop()))
+                    .block(Duration.ofMinutes(5));
+            }
+        } finally {
+            Files.deleteIfExists(mmsiFile);
+        }
+    }
+
+    /**
+     * Passed as command line arguments, they override {@code application.yml}.
+     */
+    private String[] arguments(Scenario scenario, SyntheticMarineTraffic server, Path mmsiFile) {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("spring.main.banner-mode", "off");
+        properties.put("spring.main.web-application-type", "none");
+        properties.put("spring.data.mongodb.uri", mongoUri);
+        properties.put("spring.data.mongodb.database", "benchmark_" + scenario.name().replace('-', '_') + "_" + System.nanoTime());
+        properties.put("marinetraffic.url", server.url());
+        properties.put("marinetraffic.apikey", "benchmark");
+        // measure the pipeline, not the quota
+        properties.put("marinetraffic.rate-limit.requests-per-minute", 6_000_000);
+        properties.put("marinetraffic.rate-limit.burst", 10_000);
+        properties.put("marinetraffic.rate-limit.polling-period", "100ms");
+        properties.put("marinetraffic.rate-limit.min-backoff", "10ms");
+        properties.put("marinetraffic.rate-limit.max-backoff", "200ms");
+        // records must be in Mongo when the run ends, not in a spool that is drained later
+        properties.put("ais.spool.enabled", false);
+        properties.put("ais.reader.type", "marinetraffic");
+        properties.put("ais.reader.mode", "once");
+        properties.put("ais.reader.mmsi", "");
+        properties.put("ais.reader.mmsi-file", mmsiFile.toString());
+        properties.put("ais.reader.start-date", LocalDate.now(ZoneOffset.UTC).minusDays(scenario.days()).toString());
+        properties.put("management.metrics.distribution.percentiles.ais.provider.request", "0.5,0.99");
+        properties.put("management.metrics.distribution.percentiles.ais.writer.batch", "0.5,0.99");
+        properties.put("management.metrics.distribution.expiry.ais", "1h");
+        properties.put("logging.level.no.maddin.ais.reader.AisReaderService", "warn");
+        properties.putAll(scenario.properties());
+        return properties.entrySet().stream().map(property -> "--" + property.getKey() + "=" + property.getValue()).toArray(String[]::new);
+    }
+
+    private static Measurement measure(ConfigurableApplicationContext context, SyntheticMarineTraffic server) {
+        AisReaderService aisReaderService = context.getBean(AisReaderService.class);
+        MeterRegistry meterRegistry = context.getBean(MeterRegistry.class);
+        List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+            .filter(pool -> pool.getType() == MemoryType.HEAP)
+            .toList();
+
+        System.gc();
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+        long allocatedBefore = allocatedBytes();
+        long gcBefore = gcMillis();
+        long start = System.nanoTime();
+
+        List<IngestResult> results = aisReaderService.readFleet().collectList().block(Duration.ofHours(1));
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long allocated = allocatedBytes() - allocatedBefore;
+        long gcPause = gcMillis() - gcBefore;
+        long peakHeap = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+        long records = results.stream().mapToLong(IngestResult::records).sum();
+        int failed = (int) results.stream().filter(result -> !result.isSuccess()).count();
+        return new Measurement(records, results.size(), failed, server.requests(), seconds, records / seconds,
+            latency(meterRegistry, "ais.provider.request.flow.duration"), latency(meterRegistry, "ais.writer.batch.flow.duration"),
+            peakHeap, allocated / seconds, gcPause);
+    }
+
+    private static Latency latency(MeterRegistry meterRegistry, String name) {
+        Timer timer = meterRegistry.find(name).tag("status", "completed").timer();
+        if (timer == null || timer.count() == 0) {
+            return Latency.NONE;
+        }
+        HistogramSnapshot snapshot = timer.takeSnapshot();
+        double p50 = Double.NaN;
+        double p99 = Double.NaN;
+        for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+            if (percentile.percentile() == 0.5) {
+                p50 = percentile.value(TimeUnit.MILLISECONDS);
+            } else if (percentile.percentile() == 0.99) {
+                p99 = percentile.value(TimeUnit.MILLISECONDS);
+            }
+        }
+        return new Latency(timer.count(), p50, p99, snapshot.max(TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Bytes allocated by all live threads except the synthetic server's. Threads that ended during the run are not counted.
+     */
+    private static long allocatedBytes() {
+        var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long[] serverThreads = Arrays.stream(threads.getThreadInfo(threads.getAllThreadIds()))
+            .filter(info -> info != null && SyntheticMarineTraffic.isServerThread(info.getThreadName()))
+            .mapToLong(ThreadInfo::getThreadId)
+            .toArray();
+        long server = Arrays.stream(threads.getThreadAllocatedBytes(serverThreads)).filter(bytes -> bytes > 0).sum();
+        return threads.getTotalThreadAllocatedBytes() - server;
+    }
+
+    private static long gcMillis() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+            .mapToLong(GarbageCollectorMXBean::getCollectionTime)
+            .filter(time -> time > 0)
+            .sum();
+    }
+
+    private static String gitCommit() {
+        try {
+            String commit = git("rev-parse", "--short=12", "HEAD");
+            return git("status", "--porcelain", "--untracked-files=no").isEmpty() ? commit : commit + "-dirty";
+        } catch (IOException e) {
+            log.warn("No git commit: {}", e.getMessage());
+            return "unknown";
+        }
+    }
+
+    private static String git(String... args) throws IOException {
+        List<String> command = new ArrayList<>(List.of("git"));
+        command.addAll(List.of(args));
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        String out = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8).trim();
+        try {
+            if (process.waitFor() != 0) {
+                throw new IOException(String.join(" ", command) + ": " + out);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+        return out;
+    }
+}
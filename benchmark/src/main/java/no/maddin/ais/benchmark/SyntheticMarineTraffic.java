@@ -0,0 +1,253 @@
+package no.maddin.ais.benchmark;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.DisposableServer;
+import reactor.netty.NettyOutbound;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+import reactor.netty.resources.LoopResources;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for the MarineTraffic {@code exportvesseltrack} API, serving the jsono protocol.
+ * <p>
+ * Every window gets {@link Settings#rowsPerWindow()} positions evenly spread between {@code fromdate} and {@code todate},
+ * generated while the body is streamed, so large tracks don't have to fit in memory. The track of a vessel only depends on
+ * its MMSI and the window, a retried window returns the same rows.
+ * Responses are delayed by {@link Settings#latency()}. A share of the requests fails with 503 ({@link Settings#errorRate()})
+ * or 429 ({@link Settings#throttleRate()}), and once {@link Settings#credits()} requests have been served every request
+ * fails with the "insufficient credits" error.
+ * <p>
+ * The server runs on its own threads, all named with {@link #THREAD_PREFIX}, so a scenario can leave its work out of the measurements.
+ */
+public final class SyntheticMarineTraffic implements AutoCloseable {
+
+    public static final String THREAD_PREFIX = "synthetic-mt";
+
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final int ROWS_PER_CHUNK = 1000;
+
+    private static final String INSUFFICIENT_CREDITS = """
+        {"errors":[{"code":"5a2","detail":"INSUFFICIENT CREDITS. You currently have 0 credits while 1 is/are required to fulfil this API call."}]}""";
+
+    private static final String THROTTLED = """
+        {"errors":[{"code":"1f","detail":"TOO MANY REQUESTS"}]}""";
+
+    /**
+     * @param rowsPerWindow positions per requested window
+     * @param latency       delay before the response starts
+     * @param errorRate     share of requests answered with 503
+     * @param throttleRate  share of requests answered with 429
+     * @param credits       requests served before every request fails with insufficient credits, negative for unlimited
+     * @param seed          seed of the error decisions
+     */
+    public record Settings(int rowsPerWindow, Duration latency, double errorRate, double throttleRate, long credits, long seed) {
+    }
+
+    private final Settings settings;
+
+    private final LoopResources loops;
+
+    private final Scheduler scheduler;
+
+    private final DisposableServer server;
+
+    private final AtomicLong requests = new AtomicLong();
+
+    private final AtomicLong failures = new AtomicLong();
+
+    private final AtomicLong rows = new AtomicLong();
+
+    private final SplittableRandom random;
+
+    private SyntheticMarineTraffic(Settings settings) {
+        this.settings = settings;
+        this.random = new SplittableRandom(settings.seed());
+        this.loops = LoopResources.create(THREAD_PREFIX, 1, 2, true);
+        this.scheduler = Schedulers.newParallel(THREAD_PREFIX + "-body", 2, true);
+        this.server = HttpServer.create()
+            .runOn(loops)
+            .host("localhost")
+            .port(0)
+            .route(routes -> routes.get("/exportvesseltrack/**", this::handle))
+            .bindNow();
+    }
+
+    public static SyntheticMarineTraffic start(Settings settings) {
+        return new SyntheticMarineTraffic(settings);
+    }
+
+    /**
+     * The {@code marinetraffic.url} to configure the reader with.
+     */
+    public String url() {
+        return "http://localhost:" + server.port()
+            + "/exportvesseltrack/{apikey}/v:3/mmsi:{mmsi}/msgtype:simple/protocol:jsono/fromdate:{fromdate}/todate:{todate}";
+    }
+
+    public long requests() {
+        return requests.get();
+    }
+
+    public long failures() {
+        return failures.get();
+    }
+
+    public long rows() {
+        return rows.get();
+    }
+
+    private NettyOutbound handle(HttpServerRequest request, HttpServerResponse response) {
+        long served = requests.incrementAndGet();
+        Mono<Void> delay = settings.latency().isZero() ? Mono.empty() : Mono.delay(settings.latency(), scheduler).then();
+        if (settings.credits() >= 0 && served > settings.credits()) {
+            return error(response, delay, HttpResponseStatus.UNAUTHORIZED, INSUFFICIENT_CREDITS);
+        }
+        double draw;
+        synchronized (random) {
+            draw = random.nextDouble();
+        }
+        if (draw < settings.errorRate()) {
+            return error(response, delay, HttpResponseStatus.SERVICE_UNAVAILABLE, "");
+        }
+        if (draw < settings.errorRate() + settings.throttleRate()) {
+            return error(response, delay, HttpResponseStatus.TOO_MANY_REQUESTS, THROTTLED);
+        }
+        Window window;
+        try {
+            window = Window.of(request.uri());
+        } catch (RuntimeException e) {
+            return error(response, delay, HttpResponseStatus.BAD_REQUEST, "");
+        }
+        rows.addAndGet(settings.rowsPerWindow());
+        response.status(HttpResponseStatus.OK).header(HttpHeaderNames.CONTENT_TYPE, "application/json");
+        // generated on the server's scheduler, not on the event loop
+        return response.send(delay.thenMany(body(window, settings.rowsPerWindow())).subscribeOn(scheduler));
+    }
+
+    private NettyOutbound error(HttpServerResponse response, Mono<Void> delay, HttpResponseStatus status, String body) {
+        failures.incrementAndGet();
+        // MarineTraffic sends its errors as text/html
+        response.status(status).header(HttpHeaderNames.CONTENT_TYPE, "text/html; charset=UTF-8");
+        return response.sendString(delay.then(Mono.just(body)));
+    }
+
+    static Flux<ByteBuf> body(Window window, int rows) {
+        long step = rows > 1 ? (window.to() - window.from()) / (rows - 1) : 0;
+        int chunks = (rows + ROWS_PER_CHUNK - 1) / ROWS_PER_CHUNK;
+        return Flux.range(0, Math.max(chunks, 1))
+            .map(chunk -> {
+                int first = chunk * ROWS_PER_CHUNK;
+                int last = Math.min(rows, first + ROWS_PER_CHUNK);
+                var out = new StringBuilder((last - first) * 180 + 2);
+                if (chunk == 0) {
+                    out.append('[');
+                }
+                for (int i = first; i < last; i++) {
+                    if (i > 0) {
+                        out.append(',');
+                    }
+                    row(out, window.mmsi(), i, window.from() + i * step);
+                }
+                if (last == rows) {
+                    out.append(']');
+                }
+                return Unpooled.wrappedBuffer(out.toString().getBytes(StandardCharsets.UTF_8));
+            });
+    }
+
+    /**
+     * A vessel sailing a slow circle around a point derived from its MMSI.
+     */
+    private static void row(StringBuilder out, String mmsi, int i, long timestamp) {
+        int hash = mmsi.hashCode();
+        double angle = (timestamp / 1000 % 86_400) * 2 * Math.PI / 86_400;
+        double lon = (hash % 170) + Math.cos(angle) * 0.2;
+        double lat = ((hash >> 8) % 80) + Math.sin(angle) * 0.1;
+        out.append("{\"MMSI\":\"").append(mmsi)
+            .append("\",\"IMO\":\"9351098\",\"STATUS\":\"0\",\"SPEED\":\"").append(100 + i % 50)
+            .append("\",\"LON\":\"");
+        decimal(out, lon);
+        out.append("\",\"LAT\":\"");
+        decimal(out, lat);
+        out
+            .append("\",\"COURSE\":\"").append((int) Math.toDegrees(angle))
+            .append("\",\"HEADING\":\"").append((int) Math.toDegrees(angle))
+            .append("\",\"TIMESTAMP\":\"").append(DateTimeFormatter.ISO_INSTANT.format(Instant.ofEpochMilli(timestamp)))
+            .append("\",\"SHIP_ID\":\"").append(hash & 0xffffff)
+            .append("\"}");
+    }
+
+    /**
+     * Six decimals, without the cost of {@code String.format}.
+     */
+    private static void decimal(StringBuilder out, double value) {
+        long micros = Math.round(value * 1_000_000);
+        if (micros < 0) {
+            out.append('-');
+            micros = -micros;
+        }
+        out.append(micros / 1_000_000).append('.');
+        String fraction = Long.toString(micros % 1_000_000);
+        out.append("000000", fraction.length(), 6).append(fraction);
+    }
+
+    public static boolean isServerThread(String threadName) {
+        return threadName.startsWith(THREAD_PREFIX);
+    }
+
+    @Override
+    public void close() {
+        server.disposeNow();
+        loops.dispose();
+        scheduler.dispose();
+    }
+
+    /**
+     * The vessel and time range of a request, in epoch milliseconds.
+     */
+    record Window(String mmsi, long from, long to) {
+
+        static Window of(String uri) {
+            String mmsi = null;
+            long from = -1;
+            long to = -1;
+            for (String segment : uri.split("[/?]")) {
+                String value = URLDecoder.decode(segment, StandardCharsets.UTF_8);
+                if (value.startsWith("mmsi:")) {
+                    mmsi = value.substring(5);
+                } else if (value.startsWith("fromdate:")) {
+                    from = epochMillis(value.substring(9));
+                } else if (value.startsWith("todate:")) {
+                    to = epochMillis(value.substring(7));
+                }
+            }
+            if (mmsi == null || from < 0 || to < from) {
+                throw new IllegalArgumentException("Not a track request: " + uri);
+            }
+            return new Window(mmsi, from, to);
+        }
+
+        private static long epochMillis(String dateTime) {
+            return LocalDateTime.parse(dateTime, DATE_TIME).toInstant(ZoneOffset.UTC).toEpochMilli();
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package no.maddin.ais.benchmark;
+
+import no.maddin.ais.config.MongoDbConfig;
+import no.maddin.ais.data.AisData;
+import no.maddin.ais.data.AisPosition;
+import no.maddin.ais.data.AisPositionCodec;
+import no.maddin.ais.data.OffsetDateTimeCodec;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.Document;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The conversions every stored position goes through: the BSON codecs registered by {@link MongoDbConfig},
+ * its {@link OffsetDateTime} converters, and the mapping of a whole {@link AisData} to and from a document as the bulk writer does it.
+ * One operation is one value, so with {@code -prof gc} {@code gc.alloc.rate.norm} is the number of bytes allocated per value.
+ * <p>
+ * {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args="ConversionBenchmark -prof gc"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ConversionBenchmark {
+
+    private static final int VALUES = 10_000;
+
+    private static final EncoderContext ENCODER_CONTEXT = EncoderContext.builder().build();
+
+    private static final DecoderContext DECODER_CONTEXT = DecoderContext.builder().build();
+
+    private final OffsetDateTimeCodec offsetDateTimeCodec = new OffsetDateTimeCodec();
+
+    private final AisPositionCodec aisPositionCodec = new AisPositionCodec();
+
+    private OffsetDateTime[] timestamps;
+
+    private Date[] dates;
+
+    private byte[] encodedTimestamps;
+
+    private AisData[] aisData;
+
+    private Document[] documents;
+
+    private AisPosition[] positions;
+
+    private byte[] encodedPositions;
+
+    private ConversionService conversionService;
+
+    private MappingMongoConverter mappingConverter;
+
+    @Setup
+    public void setUp() {
+        MongoCustomConversions conversions = new MongoDbConfig().customConversions();
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        mappingContext.afterPropertiesSet();
+        mappingConverter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        mappingConverter.setCustomConversions(conversions);
+        mappingConverter.afterPropertiesSet();
+        conversionService = mappingConverter.getConversionService();
+
+        Instant start = Instant.parse("2021-01-01T00:00:00Z");
+        timestamps = new OffsetDateTime[VALUES];
+        dates = new Date[VALUES];
+        aisData = new AisData[VALUES];
+        documents = new Document[VALUES];
+        positions = new AisPosition[VALUES];
+        for (int i = 0; i < VALUES; i++) {
+            timestamps[i] = OffsetDateTime.ofInstant(start.plusSeconds(i * 10L), ZoneOffset.UTC);
+            dates[i] = Date.from(timestamps[i].toInstant());
+            aisData[i] = new AisData(Integer.toHexString(i), "257961640", "9351098", "0", Integer.toString(100 + i % 50),
+                String.format(Locale.ROOT, "%.6f", 10 + i / 1e5), String.format(Locale.ROOT, "%.6f", 59 + i / 1e5),
+                Integer.toString(i % 360), Integer.toString(i % 360), timestamps[i], "4317723");
+            documents[i] = new Document();
+            mappingConverter.write(aisData[i], documents[i]);
+            positions[i] = AisPosition.of(aisData[i]);
+        }
+        encodedTimestamps = encodeTimestamps().toByteArray();
+        encodedPositions = encodePositions().toByteArray();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public BasicOutputBuffer encodeTimestamps() {
+        var buffer = new BasicOutputBuffer(VALUES * 16);
+        try (var writer = new BsonBinaryWriter(buffer)) {
+            writer.writeStartDocument();
+            for (int i = 0; i < VALUES; i++) {
+                writer.writeName("t");
+                offsetDateTimeCodec.encode(writer, timestamps[i], ENCODER_CONTEXT);
+            }
+            writer.writeEndDocument();
+        }
+        return buffer;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public void decodeTimestamps(Blackhole blackhole) {
+        try (BsonReader reader = new BsonBinaryReader(ByteBuffer.wrap(encodedTimestamps))) {
+            reader.readStartDocument();
+            while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                reader.skipName();
+                blackhole.consume(offsetDateTimeCodec.decode(reader, DECODER_CONTEXT));
+            }
+            reader.readEndDocument();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public void writeConverter(Blackhole blackhole) {
+        for (OffsetDateTime timestamp : timestamps) {
+            blackhole.consume(conversionService.convert(timestamp, Date.class));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public void readConverter(Blackhole blackhole) {
+        for (Date date : dates) {
+            blackhole.consume(conversionService.convert(date, OffsetDateTime.class));
+        }
+    }
+
+    /**
+     * What {@code AisDataBulkWriter} does for every record, without the GeoJSON location.
+     */
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public void writeAisData(Blackhole blackhole) {
+        for (AisData data : aisData) {
+            Document document = new Document();
+            mappingConverter.write(data, document);
+            blackhole.consume(document);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public void readAisData(Blackhole blackhole) {
+        for (Document document : documents) {
+            blackhole.consume(mappingConverter.read(AisData.class, document));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public BasicOutputBuffer encodePositions() {
+        var buffer = new BasicOutputBuffer(VALUES * 128);
+        try (var writer = new BsonBinaryWriter(buffer)) {
+            writer.writeStartDocument();
+            for (int i = 0; i < VALUES; i++) {
+                writer.writeName("p");
+                aisPositionCodec.encode(writer, positions[i], ENCODER_CONTEXT);
+            }
+            writer.writeEndDocument();
+        }
+        return buffer;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public void decodePositions(Blackhole blackhole) {
+        try (BsonReader reader = new BsonBinaryReader(ByteBuffer.wrap(encodedPositions))) {
+            reader.readStartDocument();
+            while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                reader.skipName();
+                blackhole.consume(aisPositionCodec.decode(reader, DECODER_CONTEXT));
+            }
+            reader.readEndDocument();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package no.maddin.ais.benchmark;
+
+import no.maddin.ais.benchmark.BenchmarkReport.Latency;
+import no.maddin.ais.benchmark.BenchmarkReport.Measurement;
+import no.maddin.ais.benchmark.BenchmarkReport.ScenarioResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+
+class ResultComparisonTest {
+
+    @Test
+    void reportSurvivesTheRoundTrip(@TempDir Path dir) throws IOException {
+        BenchmarkReport report = report("abc", 1000, 1100, 900);
+        Path file = dir.resolve("report.json");
+
+        report.write(file);
+
+        assertThat(BenchmarkReport.read(file), equalTo(report));
+    }
+
+    @Test
+    void medianOfTheIterations() {
+        assertThat(report("abc", 1000, 1200, 900).scenarios().getFirst().median(Measurement::recordsPerSecond), equalTo(1000.0));
+        assertThat(report("abc", 1000, 1200).scenarios().getFirst().median(Measurement::recordsPerSecond), equalTo(1100.0));
+    }
+
+    @Test
+    void throughputDropBeyondToleranceIsARegression() {
+        var out = new ByteArrayOutputStream();
+        BenchmarkReport baseline = report("abc", 1000, 1000, 1000);
+
+        assertThat(ResultComparison.compare(baseline, report("def", 950, 950, 950), 10, new PrintStream(out)), equalTo(false));
+        assertThat(ResultComparison.compare(baseline, report("def", 800, 800, 800), 10, new PrintStream(out)), equalTo(true));
+        assertThat(out.toString(StandardCharsets.UTF_8), containsString("abc -> def"));
+    }
+
+    private static BenchmarkReport report(String commit, double... recordsPerSecond) {
+        Scenario scenario = Scenario.defaults().getFirst();
+        List<Measurement> iterations = Arrays.stream(recordsPerSecond)
+            .mapToObj(rate -> new Measurement((long) rate * 10, 500, 0, 500, 10, rate,
+                new Latency(500, 21, 40, 55), new Latency(20, 3, 9, 10), 200_000_000, 50_000_000, 30))
+            .toList();
+        return new BenchmarkReport(commit, Instant.parse("2024-10-01T12:00:00Z"), "21", 8, 2_000_000_000, List.of(new ScenarioResult(scenario, iterations)));
+    }
+}
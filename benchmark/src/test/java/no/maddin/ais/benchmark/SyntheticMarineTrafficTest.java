@@ -0,0 +1,93 @@
+package no.maddin.ais.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import no.maddin.ais.config.MarineTrafficProperties;
+import no.maddin.ais.config.ProviderHttpClientConfig;
+import no.maddin.ais.config.ProviderPoolMetrics;
+import no.maddin.ais.data.AisData;
+import no.maddin.ais.metrics.AisMetrics;
+import no.maddin.ais.reader.MarineTrafficAisReader;
+import no.maddin.ais.reader.MarineTrafficDecoder;
+import no.maddin.ais.reader.MarineTrafficException;
+import no.maddin.ais.reader.MarineTrafficRateLimiter;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+class SyntheticMarineTrafficTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2020, 1, 1, 0, 0);
+
+    @Test
+    void everyWindowIsFilledWithTheRequestedVessel() {
+        try (var server = SyntheticMarineTraffic.start(new SyntheticMarineTraffic.Settings(2500, Duration.ZERO, 0, 0, -1, 1))) {
+            LocalDateTime end = START.plusDays(300);
+            List<AisData> track = Flux.from(reader(server).readAis("257961640", START, end)).collectList().block();
+
+            assertThat(track, hasSize(2 * 2500));
+            assertThat(server.requests(), equalTo(2L));
+            assertThat(track.stream().map(AisData::getMmsi).distinct().toList(), equalTo(List.of("257961640")));
+            List<Long> timestamps = track.stream().map(data -> data.getTimestamp().toInstant().toEpochMilli()).toList();
+            assertThat(timestamps, everyItem(greaterThanOrEqualTo(START.toInstant(ZoneOffset.UTC).toEpochMilli())));
+            assertThat(timestamps, everyItem(lessThanOrEqualTo(end.toInstant(ZoneOffset.UTC).toEpochMilli())));
+        }
+    }
+
+    @Test
+    void failedRequestsAreRetried() {
+        try (var server = SyntheticMarineTraffic.start(new SyntheticMarineTraffic.Settings(10, Duration.ZERO, 0.3, 0.2, -1, 7))) {
+            StepVerifier.create(Flux.range(0, 20).concatMap(i -> reader(server).readAis(Integer.toString(200_000_000 + i), START, START.plusDays(1))))
+                .expectNextCount(20 * 10)
+                .verifyComplete();
+
+            assertThat(server.requests(), equalTo(20 + server.failures()));
+        }
+    }
+
+    @Test
+    void requestsFailOnceTheCreditsAreUsedUp() {
+        try (var server = SyntheticMarineTraffic.start(new SyntheticMarineTraffic.Settings(10, Duration.ZERO, 0, 0, 1, 1))) {
+            var reader = reader(server);
+            StepVerifier.create(reader.readAis("257961640", START, START.plusDays(1)))
+                .expectNextCount(10)
+                .verifyComplete();
+            StepVerifier.create(reader.readAis("257961640", START, START.plusDays(1)))
+                .expectErrorSatisfies(e -> {
+                    assertThat(e, instanceOf(MarineTrafficException.class));
+                    assertThat(((MarineTrafficException) e).getCode(), equalTo("5a2"));
+                })
+                .verify();
+        }
+    }
+
+    private static MarineTrafficAisReader reader(SyntheticMarineTraffic server) {
+        var properties = new MarineTrafficProperties();
+        properties.setApiKey("benchmark");
+        properties.setUrl(server.url());
+        properties.getRateLimit().setRequestsPerMinute(60_000);
+        properties.getRateLimit().setBurst(100);
+        properties.getRateLimit().setMinBackoff(Duration.ofMillis(1));
+        properties.getRateLimit().setPollingPeriod(Duration.ofMillis(1));
+        properties.getRateLimit().setMaxRetries(20);
+        var objectMapper = new ObjectMapper();
+        var metrics = new AisMetrics(new SimpleMeterRegistry());
+        var webClient = ProviderHttpClientConfig.providerWebClient(WebClient.builder(), "marinetraffic", properties.getHttp(), new ProviderPoolMetrics());
+        return new MarineTrafficAisReader(properties, objectMapper, new MarineTrafficDecoder(objectMapper), webClient,
+            new MarineTrafficRateLimiter(properties, metrics), metrics);
+    }
+}
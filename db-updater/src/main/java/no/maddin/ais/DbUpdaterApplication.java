@@ -2,16 +2,26 @@ package no.maddin.ais;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import no.maddin.ais.compaction.PositionCompactor;
+import no.maddin.ais.config.AisReaderConfig;
+import no.maddin.ais.export.AisExporter;
+import no.maddin.ais.reader.AisPollingDaemon;
+import no.maddin.ais.reader.ArchiveImporter;
 import no.maddin.ais.reader.AisReaderService;
+import no.maddin.ais.rollup.RollupRebuilder;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.WebApplicationType;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.event.ApplicationEnvironmentPreparedEvent;
+import org.springframework.boot.context.properties.bind.Binder;
 import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationListener;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Profile;
 
+import java.lang.management.ManagementFactory;
 import java.time.Duration;
 
 @SpringBootApplication
@@ -20,24 +30,72 @@ import java.time.Duration;
 public class DbUpdaterApplication {
 
     public static void main(String[] args) {
-        new SpringApplicationBuilder(DbUpdaterApplication.class)
-            .web(WebApplicationType.NONE)
-            .run(args);
+        var application = new SpringApplication(DbUpdaterApplication.class);
+        application.addListeners((ApplicationListener<ApplicationEnvironmentPreparedEvent>) DbUpdaterApplication::webApplicationType);
+        application.run(args);
+    }
+
+    /**
+     * The web server only serves the actuator endpoints of the daemon. The other modes are batch runs, they must not
+     * take its port from a daemon or another run. An explicit {@code spring.main.web-application-type} still wins.
+     */
+    static void webApplicationType(ApplicationEnvironmentPreparedEvent event) {
+        AisReaderConfig.Mode mode = Binder.get(event.getEnvironment())
+            .bind("ais.reader.mode", AisReaderConfig.Mode.class)
+            .orElse(AisReaderConfig.Mode.ONCE);
+        event.getSpringApplication().setWebApplicationType(mode == AisReaderConfig.Mode.DAEMON ? WebApplicationType.REACTIVE : WebApplicationType.NONE);
     }
 
     private final AisReaderService aisReaderService;
     private final ApplicationContext applicationContext;
+    private final AisReaderConfig aisReaderConfig;
+    private final ObjectProvider<AisPollingDaemon> aisPollingDaemon;
+    private final ArchiveImporter archiveImporter;
+    private final RollupRebuilder rollupRebuilder;
+    private final AisExporter aisExporter;
+    private final PositionCompactor positionCompactor;
 
     @Bean
-    @Profile("!test")
+    @Profile("!test & !benchmark")
     CommandLineRunner runner() {
         return args -> {
-            var data = aisReaderService.readAis()
-                .log("main")
-                .blockLast(Duration.ofHours(1L));
+            log.info("Started in {} mode after {} ms", aisReaderConfig.getMode(), ManagementFactory.getRuntimeMXBean().getUptime());
+            if (aisReaderConfig.getMode() == AisReaderConfig.Mode.DAEMON) {
+                // keep the main thread until the context is closed, Reactor's threads are daemon threads
+                aisPollingDaemon.getObject().awaitTermination();
+                return;
+            }
+            if (aisReaderConfig.getMode() == AisReaderConfig.Mode.IMPORT) {
+                Long records = archiveImporter.importArchives().block();
+                log.info("Imported {} records", records);
+                SpringApplication.exit(applicationContext, () -> 0);
+                return;
+            }
+            if (aisReaderConfig.getMode() == AisReaderConfig.Mode.REBUILD_ROLLUPS) {
+                Long positions = rollupRebuilder.rebuild().block();
+                log.info("Rebuilt rollups from {} positions", positions);
+                SpringApplication.exit(applicationContext, () -> 0);
+                return;
+            }
+            if (aisReaderConfig.getMode() == AisReaderConfig.Mode.EXPORT) {
+                Long positions = aisExporter.export().block();
+                log.info("Exported {} positions", positions);
+                SpringApplication.exit(applicationContext, () -> 0);
+                return;
+            }
+            if (aisReaderConfig.getMode() == AisReaderConfig.Mode.COMPACT) {
+                Long positions = positionCompactor.compact().block();
+                log.info("Compacted {} positions", positions);
+                SpringApplication.exit(applicationContext, () -> 0);
+                return;
+            }
+            var results = aisReaderService.readFleet()
+                .collectList()
+                .block(Duration.ofHours(1L));
 
-            log.info("Last Record: {}", data);
-            SpringApplication.exit(applicationContext, () -> data != null ? 0 : 2);
+            long failed = results == null ? 0 : results.stream().filter(r -> !r.isSuccess()).count();
+            log.info("Read {} vessels, {} failed", results == null ? 0 : results.size(), failed);
+            SpringApplication.exit(applicationContext, () -> results != null && failed == 0 ? 0 : 2);
         };
     }
 }
@@ -0,0 +1,57 @@
+package no.maddin.ais.compaction;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import no.maddin.ais.config.AisCompactionConfig;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Runs the {@link PositionCompactor} every {@link AisCompactionConfig#getInterval()} in daemon mode, starting with the
+ * first interval. A compaction that takes longer than the interval drops the ticks it overruns, without prefetch none
+ * are queued. A failed compaction is logged and tried again at the next one. Stopping cancels a running compaction,
+ * which leaves nothing behind that the next one does not finish.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(prefix = "ais.reader", name = "mode", havingValue = "daemon")
+public class CompactionScheduler implements SmartLifecycle {
+
+    private final PositionCompactor positionCompactor;
+
+    private final AisCompactionConfig aisCompactionConfig;
+
+    private volatile Disposable compaction;
+
+    @Override
+    public void start() {
+        if (!aisCompactionConfig.isEnabled()) {
+            return;
+        }
+        compaction = Flux.interval(aisCompactionConfig.getInterval())
+            .onBackpressureDrop()
+            .concatMap(tick -> positionCompactor.compact()
+                .onErrorResume(e -> {
+                    log.warn("Compaction failed: {}", e.getMessage());
+                    return Mono.empty();
+                }), 0)
+            .subscribe();
+    }
+
+    @Override
+    public void stop() {
+        if (compaction != null) {
+            compaction.dispose();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return compaction != null && !compaction.isDisposed();
+    }
+}
@@ -0,0 +1,122 @@
+package no.maddin.ais.compaction;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import no.maddin.ais.config.AisCompactionConfig;
+import no.maddin.ais.data.AisData;
+import no.maddin.ais.data.AisPosition;
+import no.maddin.ais.data.PositionBlock;
+import no.maddin.ais.data.PositionBlockCodec;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Moves the positions of whole UTC days older than {@link AisCompactionConfig#getHotWindow()} from {@code aisdata} into
+ * one {@link PositionBlock} per vessel and day. The block is written before the positions are deleted, by id,
+ * so an interrupted compaction leaves positions in both places and the next one finishes it. Positions that
+ * arrive for a day that is already compacted are merged into its block the next time. As they are new to {@code aisdata},
+ * the {@link no.maddin.ais.rollup.RollupUpdater} looks them up in the blocks, so they are not added to the rollups twice.
+ * Positions that can't be typed, without a numeric MMSI, stay in {@code aisdata}, as do those of a day whose block is of
+ * an unknown {@link PositionBlockCodec#VERSION}.
+ * <p>
+ * With {@code ais.storage.time-series} the deletes need MongoDB 7 or later.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PositionCompactor {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    private final AisCompactionConfig aisCompactionConfig;
+
+    /**
+     * @return the number of positions moved into blocks
+     */
+    public Mono<Long> compact() {
+        Instant cutoff = cutoff(aisCompactionConfig.getHotWindow(), Instant.now());
+        return mongoTemplate.findDistinct(Query.query(Criteria.where("timestamp").lt(cutoff)), "mmsi", AisData.class, String.class)
+            .flatMap(mmsi -> compact(mmsi, cutoff), aisCompactionConfig.getConcurrency())
+            .reduce(0L, Long::sum)
+            .doOnNext(positions -> log.info("Compacted {} positions before {}", positions, cutoff));
+    }
+
+    /**
+     * Start of the first UTC day within {@code hotWindow} before {@code now}, positions before it are compacted.
+     */
+    public static Instant cutoff(Duration hotWindow, Instant now) {
+        return LocalDate.ofInstant(now.minus(hotWindow), ZoneOffset.UTC).atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+
+    Mono<Long> compact(String mmsi, Instant cutoff) {
+        Query query = Query.query(Criteria.where("mmsi").is(mmsi).and("timestamp").lt(cutoff))
+            .with(Sort.by("timestamp"))
+            .cursorBatchSize(aisCompactionConfig.getBatchSize());
+        return mongoTemplate.find(query, AisData.class)
+            .bufferUntilChanged(aisData -> aisData.getTimestamp().withOffsetSameInstant(ZoneOffset.UTC).toLocalDate())
+            .concatMap(day -> compactDay(mmsi, day))
+            .reduce(0L, Long::sum)
+            .doOnNext(positions -> log.debug("Compacted {} positions of {}", positions, mmsi));
+    }
+
+    private Mono<Long> compactDay(String mmsi, List<AisData> day) {
+        List<AisPosition> positions = new ArrayList<>(day.size());
+        List<String> ids = new ArrayList<>(day.size());
+        for (AisData aisData : day) {
+            try {
+                positions.add(AisPosition.of(aisData));
+                ids.add(aisData.getId());
+            } catch (IllegalArgumentException e) {
+                log.debug("Not compacting {}: {}", aisData.getId(), e.getMessage());
+            }
+        }
+        if (positions.isEmpty()) {
+            return Mono.just(0L);
+        }
+        LocalDate date = day.get(0).getTimestamp().withOffsetSameInstant(ZoneOffset.UTC).toLocalDate();
+        String id = PositionBlock.id(mmsi, date);
+        return mongoTemplate.findById(id, PositionBlock.class)
+            .map(existing -> merge(PositionBlockCodec.decode(existing), positions))
+            .defaultIfEmpty(merge(List.of(), positions))
+            .flatMap(merged -> mongoTemplate.save(block(id, mmsi, date, merged)))
+            .then(mongoTemplate.remove(Query.query(Criteria.where("_id").in(ids)), AisData.class))
+            .thenReturn((long) positions.size());
+    }
+
+    /**
+     * Positions of both in time order, the compacted one wins if both have the same timestamp, as the writer keeps the first.
+     */
+    static List<AisPosition> merge(Collection<AisPosition> compacted, Collection<AisPosition> positions) {
+        Map<Long, AisPosition> byTimestamp = new TreeMap<>();
+        positions.forEach(position -> byTimestamp.put(position.getTimestamp(), position));
+        compacted.forEach(position -> byTimestamp.put(position.getTimestamp(), position));
+        return new ArrayList<>(byTimestamp.values());
+    }
+
+    static PositionBlock block(String id, String mmsi, LocalDate date, List<AisPosition> positions) {
+        Instant start = date.atStartOfDay(ZoneOffset.UTC).toInstant();
+        return PositionBlock.builder()
+            .id(id)
+            .mmsi(mmsi)
+            .start(start.atOffset(ZoneOffset.UTC))
+            .end(date.plusDays(1).atStartOfDay(ZoneOffset.UTC).toOffsetDateTime())
+            .count(positions.size())
+            .version(PositionBlockCodec.VERSION)
+            .positions(PositionBlockCodec.encode(positions, start.toEpochMilli()))
+            .build();
+    }
+}
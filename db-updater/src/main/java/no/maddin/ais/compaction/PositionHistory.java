@@ -0,0 +1,115 @@
+package no.maddin.ais.compaction;
+
+import lombok.RequiredArgsConstructor;
+import no.maddin.ais.data.AisData;
+import no.maddin.ais.data.AisPosition;
+import no.maddin.ais.data.PositionBlock;
+import no.maddin.ais.data.PositionBlockCodec;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reads the positions of a vessel from {@code aisdata} and from the compacted {@code aispositionblocks} as one track.
+ * Both are read in time order and merged, a position that is in both, because it arrived after its day was compacted
+ * or a compaction was interrupted, is returned once.
+ */
+@Component
+@RequiredArgsConstructor
+public class PositionHistory {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    /**
+     * All vessels with positions in {@code aisdata} or {@code aispositionblocks}.
+     */
+    public Flux<String> vessels() {
+        return Flux.concat(
+                mongoTemplate.findDistinct(new Query(), "mmsi", AisData.class, String.class),
+                mongoTemplate.findDistinct(new Query(), "mmsi", PositionBlock.class, String.class))
+            .distinct();
+    }
+
+    /**
+     * Positions of one vessel in {@code [from, to)}, oldest first. Both bounds are optional.
+     * Compacted positions have no id.
+     */
+    public Flux<AisData> track(String mmsi, Instant from, Instant to, int batchSize) {
+        Criteria hot = Criteria.where("mmsi").is(mmsi);
+        Criteria cold = Criteria.where("mmsi").is(mmsi);
+        if (from != null || to != null) {
+            Criteria timestamp = hot.and("timestamp");
+            if (from != null) {
+                timestamp.gte(from);
+                cold.and("end").gt(from);
+            }
+            if (to != null) {
+                timestamp.lt(to);
+                cold.and("start").lt(to);
+            }
+        }
+        Flux<AisData> positions = mongoTemplate.find(Query.query(hot).with(Sort.by("timestamp")).cursorBatchSize(batchSize), AisData.class);
+        Flux<AisData> blocks = mongoTemplate.find(Query.query(cold).with(Sort.by("start")), PositionBlock.class)
+            .concatMapIterable(PositionBlockCodec::decode)
+            .filter(position -> (from == null || position.getTimestamp() >= from.toEpochMilli()) && (to == null || position.getTimestamp() < to.toEpochMilli()))
+            .map(AisPosition::toAisData);
+        return merge(positions, blocks);
+    }
+
+    /**
+     * The records that are not in a compacted block, in their order. A position of a compacted day that is delivered
+     * again, e.g. by the import of an old archive, is new to {@code aisdata} but not to the history.
+     * Only records before {@code cutoff} are looked up, later days are not compacted.
+     *
+     * @throws IllegalArgumentException if a block is of an unknown version
+     */
+    public Mono<List<AisData>> notCompacted(Collection<AisData> records, Instant cutoff) {
+        Set<String> ids = new HashSet<>();
+        for (AisData aisData : records) {
+            String id = blockId(aisData, cutoff);
+            if (id != null) {
+                ids.add(id);
+            }
+        }
+        if (ids.isEmpty()) {
+            return Mono.just(new ArrayList<>(records));
+        }
+        return mongoTemplate.find(Query.query(Criteria.where("_id").in(ids)), PositionBlock.class)
+            .collectMap(PositionBlock::getId, block -> PositionBlockCodec.decode(block).stream().mapToLong(AisPosition::getTimestamp).toArray())
+            .map(compacted -> records.stream()
+                .filter(aisData -> {
+                    long[] timestamps = compacted.get(blockId(aisData, cutoff));
+                    return timestamps == null || Arrays.binarySearch(timestamps, aisData.getTimestamp().toInstant().toEpochMilli()) < 0;
+                })
+                .toList());
+    }
+
+    /**
+     * {@code null} if the record can't be in a block before {@code cutoff}.
+     */
+    private static String blockId(AisData aisData, Instant cutoff) {
+        if (aisData.getMmsi() == null || aisData.getTimestamp() == null || !aisData.getTimestamp().toInstant().isBefore(cutoff)) {
+            return null;
+        }
+        return PositionBlock.id(aisData.getMmsi(), aisData.getTimestamp().withOffsetSameInstant(ZoneOffset.UTC).toLocalDate());
+    }
+
+    static Flux<AisData> merge(Flux<AisData> positions, Flux<AisData> blocks) {
+        return Flux.mergeComparing(Comparator.comparing(AisData::getTimestamp), positions, blocks)
+            .distinctUntilChanged(aisData -> aisData.getTimestamp().toInstant());
+    }
+}
@@ -0,0 +1,40 @@
+package no.maddin.ais.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "ais.compaction")
+@Configuration
+@Data
+public class AisCompactionConfig {
+
+    /**
+     * Compact positions older than {@link #hotWindow} into {@code aispositionblocks} and delete them from {@code aisdata}
+     * every {@link #interval} in {@link AisReaderConfig.Mode#DAEMON} mode. {@link AisReaderConfig.Mode#COMPACT} compacts once in any case.
+     */
+    boolean enabled = false;
+
+    /**
+     * Positions of the last days within this window stay in {@code aisdata} at full resolution. Compaction works on whole UTC days.
+     * Compacted positions have no location, the ui's search by area only finds vessels by their positions within this window.
+     */
+    Duration hotWindow = Duration.ofDays(30);
+
+    /**
+     * Time between two compactions in {@link AisReaderConfig.Mode#DAEMON} mode.
+     */
+    Duration interval = Duration.ofDays(1);
+
+    /**
+     * Vessels compacted at the same time. Each one holds one day of positions in memory.
+     */
+    int concurrency = 4;
+
+    /**
+     * Documents fetched from Mongo per cursor batch.
+     */
+    int batchSize = 10_000;
+}
@@ -0,0 +1,71 @@
+package no.maddin.ais.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "ais.events")
+@Configuration
+@Data
+public class AisEventsConfig {
+
+    /**
+     * Detect events in the positions read by the providers. Archive imports are never evaluated.
+     */
+    boolean enabled = true;
+
+    /**
+     * GeoJSON FeatureCollection with Polygon or MultiPolygon features. The feature's {@code id} (or {@code properties.id}),
+     * {@code properties.name} and {@code properties.type} are copied to the events, type {@code port} marks a port.
+     * Without fences only movement and loitering events are detected.
+     */
+    Path geofences;
+
+    /**
+     * Side of a cell of the spatial index in degrees. Smaller cells mean fewer candidate polygons per position and more memory.
+     */
+    double gridCellSize = 0.25;
+
+    /**
+     * Below this speed, in tenths of a knot as in {@code SPEED}, a vessel is stopped.
+     */
+    int stoppedSpeed = 5;
+
+    /**
+     * At or above this speed, in tenths of a knot, a stopped vessel is under way again.
+     */
+    int underwaySpeed = 20;
+
+    /**
+     * A vessel that stays stopped inside a port this long makes a port call.
+     */
+    Duration portCallMinDuration = Duration.ofMinutes(30);
+
+    /**
+     * A vessel outside a port that stays within this distance in meters ...
+     */
+    double loiteringRadius = 1000;
+
+    /**
+     * ... for this long is loitering.
+     */
+    Duration loiteringMinDuration = Duration.ofHours(2);
+
+    /**
+     * Maximum number of events in one bulk write.
+     */
+    int batchSize = 500;
+
+    /**
+     * Maximum time an event waits before a smaller batch is written.
+     */
+    Duration batchTimeout = Duration.ofSeconds(1);
+
+    /**
+     * Events waiting to be written. Further events are dropped and counted until the writer catches up.
+     */
+    int bufferSize = 100_000;
+}
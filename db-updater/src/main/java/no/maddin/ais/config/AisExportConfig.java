@@ -0,0 +1,74 @@
+package no.maddin.ais.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+@ConfigurationProperties(prefix = "ais.export")
+@Configuration
+@Data
+public class AisExportConfig {
+
+    /**
+     * {@link AisReaderConfig.Mode#EXPORT} writes one Arrow IPC file per vessel and partition here, as {@code <mmsi>/<partition>.arrow}.
+     */
+    Path directory = Path.of("export");
+
+    /**
+     * Vessels to export, all vessels in {@code aisdata} if empty.
+     */
+    List<String> mmsis = new ArrayList<>();
+
+    /**
+     * First day exported when a vessel has no partitions yet, all its positions if not set.
+     */
+    LocalDate from;
+
+    Partition partition = Partition.DAY;
+
+    /**
+     * A partition is only written once it ended this long ago, so positions that arrive late are part of it.
+     */
+    Duration settle = Duration.ofHours(1);
+
+    /**
+     * Only export the partitions after the newest one already in {@link #directory}. Otherwise all partitions are written again.
+     */
+    boolean incremental = true;
+
+    Compression compression = Compression.ZSTD;
+
+    /**
+     * Vessels exported at the same time.
+     */
+    int concurrency = 4;
+
+    /**
+     * Off-heap memory for the column buffers of all vessels exported at the same time.
+     * The rows per record batch are chosen to fit, whatever the size of the export.
+     */
+    DataSize memoryLimit = DataSize.ofMegabytes(256);
+
+    /**
+     * Upper limit of the rows per record batch.
+     */
+    int maxBatchRows = 65_536;
+
+    public enum Partition {
+        DAY,
+        MONTH
+    }
+
+    public enum Compression {
+        NONE,
+        LZ4,
+        ZSTD
+    }
+}
@@ -0,0 +1,59 @@
+package no.maddin.ais.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+@ConfigurationProperties(prefix = "ais.import")
+@Configuration
+@Data
+public class AisImportConfig {
+
+    /**
+     * Archive files imported in {@link AisReaderConfig.Mode#IMPORT} mode, in this order.
+     */
+    List<Path> files = new ArrayList<>();
+
+    Format format = Format.AUTO;
+
+    /**
+     * Chunks parsed and written at the same time.
+     */
+    int parallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Files are split into chunks of about this size, at line boundaries.
+     */
+    DataSize chunkSize = DataSize.ofMegabytes(64);
+
+    /**
+     * Chunks that have been completely written are listed here and skipped when the import is started again.
+     * Delete the file to import the same archives again.
+     */
+    Path checkpointFile = Path.of("ais-import.checkpoint");
+
+    /**
+     * Import every vessel instead of only the tracked ones.
+     */
+    boolean allVessels;
+
+    public enum Format {
+        /**
+         * NMEA if the first line starts with '!', '$' or a tag block, otherwise CSV.
+         */
+        AUTO,
+        /**
+         * Raw AIVDM sentences, one per line.
+         */
+        NMEA,
+        /**
+         * CSV with a header line, as published by the Danish Maritime Authority or MarineCadastre.gov.
+         */
+        CSV
+    }
+}
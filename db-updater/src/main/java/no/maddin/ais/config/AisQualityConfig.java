@@ -0,0 +1,35 @@
+package no.maddin.ais.config;
+
+import lombok.Data;
+import no.maddin.ais.quality.QualityReason;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+@ConfigurationProperties(prefix = "ais.quality")
+@Configuration
+@Data
+public class AisQualityConfig {
+
+    /**
+     * Check the positions read by the providers before they are written. Archive imports are never checked.
+     */
+    boolean enabled = true;
+
+    /**
+     * Positions failing these checks are dropped. Positions failing the other checks are only counted and logged, and stored.
+     */
+    Set<QualityReason> reject = EnumSet.allOf(QualityReason.class);
+
+    /**
+     * Highest plausible speed in knots between two positions of a vessel.
+     */
+    double maxSpeed = 60;
+
+    /**
+     * Meters two positions may be further apart than the maximum speed allows, for GPS jitter between reports a few seconds apart.
+     */
+    double jumpTolerance = 500;
+}
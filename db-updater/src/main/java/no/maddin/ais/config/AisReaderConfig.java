@@ -4,13 +4,89 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
 
 @ConfigurationProperties(prefix = "ais.reader")
 @Configuration
 @Data
 public class AisReaderConfig {
+    /**
+     * The only provider to read from, ignored if {@link #providers} is set.
+     */
     String type;
+
+    /**
+     * Providers read from at the same time, highest priority first.
+     * When two providers report the same position, the one listed first is kept.
+     */
+    List<String> providers = new ArrayList<>();
+
+    /**
+     * Positions of one vessel from different providers at most this far apart in time and at the same place
+     * are treated as the same report.
+     */
+    Duration dedupTolerance = Duration.ofSeconds(2);
     LocalDate startDate;
     String mmsi;
-}
\ No newline at end of file
+
+    /**
+     * Vessels to follow in one run. Combined with {@link #mmsiFile} and {@link #mmsi}.
+     */
+    List<String> mmsis = new ArrayList<>();
+
+    /**
+     * File with one MMSI per line. Blank lines and lines starting with '#' are ignored.
+     */
+    Path mmsiFile;
+
+    /**
+     * Number of vessels read from the provider at the same time.
+     */
+    int concurrency = 4;
+
+    /**
+     * Only {@link Mode#DAEMON} starts the web server for the actuator endpoints.
+     */
+    Mode mode = Mode.ONCE;
+
+    /**
+     * Time between the start of two polling cycles in {@link Mode#DAEMON} mode.
+     */
+    Duration pollInterval = Duration.ofMinutes(15);
+
+    /**
+     * How long shutdown waits for a running polling cycle to finish.
+     */
+    Duration shutdownTimeout = Duration.ofMinutes(5);
+
+    public enum Mode {
+        /**
+         * Read all vessels once and exit.
+         */
+        ONCE,
+        /**
+         * Keep running and read all vessels every {@link #pollInterval}.
+         */
+        DAEMON,
+        /**
+         * Import the archive files of {@code ais.import.files} and exit.
+         */
+        IMPORT,
+        /**
+         * Recompute the rollups of {@code ais.rollups.rebuild-mmsis} from {@code aisdata} and exit.
+         */
+        REBUILD_ROLLUPS,
+        /**
+         * Write the positions in {@code aisdata} to columnar files in {@code ais.export.directory} and exit.
+         */
+        EXPORT,
+        /**
+         * Compact the positions older than {@code ais.compaction.hot-window} and exit.
+         */
+        COMPACT
+    }
+}
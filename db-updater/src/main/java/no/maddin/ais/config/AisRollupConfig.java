@@ -0,0 +1,52 @@
+package no.maddin.ais.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@ConfigurationProperties(prefix = "ais.rollups")
+@Configuration
+@Data
+public class AisRollupConfig {
+
+    /**
+     * Update the hourly, daily and per-voyage rollups in {@code aisrollups} with every stored batch.
+     * Positions that are older than the newest one of their vessel, as in archive imports, only count as positions:
+     * run {@link AisReaderConfig.Mode#REBUILD_ROLLUPS} afterwards to get distances and times right.
+     */
+    boolean enabled = true;
+
+    /**
+     * At or above this speed, in tenths of a knot as in {@code SPEED}, a vessel is under way unless it is moored or at anchor.
+     */
+    int underwaySpeed = 10;
+
+    /**
+     * A vessel that was not under way for this long starts a new voyage when it gets under way again.
+     */
+    Duration voyageMinStop = Duration.ofHours(2);
+
+    /**
+     * Consecutive positions further apart in time are a gap in the data: the distance and time between them are not counted.
+     */
+    Duration maxGap = Duration.ofHours(6);
+
+    /**
+     * Vessels whose rollups {@link AisReaderConfig.Mode#REBUILD_ROLLUPS} recomputes, all vessels in {@code aisdata} if empty.
+     */
+    List<String> rebuildMmsis = new ArrayList<>();
+
+    /**
+     * Vessels rebuilt at the same time.
+     */
+    int rebuildConcurrency = 4;
+
+    /**
+     * Positions read from {@code aisdata} per rollup write during a rebuild.
+     */
+    int rebuildBatchSize = 10_000;
+}
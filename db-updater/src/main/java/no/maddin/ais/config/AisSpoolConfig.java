@@ -0,0 +1,60 @@
+package no.maddin.ais.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "ais.spool")
+@Configuration
+@Data
+public class AisSpoolConfig {
+
+    /**
+     * Append the records read by the providers to a log on disk and write them to Mongo from there.
+     * Reading then continues at the newest spooled record even if Mongo is down, and nothing that was downloaded is lost.
+     */
+    boolean enabled = false;
+
+    Path directory = Path.of("spool");
+
+    /**
+     * A segment is closed when it is this large. Segments are deleted once all their records are in Mongo.
+     */
+    DataSize segmentSize = DataSize.ofMegabytes(64);
+
+    /**
+     * Appending fails when the segments on disk take more space.
+     */
+    DataSize maxSize = DataSize.ofGigabytes(10);
+
+    /**
+     * Appended batches are forced to disk together, at the latest after this time. Zero forces every batch on its own.
+     */
+    Duration fsyncInterval = Duration.ofMillis(50);
+
+    /**
+     * ... or as soon as this much has been appended since the last force.
+     */
+    DataSize fsyncSize = DataSize.ofMegabytes(4);
+
+    /**
+     * Records read from the spool and written to Mongo at a time.
+     */
+    int drainBatchSize = 5000;
+
+    /**
+     * First wait after a failed write to Mongo, doubled with every further failure up to {@link #maxRetryBackoff}.
+     */
+    Duration minRetryBackoff = Duration.ofSeconds(1);
+
+    Duration maxRetryBackoff = Duration.ofMinutes(1);
+
+    /**
+     * How long the drainer keeps writing on shutdown. What is left stays on disk for the next start.
+     */
+    Duration shutdownTimeout = Duration.ofMinutes(1);
+}
@@ -0,0 +1,21 @@
+package no.maddin.ais.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.timeseries.Granularity;
+
+@ConfigurationProperties(prefix = "ais.storage")
+@Configuration
+@Data
+public class AisStorageConfig {
+
+    /**
+     * Create {@code aisdata} as a time-series collection with {@code timestamp} as time field and {@code mmsi} as meta field.
+     * Time-series collections can't have unique indexes or upserts, so positions are inserted and the
+     * reader resumes strictly after the last stored position. Only applies when the collection is created.
+     */
+    boolean timeSeries = false;
+
+    Granularity granularity = Granularity.SECONDS;
+}
@@ -0,0 +1,23 @@
+package no.maddin.ais.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "ais.writer")
+@Configuration
+@Data
+public class AisWriterConfig {
+
+    /**
+     * Maximum number of records in one bulk write.
+     */
+    int batchSize = 1000;
+
+    /**
+     * Maximum time a record waits in the buffer before a smaller batch is written.
+     */
+    Duration batchTimeout = Duration.ofSeconds(1);
+}
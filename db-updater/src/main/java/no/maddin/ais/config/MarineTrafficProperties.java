@@ -4,6 +4,10 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+
 @ConfigurationProperties(prefix = "marinetraffic")
 @Configuration
 @Data
@@ -11,4 +15,50 @@ public class MarineTrafficProperties {
 
     private String apiKey;
     private String url;
+
+    /**
+     * Number of {@code MAX_DAYS} windows of one vessel requested at the same time.
+     */
+    private int windowConcurrency = 2;
+
+    private ProviderHttpProperties http = new ProviderHttpProperties();
+
+    private RateLimit rateLimit = new RateLimit();
+
+    @Data
+    public static class RateLimit {
+
+        private int requestsPerMinute = 30;
+
+        /**
+         * Requests that may be sent at once after a quiet period.
+         */
+        private int burst = 5;
+
+        /**
+         * How long to stop all requests when MarineTraffic asks us to wait.
+         */
+        private Duration pollingPeriod = Duration.ofMinutes(1);
+
+        /**
+         * MarineTraffic error codes that mean "wait for the polling period". HTTP 429 is always one of them.
+         */
+        private Set<String> waitCodes = new HashSet<>();
+
+        /**
+         * MarineTraffic error codes that are retried with backoff. 5xx responses always are.
+         */
+        private Set<String> backoffCodes = new HashSet<>();
+
+        private int maxRetries = 5;
+
+        private Duration minBackoff = Duration.ofSeconds(1);
+
+        private Duration maxBackoff = Duration.ofMinutes(2);
+
+        /**
+         * Random part of the backoff, 0.5 is +/- 50%.
+         */
+        private double jitter = 0.5;
+    }
 }
@@ -3,20 +3,32 @@ package no.maddin.ais.config;
 import com.mongodb.ConnectionString;
 import com.mongodb.MongoClientSettings;
 import lombok.extern.slf4j.Slf4j;
+import no.maddin.ais.data.AisData;
+import no.maddin.ais.data.AisEvent;
+import no.maddin.ais.data.AisPositionCodec;
 import no.maddin.ais.data.OffsetDateTimeCodec;
+import no.maddin.ais.data.OffsetDateTimeConversions;
+import no.maddin.ais.data.PositionBlock;
+import no.maddin.ais.data.Rollup;
 import org.bson.codecs.configuration.CodecRegistries;
 import org.bson.codecs.configuration.CodecRegistry;
 import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.ApplicationListener;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.core.env.Environment;
-import org.springframework.data.convert.ConverterBuilder;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.CollectionOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
 import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.index.GeoSpatialIndexType;
+import org.springframework.data.mongodb.core.index.GeospatialIndex;
+import org.springframework.data.mongodb.core.index.Index;
 import org.springframework.data.mongodb.util.MongoCompatibilityAdapter;
+import reactor.core.publisher.Mono;
 
-import java.time.OffsetDateTime;
-import java.util.Date;
-import java.util.List;
+import java.time.Duration;
 
 @Configuration
 @Slf4j
@@ -28,7 +40,7 @@ public class MongoDbConfig {
             builder.codecRegistry(
                 CodecRegistries.fromRegistries(
                     MongoClientSettings.getDefaultCodecRegistry(),
-                    CodecRegistries.fromCodecs(new OffsetDateTimeCodec())
+                    CodecRegistries.fromCodecs(new OffsetDateTimeCodec(), new AisPositionCodec())
                 )
             );
         };
@@ -59,10 +71,87 @@ public class MongoDbConfig {
 
     @Bean
     public MongoCustomConversions customConversions() {
-        ConverterBuilder.WritingConverterBuilder<OffsetDateTime, Date> writer = ConverterBuilder.writing(OffsetDateTime.class, Date.class, offsetDateTime -> Date.from(offsetDateTime.toInstant()));
-        ConverterBuilder.ReadingConverterBuilder<Date, OffsetDateTime> reader = ConverterBuilder.reading(Date.class, OffsetDateTime.class, date -> OffsetDateTime.ofInstant(date.toInstant(), java.time.ZoneOffset.UTC));
+        return OffsetDateTimeConversions.customConversions();
+    }
+
+    /**
+     * Creates {@code aisdata} as a time-series collection if {@link AisStorageConfig#isTimeSeries()} is set.
+     * Otherwise makes sure the natural key (mmsi, timestamp) is unique, the bulk writer upserts on it.
+     * Both layouts get a 2dsphere index on {@code location}.
+     */
+    @Bean
+    public ApplicationListener<ContextRefreshedEvent> aisDataStorage(ReactiveMongoTemplate mongoTemplate, AisStorageConfig aisStorageConfig) {
+        return event -> {
+            Mono<?> collection = aisStorageConfig.isTimeSeries()
+                ? mongoTemplate.collectionExists(AisData.class)
+                    .filter(exists -> !exists)
+                    .flatMap(notExists -> mongoTemplate.createCollection(AisData.class, CollectionOptions.empty()
+                        .timeSeries(CollectionOptions.TimeSeriesOptions.timeSeries("timestamp")
+                            .metaField("mmsi")
+                            .granularity(aisStorageConfig.getGranularity()))))
+                    .doOnNext(created -> log.info("Created time-series collection aisdata"))
+                    .then(mongoTemplate.indexOps(AisData.class)
+                        .ensureIndex(new Index()
+                            .on("mmsi", Sort.Direction.ASC)
+                            .on("timestamp", Sort.Direction.ASC)
+                            .named("mmsi_timestamp")))
+                : mongoTemplate.indexOps(AisData.class)
+                    .ensureIndex(new Index()
+                        .on("mmsi", Sort.Direction.ASC)
+                        .on("timestamp", Sort.Direction.ASC)
+                        .unique()
+                        .named("mmsi_timestamp"))
+                    .doOnError(e -> log.error("Could not create unique index on aisdata (mmsi, timestamp), remove duplicates first", e));
+
+            collection
+                .then(mongoTemplate.indexOps(AisData.class).ensureIndex(new GeospatialIndex("location")
+                    .typed(GeoSpatialIndexType.GEO_2DSPHERE)
+                    .named("location")))
+                .block(Duration.ofMinutes(10));
+        };
+    }
 
-        return new MongoCustomConversions(List.of(reader, writer));
+    /**
+     * Makes sure the natural key of {@code aisevents} is unique, the event writer upserts on it.
+     */
+    @Bean
+    public ApplicationListener<ContextRefreshedEvent> aisEventStorage(ReactiveMongoTemplate mongoTemplate) {
+        return event -> mongoTemplate.indexOps(AisEvent.class)
+            .ensureIndex(new Index()
+                .on("mmsi", Sort.Direction.ASC)
+                .on("timestamp", Sort.Direction.ASC)
+                .on("type", Sort.Direction.ASC)
+                .on("fence", Sort.Direction.ASC)
+                .unique()
+                .named("mmsi_timestamp_type_fence"))
+            .block(Duration.ofMinutes(10));
+    }
+
+    /**
+     * Makes sure the key of {@code aisrollups} is unique, the rollup updates upsert on it.
+     */
+    @Bean
+    public ApplicationListener<ContextRefreshedEvent> aisRollupStorage(ReactiveMongoTemplate mongoTemplate) {
+        return event -> mongoTemplate.indexOps(Rollup.class)
+            .ensureIndex(new Index()
+                .on("mmsi", Sort.Direction.ASC)
+                .on("period", Sort.Direction.ASC)
+                .on("start", Sort.Direction.ASC)
+                .unique()
+                .named("mmsi_period_start"))
+            .block(Duration.ofMinutes(10));
     }
 
-}
\ No newline at end of file
+    /**
+     * Blocks are looked up by id when compacting and by (mmsi, start) when a track is read.
+     */
+    @Bean
+    public ApplicationListener<ContextRefreshedEvent> positionBlockStorage(ReactiveMongoTemplate mongoTemplate) {
+        return event -> mongoTemplate.indexOps(PositionBlock.class)
+            .ensureIndex(new Index()
+                .on("mmsi", Sort.Direction.ASC)
+                .on("start", Sort.Direction.ASC)
+                .named("mmsi_start"))
+            .block(Duration.ofMinutes(10));
+    }
+}
@@ -0,0 +1,39 @@
+package no.maddin.ais.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@ConfigurationProperties(prefix = "ais.nmea")
+@Configuration
+@Data
+public class NmeaProperties {
+
+    /**
+     * Where raw AIVDM sentences come from: {@code tcp://host:port} connects to a receiver,
+     * {@code udp://0.0.0.0:port} listens for datagrams, {@code file:/path} reads a log file or all files of a directory.
+     */
+    private List<URI> sources = new ArrayList<>();
+
+    /**
+     * Positions per tracked vessel kept from the network sources until they are read. Older positions are dropped.
+     */
+    private int vesselBufferSize = 10_000;
+
+    /**
+     * Longer lines are skipped.
+     */
+    private int maxLineLength = 1024;
+
+    /**
+     * First delay before reconnecting to a TCP source, doubled on every further failure.
+     */
+    private Duration reconnectBackoff = Duration.ofSeconds(5);
+
+    private Duration maxReconnectBackoff = Duration.ofMinutes(5);
+}
@@ -0,0 +1,49 @@
+package no.maddin.ais.config;
+
+import io.netty.channel.ChannelOption;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * One shared {@link WebClient} per AIS provider, so connections and TLS sessions are reused across vessels and windows.
+ */
+@Configuration
+public class ProviderHttpClientConfig {
+
+    @Bean
+    public ProviderPoolMetrics providerPoolMetrics() {
+        return new ProviderPoolMetrics();
+    }
+
+    @Bean
+    public WebClient marineTrafficWebClient(WebClient.Builder webClientBuilder, MarineTrafficProperties marineTrafficProperties, ProviderPoolMetrics providerPoolMetrics) {
+        return providerWebClient(webClientBuilder, "marinetraffic", marineTrafficProperties.getHttp(), providerPoolMetrics);
+    }
+
+    public static WebClient providerWebClient(WebClient.Builder webClientBuilder, String provider, ProviderHttpProperties http, ProviderPoolMetrics providerPoolMetrics) {
+        ConnectionProvider connectionProvider = ConnectionProvider.builder(provider)
+            .maxConnections(http.getMaxConnections())
+            .pendingAcquireMaxCount(http.getPendingAcquireMaxCount())
+            .pendingAcquireTimeout(http.getPendingAcquireTimeout())
+            .maxIdleTime(http.getMaxIdleTime())
+            .maxLifeTime(http.getMaxLifeTime())
+            .evictInBackground(http.getMaxIdleTime())
+            .metrics(true, () -> providerPoolMetrics)
+            .build();
+
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+            .keepAlive(true)
+            .compress(http.isCompress())
+            .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) http.getConnectTimeout().toMillis())
+            .responseTimeout(http.getReadTimeout());
+
+        return webClientBuilder.clone()
+            .clientConnector(new ReactorClientHttpConnector(httpClient))
+            .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize((int) http.getMaxInMemorySize().toBytes()))
+            .build();
+    }
+}
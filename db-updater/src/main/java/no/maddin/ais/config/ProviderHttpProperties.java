@@ -0,0 +1,43 @@
+package no.maddin.ais.config;
+
+import lombok.Data;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Connection pool and HTTP settings of one AIS provider.
+ */
+@Data
+public class ProviderHttpProperties {
+
+    private int maxConnections = 50;
+
+    /**
+     * Requests waiting for a connection before new ones are rejected.
+     */
+    private int pendingAcquireMaxCount = 1000;
+
+    private Duration pendingAcquireTimeout = Duration.ofSeconds(60);
+
+    /**
+     * Idle connections are kept alive this long for the next request.
+     */
+    private Duration maxIdleTime = Duration.ofSeconds(30);
+
+    private Duration maxLifeTime = Duration.ofMinutes(10);
+
+    private Duration connectTimeout = Duration.ofSeconds(10);
+
+    /**
+     * Maximum time between two reads of a response.
+     */
+    private Duration readTimeout = Duration.ofMinutes(2);
+
+    private boolean compress = true;
+
+    /**
+     * Limit for responses read into memory at once, e.g. error messages. Track exports are streamed.
+     */
+    private DataSize maxInMemorySize = DataSize.ofMegabytes(16);
+}
@@ -0,0 +1,87 @@
+package no.maddin.ais.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import reactor.netty.resources.ConnectionPoolMetrics;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.net.SocketAddress;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToIntFunction;
+
+/**
+ * Keeps the Reactor Netty pool metrics of the provider {@link org.springframework.web.reactive.function.client.WebClient}s.
+ * Reactor Netty creates one pool per provider and remote address.
+ * Once bound to a {@link MeterRegistry}, the sums per provider are published as {@code ais.provider.pool.*} gauges.
+ */
+public class ProviderPoolMetrics implements ConnectionProvider.MeterRegistrar, MeterBinder {
+
+    private final Map<PoolKey, ConnectionPoolMetrics> pools = new ConcurrentHashMap<>();
+
+    private volatile MeterRegistry meterRegistry;
+
+    @Override
+    public void registerMetrics(String poolName, String id, SocketAddress remoteAddress, ConnectionPoolMetrics metrics) {
+        pools.put(new PoolKey(poolName, id), metrics);
+        MeterRegistry registry = meterRegistry;
+        if (registry != null) {
+            bindTo(registry, poolName);
+        }
+    }
+
+    @Override
+    public void deRegisterMetrics(String poolName, String id, SocketAddress remoteAddress) {
+        pools.remove(new PoolKey(poolName, id));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        meterRegistry = registry;
+        providers().forEach(provider -> bindTo(registry, provider));
+    }
+
+    private void bindTo(MeterRegistry registry, String provider) {
+        gauge(registry, "ais.provider.pool.pending", "Requests waiting for a connection", provider, this::pendingAcquires);
+        gauge(registry, "ais.provider.pool.active", "Connections in use", provider, this::activeConnections);
+        gauge(registry, "ais.provider.pool.idle", "Idle connections", provider, this::idleConnections);
+    }
+
+    private void gauge(MeterRegistry registry, String name, String description, String provider, ToIntFunction<String> value) {
+        Gauge.builder(name, this, metrics -> value.applyAsInt(provider))
+            .description(description)
+            .tag("provider", provider)
+            .register(registry);
+    }
+
+    public Set<String> providers() {
+        Set<String> providers = new TreeSet<>();
+        pools.keySet().forEach(key -> providers.add(key.poolName()));
+        return providers;
+    }
+
+    public int pendingAcquires(String provider) {
+        return sum(provider, ConnectionPoolMetrics::pendingAcquireSize);
+    }
+
+    public int activeConnections(String provider) {
+        return sum(provider, ConnectionPoolMetrics::acquiredSize);
+    }
+
+    public int idleConnections(String provider) {
+        return sum(provider, ConnectionPoolMetrics::idleSize);
+    }
+
+    private int sum(String provider, ToIntFunction<ConnectionPoolMetrics> metric) {
+        return pools.entrySet().stream()
+            .filter(e -> e.getKey().poolName().equals(provider))
+            .mapToInt(e -> metric.applyAsInt(e.getValue()))
+            .sum();
+    }
+
+    private record PoolKey(String poolName, String id) {
+    }
+}
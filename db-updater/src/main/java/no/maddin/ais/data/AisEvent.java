@@ -0,0 +1,51 @@
+package no.maddin.ais.data;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Something a vessel did, derived from its positions. Unique on (mmsi, timestamp, type, fence).
+ */
+@Document(collection = "aisevents")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AisEvent {
+    @Id
+    private String id;
+
+    private String mmsi;
+
+    private AisEventType type;
+
+    private OffsetDateTime timestamp;
+
+    private Double lon;
+
+    private Double lat;
+
+    /**
+     * Id of the geofence or port, {@code null} for movement and loitering events.
+     */
+    private String fence;
+
+    private String fenceName;
+
+    private Integer speed;
+
+    private Integer fromStatus;
+
+    private Integer toStatus;
+
+    /**
+     * Time inside the fence, in port or loitering, on the events that end one.
+     */
+    private Long durationSeconds;
+}
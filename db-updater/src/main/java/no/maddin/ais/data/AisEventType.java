@@ -0,0 +1,37 @@
+package no.maddin.ais.data;
+
+public enum AisEventType {
+    /**
+     * The vessel entered a geofence.
+     */
+    ENTER,
+    /**
+     * The vessel left a geofence, {@code durationSeconds} is the time it spent inside.
+     */
+    EXIT,
+    /**
+     * The vessel stopped inside a port long enough, the timestamp is the time it stopped.
+     */
+    PORT_CALL_START,
+    /**
+     * The vessel left the port of its port call.
+     */
+    PORT_CALL_END,
+    /**
+     * The vessel stayed within a small area outside of ports, the timestamp is the time it arrived there.
+     */
+    LOITERING_START,
+    LOITERING_END,
+    /**
+     * The speed dropped below the stopped speed.
+     */
+    STOPPED,
+    /**
+     * The speed reached the under way speed again.
+     */
+    UNDERWAY,
+    /**
+     * The navigational status changed, see {@code fromStatus} and {@code toStatus}.
+     */
+    STATUS_CHANGED
+}
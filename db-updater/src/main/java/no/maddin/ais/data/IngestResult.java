@@ -0,0 +1,27 @@
+package no.maddin.ais.data;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Outcome of reading one vessel.
+ */
+public record IngestResult(String mmsi, long records, OffsetDateTime lastTimestamp, Throwable error) {
+
+    public static IngestResult empty(String mmsi) {
+        return new IngestResult(mmsi, 0, null, null);
+    }
+
+    public static IngestResult failure(String mmsi, Throwable error) {
+        return new IngestResult(mmsi, 0, null, error);
+    }
+
+    public IngestResult add(AisData data) {
+        OffsetDateTime timestamp = data.getTimestamp();
+        OffsetDateTime last = lastTimestamp == null || (timestamp != null && timestamp.isAfter(lastTimestamp)) ? timestamp : lastTimestamp;
+        return new IngestResult(mmsi, records + 1, last, error);
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
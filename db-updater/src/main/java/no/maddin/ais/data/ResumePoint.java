@@ -0,0 +1,23 @@
+package no.maddin.ais.data;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Timestamp of the newest position stored for a vessel.
+ */
+@Document(collection = "resumepoints")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResumePoint {
+    @Id
+    private String mmsi;
+
+    private OffsetDateTime timestamp;
+}
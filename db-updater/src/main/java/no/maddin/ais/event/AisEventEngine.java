@@ -0,0 +1,127 @@
+package no.maddin.ais.event;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import no.maddin.ais.config.AisEventsConfig;
+import no.maddin.ais.data.AisData;
+import no.maddin.ais.data.AisEvent;
+import no.maddin.ais.metrics.AisMetrics;
+import no.maddin.ais.repository.AisEventWriter;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.Scannable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the {@link EventDetector} on the positions read by the providers, before they are written.
+ * Detection happens on the reading thread and only costs a few microseconds per position.
+ * The events go through a bounded queue to the {@link AisEventWriter}, so a slow events collection does not hold up ingestion:
+ * when the queue is full events are dropped and counted. The queue is published as the {@code events} queue depth.
+ * <p>
+ * Stops after the readers and writes the queued events before the application exits.
+ */
+@Component
+@Slf4j
+public class AisEventEngine implements SmartLifecycle {
+
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+    private final AisEventsConfig aisEventsConfig;
+
+    private final AisEventWriter aisEventWriter;
+
+    private final AisMetrics aisMetrics;
+
+    private final EventDetector detector;
+
+    private final Sinks.Many<AisEvent> events;
+
+    private final CountDownLatch drained = new CountDownLatch(1);
+
+    private volatile Disposable writer;
+
+    public AisEventEngine(AisEventsConfig aisEventsConfig, AisEventWriter aisEventWriter, AisMetrics aisMetrics, ObjectMapper objectMapper) throws IOException {
+        this.aisEventsConfig = aisEventsConfig;
+        this.aisEventWriter = aisEventWriter;
+        this.aisMetrics = aisMetrics;
+        GeofenceIndex index = GeofenceIndex.empty();
+        if (aisEventsConfig.isEnabled() && aisEventsConfig.getGeofences() != null) {
+            index = GeofenceIndex.read(aisEventsConfig.getGeofences(), aisEventsConfig.getGridCellSize(), objectMapper);
+            log.info("Loaded {} geofences from {}, at most {} per cell", index.size(), aisEventsConfig.getGeofences(), index.maxCandidates());
+        }
+        this.detector = new EventDetector(aisEventsConfig, index);
+        this.events = Sinks.many().unicast().onBackpressureBuffer(Queues.<AisEvent>get(aisEventsConfig.getBufferSize()).get());
+        aisMetrics.queue("events", events, sink -> Scannable.from(sink).scanOrDefault(Scannable.Attr.BUFFERED, 0));
+    }
+
+    /**
+     * Detects the events of the positions passing through, the positions themselves are not changed.
+     */
+    public Flux<AisData> observe(Flux<AisData> data) {
+        if (!aisEventsConfig.isEnabled()) {
+            return data;
+        }
+        return data.doOnNext(aisData -> detector.accept(aisData, this::emit));
+    }
+
+    /**
+     * Several vessels are read at the same time, concurrent emissions are retried until they are serialized.
+     */
+    private void emit(AisEvent event) {
+        Sinks.EmitResult result;
+        while ((result = events.tryEmitNext(event)) == Sinks.EmitResult.FAIL_NON_SERIALIZED) {
+            Thread.onSpinWait();
+        }
+        aisMetrics.event(event.getType(), result.isSuccess()).increment();
+        if (result.isFailure()) {
+            log.debug("Dropped {} event of {}: {}", event.getType(), event.getMmsi(), result);
+        }
+    }
+
+    @Override
+    public void start() {
+        writer = events.asFlux()
+            .bufferTimeout(aisEventsConfig.getBatchSize(), aisEventsConfig.getBatchTimeout())
+            .concatMap(batch -> aisEventWriter.write(batch)
+                .onErrorResume(e -> {
+                    log.warn("Could not write {} events: {}", batch.size(), e.getMessage());
+                    return Mono.empty();
+                }))
+            .doFinally(signal -> drained.countDown())
+            .subscribe();
+    }
+
+    @Override
+    public void stop() {
+        events.tryEmitComplete();
+        try {
+            if (!drained.await(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("Events not written within {}s", SHUTDOWN_TIMEOUT_SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writer.dispose();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return writer != null && !writer.isDisposed();
+    }
+
+    /**
+     * Stop after the readers that feed the detector.
+     */
+    @Override
+    public int getPhase() {
+        return DEFAULT_PHASE - 1;
+    }
+}
@@ -0,0 +1,265 @@
+package no.maddin.ais.event;
+
+import no.maddin.ais.config.AisEventsConfig;
+import no.maddin.ais.data.AisData;
+import no.maddin.ais.data.AisEvent;
+import no.maddin.ais.data.AisEventType;
+import no.maddin.ais.data.AisFields;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Derives {@link AisEvent}s from the positions of each vessel, one position at a time.
+ * <p>
+ * The state of a vessel starts with the first position seen after startup and only later changes are reported:
+ * a vessel that is already inside a fence does not enter it. Positions that are not newer than the last one of the vessel,
+ * like the position read again when a reader resumes, are ignored.
+ * <p>
+ * A position is looked up in the {@link GeofenceIndex}, everything else is arithmetic on the vessel's state.
+ * Nothing is allocated unless the set of fences changes or an event is emitted.
+ */
+public class EventDetector {
+
+    static final int UNKNOWN = -1;
+
+    private static final int SPEED_NOT_AVAILABLE = 1023;
+
+    private static final int STATUS_AT_ANCHOR = 1;
+
+    private static final int STATUS_MOORED = 5;
+
+    private static final int STATUS_NOT_DEFINED = 15;
+
+    private static final double METERS_PER_DEGREE = 111_320;
+
+    private final GeofenceIndex index;
+
+    private final int stoppedSpeed;
+
+    private final int underwaySpeed;
+
+    private final long portCallMillis;
+
+    private final double loiteringRadius;
+
+    private final long loiteringMillis;
+
+    private final Map<String, VesselState> vessels = new ConcurrentHashMap<>();
+
+    private final ThreadLocal<int[]> found;
+
+    public EventDetector(AisEventsConfig config, GeofenceIndex index) {
+        this.index = index;
+        this.stoppedSpeed = config.getStoppedSpeed();
+        this.underwaySpeed = config.getUnderwaySpeed();
+        this.portCallMillis = config.getPortCallMinDuration().toMillis();
+        this.loiteringRadius = config.getLoiteringRadius();
+        this.loiteringMillis = config.getLoiteringMinDuration().toMillis();
+        this.found = ThreadLocal.withInitial(() -> new int[index.maxCandidates()]);
+    }
+
+    public void accept(AisData data, Consumer<AisEvent> events) {
+        if (data.getMmsi() == null || data.getTimestamp() == null) {
+            return;
+        }
+        double lon = AisFields.parseDecimal(data.getLon());
+        double lat = AisFields.parseDecimal(data.getLat());
+        if (!(lon >= -180 && lon <= 180 && lat >= -90 && lat <= 90)) {
+            return;
+        }
+        VesselState state = vessels.get(data.getMmsi());
+        if (state == null) {
+            state = vessels.computeIfAbsent(data.getMmsi(), VesselState::new);
+        }
+        synchronized (state) {
+            update(state, data, lon, lat, events);
+        }
+    }
+
+    /**
+     * Number of vessels with state.
+     */
+    public int vessels() {
+        return vessels.size();
+    }
+
+    private void update(VesselState state, AisData data, double lon, double lat, Consumer<AisEvent> events) {
+        long timestamp = data.getTimestamp().toInstant().toEpochMilli();
+        if (timestamp <= state.timestamp) {
+            return;
+        }
+        int speed = AisFields.parseInt(data.getSpeed(), UNKNOWN);
+        if (speed >= SPEED_NOT_AVAILABLE) {
+            speed = UNKNOWN;
+        }
+        int status = AisFields.parseInt(data.getStatus(), UNKNOWN);
+        if (status == STATUS_NOT_DEFINED) {
+            status = UNKNOWN;
+        }
+        int[] inside = found.get();
+        int count = index.find(lon, lat, inside);
+
+        if (state.isNew()) {
+            state.fences = Arrays.copyOf(inside, count);
+            state.enteredAt = new long[count];
+            Arrays.fill(state.enteredAt, timestamp);
+            state.status = status;
+            state.moving = speed == UNKNOWN || speed >= underwaySpeed;
+            state.stoppedSince = isStopped(state) ? timestamp : Long.MIN_VALUE;
+            state.anchor(lon, lat, timestamp);
+            state.timestamp = timestamp;
+            return;
+        }
+
+        fences(state, inside, count, timestamp, lon, lat, speed, events);
+        movement(state, status, speed, timestamp, lon, lat, events);
+        int port = state.port(index);
+        portCall(state, port, timestamp, lon, lat, speed, events);
+        loitering(state, port, timestamp, lon, lat, events);
+        state.timestamp = timestamp;
+    }
+
+    private void fences(VesselState state, int[] inside, int count, long timestamp, double lon, double lat, int speed, Consumer<AisEvent> events) {
+        int[] before = state.fences;
+        if (Arrays.equals(before, 0, before.length, inside, 0, count)) {
+            return;
+        }
+        int[] after = Arrays.copyOf(inside, count);
+        long[] enteredAt = new long[count];
+        int i = 0;
+        int j = 0;
+        while (i < before.length || j < count) {
+            if (j == count || (i < before.length && before[i] < after[j])) {
+                Geofence fence = index.get(before[i]);
+                events.accept(event(state, AisEventType.EXIT, timestamp, lon, lat, speed)
+                    .fence(fence.getId())
+                    .fenceName(fence.getName())
+                    .durationSeconds((timestamp - state.enteredAt[i]) / 1000)
+                    .build());
+                if (before[i] == state.portCallFence) {
+                    events.accept(event(state, AisEventType.PORT_CALL_END, timestamp, lon, lat, speed)
+                        .fence(fence.getId())
+                        .fenceName(fence.getName())
+                        .durationSeconds((timestamp - state.portCallStart) / 1000)
+                        .build());
+                    state.portCallFence = -1;
+                }
+                i++;
+            } else if (i == before.length || after[j] < before[i]) {
+                Geofence fence = index.get(after[j]);
+                events.accept(event(state, AisEventType.ENTER, timestamp, lon, lat, speed)
+                    .fence(fence.getId())
+                    .fenceName(fence.getName())
+                    .build());
+                enteredAt[j] = timestamp;
+                j++;
+            } else {
+                enteredAt[j] = state.enteredAt[i];
+                i++;
+                j++;
+            }
+        }
+        state.fences = after;
+        state.enteredAt = enteredAt;
+    }
+
+    /**
+     * Speed changes use two thresholds, so a vessel drifting around the stopped speed does not flap.
+     */
+    private void movement(VesselState state, int status, int speed, long timestamp, double lon, double lat, Consumer<AisEvent> events) {
+        if (status != UNKNOWN && status != state.status) {
+            if (state.status != UNKNOWN) {
+                events.accept(event(state, AisEventType.STATUS_CHANGED, timestamp, lon, lat, speed)
+                    .fromStatus(state.status)
+                    .toStatus(status)
+                    .build());
+            }
+            state.status = status;
+        }
+        if (speed != UNKNOWN) {
+            if (state.moving && speed < stoppedSpeed) {
+                state.moving = false;
+                events.accept(event(state, AisEventType.STOPPED, timestamp, lon, lat, speed).build());
+            } else if (!state.moving && speed >= underwaySpeed) {
+                state.moving = true;
+                events.accept(event(state, AisEventType.UNDERWAY, timestamp, lon, lat, speed).build());
+            }
+        }
+        if (!isStopped(state)) {
+            state.stoppedSince = Long.MIN_VALUE;
+        } else if (state.stoppedSince == Long.MIN_VALUE) {
+            state.stoppedSince = timestamp;
+        }
+    }
+
+    private static boolean isStopped(VesselState state) {
+        return !state.moving || state.status == STATUS_AT_ANCHOR || state.status == STATUS_MOORED;
+    }
+
+    /**
+     * A port call starts when the vessel stopped in a port for long enough, at the time it stopped or entered the port.
+     * It ends when the vessel leaves that port.
+     */
+    private void portCall(VesselState state, int port, long timestamp, double lon, double lat, int speed, Consumer<AisEvent> events) {
+        if (state.portCallFence >= 0 || port < 0 || state.stoppedSince == Long.MIN_VALUE) {
+            return;
+        }
+        long since = Math.max(state.stoppedSince, state.enteredAt(port));
+        if (timestamp - since >= portCallMillis) {
+            Geofence fence = index.get(port);
+            events.accept(event(state, AisEventType.PORT_CALL_START, since, lon, lat, speed)
+                .fence(fence.getId())
+                .fenceName(fence.getName())
+                .build());
+            state.portCallFence = port;
+            state.portCallStart = since;
+        }
+    }
+
+    /**
+     * A vessel loiters while it stays within {@link AisEventsConfig#getLoiteringRadius()} of where it arrived,
+     * for at least {@link AisEventsConfig#getLoiteringMinDuration()}. Time in port does not count.
+     */
+    private void loitering(VesselState state, int port, long timestamp, double lon, double lat, Consumer<AisEvent> events) {
+        boolean near = port < 0 && distance(state.anchorLon, state.anchorLat, lon, lat) <= loiteringRadius;
+        if (near) {
+            if (!state.loitering && timestamp - state.anchorSince >= loiteringMillis) {
+                state.loitering = true;
+                events.accept(event(state, AisEventType.LOITERING_START, state.anchorSince, state.anchorLon, state.anchorLat, UNKNOWN).build());
+            }
+            return;
+        }
+        if (state.loitering) {
+            state.loitering = false;
+            events.accept(event(state, AisEventType.LOITERING_END, timestamp, lon, lat, UNKNOWN)
+                .durationSeconds((timestamp - state.anchorSince) / 1000)
+                .build());
+        }
+        state.anchor(lon, lat, timestamp);
+    }
+
+    /**
+     * Equirectangular approximation in meters, good enough for distances of a few kilometers.
+     */
+    static double distance(double lon1, double lat1, double lon2, double lat2) {
+        double x = (lon2 - lon1) * Math.cos(Math.toRadians((lat1 + lat2) / 2));
+        double y = lat2 - lat1;
+        return Math.sqrt(x * x + y * y) * METERS_PER_DEGREE;
+    }
+
+    private static AisEvent.AisEventBuilder event(VesselState state, AisEventType type, long timestamp, double lon, double lat, int speed) {
+        return AisEvent.builder()
+            .mmsi(state.mmsi)
+            .type(type)
+            .timestamp(OffsetDateTime.ofInstant(Instant.ofEpochMilli(timestamp), ZoneOffset.UTC))
+            .lon(lon)
+            .lat(lat)
+            .speed(speed == UNKNOWN ? null : speed);
+    }
+}
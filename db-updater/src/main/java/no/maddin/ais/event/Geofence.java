@@ -0,0 +1,91 @@
+package no.maddin.ais.event;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+/**
+ * A polygon in lon/lat degrees, possibly with holes or several parts. All rings are kept in two flat arrays,
+ * the even-odd rule over all of them handles holes and parts alike. Polygons crossing the antimeridian are not supported.
+ */
+@Getter
+public final class Geofence {
+
+    private final String id;
+
+    private final String name;
+
+    private final boolean port;
+
+    private final double minLon;
+
+    private final double minLat;
+
+    private final double maxLon;
+
+    private final double maxLat;
+
+    @Getter(AccessLevel.NONE)
+    private final double[] lon;
+
+    @Getter(AccessLevel.NONE)
+    private final double[] lat;
+
+    /**
+     * Start of each ring in {@link #lon} and {@link #lat}, followed by their length.
+     */
+    @Getter(AccessLevel.NONE)
+    private final int[] rings;
+
+    /**
+     * @param rings start of each ring in {@code lon} and {@code lat}, followed by their length
+     */
+    public Geofence(String id, String name, boolean port, double[] lon, double[] lat, int[] rings) {
+        if (lon.length != lat.length || lon.length < 3 || rings.length < 2 || rings[rings.length - 1] != lon.length) {
+            throw new IllegalArgumentException("Geofence " + id + " is not a polygon");
+        }
+        this.id = id;
+        this.name = name;
+        this.port = port;
+        this.lon = lon;
+        this.lat = lat;
+        this.rings = rings;
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < lon.length; i++) {
+            minX = Math.min(minX, lon[i]);
+            minY = Math.min(minY, lat[i]);
+            maxX = Math.max(maxX, lon[i]);
+            maxY = Math.max(maxY, lat[i]);
+        }
+        this.minLon = minX;
+        this.minLat = minY;
+        this.maxLon = maxX;
+        this.maxLat = maxY;
+    }
+
+    /**
+     * A fence with a single ring.
+     */
+    public static Geofence of(String id, String name, boolean port, double[] lon, double[] lat) {
+        return new Geofence(id, name, port, lon, lat, new int[] {0, lon.length});
+    }
+
+    public boolean contains(double x, double y) {
+        if (x < minLon || x > maxLon || y < minLat || y > maxLat) {
+            return false;
+        }
+        boolean inside = false;
+        for (int r = 0; r < rings.length - 1; r++) {
+            int end = rings[r + 1];
+            for (int i = rings[r], j = end - 1; i < end; j = i++) {
+                if ((lat[i] > y) != (lat[j] > y)
+                    && x < (lon[j] - lon[i]) * (y - lat[i]) / (lat[j] - lat[i]) + lon[i]) {
+                    inside = !inside;
+                }
+            }
+        }
+        return inside;
+    }
+}
@@ -0,0 +1,192 @@
+package no.maddin.ais.event;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Uniform grid over the geofences. Each cell lists the fences whose bounding box overlaps it, in ascending order,
+ * so a position is only tested against the few polygons near it however many fences there are.
+ * The cells are kept in an open-addressing table with primitive keys, a lookup does not allocate.
+ */
+@Slf4j
+public final class GeofenceIndex {
+
+    private static final int[] NO_FENCES = new int[0];
+
+    private static final long EMPTY = -1;
+
+    private final Geofence[] fences;
+
+    private final double cellSize;
+
+    private final long[] keys;
+
+    private final int[][] cells;
+
+    private final int mask;
+
+    private final int maxCandidates;
+
+    private GeofenceIndex(List<Geofence> fences, double cellSize) {
+        this.fences = fences.toArray(Geofence[]::new);
+        this.cellSize = cellSize;
+        Map<Long, List<Integer>> grid = new HashMap<>();
+        for (int i = 0; i < this.fences.length; i++) {
+            Geofence fence = this.fences[i];
+            for (long x = cell(Math.max(fence.getMinLon(), -180), 180); x <= cell(Math.min(fence.getMaxLon(), 180), 180); x++) {
+                for (long y = cell(Math.max(fence.getMinLat(), -90), 90); y <= cell(Math.min(fence.getMaxLat(), 90), 90); y++) {
+                    grid.computeIfAbsent(key(x, y), k -> new ArrayList<>()).add(i);
+                }
+            }
+        }
+        int capacity = Integer.highestOneBit(Math.max(grid.size(), 1) * 2) * 2;
+        keys = new long[capacity];
+        cells = new int[capacity][];
+        mask = capacity - 1;
+        Arrays.fill(keys, EMPTY);
+        int max = 0;
+        for (Map.Entry<Long, List<Integer>> entry : grid.entrySet()) {
+            int slot = slot(entry.getKey());
+            while (keys[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = entry.getKey();
+            cells[slot] = entry.getValue().stream().mapToInt(Integer::intValue).toArray();
+            max = Math.max(max, cells[slot].length);
+        }
+        maxCandidates = max;
+    }
+
+    public static GeofenceIndex of(List<Geofence> fences, double cellSize) {
+        if (!(cellSize > 0)) {
+            throw new IllegalArgumentException("Cell size must be positive: " + cellSize);
+        }
+        return new GeofenceIndex(fences, cellSize);
+    }
+
+    public static GeofenceIndex empty() {
+        return new GeofenceIndex(List.of(), 1);
+    }
+
+    /**
+     * Reads the Polygon and MultiPolygon features of a GeoJSON FeatureCollection, other geometries are skipped.
+     */
+    public static GeofenceIndex read(Path geoJson, double cellSize, ObjectMapper objectMapper) throws IOException {
+        JsonNode features = objectMapper.readTree(geoJson.toFile()).path("features");
+        List<Geofence> fences = new ArrayList<>(features.size());
+        for (int i = 0; i < features.size(); i++) {
+            JsonNode feature = features.get(i);
+            JsonNode properties = feature.path("properties");
+            String id = feature.hasNonNull("id") ? feature.get("id").asText() : properties.path("id").asText(Integer.toString(i));
+            String name = properties.path("name").asText(null);
+            boolean port = "port".equalsIgnoreCase(properties.path("type").asText());
+            JsonNode geometry = feature.path("geometry");
+            JsonNode coordinates = geometry.path("coordinates");
+            switch (geometry.path("type").asText()) {
+                case "Polygon" -> fences.add(fence(id, name, port, List.of(coordinates)));
+                case "MultiPolygon" -> {
+                    List<JsonNode> parts = new ArrayList<>();
+                    coordinates.forEach(parts::add);
+                    fences.add(fence(id, name, port, parts));
+                }
+                default -> log.warn("Skipping geofence {}: {} is not a polygon", id, geometry.path("type").asText());
+            }
+        }
+        return of(fences, cellSize);
+    }
+
+    private static Geofence fence(String id, String name, boolean port, List<JsonNode> polygons) {
+        int points = 0;
+        int ringCount = 0;
+        for (JsonNode polygon : polygons) {
+            for (JsonNode ring : polygon) {
+                points += ring.size();
+                ringCount++;
+            }
+        }
+        double[] lon = new double[points];
+        double[] lat = new double[points];
+        int[] rings = new int[ringCount + 1];
+        int point = 0;
+        int r = 0;
+        for (JsonNode polygon : polygons) {
+            for (JsonNode ring : polygon) {
+                rings[r++] = point;
+                for (JsonNode position : ring) {
+                    lon[point] = position.get(0).asDouble();
+                    lat[point] = position.get(1).asDouble();
+                    point++;
+                }
+            }
+        }
+        rings[r] = point;
+        return new Geofence(id, name, port, lon, lat, rings);
+    }
+
+    /**
+     * Writes the indexes of the fences containing the position to {@code result}, in ascending order.
+     *
+     * @param result at least {@link #maxCandidates()} long
+     * @return the number of fences found
+     */
+    public int find(double lon, double lat, int[] result) {
+        int[] candidates = candidates(lon, lat);
+        int found = 0;
+        for (int candidate : candidates) {
+            if (fences[candidate].contains(lon, lat)) {
+                result[found++] = candidate;
+            }
+        }
+        return found;
+    }
+
+    private int[] candidates(double lon, double lat) {
+        if (fences.length == 0 || !(lon >= -180 && lon <= 180 && lat >= -90 && lat <= 90)) {
+            return NO_FENCES;
+        }
+        long key = key(cell(lon, 180), cell(lat, 90));
+        for (int slot = slot(key); keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return cells[slot];
+            }
+        }
+        return NO_FENCES;
+    }
+
+    public Geofence get(int index) {
+        return fences[index];
+    }
+
+    public int size() {
+        return fences.length;
+    }
+
+    /**
+     * The most fences a single position can be in.
+     */
+    public int maxCandidates() {
+        return maxCandidates;
+    }
+
+    private long cell(double degrees, double offset) {
+        return (long) Math.floor((degrees + offset) / cellSize);
+    }
+
+    private static long key(long x, long y) {
+        return x << 32 | y;
+    }
+
+    private int slot(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
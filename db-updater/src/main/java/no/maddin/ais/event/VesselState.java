@@ -0,0 +1,81 @@
+package no.maddin.ais.event;
+
+/**
+ * What {@link EventDetector} remembers about one vessel. Guarded by its own monitor.
+ */
+final class VesselState {
+
+    private static final int[] NO_FENCES = new int[0];
+
+    private static final long[] NO_TIMES = new long[0];
+
+    final String mmsi;
+
+    long timestamp = Long.MIN_VALUE;
+
+    /**
+     * Indexes of the fences the vessel is in, ascending, and when it entered each of them.
+     */
+    int[] fences = NO_FENCES;
+
+    long[] enteredAt = NO_TIMES;
+
+    int status = EventDetector.UNKNOWN;
+
+    boolean moving;
+
+    /**
+     * Since when the vessel is stopped, moored or at anchor, {@link Long#MIN_VALUE} while it moves.
+     */
+    long stoppedSince = Long.MIN_VALUE;
+
+    /**
+     * The port of the current port call, -1 if there is none.
+     */
+    int portCallFence = -1;
+
+    long portCallStart;
+
+    double anchorLon;
+
+    double anchorLat;
+
+    long anchorSince;
+
+    boolean loitering;
+
+    VesselState(String mmsi) {
+        this.mmsi = mmsi;
+    }
+
+    boolean isNew() {
+        return timestamp == Long.MIN_VALUE;
+    }
+
+    /**
+     * The first port the vessel is in, -1 if it is not in a port.
+     */
+    int port(GeofenceIndex index) {
+        for (int fence : fences) {
+            if (index.get(fence).isPort()) {
+                return fence;
+            }
+        }
+        return -1;
+    }
+
+    long enteredAt(int fence) {
+        for (int i = 0; i < fences.length; i++) {
+            if (fences[i] == fence) {
+                return enteredAt[i];
+            }
+        }
+        return timestamp;
+    }
+
+    void anchor(double lon, double lat, long since) {
+        anchorLon = lon;
+        anchorLat = lat;
+        anchorSince = since;
+    }
+}
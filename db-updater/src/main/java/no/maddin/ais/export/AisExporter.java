@@ -0,0 +1,198 @@
+package no.maddin.ais.export;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import no.maddin.ais.compaction.PositionHistory;
+import no.maddin.ais.config.AisExportConfig;
+import no.maddin.ais.data.AisData;
+import no.maddin.ais.data.AisPosition;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.compression.CompressionUtil;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Exports the positions in {@code aisdata} to one Arrow IPC file per vessel and partition, for analytics outside of Mongo.
+ * Each vessel is streamed in time order from {@link PositionHistory}, compacted days included, one partition file after the other.
+ * <p>
+ * The column buffers of all vessels exported at the same time come from one allocator limited to
+ * {@link AisExportConfig#getMemoryLimit()}, the rows per record batch are derived from it. Heap use is bounded as well:
+ * at most one batch of positions per vessel is read ahead of the writer.
+ * <p>
+ * Incremental exports continue after the newest partition file of each vessel, partitions that have not yet
+ * {@link AisExportConfig#getSettle() settled} are left for the next run.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AisExporter {
+
+    private static final String SUFFIX = ".arrow";
+
+    private final PositionHistory positionHistory;
+
+    private final AisExportConfig aisExportConfig;
+
+    /**
+     * @return the number of positions written
+     */
+    public Mono<Long> export() {
+        Instant until = ExportPartition.of(aisExportConfig.getPartition(), Instant.now().minus(aisExportConfig.getSettle())).start();
+        long vesselLimit = aisExportConfig.getMemoryLimit().toBytes() / aisExportConfig.getConcurrency();
+        // a power of two, the buffers are allocated in powers of two
+        int batchRows = Integer.highestOneBit((int) Math.min(aisExportConfig.getMaxBatchRows(), vesselLimit / ArrowTrackWriter.ROW_BYTES));
+        if (batchRows < 1) {
+            return Mono.error(new IllegalArgumentException("ais.export.memory-limit is too small for " + aisExportConfig.getConcurrency() + " vessels"));
+        }
+        Flux<String> vessels = aisExportConfig.getMmsis().isEmpty()
+            ? positionHistory.vessels()
+            : Flux.fromIterable(aisExportConfig.getMmsis());
+        return Mono.using(
+            () -> new RootAllocator(aisExportConfig.getMemoryLimit().toBytes()),
+            allocator -> vessels
+                .flatMap(mmsi -> export(allocator, vesselLimit, batchRows, mmsi, until), aisExportConfig.getConcurrency())
+                .reduce(0L, Long::sum)
+                .doOnNext(records -> log.info("Exported {} positions before {} to {}, {} rows per batch", records, until, aisExportConfig.getDirectory(), batchRows)),
+            BufferAllocator::close);
+    }
+
+    private Mono<Long> export(BufferAllocator parent, long limit, int batchRows, String mmsi, Instant until) {
+        Path directory = aisExportConfig.getDirectory().resolve(mmsi);
+        return Mono.fromCallable(() -> Optional.ofNullable(resumePoint(directory)))
+            .subscribeOn(Schedulers.boundedElastic())
+            .flatMap(from -> Mono.using(
+                    () -> new PartitionedWriter(parent.newChildAllocator(mmsi, 0, limit), directory, batchRows),
+                    writer -> positionHistory.track(mmsi, from.orElse(null), until, batchRows)
+                        .publishOn(Schedulers.boundedElastic(), batchRows)
+                        .doOnNext(writer::write)
+                        .then(Mono.fromCallable(writer::finish)),
+                    PartitionedWriter::close))
+            .doOnNext(records -> log.debug("Exported {} positions of {}", records, mmsi));
+    }
+
+    /**
+     * The end of the newest partition in the vessel's directory, or {@link AisExportConfig#getFrom()}.
+     */
+    private Instant resumePoint(Path directory) throws IOException {
+        Instant from = Optional.ofNullable(aisExportConfig.getFrom())
+            .map(day -> day.atStartOfDay(ZoneOffset.UTC).toInstant())
+            .orElse(null);
+        if (!aisExportConfig.isIncremental() || !Files.isDirectory(directory)) {
+            return from;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                .map(file -> file.getFileName().toString())
+                .filter(name -> name.endsWith(SUFFIX))
+                .map(name -> name.substring(0, name.length() - SUFFIX.length()))
+                .max(String::compareTo)
+                .map(name -> partition(name).end())
+                .orElse(from);
+        }
+    }
+
+    private ExportPartition partition(String name) {
+        try {
+            return ExportPartition.parse(aisExportConfig.getPartition(), name);
+        } catch (DateTimeParseException e) {
+            throw new IllegalStateException(name + SUFFIX + " is not a " + aisExportConfig.getPartition() + " partition, was the partitioning changed?", e);
+        }
+    }
+
+    private CompressionUtil.CodecType codec() {
+        return switch (aisExportConfig.getCompression()) {
+            case NONE -> CompressionUtil.CodecType.NO_COMPRESSION;
+            case LZ4 -> CompressionUtil.CodecType.LZ4_FRAME;
+            case ZSTD -> CompressionUtil.CodecType.ZSTD;
+        };
+    }
+
+    /**
+     * Starts a new file whenever a position belongs to the next partition. Positions arrive in time order.
+     */
+    private class PartitionedWriter implements AutoCloseable {
+
+        private final BufferAllocator allocator;
+
+        private final Path directory;
+
+        private final int batchRows;
+
+        private ExportPartition partition;
+
+        private ArrowTrackWriter writer;
+
+        private long records;
+
+        PartitionedWriter(BufferAllocator allocator, Path directory, int batchRows) {
+            this.allocator = allocator;
+            this.directory = directory;
+            this.batchRows = batchRows;
+        }
+
+        void write(AisData aisData) {
+            AisPosition position;
+            try {
+                position = AisPosition.of(aisData);
+            } catch (IllegalArgumentException e) {
+                log.debug("Skipped {}: {}", aisData.getId(), e.getMessage());
+                return;
+            }
+            Instant timestamp = Instant.ofEpochMilli(position.getTimestamp());
+            try {
+                if (partition == null || !partition.contains(timestamp)) {
+                    commit();
+                    partition = ExportPartition.of(aisExportConfig.getPartition(), timestamp);
+                    writer = new ArrowTrackWriter(allocator, directory.resolve(partition.name() + SUFFIX), batchRows, codec());
+                }
+                writer.write(position);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        long finish() throws IOException {
+            commit();
+            return records;
+        }
+
+        private void commit() throws IOException {
+            if (writer != null) {
+                writer.commit();
+                writer.close();
+                records += writer.records();
+                log.debug("Wrote {} positions to {}/{}{}", writer.records(), directory.getFileName(), partition.name(), SUFFIX);
+                writer = null;
+            }
+        }
+
+        /**
+         * Removes the file of an unfinished partition.
+         */
+        @Override
+        public void close() {
+            try {
+                if (writer != null) {
+                    writer.close();
+                }
+            } catch (IOException e) {
+                log.warn("Could not remove the unfinished partition {}/{}{}: {}", directory.getFileName(), partition.name(), SUFFIX, e.getMessage());
+            } finally {
+                allocator.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package no.maddin.ais.export;
+
+import no.maddin.ais.data.AisPosition;
+import org.apache.arrow.compression.CommonsCompressionFactory;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.Float4Vector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.SmallIntVector;
+import org.apache.arrow.vector.TimeStampMilliTZVector;
+import org.apache.arrow.vector.TinyIntVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.compression.CompressionUtil;
+import org.apache.arrow.vector.compression.NoCompressionCodec;
+import org.apache.arrow.vector.ipc.ArrowFileWriter;
+import org.apache.arrow.vector.ipc.message.IpcOption;
+import org.apache.arrow.vector.types.FloatingPointPrecision;
+import org.apache.arrow.vector.types.TimeUnit;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.FieldType;
+import org.apache.arrow.vector.types.pojo.Schema;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Writes positions to an Arrow IPC file (Feather V2) in record batches of a fixed number of rows, with typed columns:
+ * speed in knots and course in degrees, values that are not available are null.
+ * The column buffers are allocated once and reused for every batch. The file is written under a temporary name
+ * and only gets its name in {@link #commit()}, so an existing partition file is always complete.
+ */
+final class ArrowTrackWriter implements AutoCloseable {
+
+    static final Schema SCHEMA = new Schema(List.of(
+        new Field("mmsi", FieldType.notNullable(new ArrowType.Int(32, true)), null),
+        new Field("timestamp", FieldType.notNullable(new ArrowType.Timestamp(TimeUnit.MILLISECOND, "UTC")), null),
+        Field.nullable("lon", new ArrowType.FloatingPoint(FloatingPointPrecision.DOUBLE)),
+        Field.nullable("lat", new ArrowType.FloatingPoint(FloatingPointPrecision.DOUBLE)),
+        Field.nullable("speed", new ArrowType.FloatingPoint(FloatingPointPrecision.SINGLE)),
+        Field.nullable("course", new ArrowType.FloatingPoint(FloatingPointPrecision.SINGLE)),
+        Field.nullable("heading", new ArrowType.Int(16, true)),
+        Field.nullable("status", new ArrowType.Int(8, true)),
+        Field.nullable("imo", new ArrowType.Int(32, true)),
+        Field.nullable("ship_id", new ArrowType.Int(32, true))));
+
+    /**
+     * Off-heap bytes per row of a batch, at most. Arrow rounds buffers up to powers of two, so with its validity bits
+     * a column takes twice its width, 94 bytes per row. Writing a batch with ZSTD takes up to 190.5 bytes per row
+     * for the buffers and their compressed copies, LZ4 about 145.
+     */
+    static final int ROW_BYTES = 192;
+
+    private final Path file;
+
+    private final Path temporary;
+
+    private final int batchRows;
+
+    private final VectorSchemaRoot root;
+
+    private final ArrowFileWriter writer;
+
+    private final IntVector mmsi;
+    private final TimeStampMilliTZVector timestamp;
+    private final Float8Vector lon;
+    private final Float8Vector lat;
+    private final Float4Vector speed;
+    private final Float4Vector course;
+    private final SmallIntVector heading;
+    private final TinyIntVector status;
+    private final IntVector imo;
+    private final IntVector shipId;
+
+    private int rows;
+
+    private long records;
+
+    private boolean committed;
+
+    ArrowTrackWriter(BufferAllocator allocator, Path file, int batchRows, CompressionUtil.CodecType codec) throws IOException {
+        this.file = file;
+        this.temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        this.batchRows = batchRows;
+        Files.createDirectories(file.getParent());
+        root = VectorSchemaRoot.create(SCHEMA, allocator);
+        try {
+            for (FieldVector vector : root.getFieldVectors()) {
+                vector.setInitialCapacity(batchRows);
+                vector.allocateNew();
+            }
+            mmsi = (IntVector) root.getVector("mmsi");
+            timestamp = (TimeStampMilliTZVector) root.getVector("timestamp");
+            lon = (Float8Vector) root.getVector("lon");
+            lat = (Float8Vector) root.getVector("lat");
+            speed = (Float4Vector) root.getVector("speed");
+            course = (Float4Vector) root.getVector("course");
+            heading = (SmallIntVector) root.getVector("heading");
+            status = (TinyIntVector) root.getVector("status");
+            imo = (IntVector) root.getVector("imo");
+            shipId = (IntVector) root.getVector("ship_id");
+            FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            writer = new ArrowFileWriter(root, null, channel, Map.of("speed", "knots", "course", "degrees"), IpcOption.DEFAULT,
+                codec == CompressionUtil.CodecType.NO_COMPRESSION ? NoCompressionCodec.Factory.INSTANCE : CommonsCompressionFactory.INSTANCE,
+                codec, Optional.empty());
+            writer.start();
+        } catch (IOException | RuntimeException e) {
+            root.close();
+            throw e;
+        }
+    }
+
+    void write(AisPosition position) throws IOException {
+        int row = rows;
+        mmsi.set(row, position.getMmsi());
+        timestamp.set(row, position.getTimestamp());
+        if (position.hasLocation()) {
+            lon.set(row, position.getLon());
+            lat.set(row, position.getLat());
+        }
+        if (position.getSpeed() != AisPosition.SPEED_NOT_AVAILABLE) {
+            speed.set(row, position.getSpeed() / 10f);
+        }
+        if (position.getCourse() != AisPosition.COURSE_NOT_AVAILABLE) {
+            course.set(row, position.getCourse() / 10f);
+        }
+        if (position.getHeading() != AisPosition.HEADING_NOT_AVAILABLE) {
+            heading.set(row, position.getHeading());
+        }
+        status.set(row, position.getStatus());
+        if (position.getImo() != 0) {
+            imo.set(row, position.getImo());
+        }
+        if (position.getShipId() != 0) {
+            shipId.set(row, position.getShipId());
+        }
+        records++;
+        if (++rows == batchRows) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        if (rows == 0) {
+            return;
+        }
+        root.setRowCount(rows);
+        writer.writeBatch();
+        // reset clears the validity bits and keeps the buffers
+        root.getFieldVectors().forEach(FieldVector::reset);
+        rows = 0;
+    }
+
+    /**
+     * Writes the last batch and the footer and moves the file into place.
+     */
+    void commit() throws IOException {
+        flush();
+        writer.close();
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        committed = true;
+    }
+
+    long records() {
+        return records;
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+        root.close();
+        if (!committed) {
+            Files.deleteIfExists(temporary);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package no.maddin.ais.export;
+
+import no.maddin.ais.config.AisExportConfig;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+
+/**
+ * A UTC day or month of one vessel's positions, {@code [start, end)}. The name sorts in time order.
+ */
+record ExportPartition(String name, Instant start, Instant end) {
+
+    static ExportPartition of(AisExportConfig.Partition partition, Instant instant) {
+        LocalDate day = LocalDate.ofInstant(instant, ZoneOffset.UTC);
+        return switch (partition) {
+            case DAY -> new ExportPartition(day.toString(), start(day), start(day.plusDays(1)));
+            case MONTH -> {
+                YearMonth month = YearMonth.from(day);
+                yield new ExportPartition(month.toString(), start(month.atDay(1)), start(month.plusMonths(1).atDay(1)));
+            }
+        };
+    }
+
+    /**
+     * @throws java.time.format.DateTimeParseException if the name is not a partition name
+     */
+    static ExportPartition parse(AisExportConfig.Partition partition, String name) {
+        return switch (partition) {
+            case DAY -> of(partition, start(LocalDate.parse(name)));
+            case MONTH -> of(partition, start(YearMonth.parse(name).atDay(1)));
+        };
+    }
+
+    boolean contains(Instant instant) {
+        return !instant.isBefore(start) && instant.isBefore(end);
+    }
+
+    private static Instant start(LocalDate day) {
+        return day.atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+}
@@ -0,0 +1,180 @@
+package no.maddin.ais.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import no.maddin.ais.data.AisData;
+import no.maddin.ais.data.AisEventType;
+import no.maddin.ais.quality.QualityReason;
+import no.maddin.ais.reader.AivdmDecoder;
+import org.springframework.stereotype.Component;
+import reactor.core.observability.SignalListenerFactory;
+import reactor.core.observability.micrometer.Micrometer;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * The meters of the ingestion pipeline, published through the actuator's {@code /actuator/prometheus} endpoint.
+ * <ul>
+ *     <li>{@code ais.provider.request.*}: one provider request, timed by Reactor's {@link Micrometer#metrics(MeterRegistry)} tap,
+ *     tagged with provider, status and exception</li>
+ *     <li>{@code ais.provider.received}: response bytes per provider, after decompression</li>
+ *     <li>{@code ais.provider.retries} and {@code ais.provider.errors}: by provider and error code</li>
+ *     <li>{@code ais.records.decoded}: records decoded per provider</li>
+ *     <li>{@code ais.writer.batch.*} and {@code ais.writer.records}: Mongo bulk writes</li>
+ *     <li>{@code ais.queue.depth}: records waiting in a queue</li>
+ *     <li>{@code ais.nmea.sentences}: AIVDM sentences per receiver and result</li>
+ *     <li>{@code ais.ingestion.lag}: per vessel, time since the newest stored position</li>
+ *     <li>{@code ais.events}: detected events by type and whether they were queued for writing or dropped</li>
+ *     <li>{@code ais.quality.failed}: positions failing a data-quality check, by reason and whether they were rejected or only flagged</li>
+ * </ul>
+ * Counters are looked up once per sequence, not per record.
+ */
+@Component
+public class AisMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, Long> lastIngested = new ConcurrentHashMap<>();
+
+    public AisMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Reactor tap that times the sequences named with {@code name(...)} and tagged with {@code tag(...)}.
+     */
+    public <T> SignalListenerFactory<T, ?> tap() {
+        return Micrometer.metrics(meterRegistry);
+    }
+
+    public Counter decoded(String provider) {
+        return Counter.builder("ais.records.decoded")
+            .description("Records decoded from the provider's responses")
+            .baseUnit("records")
+            .tag("provider", provider)
+            .register(meterRegistry);
+    }
+
+    public Counter received(String provider) {
+        return Counter.builder("ais.provider.received")
+            .description("Response bytes received from the provider")
+            .baseUnit("bytes")
+            .tag("provider", provider)
+            .register(meterRegistry);
+    }
+
+    public void retry(String provider, String code) {
+        Counter.builder("ais.provider.retries")
+            .description("Provider requests that failed and are retried")
+            .tag("provider", provider)
+            .tag("code", code)
+            .register(meterRegistry)
+            .increment();
+    }
+
+    public void error(String provider, String code) {
+        Counter.builder("ais.provider.errors")
+            .description("Provider requests that failed and are not retried")
+            .tag("provider", provider)
+            .tag("code", code)
+            .register(meterRegistry)
+            .increment();
+    }
+
+    public void written(long inserted, long matched) {
+        writerRecords("inserted").increment(inserted);
+        writerRecords("matched").increment(matched);
+    }
+
+    private Counter writerRecords(String result) {
+        return Counter.builder("ais.writer.records")
+            .description("Records in bulk writes, new or already stored")
+            .baseUnit("records")
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+
+    /**
+     * Number of records waiting in a queue, read from {@code queue} whenever the registry is scraped.
+     */
+    public <T> void queue(String name, T queue, ToDoubleFunction<T> depth) {
+        Gauge.builder("ais.queue.depth", queue, depth)
+            .description("Records waiting to be processed")
+            .baseUnit("records")
+            .tag("queue", name)
+            .strongReference(true)
+            .register(meterRegistry);
+    }
+
+    /**
+     * Publishes the counters of a decoder that lives as long as the application, e.g. the one of a receiver.
+     */
+    public void decoder(String source, AivdmDecoder decoder) {
+        sentences(source, "position", decoder, AivdmDecoder::getPositions);
+        sentences(source, "static", decoder, AivdmDecoder::getStaticReports);
+        sentences(source, "checksum-error", decoder, AivdmDecoder::getChecksumErrors);
+        sentences(source, "malformed", decoder, AivdmDecoder::getMalformed);
+        sentences(source, "dropped-fragment", decoder, AivdmDecoder::getDroppedFragments);
+        sentences(source, "unsupported", decoder, AivdmDecoder::getUnsupported);
+        sentences(source, "filtered", decoder, AivdmDecoder::getFiltered);
+    }
+
+    private void sentences(String source, String result, AivdmDecoder decoder, ToLongFunction<AivdmDecoder> count) {
+        FunctionCounter.builder("ais.nmea.sentences", decoder, d -> count.applyAsLong(d))
+            .description("AIVDM sentences received, by result")
+            .tag("source", source)
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+
+    public Counter event(AisEventType type, boolean queued) {
+        return Counter.builder("ais.events")
+            .description("Events detected in the positions of the tracked vessels")
+            .baseUnit("events")
+            .tag("type", type.name())
+            .tag("result", queued ? "queued" : "dropped")
+            .register(meterRegistry);
+    }
+
+    public Counter qualityFailed(QualityReason reason, boolean rejected) {
+        return Counter.builder("ais.quality.failed")
+            .description("Positions failing a data-quality check")
+            .baseUnit("records")
+            .tag("reason", reason.name())
+            .tag("result", rejected ? "rejected" : "flagged")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Records that a batch has been stored. The lag of a vessel is the time since its newest stored position.
+     */
+    public void ingested(Collection<AisData> storedBatch) {
+        for (AisData aisData : storedBatch) {
+            if (aisData.getMmsi() == null || aisData.getTimestamp() == null) {
+                continue;
+            }
+            long timestamp = aisData.getTimestamp().toInstant().toEpochMilli();
+            if (lastIngested.putIfAbsent(aisData.getMmsi(), timestamp) == null) {
+                registerLag(aisData.getMmsi());
+            } else {
+                lastIngested.merge(aisData.getMmsi(), timestamp, Math::max);
+            }
+        }
+    }
+
+    private void registerLag(String mmsi) {
+        TimeGauge.builder("ais.ingestion.lag", lastIngested, TimeUnit.MILLISECONDS,
+                last -> meterRegistry.config().clock().wallTime() - last.get(mmsi))
+            .description("Time since the newest stored position of the vessel")
+            .tag("mmsi", mmsi)
+            .register(meterRegistry);
+    }
+}
@@ -0,0 +1,143 @@
+package no.maddin.ais.quality;
+
+import no.maddin.ais.config.AisQualityConfig;
+import no.maddin.ais.data.AisData;
+import no.maddin.ais.data.AisFields;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Checks the positions of each vessel against the last accepted one, one position at a time.
+ * <p>
+ * A position that jumps too far is rejected and remembered as a candidate. If the next position is plausible from the
+ * candidate but not from the last accepted one, it was the accepted position that was wrong, e.g. the first position
+ * seen after startup: the vessel continues from the new position.
+ * <p>
+ * The state of a vessel is a timestamp and two positions. Nothing is allocated after the first position of a vessel.
+ * Lon and lat are parsed from a buffer per thread instead of a copy of each string.
+ */
+public class PositionValidator {
+
+    private static final double METERS_PER_DEGREE = 111_320;
+
+    private static final double METERS_PER_SECOND_PER_KNOT = 1852 / 3600.0;
+
+    /**
+     * Longer values than this are not plain decimals and are parsed as strings.
+     */
+    private static final int MAX_DECIMAL_LENGTH = 32;
+
+    private final double maxMetersPerMilli;
+
+    private final double jumpTolerance;
+
+    private final Map<String, Fix> vessels = new ConcurrentHashMap<>();
+
+    private final ThreadLocal<char[]> chars = ThreadLocal.withInitial(() -> new char[MAX_DECIMAL_LENGTH]);
+
+    public PositionValidator(AisQualityConfig config) {
+        this.maxMetersPerMilli = config.getMaxSpeed() * METERS_PER_SECOND_PER_KNOT / 1000;
+        this.jumpTolerance = config.getJumpTolerance();
+    }
+
+    /**
+     * Positions without MMSI or timestamp are not checked.
+     *
+     * @return {@code null} if the position is accepted
+     */
+    public QualityReason check(AisData data) {
+        if (data.getMmsi() == null || data.getTimestamp() == null) {
+            return null;
+        }
+        double lon = parseDecimal(data.getLon());
+        double lat = parseDecimal(data.getLat());
+        if (!(lon >= -180 && lon <= 180 && lat >= -90 && lat <= 90)) {
+            return QualityReason.OUT_OF_RANGE;
+        }
+        if (lon == 0 && lat == 0) {
+            return QualityReason.NULL_ISLAND;
+        }
+        Fix fix = vessels.get(data.getMmsi());
+        if (fix == null) {
+            fix = vessels.computeIfAbsent(data.getMmsi(), mmsi -> new Fix());
+        }
+        synchronized (fix) {
+            return check(fix, data.getTimestamp().toInstant().toEpochMilli(), lon, lat);
+        }
+    }
+
+    /**
+     * Number of vessels with state.
+     */
+    public int vessels() {
+        return vessels.size();
+    }
+
+    private QualityReason check(Fix fix, long timestamp, double lon, double lat) {
+        if (fix.timestamp == Long.MIN_VALUE) {
+            fix.accept(timestamp, lon, lat);
+            return null;
+        }
+        if (timestamp == fix.timestamp) {
+            return QualityReason.DUPLICATE;
+        }
+        if (timestamp < fix.timestamp) {
+            return QualityReason.OUT_OF_ORDER;
+        }
+        if (plausible(fix.timestamp, fix.lon, fix.lat, timestamp, lon, lat)
+            || fix.candidateTimestamp != Long.MIN_VALUE && timestamp > fix.candidateTimestamp
+            && plausible(fix.candidateTimestamp, fix.candidateLon, fix.candidateLat, timestamp, lon, lat)) {
+            fix.accept(timestamp, lon, lat);
+            return null;
+        }
+        fix.candidateTimestamp = timestamp;
+        fix.candidateLon = lon;
+        fix.candidateLat = lat;
+        return QualityReason.SPEED_OUTLIER;
+    }
+
+    /**
+     * {@link AisFields#parseDecimal(String)} without copying the string.
+     */
+    private double parseDecimal(String value) {
+        if (value == null || value.length() > MAX_DECIMAL_LENGTH) {
+            return AisFields.parseDecimal(value);
+        }
+        char[] buffer = chars.get();
+        value.getChars(0, value.length(), buffer, 0);
+        return AisFields.parseDecimal(buffer, 0, value.length());
+    }
+
+    private boolean plausible(long fromTimestamp, double fromLon, double fromLat, long toTimestamp, double toLon, double toLat) {
+        double dLon = Math.abs(toLon - fromLon);
+        if (dLon > 180) {
+            dLon = 360 - dLon;
+        }
+        double x = dLon * Math.cos(Math.toRadians((fromLat + toLat) / 2));
+        double y = toLat - fromLat;
+        double meters = Math.sqrt(x * x + y * y) * METERS_PER_DEGREE;
+        return meters - jumpTolerance <= (toTimestamp - fromTimestamp) * maxMetersPerMilli;
+    }
+
+    private static final class Fix {
+
+        long timestamp = Long.MIN_VALUE;
+        double lon;
+        double lat;
+
+        /**
+         * The last rejected jump, {@link Long#MIN_VALUE} if there is none.
+         */
+        long candidateTimestamp = Long.MIN_VALUE;
+        double candidateLon;
+        double candidateLat;
+
+        void accept(long timestamp, double lon, double lat) {
+            this.timestamp = timestamp;
+            this.lon = lon;
+            this.lat = lat;
+            this.candidateTimestamp = Long.MIN_VALUE;
+        }
+    }
+}
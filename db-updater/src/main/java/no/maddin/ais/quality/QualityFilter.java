@@ -0,0 +1,59 @@
+package no.maddin.ais.quality;
+
+import io.micrometer.core.instrument.Counter;
+import lombok.extern.slf4j.Slf4j;
+import no.maddin.ais.config.AisQualityConfig;
+import no.maddin.ais.data.AisData;
+import no.maddin.ais.metrics.AisMetrics;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Runs the {@link PositionValidator} on the positions read by the providers, before events are detected and before they are written,
+ * so rejected positions cost neither.
+ * Positions failing a check in {@link AisQualityConfig#getReject()} are dropped, the others are passed on and only counted.
+ */
+@Component
+@Slf4j
+public class QualityFilter {
+
+    private final AisQualityConfig aisQualityConfig;
+
+    private final PositionValidator validator;
+
+    private final Set<QualityReason> rejected = EnumSet.noneOf(QualityReason.class);
+
+    private final Map<QualityReason, Counter> failed = new EnumMap<>(QualityReason.class);
+
+    public QualityFilter(AisQualityConfig aisQualityConfig, AisMetrics aisMetrics) {
+        this.aisQualityConfig = aisQualityConfig;
+        this.validator = new PositionValidator(aisQualityConfig);
+        rejected.addAll(aisQualityConfig.getReject());
+        for (QualityReason reason : QualityReason.values()) {
+            failed.put(reason, aisMetrics.qualityFailed(reason, rejected.contains(reason)));
+        }
+    }
+
+    public Flux<AisData> filter(Flux<AisData> data) {
+        if (!aisQualityConfig.isEnabled()) {
+            return data;
+        }
+        return data.filter(this::accept);
+    }
+
+    private boolean accept(AisData aisData) {
+        QualityReason reason = validator.check(aisData);
+        if (reason == null) {
+            return true;
+        }
+        failed.get(reason).increment();
+        boolean reject = rejected.contains(reason);
+        log.debug("{} position of {} at {} ({},{}): {}", reject ? "Rejected" : "Flagged", aisData.getMmsi(), aisData.getTimestamp(), aisData.getLon(), aisData.getLat(), reason);
+        return !reject;
+    }
+}
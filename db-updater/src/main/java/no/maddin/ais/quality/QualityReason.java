@@ -0,0 +1,27 @@
+package no.maddin.ais.quality;
+
+/**
+ * Why the {@link PositionValidator} does not accept a position.
+ */
+public enum QualityReason {
+    /**
+     * Lon or lat missing, not a number, or outside of [-180, 180] and [-90, 90], e.g. the AIS "not available" values 181 and 91.
+     */
+    OUT_OF_RANGE,
+    /**
+     * Lon and lat both exactly 0, what receivers report before they have a fix.
+     */
+    NULL_ISLAND,
+    /**
+     * Same timestamp as the last accepted position of the vessel, like the position read again when a reader resumes.
+     */
+    DUPLICATE,
+    /**
+     * Older than the last accepted position of the vessel.
+     */
+    OUT_OF_ORDER,
+    /**
+     * Further from the last accepted position than the vessel could have sailed at the maximum speed.
+     */
+    SPEED_OUTLIER
+}
@@ -0,0 +1,89 @@
+package no.maddin.ais.reader;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import no.maddin.ais.config.AisReaderConfig;
+import no.maddin.ais.data.IngestResult;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads all tracked vessels every {@link AisReaderConfig#getPollInterval()} with one application context and connection pool.
+ * A cycle that takes longer than the interval delays the next one to the first tick after it, instead of overlapping it.
+ * On shutdown the running cycle is finished, including its last write batch, before the context closes.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(prefix = "ais.reader", name = "mode", havingValue = "daemon")
+public class AisPollingDaemon implements SmartLifecycle {
+
+    private final AisReaderService aisReaderService;
+
+    private final AisReaderConfig aisReaderConfig;
+
+    private final Sinks.Empty<Void> stopSignal = Sinks.empty();
+
+    private final CountDownLatch terminated = new CountDownLatch(1);
+
+    private volatile Disposable polling;
+
+    @Override
+    public void start() {
+        polling = cycles()
+            .doFinally(signal -> terminated.countDown())
+            .subscribe(count -> {}, e -> log.error("Polling stopped", e));
+    }
+
+    /**
+     * Without prefetch the next tick is only requested when a cycle has finished, ticks during a cycle are dropped.
+     *
+     * @return the number of vessels that succeeded per cycle
+     */
+    Flux<Long> cycles() {
+        return Flux.interval(Duration.ZERO, aisReaderConfig.getPollInterval())
+            .onBackpressureDrop(tick -> log.info("Polling cycle still running, skipping tick {}", tick))
+            .takeUntilOther(stopSignal.asMono())
+            .concatMap(tick -> {
+                long start = System.nanoTime();
+                return aisReaderService.readFleet()
+                    .filter(IngestResult::isSuccess)
+                    .count()
+                    .doOnNext(succeeded -> log.info("Polling cycle {}: {} vessels succeeded in {} ms", tick, succeeded, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+            }, 0);
+    }
+
+    @Override
+    public void stop() {
+        stopSignal.tryEmitEmpty();
+        try {
+            if (!terminated.await(aisReaderConfig.getShutdownTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                log.warn("Polling cycle did not finish within {}, cancelling it", aisReaderConfig.getShutdownTimeout());
+                polling.dispose();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            polling.dispose();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return polling != null && terminated.getCount() > 0;
+    }
+
+    /**
+     * Blocks until polling has stopped.
+     */
+    public void awaitTermination() throws InterruptedException {
+        terminated.await();
+    }
+}
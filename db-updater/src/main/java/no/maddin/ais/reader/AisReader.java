@@ -7,4 +7,11 @@ import java.time.LocalDateTime;
 
 public interface AisReader {
     Publisher<AisData> readAis(String mmsi, LocalDateTime startDate, LocalDateTime endDate);
+
+    /**
+     * Name used in {@code ais.reader.type} and {@code ais.reader.providers}.
+     */
+    default String provider() {
+        return getClass().getSimpleName();
+    }
 }
@@ -0,0 +1,94 @@
+package no.maddin.ais.reader;
+
+import lombok.extern.slf4j.Slf4j;
+import no.maddin.ais.config.AisReaderConfig;
+import no.maddin.ais.data.AisData;
+import org.reactivestreams.Publisher;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reads every vessel from all active providers at the same time and merges their records in timestamp order.
+ * <p>
+ * Each provider delivers its records ordered by timestamp, so merging only compares the heads of the streams and a slow or
+ * throttled provider delays the merged stream without blocking the others' requests.
+ * Reports of the same position by several providers are removed by {@link ProviderDeduplicator}, the provider listed
+ * first in {@link AisReaderConfig#getProviders()} wins.
+ * With several providers, a failing provider is logged and skipped; the vessel only fails when all providers fail.
+ */
+@Component
+@Primary
+@Slf4j
+public class AisReaderRegistry implements AisReader {
+
+    private final List<AisReader> readers;
+
+    private final AisReaderConfig aisReaderConfig;
+
+    public AisReaderRegistry(List<AisReader> readers, AisReaderConfig aisReaderConfig) {
+        List<String> priority = aisReaderConfig.getProviders();
+        this.readers = readers.stream()
+            .filter(reader -> reader != this)
+            .sorted(Comparator.comparingInt(reader -> rank(priority, reader.provider())))
+            .toList();
+        this.aisReaderConfig = aisReaderConfig;
+        if (this.readers.isEmpty()) {
+            throw new IllegalStateException("No AIS provider active, check ais.reader.type and ais.reader.providers");
+        }
+        log.info("AIS providers by priority: {}", this.readers.stream().map(AisReader::provider).toList());
+    }
+
+    @Override
+    public String provider() {
+        return readers.stream().map(AisReader::provider).reduce((a, b) -> a + "," + b).orElseThrow();
+    }
+
+    List<AisReader> readers() {
+        return readers;
+    }
+
+    @Override
+    public Publisher<AisData> readAis(String mmsi, LocalDateTime startDate, LocalDateTime endDate) {
+        if (readers.size() == 1) {
+            return readers.get(0).readAis(mmsi, startDate, endDate);
+        }
+        return Flux.defer(() -> {
+            AtomicInteger failures = new AtomicInteger();
+            @SuppressWarnings("unchecked")
+            Flux<ProviderDeduplicator.Ranked>[] sources = new Flux[readers.size()];
+            for (int rank = 0; rank < readers.size(); rank++) {
+                AisReader reader = readers.get(rank);
+                int r = rank;
+                sources[rank] = Flux.from(reader.readAis(mmsi, startDate, endDate))
+                    .map(data -> new ProviderDeduplicator.Ranked(r, data))
+                    .onErrorResume(e -> {
+                        if (failures.incrementAndGet() == readers.size()) {
+                            return Flux.error(e);
+                        }
+                        log.warn("{}: provider {} failed, continuing with the others: {}", mmsi, reader.provider(), e.toString());
+                        return Flux.empty();
+                    });
+            }
+            ProviderDeduplicator deduplicator = new ProviderDeduplicator(aisReaderConfig.getDedupTolerance());
+            return Flux.mergeComparing(ProviderDeduplicator.ORDER, sources)
+                .concatMapIterable(deduplicator::accept)
+                .concatWith(Flux.defer(() -> Flux.fromIterable(deduplicator.flush())))
+                .map(ProviderDeduplicator.Ranked::data);
+        });
+    }
+
+    private static int rank(List<String> priority, String provider) {
+        for (int i = 0; i < priority.size(); i++) {
+            if (priority.get(i).equalsIgnoreCase(provider)) {
+                return i;
+            }
+        }
+        return priority.size();
+    }
+}
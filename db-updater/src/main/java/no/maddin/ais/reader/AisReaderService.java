@@ -3,15 +3,28 @@ package no.maddin.ais.reader;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import no.maddin.ais.config.AisReaderConfig;
+import no.maddin.ais.config.AisStorageConfig;
 import no.maddin.ais.data.AisData;
-import no.maddin.ais.repository.AisDataReactiveRepository;
+import no.maddin.ais.data.AisFields;
+import no.maddin.ais.data.IngestResult;
+import no.maddin.ais.event.AisEventEngine;
+import no.maddin.ais.quality.QualityFilter;
+import no.maddin.ais.repository.AisDataBulkWriter;
+import no.maddin.ais.repository.ResumePointStore;
+import no.maddin.ais.spool.Spool;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
-import java.time.LocalDate;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
 import java.time.LocalDateTime;
-import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Read AIS data from MarineTraffic.com.
@@ -24,29 +37,110 @@ public class AisReaderService {
 
     private final AisReader aisReader;
 
-    private final AisDataReactiveRepository aisDataReactiveRepository;
+    private final ResumePointStore resumePointStore;
+
+    private final AisDataBulkWriter aisDataBulkWriter;
 
     private final AisReaderConfig aisReaderConfig;
 
+    private final AisStorageConfig aisStorageConfig;
+
+    private final AisEventEngine aisEventEngine;
+
+    private final Spool spool;
+
+    private final QualityFilter qualityFilter;
+
     public Flux<AisData> readAis() {
-        var marineTrafficData = findLastRecordedDate()
+        return readAis(aisReaderConfig.getMmsi());
+    }
+
+    public Flux<AisData> readAis(String mmsi) {
+        var marineTrafficData = findResumePoint(mmsi)
             .flux()
-            .log("readAis")
-            .flatMap(newStartDate -> aisReader.readAis(aisReaderConfig.getMmsi(), newStartDate.atStartOfDay(), LocalDateTime.now()))
+            .flatMap(newStartDate -> aisReader.readAis(mmsi, newStartDate, LocalDateTime.now()))
             ;
 
-        return aisDataReactiveRepository.saveAll(marineTrafficData);
+        var observed = aisEventEngine.observe(qualityFilter.filter(marineTrafficData));
+        return spool.isEnabled() ? spool.append(observed) : aisDataBulkWriter.write(observed);
     }
 
-    private Mono<LocalDate> findLastRecordedDate() {
-        return aisDataReactiveRepository.findFirstByOrderByTimestampDesc(aisReaderConfig.getMmsi())
-            .map(AisData::getTimestamp)
-            .log("lastRecordedDate")
-            .map(OffsetDateTime::toLocalDate)
-            .map(ld -> ld.isAfter(aisReaderConfig.getStartDate()) ? ld : aisReaderConfig.getStartDate())
-            .switchIfEmpty(Mono.just(aisReaderConfig.getStartDate()))
-            .log("lastRecordedDate 1")
+    /**
+     * Read all tracked vessels in one pipeline, at most {@link AisReaderConfig#getConcurrency()} at a time.
+     * A failing vessel is reported in its {@link IngestResult} and does not stop the others.
+     */
+    public Flux<IngestResult> readFleet() {
+        return trackedVessels()
+            .flatMap(mmsi -> readAis(mmsi)
+                    .reduce(IngestResult.empty(mmsi), IngestResult::add)
+                    .onErrorResume(e -> Mono.just(IngestResult.failure(mmsi, e))),
+                aisReaderConfig.getConcurrency())
+            .doOnNext(AisReaderService::logResult);
+    }
 
-            ;
+    private static void logResult(IngestResult result) {
+        if (result.isSuccess()) {
+            log.info("Vessel {}: {} records, last {}", result.mmsi(), result.records(), result.lastTimestamp());
+        } else {
+            log.warn("Vessel {} failed: {}", result.mmsi(), result.error().getMessage());
+        }
+    }
+
+    /**
+     * All configured MMSIs from {@code ais.reader.mmsi}, {@code ais.reader.mmsis} and {@code ais.reader.mmsi-file}, without duplicates.
+     */
+    Flux<String> trackedVessels() {
+        return trackedVessels(aisReaderConfig);
+    }
+
+    static Flux<String> trackedVessels(AisReaderConfig aisReaderConfig) {
+        return Mono.fromCallable(() -> {
+                List<String> mmsis = new ArrayList<>();
+                if (aisReaderConfig.getMmsi() != null) {
+                    mmsis.add(aisReaderConfig.getMmsi());
+                }
+                mmsis.addAll(aisReaderConfig.getMmsis());
+                if (aisReaderConfig.getMmsiFile() != null) {
+                    try (var lines = Files.lines(aisReaderConfig.getMmsiFile())) {
+                        lines.forEach(mmsis::add);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                return mmsis;
+            })
+            .subscribeOn(Schedulers.boundedElastic())
+            .flatMapIterable(mmsis -> mmsis)
+            .map(String::trim)
+            .filter(mmsi -> !mmsi.isEmpty() && !mmsi.startsWith("#"))
+            .distinct();
+    }
+
+    /**
+     * The numeric MMSIs, sorted for {@link Arrays#binarySearch(int[], int)}.
+     */
+    static Mono<int[]> sortedMmsis(Flux<String> mmsis) {
+        return mmsis
+            .map(mmsi -> AisFields.parseInt(mmsi, -1))
+            .filter(mmsi -> mmsi > 0)
+            .collectList()
+            .map(list -> list.stream().mapToInt(Integer::intValue).sorted().toArray());
+    }
+
+    /**
+     * Continue at the exact timestamp of the last stored position, or at the configured start date.
+     * The last position is read again and the writer ignores it. Time-series collections can't ignore it,
+     * there the reader continues one second later, the resolution of MarineTraffic's date parameters.
+     * Positions still in the {@link Spool} count as stored.
+     */
+    private Mono<LocalDateTime> findResumePoint(String mmsi) {
+        LocalDateTime startDate = aisReaderConfig.getStartDate().atStartOfDay();
+        return resumePointStore.lastIngested(mmsi)
+            .map(stored -> spool.newest(mmsi).filter(spooled -> spooled.isAfter(stored)).orElse(stored))
+            .switchIfEmpty(Mono.fromSupplier(() -> spool.newest(mmsi).orElse(null)))
+            .map(timestamp -> timestamp.withOffsetSameInstant(ZoneOffset.UTC).toLocalDateTime())
+            .map(last -> aisStorageConfig.isTimeSeries() ? last.plusSeconds(1) : last)
+            .map(last -> last.isAfter(startDate) ? last : startDate)
+            .defaultIfEmpty(startDate);
     }
 }
@@ -0,0 +1,417 @@
+package no.maddin.ais.reader;
+
+import lombok.Getter;
+import no.maddin.ais.data.AisPosition;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * Decodes raw {@code !AIVDM}/{@code !AIVDO} sentences, one line at a time, into {@link AisPosition}s.
+ * <p>
+ * Supports position reports of type 1, 2, 3 (class A), 18 and 19 (class B). Static reports of type 5 are not emitted,
+ * their IMO number is remembered and added to the following positions of the vessel.
+ * Multipart messages are reassembled by sequence id, fragments that arrive out of order are dropped.
+ * <p>
+ * The time of a position is taken from an NMEA 4.10 tag block ({@code \c:<epoch seconds>*hh\}), from an epoch seconds
+ * field after the checksum (as appended by many receivers and aggregators), or else the time passed in.
+ * <p>
+ * The payload is unpacked into a reused bit buffer, so the only allocation per position is the result itself.
+ * Instances keep the multipart state of one stream and are not thread-safe.
+ */
+public class AivdmDecoder {
+
+    private static final int MAX_BITS = 1024;
+
+    private static final int SLOTS = 11;
+
+    private static final long LON_NOT_AVAILABLE = 181 * 600_000L;
+
+    private static final long LAT_NOT_AVAILABLE = 91 * 600_000L;
+
+    private final IntPredicate mmsiFilter;
+
+    private final long[] words = new long[MAX_BITS / 64 + 2];
+
+    private int bitCount;
+
+    private final Fragments[] fragments = new Fragments[SLOTS];
+
+    private final ImoTable imos = new ImoTable();
+
+    @Getter
+    private long sentences;
+
+    @Getter
+    private long checksumErrors;
+
+    @Getter
+    private long malformed;
+
+    @Getter
+    private long droppedFragments;
+
+    @Getter
+    private long unsupported;
+
+    @Getter
+    private long filtered;
+
+    @Getter
+    private long positions;
+
+    @Getter
+    private long staticReports;
+
+    public AivdmDecoder() {
+        this(mmsi -> true);
+    }
+
+    /**
+     * @param mmsiFilter messages of other vessels are skipped before a result is built
+     */
+    public AivdmDecoder(IntPredicate mmsiFilter) {
+        this.mmsiFilter = mmsiFilter;
+        for (int i = 0; i < SLOTS; i++) {
+            fragments[i] = new Fragments();
+        }
+    }
+
+    /**
+     * @param receivedMillis time of the position if the line has no timestamp of its own
+     * @return the position, or {@code null} if the line is not a complete, valid and supported position report
+     */
+    public AisPosition decode(byte[] line, int offset, int length, long receivedMillis) {
+        int end = offset + length;
+        while (end > offset && line[end - 1] <= ' ') {
+            end--;
+        }
+        long timestamp = receivedMillis;
+        int p = offset;
+        if (p < end && line[p] == '\\') {
+            int close = indexOf(line, p + 1, end, '\\');
+            if (close < 0) {
+                malformed++;
+                return null;
+            }
+            long tagTime = tagBlockTime(line, p + 1, close);
+            if (tagTime >= 0) {
+                timestamp = tagTime;
+            }
+            p = close + 1;
+        }
+        if (p >= end || line[p] != '!' && line[p] != '$') {
+            malformed++;
+            return null;
+        }
+        sentences++;
+        int star = indexOf(line, p + 1, end, '*');
+        if (star < 0 || star + 3 > end) {
+            malformed++;
+            return null;
+        }
+        int checksum = 0;
+        for (int i = p + 1; i < star; i++) {
+            checksum ^= line[i];
+        }
+        if ((hex(line[star + 1]) << 4 | hex(line[star + 2])) != checksum) {
+            checksumErrors++;
+            return null;
+        }
+        if (star + 4 < end && line[star + 3] == ',') {
+            long seconds = parseLong(line, star + 4, end);
+            if (seconds >= 0) {
+                timestamp = toMillis(seconds);
+            }
+        }
+        if (star - p < 7 || line[p + 3] != 'V' || line[p + 4] != 'D' || line[p + 5] != 'M' && line[p + 5] != 'O' || line[p + 6] != ',') {
+            unsupported++;
+            return null;
+        }
+        int c1 = indexOf(line, p + 7, star, ',');
+        int c2 = indexOf(line, c1 + 1, star, ',');
+        int c3 = indexOf(line, c2 + 1, star, ',');
+        int c4 = indexOf(line, c3 + 1, star, ',');
+        int c5 = indexOf(line, c4 + 1, star, ',');
+        if (c1 < 0 || c2 < 0 || c3 < 0 || c4 < 0 || c5 < 0) {
+            malformed++;
+            return null;
+        }
+        int count = (int) parseLong(line, p + 7, c1);
+        int number = (int) parseLong(line, c1 + 1, c2);
+        int fill = c5 + 1 < star ? (int) parseLong(line, c5 + 1, star) : 0;
+        if (count < 1 || number < 1 || number > count || fill < 0 || fill > 5) {
+            malformed++;
+            return null;
+        }
+        if (count == 1) {
+            return unpack(line, c4 + 1, c5, fill) ? message(timestamp) : null;
+        }
+        Fragments slot = fragments[c3 - c2 == 2 && line[c2 + 1] >= '0' && line[c2 + 1] <= '9' ? line[c2 + 1] - '0' : SLOTS - 1];
+        if (number == 1) {
+            if (slot.expected > 1) {
+                droppedFragments += slot.expected - 1;
+            }
+            slot.start(count);
+        } else if (slot.expected != number || slot.count != count) {
+            droppedFragments++;
+            slot.expected = 0;
+            return null;
+        }
+        slot.append(line, c4 + 1, c5);
+        if (number < count) {
+            return null;
+        }
+        slot.expected = 0;
+        return unpack(slot.payload, 0, slot.length, fill) ? message(timestamp) : null;
+    }
+
+    private AisPosition message(long timestamp) {
+        if (bitCount < 38) {
+            malformed++;
+            return null;
+        }
+        int type = (int) bits(0, 6);
+        int mmsi = (int) bits(8, 30);
+        switch (type) {
+            case 1, 2, 3 -> {
+                if (bitCount < 168) {
+                    malformed++;
+                    return null;
+                }
+                if (!mmsiFilter.test(mmsi)) {
+                    filtered++;
+                    return null;
+                }
+                return position(mmsi, (int) bits(38, 4), (int) bits(50, 10), signed(61, 28), signed(89, 27), (int) bits(116, 12), (int) bits(128, 9), timestamp);
+            }
+            case 18, 19 -> {
+                if (bitCount < 168) {
+                    malformed++;
+                    return null;
+                }
+                if (!mmsiFilter.test(mmsi)) {
+                    filtered++;
+                    return null;
+                }
+                return position(mmsi, AisPosition.STATUS_NOT_DEFINED, (int) bits(46, 10), signed(57, 28), signed(85, 27), (int) bits(112, 12), (int) bits(124, 9), timestamp);
+            }
+            case 5 -> {
+                if (bitCount < 70) {
+                    malformed++;
+                    return null;
+                }
+                imos.put(mmsi, (int) bits(40, 30));
+                staticReports++;
+                return null;
+            }
+            default -> {
+                unsupported++;
+                return null;
+            }
+        }
+    }
+
+    private AisPosition position(int mmsi, int status, int speed, long lon, long lat, int course, int heading, long timestamp) {
+        positions++;
+        return AisPosition.builder()
+            .mmsi(mmsi)
+            .imo(imos.get(mmsi))
+            .status(status)
+            .speed(speed)
+            .course(course > AisPosition.COURSE_NOT_AVAILABLE ? AisPosition.COURSE_NOT_AVAILABLE : course)
+            .heading(heading > 359 ? AisPosition.HEADING_NOT_AVAILABLE : heading)
+            .lon(lon == LON_NOT_AVAILABLE || Math.abs(lon) > LON_NOT_AVAILABLE ? Double.NaN : lon / 600_000.0)
+            .lat(lat == LAT_NOT_AVAILABLE || Math.abs(lat) > LAT_NOT_AVAILABLE ? Double.NaN : lat / 600_000.0)
+            .timestamp(timestamp)
+            .build();
+    }
+
+    /**
+     * Unpacks the 6-bit armored payload into {@link #words}, most significant bit first.
+     */
+    private boolean unpack(byte[] payload, int from, int to, int fill) {
+        int bits = (to - from) * 6;
+        if (bits > MAX_BITS) {
+            unsupported++;
+            return false;
+        }
+        Arrays.fill(words, 0, (bits >>> 6) + 1, 0L);
+        int position = 0;
+        for (int i = from; i < to; i++) {
+            int value = payload[i] - 48;
+            if (value > 40) {
+                value -= 8;
+            }
+            if (value < 0 || value > 63) {
+                malformed++;
+                return false;
+            }
+            int word = position >>> 6;
+            int shift = 58 - (position & 63);
+            if (shift >= 0) {
+                words[word] |= (long) value << shift;
+            } else {
+                words[word] |= (long) value >>> -shift;
+                words[word + 1] |= (long) value << (64 + shift);
+            }
+            position += 6;
+        }
+        bitCount = bits - fill;
+        return true;
+    }
+
+    private long bits(int start, int length) {
+        int word = start >>> 6;
+        int offset = start & 63;
+        long value = words[word] << offset;
+        if (offset + length > 64) {
+            value |= words[word + 1] >>> (64 - offset);
+        }
+        return value >>> (64 - length);
+    }
+
+    private long signed(int start, int length) {
+        return bits(start, length) << (64 - length) >> (64 - length);
+    }
+
+    private static long tagBlockTime(byte[] line, int from, int to) {
+        for (int i = from; i + 2 < to; i++) {
+            if (line[i] == 'c' && line[i + 1] == ':' && (i == from || line[i - 1] == ',')) {
+                long value = parseLong(line, i + 2, to);
+                return value < 0 ? -1 : toMillis(value);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Some receivers write milliseconds instead of seconds.
+     */
+    private static long toMillis(long epoch) {
+        return epoch > 100_000_000_000L ? epoch : epoch * 1000;
+    }
+
+    /**
+     * Parses the digits at {@code from}, stopping at the first non-digit.
+     *
+     * @return -1 if there is no digit
+     */
+    private static long parseLong(byte[] line, int from, int to) {
+        long value = 0;
+        int i = from;
+        while (i < to && line[i] >= '0' && line[i] <= '9' && i - from < 18) {
+            value = value * 10 + line[i] - '0';
+            i++;
+        }
+        return i == from ? -1 : value;
+    }
+
+    private static int indexOf(byte[] line, int from, int to, char c) {
+        for (int i = from; i < to; i++) {
+            if (line[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int hex(byte b) {
+        if (b >= '0' && b <= '9') {
+            return b - '0';
+        }
+        if (b >= 'A' && b <= 'F') {
+            return b - 'A' + 10;
+        }
+        if (b >= 'a' && b <= 'f') {
+            return b - 'a' + 10;
+        }
+        return -256;
+    }
+
+    private static final class Fragments {
+
+        private byte[] payload = new byte[128];
+
+        private int length;
+
+        private int count;
+
+        private int expected;
+
+        void start(int count) {
+            this.count = count;
+            this.length = 0;
+            this.expected = 1;
+        }
+
+        void append(byte[] line, int from, int to) {
+            int n = to - from;
+            if (length + n > payload.length) {
+                payload = Arrays.copyOf(payload, Math.max(payload.length * 2, length + n));
+            }
+            System.arraycopy(line, from, payload, length, n);
+            length += n;
+            expected++;
+        }
+    }
+
+    /**
+     * MMSI to IMO number, open addressing without boxing. MMSI 0 is not a valid key.
+     */
+    private static final class ImoTable {
+
+        private int[] keys = new int[1024];
+
+        private int[] values = new int[1024];
+
+        private int size;
+
+        int get(int mmsi) {
+            int mask = keys.length - 1;
+            for (int i = mix(mmsi) & mask; keys[i] != 0; i = (i + 1) & mask) {
+                if (keys[i] == mmsi) {
+                    return values[i];
+                }
+            }
+            return 0;
+        }
+
+        void put(int mmsi, int imo) {
+            if (mmsi == 0) {
+                return;
+            }
+            if (2 * (size + 1) > keys.length) {
+                grow();
+            }
+            int mask = keys.length - 1;
+            int i = mix(mmsi) & mask;
+            while (keys[i] != 0 && keys[i] != mmsi) {
+                i = (i + 1) & mask;
+            }
+            if (keys[i] == 0) {
+                size++;
+            }
+            keys[i] = mmsi;
+            values[i] = imo;
+        }
+
+        private void grow() {
+            int[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new int[oldKeys.length * 2];
+            values = new int[oldValues.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        private static int mix(int key) {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+}
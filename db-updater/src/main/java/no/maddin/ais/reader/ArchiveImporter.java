@@ -0,0 +1,226 @@
+package no.maddin.ais.reader;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import no.maddin.ais.config.AisImportConfig;
+import no.maddin.ais.data.AisData;
+import no.maddin.ais.data.AisPosition;
+import no.maddin.ais.repository.AisDataBulkWriter;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntPredicate;
+
+/**
+ * Loads historical archives (AIVDM logs or CSV exports) straight into the database.
+ * <p>
+ * Each file is memory-mapped and split into chunks at line boundaries. {@link AisImportConfig#getParallelism()} chunks are
+ * parsed at a time, each on its own worker of the parallel scheduler, and streamed into the {@link AisDataBulkWriter}.
+ * Parsing is pulled by the writer's demand, so a slow database slows the parsers down instead of filling memory.
+ * Rows of vessels that are not tracked are dropped right after their MMSI has been read.
+ * A chunk is recorded in the {@link ImportCheckpoint} once all its rows are written; after a crash the import continues
+ * with the chunks that are not recorded, rows of a partly written chunk are written again and ignored by the writer.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ArchiveImporter {
+
+    private final AisImportConfig aisImportConfig;
+
+    private final AisReaderService aisReaderService;
+
+    private final AisDataBulkWriter aisDataBulkWriter;
+
+    /**
+     * Chunk of a file, {@code [start, end)} both at the start of a line.
+     */
+    record Chunk(Path file, int index, long start, long end, String id) {
+    }
+
+    /**
+     * @return number of records written
+     */
+    public Mono<Long> importArchives() {
+        return mmsiFilter()
+            .flatMap(filter -> Mono.using(
+                () -> new ImportCheckpoint(aisImportConfig.getCheckpointFile()),
+                checkpoint -> Flux.fromIterable(aisImportConfig.getFiles())
+                    .concatMap(file -> importFile(file, filter, checkpoint))
+                    .reduce(0L, Long::sum),
+                checkpoint -> {
+                    try {
+                        checkpoint.close();
+                    } catch (IOException e) {
+                        log.warn("Closing import checkpoint failed", e);
+                    }
+                }));
+    }
+
+    private Mono<Long> importFile(Path file, IntPredicate filter, ImportCheckpoint checkpoint) {
+        return Mono.fromCallable(() -> chunks(file, aisImportConfig.getChunkSize().toBytes()))
+            .zipWith(Mono.fromCallable(() -> ArchiveFormat.detect(file, aisImportConfig.getFormat())))
+            .subscribeOn(Schedulers.boundedElastic())
+            .flatMap(fileChunks -> {
+                long started = System.nanoTime();
+                List<Chunk> chunks = fileChunks.getT1();
+                ArchiveFormat format = fileChunks.getT2();
+                List<Chunk> pending = chunks.stream().filter(chunk -> !checkpoint.isCompleted(chunk.id())).toList();
+                log.info("Importing {} as {}: {} of {} chunks to do", file, format, pending.size(), chunks.size());
+                return Flux.fromIterable(pending)
+                    .flatMap(chunk -> aisDataBulkWriter.write(parse(chunk, format, filter).subscribeOn(Schedulers.parallel()))
+                            .count()
+                            .doOnNext(records -> {
+                                complete(checkpoint, chunk);
+                                log.debug("{} chunk {}: {} records", file, chunk.index(), records);
+                            }),
+                        aisImportConfig.getParallelism())
+                    .reduce(0L, Long::sum)
+                    .doOnNext(records -> {
+                        long millis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+                        log.info("Imported {}: {} records in {} ms, {} records/s", file, records, millis, records * 1000 / millis);
+                    });
+            });
+    }
+
+    private static Flux<AisData> parse(Chunk chunk, ArchiveFormat format, IntPredicate filter) {
+        return Flux.<AisData, ArchiveParser>generate(
+            () -> {
+                try {
+                    return format.parser(chunk, filter);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            },
+            (parser, sink) -> {
+                try {
+                    AisPosition position = parser.next();
+                    if (position == null) {
+                        sink.complete();
+                    } else {
+                        sink.next(position.toAisData());
+                    }
+                } catch (IOException e) {
+                    sink.error(new UncheckedIOException(e));
+                }
+                return parser;
+            },
+            parser -> {
+                try {
+                    parser.close();
+                } catch (IOException e) {
+                    log.warn("Closing {} failed", chunk.file(), e);
+                }
+            });
+    }
+
+    private static void complete(ImportCheckpoint checkpoint, Chunk chunk) {
+        try {
+            checkpoint.complete(chunk.id());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Tracked MMSIs as a sorted array, binary search is cheaper than a boxed set lookup per row.
+     */
+    private Mono<IntPredicate> mmsiFilter() {
+        if (aisImportConfig.isAllVessels()) {
+            return Mono.just(mmsi -> true);
+        }
+        return AisReaderService.sortedMmsis(aisReaderService.trackedVessels())
+            .map(tracked -> {
+                log.info("Importing {} tracked vessels", tracked.length);
+                return mmsi -> Arrays.binarySearch(tracked, mmsi) >= 0;
+            });
+    }
+
+    /**
+     * Splits a file into chunks of about {@code chunkSize} bytes, each ending after a line break.
+     */
+    static List<Chunk> chunks(Path file, long chunkSize) throws IOException {
+        List<Chunk> chunks = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer buffer = ByteBuffer.allocate(8192);
+            long start = 0;
+            while (start < size) {
+                long end = Math.min(size, start + chunkSize);
+                while (end < size) {
+                    buffer.clear();
+                    int read = channel.read(buffer, end);
+                    int newline = -1;
+                    for (int i = 0; i < read && newline < 0; i++) {
+                        if (buffer.get(i) == '\n') {
+                            newline = i;
+                        }
+                    }
+                    if (newline >= 0) {
+                        end += newline + 1;
+                        break;
+                    }
+                    end += read;
+                }
+                end = Math.min(end, size);
+                chunks.add(new Chunk(file, chunks.size(), start, end, ImportCheckpoint.chunkId(file, size, chunkSize, chunks.size())));
+                start = end;
+            }
+        }
+        return chunks;
+    }
+
+    /**
+     * How the chunks of one file are parsed.
+     *
+     * @param columns   CSV columns, {@code null} for NMEA
+     * @param modified  time of NMEA sentences without timestamp
+     */
+    record ArchiveFormat(AisImportConfig.Format format, CsvArchiveParser.Columns columns, long modified) {
+
+        static ArchiveFormat detect(Path file, AisImportConfig.Format configured) throws IOException {
+            String first;
+            try (var lines = new MappedLines(file)) {
+                byte[] line = new byte[4096];
+                int length = lines.next(line);
+                first = length < 0 ? "" : new String(line, 0, length, StandardCharsets.UTF_8);
+            }
+            boolean nmea = configured == AisImportConfig.Format.NMEA
+                || configured == AisImportConfig.Format.AUTO && (first.startsWith("!") || first.startsWith("$") || first.startsWith("\\"));
+            if (nmea) {
+                return new ArchiveFormat(AisImportConfig.Format.NMEA, null, Files.getLastModifiedTime(file).toMillis());
+            }
+            return new ArchiveFormat(AisImportConfig.Format.CSV, CsvArchiveParser.Columns.of(first), 0);
+        }
+
+        ArchiveParser parser(Chunk chunk, IntPredicate filter) throws IOException {
+            var lines = new MappedLines(chunk.file(), chunk.start(), chunk.end(), MappedLines.SEGMENT_SIZE);
+            if (columns == null) {
+                return new NmeaArchiveParser(lines, filter, modified);
+            }
+            if (chunk.index() == 0) {
+                lines.next(new byte[4096]);
+            }
+            return new CsvArchiveParser(lines, columns, filter);
+        }
+
+        @Override
+        public String toString() {
+            return format.name();
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package no.maddin.ais.reader;
+
+import no.maddin.ais.data.AisPosition;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Positions of one chunk of an archive file, in file order.
+ */
+interface ArchiveParser extends Closeable {
+
+    /**
+     * @return the next position of a vessel that passes the filter, or {@code null} at the end of the chunk
+     */
+    AisPosition next() throws IOException;
+}
@@ -0,0 +1,30 @@
+package no.maddin.ais.reader;
+
+import org.springframework.context.annotation.Conditional;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Activates an {@link AisReader} if its provider is listed in {@code ais.reader.providers},
+ * or, when that is empty, if it is the one named by {@code ais.reader.type}.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+@Documented
+@Conditional(OnAisProviderCondition.class)
+public @interface ConditionalOnAisProvider {
+
+    /**
+     * Provider name as used in the configuration.
+     */
+    String value();
+
+    /**
+     * Active when neither {@code ais.reader.providers} nor {@code ais.reader.type} is set.
+     */
+    boolean matchIfMissing() default false;
+}
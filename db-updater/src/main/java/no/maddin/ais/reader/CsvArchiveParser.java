@@ -0,0 +1,247 @@
+package no.maddin.ais.reader;
+
+import no.maddin.ais.data.AisFields;
+import no.maddin.ais.data.AisPosition;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.IntPredicate;
+
+/**
+ * AIS positions in CSV files with a header line, e.g. the archives of the Danish Maritime Authority
+ * ({@code # Timestamp,Type of mobile,MMSI,Latitude,Longitude,Navigational status,...}, {@code dd/MM/yyyy HH:mm:ss})
+ * or of MarineCadastre.gov ({@code MMSI,BaseDateTime,LAT,LON,SOG,COG,Heading,...}, ISO timestamps in UTC).
+ * <p>
+ * Fields are located in the line bytes and only the needed ones are copied to a reused buffer, the MMSI first,
+ * so rows of other vessels cost a few comparisons.
+ */
+class CsvArchiveParser implements ArchiveParser {
+
+    private static final int MAX_FIELDS = 64;
+
+    private static final int MAX_FIELD_LENGTH = 64;
+
+    private static final List<String> STATUS_TEXTS = List.of(
+        "under way using engine", "at anchor", "not under command", "restricted manoeuverability", "constrained by her draught",
+        "moored", "aground", "engaged in fishing", "under way sailing");
+
+    /**
+     * Column indexes, -1 if the column is missing.
+     */
+    record Columns(int mmsi, int timestamp, int lat, int lon, int sog, int cog, int heading, int imo, int status) {
+
+        /**
+         * @throws IllegalArgumentException if MMSI, timestamp or position columns are missing
+         */
+        static Columns of(String header) {
+            String[] names = header.split(",");
+            for (int i = 0; i < names.length; i++) {
+                names[i] = names[i].replace("#", "").replace("\"", "").trim().toLowerCase(Locale.ROOT);
+            }
+            var columns = new Columns(
+                index(names, "mmsi"), index(names, "basedatetime", "timestamp"), index(names, "lat", "latitude"),
+                index(names, "lon", "longitude"), index(names, "sog"), index(names, "cog"), index(names, "heading"),
+                index(names, "imo"), index(names, "status", "navigational status"));
+            if (columns.mmsi < 0 || columns.timestamp < 0 || columns.lat < 0 || columns.lon < 0) {
+                throw new IllegalArgumentException("Not an AIS CSV header: " + header);
+            }
+            return columns;
+        }
+
+        private static int index(String[] names, String... candidates) {
+            for (String candidate : candidates) {
+                for (int i = 0; i < names.length; i++) {
+                    if (names[i].equals(candidate)) {
+                        return i;
+                    }
+                }
+            }
+            return -1;
+        }
+    }
+
+    private final MappedLines lines;
+
+    private final Columns columns;
+
+    private final IntPredicate mmsiFilter;
+
+    private final byte[] line = new byte[4096];
+
+    private final int[] starts = new int[MAX_FIELDS];
+
+    private final int[] ends = new int[MAX_FIELDS];
+
+    private final char[] chars = new char[MAX_FIELD_LENGTH];
+
+    private int fields;
+
+    private int lineLength;
+
+    CsvArchiveParser(MappedLines lines, Columns columns, IntPredicate mmsiFilter) {
+        this.lines = lines;
+        this.columns = columns;
+        this.mmsiFilter = mmsiFilter;
+    }
+
+    @Override
+    public AisPosition next() throws IOException {
+        while ((lineLength = lines.next(line)) >= 0) {
+            split();
+            int mmsi = AisFields.parseInt(chars, 0, field(columns.mmsi()), -1);
+            if (mmsi <= 0 || !mmsiFilter.test(mmsi)) {
+                continue;
+            }
+            long timestamp = timestamp();
+            if (timestamp < 0) {
+                continue;
+            }
+            double sog = decimal(columns.sog());
+            double cog = decimal(columns.cog());
+            double lat = decimal(columns.lat());
+            double lon = decimal(columns.lon());
+            int heading = AisFields.parseInt(chars, 0, field(columns.heading()), AisPosition.HEADING_NOT_AVAILABLE);
+            return AisPosition.builder()
+                .mmsi(mmsi)
+                .imo(imo())
+                .status(status())
+                .speed(Double.isNaN(sog) || sog < 0 || sog >= 102.3 ? AisPosition.SPEED_NOT_AVAILABLE : (int) Math.round(sog * 10))
+                .course(Double.isNaN(cog) || cog < 0 || cog >= 360 ? AisPosition.COURSE_NOT_AVAILABLE : (int) Math.round(cog * 10))
+                .heading(heading < 0 || heading > 359 ? AisPosition.HEADING_NOT_AVAILABLE : heading)
+                .lat(Math.abs(lat) > 90 ? Double.NaN : lat)
+                .lon(Math.abs(lon) > 180 ? Double.NaN : lon)
+                .timestamp(timestamp)
+                .build();
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        lines.close();
+    }
+
+    private void split() {
+        fields = 0;
+        int i = 0;
+        while (i <= lineLength && fields < MAX_FIELDS) {
+            int start = i;
+            int end;
+            if (i < lineLength && line[i] == '"') {
+                start = ++i;
+                while (i < lineLength && line[i] != '"') {
+                    i++;
+                }
+                end = i;
+                while (i < lineLength && line[i] != ',') {
+                    i++;
+                }
+            } else {
+                while (i < lineLength && line[i] != ',') {
+                    i++;
+                }
+                end = i;
+            }
+            starts[fields] = start;
+            ends[fields] = end;
+            fields++;
+            i++;
+        }
+    }
+
+    /**
+     * Copies a field to {@link #chars}.
+     *
+     * @return its length, 0 if the column is missing or too long
+     */
+    private int field(int column) {
+        if (column < 0 || column >= fields) {
+            return 0;
+        }
+        int start = starts[column];
+        int length = ends[column] - start;
+        if (length > MAX_FIELD_LENGTH) {
+            return 0;
+        }
+        while (length > 0 && line[start] == ' ') {
+            start++;
+            length--;
+        }
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) line[start + i];
+        }
+        return length;
+    }
+
+    private double decimal(int column) {
+        return AisFields.parseDecimal(chars, 0, field(column));
+    }
+
+    /**
+     * @return epoch milliseconds, -1 if the field is not a timestamp
+     */
+    private long timestamp() {
+        int length = field(columns.timestamp());
+        if (length >= 19 && chars[2] == '/' && chars[5] == '/') {
+            // dd/MM/yyyy HH:mm:ss to yyyy-MM-dd HH:mm:ss
+            char d1 = chars[0], d2 = chars[1], m1 = chars[3], m2 = chars[4];
+            chars[0] = chars[6];
+            chars[1] = chars[7];
+            chars[2] = chars[8];
+            chars[3] = chars[9];
+            chars[4] = '-';
+            chars[5] = m1;
+            chars[6] = m2;
+            chars[7] = '-';
+            chars[8] = d1;
+            chars[9] = d2;
+        }
+        try {
+            return AisFields.parseEpochMillis(chars, 0, length);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Numeric status, or one of the texts used by the Danish Maritime Authority.
+     */
+    private int status() {
+        int length = field(columns.status());
+        int status = AisFields.parseInt(chars, 0, length, -1);
+        if (status >= 0 && status <= 15) {
+            return status;
+        }
+        for (int code = 0; code < STATUS_TEXTS.size(); code++) {
+            if (equalsIgnoreCase(STATUS_TEXTS.get(code), length)) {
+                return code;
+            }
+        }
+        return AisPosition.STATUS_NOT_DEFINED;
+    }
+
+    /**
+     * Digits after an optional {@code IMO} prefix.
+     */
+    private int imo() {
+        int length = field(columns.imo());
+        int first = 0;
+        while (first < length && (chars[first] < '0' || chars[first] > '9')) {
+            first++;
+        }
+        return Math.max(0, AisFields.parseInt(chars, first, length - first, 0));
+    }
+
+    private boolean equalsIgnoreCase(String text, int length) {
+        if (text.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (Character.toLowerCase(chars[i]) != text.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,48 @@
+package no.maddin.ais.reader;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Chunks of archive files that have been completely written, one line per chunk, appended and forced to disk as they complete.
+ * A chunk is identified by the file's absolute path, size and the chunk size, so a changed file or chunk size starts over.
+ */
+class ImportCheckpoint implements AutoCloseable {
+
+    private final Set<String> completed = new HashSet<>();
+
+    private final FileChannel channel;
+
+    ImportCheckpoint(Path file) throws IOException {
+        if (Files.exists(file)) {
+            completed.addAll(Files.readAllLines(file, StandardCharsets.UTF_8));
+        }
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    static String chunkId(Path file, long fileSize, long chunkSize, int chunk) {
+        return file.toAbsolutePath() + "|" + fileSize + "|" + chunkSize + "|" + chunk;
+    }
+
+    synchronized boolean isCompleted(String chunkId) {
+        return completed.contains(chunkId);
+    }
+
+    synchronized void complete(String chunkId) throws IOException {
+        if (completed.add(chunkId)) {
+            channel.write(StandardCharsets.UTF_8.encode(chunkId + "\n"));
+            channel.force(false);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+}
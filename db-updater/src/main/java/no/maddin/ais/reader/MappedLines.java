@@ -0,0 +1,99 @@
+package no.maddin.ais.reader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Lines of a memory-mapped file, mapped in segments so files larger than 2 GB can be read.
+ * A line that crosses the end of a segment starts the next segment.
+ */
+class MappedLines implements Closeable {
+
+    static final long SEGMENT_SIZE = 64L << 20;
+
+    private final FileChannel channel;
+
+    private final long size;
+
+    private final long segmentSize;
+
+    private MappedByteBuffer segment;
+
+    private long segmentStart;
+
+    private int position;
+
+    MappedLines(Path path) throws IOException {
+        this(path, 0, -1, SEGMENT_SIZE);
+    }
+
+    /**
+     * @param start first byte to read
+     * @param end   byte after the last one to read, or -1 for the end of the file
+     */
+    MappedLines(Path path, long start, long end, long segmentSize) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.size = end < 0 ? channel.size() : Math.min(end, channel.size());
+        this.segmentSize = segmentSize;
+        map(start);
+    }
+
+    /**
+     * Copies the next non-empty line, without its line break, to {@code line}. Lines longer than {@code line} are skipped.
+     *
+     * @return the length of the line, or -1 at the end of the file
+     */
+    int next(byte[] line) throws IOException {
+        while (true) {
+            int limit = segment.limit();
+            if (position >= limit) {
+                if (segmentStart + limit >= size) {
+                    return -1;
+                }
+                map(segmentStart + limit);
+                continue;
+            }
+            int start = position;
+            int i = start;
+            while (i < limit && segment.get(i) != '\n') {
+                i++;
+            }
+            if (i == limit && segmentStart + limit < size && start > 0) {
+                map(segmentStart + start);
+                continue;
+            }
+            position = i + 1;
+            int length = i - start;
+            if (length > 0 && segment.get(i - 1) == '\r') {
+                length--;
+            }
+            if (length == 0 || length > line.length) {
+                continue;
+            }
+            segment.get(start, line, 0, length);
+            return length;
+        }
+    }
+
+    /**
+     * @return offset in the file of the next line
+     */
+    long position() {
+        return segmentStart + position;
+    }
+
+    private void map(long start) throws IOException {
+        segmentStart = start;
+        position = 0;
+        segment = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(segmentSize, size - start));
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
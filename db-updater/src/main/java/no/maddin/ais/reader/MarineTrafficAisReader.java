@@ -8,62 +8,85 @@ import no.maddin.ais.config.MarineTrafficProperties;
 import no.maddin.ais.data.AisData;
 import no.maddin.ais.data.DataInterval;
 import no.maddin.ais.data.MarineTrafficError;
+import no.maddin.ais.metrics.AisMetrics;
 import org.reactivestreams.Publisher;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Component
 @RequiredArgsConstructor
 @Slf4j
-@ConditionalOnProperty(prefix = "ais.reader", name = "type", havingValue = "marinetraffic")
+@ConditionalOnAisProvider(MarineTrafficAisReader.PROVIDER)
 public class MarineTrafficAisReader implements AisReader {
+    public static final String PROVIDER = "marinetraffic";
     private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
     private static final long MAX_DAYS = 190;
     private final MarineTrafficProperties marineTrafficProperties;
 
     private final ObjectMapper objectMapper;
 
-    @Override
-    public Publisher<AisData> readAis(String mmsi, LocalDateTime startDate, LocalDateTime endDate) {
+    private final MarineTrafficDecoder marineTrafficDecoder;
+
+    private final WebClient marineTrafficWebClient;
+
+    private final MarineTrafficRateLimiter marineTrafficRateLimiter;
 
-        WebClient webClient = WebClient.builder()
-                .baseUrl(marineTrafficProperties.getUrl())
-                .defaultUriVariables(Map.of("apikey", marineTrafficProperties.getApiKey(), "mmsi", mmsi))
-                .build();
+    private final AisMetrics aisMetrics;
+
+    @Override
+    public String provider() {
+        return PROVIDER;
+    }
 
+    /**
+     * Requests the windows of {@link #intervals(LocalDateTime, LocalDateTime)} with at most
+     * {@link MarineTrafficProperties#getWindowConcurrency()} requests in flight.
+     * The WebClient is non-blocking, so no scheduler is needed. The records are emitted in window order, i.e. by timestamp.
+     * A retried window may emit records again, the writer ignores those duplicates.
+     * Every attempt is timed as {@code ais.provider.request}.
+     */
+    @Override
+    public Publisher<AisData> readAis(String mmsi, LocalDateTime startDate, LocalDateTime endDate) {
+        var received = aisMetrics.received(PROVIDER);
+        var decoded = aisMetrics.decoded(PROVIDER);
         return intervals(startDate, endDate)
-            .parallel()
-            .runOn(Schedulers.parallel())
-            .flatMap(dataInterval -> webClient
+            .flatMapSequential(dataInterval -> marineTrafficRateLimiter.acquire().thenMany(marineTrafficWebClient
                 .get()
-                .uri(uriBuilder -> uriBuilder
-                    .build(Map.of(
-                        "fromdate", startDate.format(DATE_TIME_FORMATTER),
-                        "todate", endDate.format(DATE_TIME_FORMATTER))
-                    )
+                .uri(marineTrafficProperties.getUrl(), Map.of(
+                    "apikey", marineTrafficProperties.getApiKey(),
+                    "mmsi", mmsi,
+                    "fromdate", dataInterval.fromDate().format(DATE_TIME_FORMATTER),
+                    "todate", dataInterval.toDate().format(DATE_TIME_FORMATTER))
                 )
                 .exchangeToFlux(response -> {
                         if (response.statusCode().is2xxSuccessful()) {
-                            return response.bodyToFlux(AisData.class);
+                            return response.bodyToFlux(DataBuffer.class)
+                                .doOnNext(buffer -> received.increment(buffer.readableByteCount()))
+                                .transform(marineTrafficDecoder::decode)
+                                .doOnNext(aisData -> decoded.increment());
                         } else if (response.statusCode().is4xxClientError()) {
                             log.info("Got response: {}", response);
                             return errorFromResponse(response);
                         }
-                        return Flux.error(new RuntimeException("Unhandled Status: " + response.statusCode()));
+                        return response.releaseBody()
+                            .thenMany(Flux.<AisData>error(new MarineTrafficException(response.statusCode(), null, "Unhandled Status: " + response.statusCode())));
                     }
-                ).log());
-
-
+                )
+                .name("ais.provider.request")
+                .tag("provider", PROVIDER)
+                .tap(aisMetrics.tap()))
+                .retryWhen(marineTrafficRateLimiter.retry()), marineTrafficProperties.getWindowConcurrency());
     }
 
     /**
@@ -71,18 +94,19 @@ public class MarineTrafficAisReader implements AisReader {
      */
     private Flux<AisData> errorFromResponse(ClientResponse response) {
         return response.bodyToMono(String.class)
+            .defaultIfEmpty("")
             .flatMap(eTxt -> {
                 try {
-                    return Mono.just(objectMapper.readValue(eTxt, MarineTrafficError.class));
+                    var errors = Optional.ofNullable(objectMapper.readValue(eTxt, MarineTrafficError.class).getErrors()).orElse(List.of());
+                    return Mono.error(new MarineTrafficException(response.statusCode(),
+                        errors.isEmpty() ? null : errors.getFirst().getCode(),
+                        errors.stream().map(MarineTrafficError.Error::getDetail).collect(Collectors.joining(", "))));
                 } catch (JsonProcessingException e) {
-                    return Mono.error(new RuntimeException(eTxt, e));
+                    return Mono.error(new MarineTrafficException(response.statusCode(), eTxt, e));
                 }
             })
-            .map(MarineTrafficError::getErrors)
-            .map(el -> el.stream().map(MarineTrafficError.Error::getDetail).collect(Collectors.joining(", ")))
-            .flatMap(e -> Mono.error(new RuntimeException(e)))
             .flux()
-            .map(e -> AisData.builder().build()); // satisfy the return type
+            .cast(AisData.class); // satisfy the return type
     }
 
     /**
@@ -0,0 +1,225 @@
+package no.maddin.ais.reader;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import no.maddin.ais.data.AisData;
+import no.maddin.ais.data.AisFields;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Decodes the body of a MarineTraffic track export while it arrives.
+ * Each {@link DataBuffer} is fed to a non-blocking Jackson parser and the positions completed by it are emitted right away.
+ * Understands the {@code json} protocol (array of string arrays in {@link AisData}'s property order)
+ * and the {@code jsono} protocol (array of objects).
+ */
+@Component
+public class MarineTrafficDecoder {
+
+    private static final int MMSI = 0;
+    private static final int IMO = 1;
+    private static final int STATUS = 2;
+    private static final int SPEED = 3;
+    private static final int LON = 4;
+    private static final int LAT = 5;
+    private static final int COURSE = 6;
+    private static final int HEADING = 7;
+    private static final int TIMESTAMP = 8;
+    private static final int SHIP_ID = 9;
+    private static final int FIELD_COUNT = 10;
+
+    private final ObjectMapper objectMapper;
+
+    public MarineTrafficDecoder(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public Flux<AisData> decode(Flux<DataBuffer> body) {
+        return Flux.defer(() -> {
+            var state = new State(newParser());
+            return body
+                .concatMapIterable(state::feed)
+                .concatWith(Flux.defer(() -> Flux.fromIterable(state.endOfInput())))
+                .doFinally(signal -> state.close());
+        });
+    }
+
+    private JsonParser newParser() {
+        try {
+            return objectMapper.getFactory().createNonBlockingByteArrayParser();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static int fieldIndex(String name) {
+        return switch (name) {
+            case "MMSI" -> MMSI;
+            case "IMO" -> IMO;
+            case "STATUS" -> STATUS;
+            case "SPEED" -> SPEED;
+            case "LON" -> LON;
+            case "LAT" -> LAT;
+            case "COURSE" -> COURSE;
+            case "HEADING" -> HEADING;
+            case "TIMESTAMP" -> TIMESTAMP;
+            case "SHIP_ID" -> SHIP_ID;
+            default -> -1;
+        };
+    }
+
+    /**
+     * Parser state of one response body.
+     */
+    private static class State {
+        private final JsonParser parser;
+        private final ByteArrayFeeder feeder;
+        private byte[] input = new byte[8192];
+
+        private final String[] values = new String[FIELD_COUNT];
+        /**
+         * Values of the previous record. A track has the same MMSI, IMO and ship id in every record,
+         * so these are compared to the input and reused instead of creating a new string.
+         */
+        private final String[] previous = new String[FIELD_COUNT];
+        private OffsetDateTime timestamp;
+        private int depth;
+        private int field;
+
+        State(JsonParser parser) {
+            this.parser = parser;
+            this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+        }
+
+        List<AisData> feed(DataBuffer buffer) {
+            try {
+                int length = buffer.readableByteCount();
+                if (input.length < length) {
+                    input = new byte[length];
+                }
+                buffer.read(input, 0, length);
+                feeder.feedInput(input, 0, length);
+            } catch (IOException e) {
+                throw new DecodingException("Could not feed MarineTraffic response", e);
+            } finally {
+                DataBufferUtils.release(buffer);
+            }
+            return parse();
+        }
+
+        List<AisData> endOfInput() {
+            feeder.endOfInput();
+            List<AisData> records = parse();
+            if (depth != 0) {
+                throw new DecodingException("Incomplete MarineTraffic response");
+            }
+            return records;
+        }
+
+        void close() {
+            try {
+                parser.close();
+            } catch (IOException e) {
+                // nothing left to release
+            }
+        }
+
+        private List<AisData> parse() {
+            List<AisData> records = new ArrayList<>();
+            try {
+                JsonToken token;
+                while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+                    switch (token) {
+                        case START_ARRAY, START_OBJECT -> {
+                            depth++;
+                            if (depth == 1 && token == JsonToken.START_OBJECT) {
+                                throw new DecodingException("Expected an array of positions");
+                            }
+                            if (depth == 2) {
+                                startRecord();
+                            }
+                        }
+                        case END_ARRAY, END_OBJECT -> {
+                            if (depth == 2) {
+                                records.add(endRecord());
+                            }
+                            depth--;
+                        }
+                        case FIELD_NAME -> {
+                            if (depth == 2) {
+                                field = fieldIndex(parser.currentName());
+                            }
+                        }
+                        default -> {
+                            if (depth == 2) {
+                                value(field);
+                                if (!parser.getParsingContext().inObject()) {
+                                    field++;
+                                }
+                            }
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                throw new DecodingException("Could not parse MarineTraffic response", e);
+            }
+            return records;
+        }
+
+        private void startRecord() {
+            Arrays.fill(values, null);
+            timestamp = null;
+            field = 0;
+        }
+
+        private AisData endRecord() {
+            return new AisData(null, values[MMSI], values[IMO], values[STATUS], values[SPEED], values[LON], values[LAT],
+                values[COURSE], values[HEADING], timestamp, values[SHIP_ID]);
+        }
+
+        private void value(int index) throws IOException {
+            if (index < 0 || index >= FIELD_COUNT || parser.currentToken() == JsonToken.VALUE_NULL) {
+                return;
+            }
+            char[] chars = parser.getTextCharacters();
+            int offset = parser.getTextOffset();
+            int length = parser.getTextLength();
+            if (index == TIMESTAMP) {
+                timestamp = OffsetDateTime.ofInstant(Instant.ofEpochMilli(AisFields.parseEpochMillis(chars, offset, length)), ZoneOffset.UTC);
+                return;
+            }
+            String last = previous[index];
+            if (last == null || !sameText(last, chars, offset, length)) {
+                last = new String(chars, offset, length);
+                previous[index] = last;
+            }
+            values[index] = last;
+        }
+
+        private static boolean sameText(String text, char[] chars, int offset, int length) {
+            if (text.length() != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (text.charAt(i) != chars[offset + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package no.maddin.ais.reader;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatusCode;
+
+/**
+ * Error response of MarineTraffic. The message is the detail text of the errors.
+ */
+@Getter
+public class MarineTrafficException extends RuntimeException {
+
+    private final HttpStatusCode status;
+
+    /**
+     * The code of the first error in the response, {@code null} if the response had no error body.
+     */
+    private final String code;
+
+    public MarineTrafficException(HttpStatusCode status, String code, String message) {
+        super(message);
+        this.status = status;
+        this.code = code;
+    }
+
+    public MarineTrafficException(HttpStatusCode status, String message, Throwable cause) {
+        super(message, cause);
+        this.status = status;
+        this.code = null;
+    }
+}
@@ -0,0 +1,104 @@
+package no.maddin.ais.reader;
+
+import lombok.extern.slf4j.Slf4j;
+import no.maddin.ais.config.MarineTrafficProperties;
+import no.maddin.ais.metrics.AisMetrics;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Keeps the MarineTraffic calls of all vessels within the API quota and decides how to handle errors.
+ * <ul>
+ *     <li>Every request takes a token from a {@link TokenBucket} of {@code marinetraffic.rate-limit.burst} tokens,
+ *     refilled at {@code marinetraffic.rate-limit.requests-per-minute}.</li>
+ *     <li>{@link Action#WAIT} errors (HTTP 429 and {@code wait-codes}) pause all requests for the polling period.</li>
+ *     <li>{@link Action#BACKOFF} errors (5xx, connection problems and {@code backoff-codes}) are retried with jittered exponential backoff.</li>
+ *     <li>All other errors, e.g. insufficient credits, fail right away.</li>
+ * </ul>
+ * Retries and final errors are counted by {@link #code(Throwable)}.
+ */
+@Component
+@Slf4j
+public class MarineTrafficRateLimiter {
+
+    enum Action {
+        BACKOFF, WAIT, FAIL
+    }
+
+    private final MarineTrafficProperties.RateLimit rateLimit;
+
+    private final TokenBucket tokenBucket;
+
+    private final AisMetrics aisMetrics;
+
+    public MarineTrafficRateLimiter(MarineTrafficProperties marineTrafficProperties, AisMetrics aisMetrics) {
+        this.aisMetrics = aisMetrics;
+        this.rateLimit = marineTrafficProperties.getRateLimit();
+        this.tokenBucket = new TokenBucket(rateLimit.getBurst(), Duration.ofMinutes(1).dividedBy(rateLimit.getRequestsPerMinute()));
+    }
+
+    public Mono<Void> acquire() {
+        return tokenBucket.acquire();
+    }
+
+    public Retry retry() {
+        return Retry.from(signals -> signals.concatMap(signal -> {
+            Throwable failure = signal.failure();
+            Action action = action(failure);
+            if (action == Action.FAIL || signal.totalRetriesInARow() >= rateLimit.getMaxRetries()) {
+                aisMetrics.error(MarineTrafficAisReader.PROVIDER, code(failure));
+                return Mono.error(failure);
+            }
+            aisMetrics.retry(MarineTrafficAisReader.PROVIDER, code(failure));
+            Duration delay;
+            if (action == Action.WAIT) {
+                delay = rateLimit.getPollingPeriod();
+                tokenBucket.pause(delay);
+            } else {
+                delay = backoff(signal.totalRetriesInARow());
+            }
+            log.info("Retrying MarineTraffic request in {} after {}", delay, failure.getMessage());
+            return Mono.delay(delay);
+        }));
+    }
+
+    Action action(Throwable failure) {
+        if (failure instanceof MarineTrafficException mte) {
+            if (mte.getStatus().value() == HttpStatus.TOO_MANY_REQUESTS.value() || rateLimit.getWaitCodes().contains(mte.getCode())) {
+                return Action.WAIT;
+            }
+            if (mte.getStatus().is5xxServerError() || rateLimit.getBackoffCodes().contains(mte.getCode())) {
+                return Action.BACKOFF;
+            }
+            return Action.FAIL;
+        }
+        if (failure instanceof WebClientRequestException || failure instanceof TimeoutException) {
+            return Action.BACKOFF;
+        }
+        return Action.FAIL;
+    }
+
+    /**
+     * The MarineTraffic error code, else the HTTP status or the exception type.
+     */
+    static String code(Throwable failure) {
+        if (failure instanceof MarineTrafficException mte) {
+            return mte.getCode() != null ? mte.getCode() : "HTTP " + mte.getStatus().value();
+        }
+        return failure.getClass().getSimpleName();
+    }
+
+    private Duration backoff(long retry) {
+        long base = rateLimit.getMinBackoff().toMillis() << Math.min(retry, 20);
+        long capped = Math.min(base, rateLimit.getMaxBackoff().toMillis());
+        double jitter = 1 + rateLimit.getJitter() * (ThreadLocalRandom.current().nextDouble() * 2 - 1);
+        return Duration.ofMillis((long) (capped * jitter));
+    }
+}
@@ -0,0 +1,365 @@
+package no.maddin.ais.reader;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.handler.codec.LineBasedFrameDecoder;
+import io.micrometer.core.instrument.Counter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import no.maddin.ais.config.AisReaderConfig;
+import no.maddin.ais.config.NmeaProperties;
+import no.maddin.ais.data.AisData;
+import no.maddin.ais.data.AisFields;
+import no.maddin.ais.data.AisPosition;
+import no.maddin.ais.metrics.AisMetrics;
+import org.reactivestreams.Publisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.Connection;
+import reactor.netty.tcp.TcpClient;
+import reactor.netty.udp.UdpServer;
+import reactor.util.retry.Retry;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Reads positions from our own AIS receivers as raw AIVDM sentences, decoded by {@link AivdmDecoder}.
+ * <p>
+ * Log files are memory-mapped and scanned for the requested vessel on every read, messages of other vessels are skipped
+ * before a result is built. Lines without a timestamp get the modification time of the file, and files last modified
+ * before the start of the read are not opened, nothing in them can be new.
+ * TCP and UDP sources are received continuously while the application runs. Positions of tracked vessels are kept per vessel,
+ * at most {@link NmeaProperties#getVesselBufferSize()}, until they are read; messages of other vessels are skipped by the decoder.
+ * The tracked vessels are read again every {@link AisReaderConfig#getPollInterval()}, and the positions of vessels that
+ * have not been read for two poll intervals, e.g. because they are no longer tracked, are dropped.
+ * Each receiver keeps one decoder, whose counters are published as {@code ais.nmea.sentences}.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnAisProvider(NmeaAisReader.PROVIDER)
+public class NmeaAisReader implements AisReader, SmartLifecycle {
+
+    public static final String PROVIDER = "nmea";
+
+    private final NmeaProperties nmeaProperties;
+
+    private final AisMetrics aisMetrics;
+
+    private final AisReaderConfig aisReaderConfig;
+
+    private final Map<String, VesselBuffer> received = new ConcurrentHashMap<>();
+
+    /**
+     * Sorted, see {@link AisReaderService#sortedMmsis(Flux)}.
+     */
+    private volatile int[] tracked = new int[0];
+
+    private volatile Disposable.Composite feeds;
+
+    @Override
+    public String provider() {
+        return PROVIDER;
+    }
+
+    @Override
+    public Publisher<AisData> readAis(String mmsi, LocalDateTime startDate, LocalDateTime endDate) {
+        int vessel = AisFields.parseInt(mmsi, -1);
+        long from = startDate.toInstant(ZoneOffset.UTC).toEpochMilli();
+        long to = endDate.toInstant(ZoneOffset.UTC).toEpochMilli();
+        Counter decoded = aisMetrics.decoded(PROVIDER);
+        return Flux.fromIterable(nmeaProperties.getSources())
+            .filter(source -> "file".equals(source.getScheme()))
+            .flatMapIterable(source -> files(Path.of(source)))
+            .filter(file -> lastModified(file) >= from)
+            .concatMap(file -> scan(file, vessel, from, to, nmeaProperties.getMaxLineLength()))
+            .doOnNext(aisData -> decoded.increment())
+            .concatWith(Flux.defer(() -> Flux.fromIterable(drain(mmsi, from, to))));
+    }
+
+    static Flux<AisData> scan(Path file, int mmsi, long from, long to, int maxLineLength) {
+        return Flux.<AisData, FileScan>generate(
+                () -> new FileScan(file, mmsi, maxLineLength),
+                (scan, sink) -> {
+                    AisPosition position = scan.next(from, to);
+                    if (position == null) {
+                        sink.complete();
+                    } else {
+                        sink.next(position.toAisData());
+                    }
+                    return scan;
+                },
+                FileScan::close)
+            .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private static List<Path> files(Path source) {
+        if (!Files.isDirectory(source)) {
+            return List.of(source);
+        }
+        try (Stream<Path> files = Files.list(source)) {
+            return files.filter(Files::isRegularFile).sorted().toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Removes the buffered positions of a vessel up to {@code to}.
+     *
+     * @return those not before {@code from}
+     */
+    List<AisData> drain(String mmsi, long from, long to) {
+        VesselBuffer buffer = received.get(mmsi);
+        if (buffer == null) {
+            return List.of();
+        }
+        buffer.lastDrained = System.currentTimeMillis();
+        Deque<AisData> positions = buffer.positions;
+        List<AisData> drained = new ArrayList<>();
+        synchronized (positions) {
+            while (!positions.isEmpty() && positions.peekFirst().getTimestamp().toInstant().toEpochMilli() <= to) {
+                AisData data = positions.pollFirst();
+                if (data.getTimestamp().toInstant().toEpochMilli() >= from) {
+                    drained.add(data);
+                }
+            }
+        }
+        return drained;
+    }
+
+    int buffered() {
+        int buffered = 0;
+        for (VesselBuffer buffer : received.values()) {
+            synchronized (buffer.positions) {
+                buffered += buffer.positions.size();
+            }
+        }
+        return buffered;
+    }
+
+    boolean isTracked(int mmsi) {
+        return Arrays.binarySearch(tracked, mmsi) >= 0;
+    }
+
+    /**
+     * Reads the tracked vessels from the configuration and the MMSI file.
+     */
+    void refreshTracked() {
+        tracked = AisReaderService.sortedMmsis(AisReaderService.trackedVessels(aisReaderConfig)).block();
+    }
+
+    /**
+     * Drops the positions of vessels that have not been drained since {@code before}.
+     */
+    void evict(long before) {
+        received.values().removeIf(buffer -> buffer.lastDrained < before);
+    }
+
+    /**
+     * Positions of vessels that are not tracked are ignored.
+     */
+    void receive(AisPosition position) {
+        if (!isTracked(position.getMmsi())) {
+            return;
+        }
+        Deque<AisData> positions = received.computeIfAbsent(Integer.toString(position.getMmsi()), m -> new VesselBuffer()).positions;
+        synchronized (positions) {
+            if (positions.size() >= nmeaProperties.getVesselBufferSize()) {
+                positions.pollFirst();
+            }
+            positions.addLast(position.toAisData());
+        }
+    }
+
+    @Override
+    public void start() {
+        feeds = Disposables.composite();
+        refreshTracked();
+        aisMetrics.queue(PROVIDER, this, NmeaAisReader::buffered);
+        Duration pollInterval = aisReaderConfig.getPollInterval();
+        feeds.add(Flux.interval(pollInterval, pollInterval, Schedulers.boundedElastic())
+            .subscribe(tick -> {
+                refreshTracked();
+                evict(System.currentTimeMillis() - 2 * pollInterval.toMillis());
+            }, e -> log.error("Refreshing the tracked vessels of the AIS receivers stopped", e)));
+        for (URI source : nmeaProperties.getSources()) {
+            switch (source.getScheme()) {
+                case "tcp" -> feeds.add(tcp(source));
+                case "udp" -> feeds.add(udp(source));
+                case "file" -> log.info("Reading AIVDM log {}", source);
+                default -> throw new IllegalArgumentException("Unsupported NMEA source " + source);
+            }
+        }
+    }
+
+    /**
+     * A decoder survives reconnects, fragments of a message cut off by the reconnect are dropped.
+     */
+    private Disposable tcp(URI source) {
+        AivdmDecoder decoder = decoder(source);
+        Counter decoded = aisMetrics.decoded(PROVIDER);
+        return TcpClient.create()
+            .host(source.getHost())
+            .port(source.getPort())
+            .doOnConnected(connection -> connection.addHandlerLast(new LineBasedFrameDecoder(nmeaProperties.getMaxLineLength(), true, false)))
+            .connect()
+            .doOnNext(connection -> log.info("Connected to AIS receiver {}", source))
+            .flatMapMany(connection -> connection.inbound().receive()
+                .doOnNext(line -> decode(decoder, decoded, line))
+                .doFinally(signal -> connection.dispose()))
+            .repeat()
+            .retryWhen(Retry.backoff(Long.MAX_VALUE, nmeaProperties.getReconnectBackoff())
+                .maxBackoff(nmeaProperties.getMaxReconnectBackoff())
+                .doBeforeRetry(signal -> log.warn("AIS receiver {} failed, reconnecting: {}", source, signal.failure().toString())))
+            .subscribe();
+    }
+
+    private Disposable udp(URI source) {
+        AivdmDecoder decoder = decoder(source);
+        Counter decoded = aisMetrics.decoded(PROVIDER);
+        Connection connection = UdpServer.create()
+            .host(source.getHost())
+            .port(source.getPort())
+            .handle((in, out) -> in.receiveObject()
+                .cast(DatagramPacket.class)
+                .doOnNext(packet -> decodeLines(decoder, decoded, packet.content()))
+                .then())
+            .bindNow();
+        log.info("Listening for AIVDM datagrams on {}", source);
+        return connection;
+    }
+
+    private AivdmDecoder decoder(URI source) {
+        AivdmDecoder decoder = new AivdmDecoder(this::isTracked);
+        aisMetrics.decoder(source.toString(), decoder);
+        return decoder;
+    }
+
+    private void decode(AivdmDecoder decoder, Counter decoded, ByteBuf line) {
+        byte[] bytes = new byte[line.readableBytes()];
+        line.readBytes(bytes);
+        AisPosition position = decoder.decode(bytes, 0, bytes.length, System.currentTimeMillis());
+        if (position != null) {
+            decoded.increment();
+            receive(position);
+        }
+    }
+
+    /**
+     * A datagram may hold several sentences.
+     */
+    private void decodeLines(AivdmDecoder decoder, Counter decoded, ByteBuf content) {
+        byte[] bytes = new byte[content.readableBytes()];
+        content.readBytes(bytes);
+        long now = System.currentTimeMillis();
+        int start = 0;
+        for (int i = 0; i <= bytes.length; i++) {
+            if (i == bytes.length || bytes[i] == '\n') {
+                if (i > start) {
+                    AisPosition position = decoder.decode(bytes, start, i - start, now);
+                    if (position != null) {
+                        decoded.increment();
+                        receive(position);
+                    }
+                }
+                start = i + 1;
+            }
+        }
+    }
+
+    @Override
+    public void stop() {
+        feeds.dispose();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return feeds != null && !feeds.isDisposed();
+    }
+
+    /**
+     * Positions of one vessel received from the network, oldest first.
+     */
+    private static final class VesselBuffer {
+
+        private final Deque<AisData> positions = new ArrayDeque<>();
+
+        private volatile long lastDrained = System.currentTimeMillis();
+    }
+
+    /**
+     * Sequential scan of one log file for one vessel.
+     */
+    private static final class FileScan {
+
+        private final MappedLines lines;
+
+        private final AivdmDecoder decoder;
+
+        private final byte[] line;
+
+        private final long modified;
+
+        FileScan(Path file, int mmsi, int maxLineLength) {
+            this.line = new byte[maxLineLength];
+            try {
+                this.lines = new MappedLines(file);
+                this.modified = Files.getLastModifiedTime(file).toMillis();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            this.decoder = new AivdmDecoder(m -> m == mmsi);
+        }
+
+        AisPosition next(long from, long to) {
+            try {
+                int length;
+                while ((length = lines.next(line)) >= 0) {
+                    AisPosition position = decoder.decode(line, 0, length, modified);
+                    if (position != null && position.getTimestamp() >= from && position.getTimestamp() <= to) {
+                        return position;
+                    }
+                }
+                return null;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void close() {
+            try {
+                lines.close();
+            } catch (IOException e) {
+                log.warn("Closing AIVDM log failed", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package no.maddin.ais.reader;
+
+import no.maddin.ais.data.AisPosition;
+
+import java.io.IOException;
+import java.util.function.IntPredicate;
+
+/**
+ * AIVDM sentences of a receiver log. Multipart messages split by a chunk boundary are lost, which only affects static reports.
+ */
+class NmeaArchiveParser implements ArchiveParser {
+
+    private final MappedLines lines;
+
+    private final AivdmDecoder decoder;
+
+    private final long fallbackTimestamp;
+
+    private final byte[] line = new byte[1024];
+
+    /**
+     * @param fallbackTimestamp time of sentences without a timestamp of their own
+     */
+    NmeaArchiveParser(MappedLines lines, IntPredicate mmsiFilter, long fallbackTimestamp) {
+        this.lines = lines;
+        this.decoder = new AivdmDecoder(mmsiFilter);
+        this.fallbackTimestamp = fallbackTimestamp;
+    }
+
+    @Override
+    public AisPosition next() throws IOException {
+        int length;
+        while ((length = lines.next(line)) >= 0) {
+            AisPosition position = decoder.decode(line, 0, length, fallbackTimestamp);
+            if (position != null) {
+                return position;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        lines.close();
+    }
+}
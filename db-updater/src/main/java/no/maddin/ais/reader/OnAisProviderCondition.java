@@ -0,0 +1,30 @@
+package no.maddin.ais.reader;
+
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Condition;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+
+import java.util.List;
+import java.util.Map;
+
+class OnAisProviderCondition implements Condition {
+
+    @Override
+    public boolean matches(ConditionContext context, AnnotatedTypeMetadata metadata) {
+        Map<String, Object> attributes = metadata.getAnnotationAttributes(ConditionalOnAisProvider.class.getName());
+        String provider = (String) attributes.get("value");
+        List<String> providers = Binder.get(context.getEnvironment())
+            .bind("ais.reader.providers", Bindable.listOf(String.class))
+            .orElse(List.of());
+        if (!providers.isEmpty()) {
+            return providers.stream().anyMatch(provider::equalsIgnoreCase);
+        }
+        String type = context.getEnvironment().getProperty("ais.reader.type");
+        if (type != null) {
+            return provider.equalsIgnoreCase(type);
+        }
+        return (Boolean) attributes.get("matchIfMissing");
+    }
+}
@@ -0,0 +1,91 @@
+package no.maddin.ais.reader;
+
+import no.maddin.ais.data.AisData;
+import no.maddin.ais.data.AisFields;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Removes reports of the same position by several providers from a stream of one vessel ordered by timestamp.
+ * <p>
+ * Two records are the same report if they have the same timestamp, or if they are at the same place and at most the
+ * tolerance apart. Records are held back for the tolerance so that a report of a higher priority provider that arrives
+ * a little later still replaces it. The window only ever holds the records of one tolerance interval.
+ */
+class ProviderDeduplicator {
+
+    /**
+     * Lower rank is higher priority.
+     */
+    record Ranked(int rank, AisData data) {
+    }
+
+    static final Comparator<Ranked> ORDER = Comparator
+        .comparing((Ranked r) -> r.data().getTimestamp(), Comparator.nullsFirst(Comparator.naturalOrder()))
+        .thenComparingInt(Ranked::rank);
+
+    private static final double SAME_PLACE = 1e-5;
+
+    private final long toleranceMillis;
+
+    private final Deque<Ranked> window = new ArrayDeque<>();
+
+    ProviderDeduplicator(Duration tolerance) {
+        this.toleranceMillis = tolerance.toMillis();
+    }
+
+    /**
+     * @return records that left the window and are final
+     */
+    List<Ranked> accept(Ranked candidate) {
+        if (candidate.data().getTimestamp() == null) {
+            return List.of(candidate);
+        }
+        long time = millis(candidate);
+        List<Ranked> released = new ArrayList<>();
+        while (!window.isEmpty() && millis(window.peekFirst()) < time - toleranceMillis) {
+            released.add(window.pollFirst());
+        }
+        for (Iterator<Ranked> it = window.iterator(); it.hasNext(); ) {
+            Ranked held = it.next();
+            if (sameReport(held, candidate, time)) {
+                if (held.rank() <= candidate.rank()) {
+                    return released;
+                }
+                it.remove();
+            }
+        }
+        window.addLast(candidate);
+        return released;
+    }
+
+    List<Ranked> flush() {
+        List<Ranked> rest = new ArrayList<>(window);
+        window.clear();
+        return rest;
+    }
+
+    private boolean sameReport(Ranked held, Ranked candidate, long time) {
+        if (!Objects.equals(held.data().getMmsi(), candidate.data().getMmsi())) {
+            return false;
+        }
+        long heldTime = millis(held);
+        if (heldTime == time) {
+            return true;
+        }
+        return Math.abs(heldTime - time) <= toleranceMillis
+            && Math.abs(AisFields.parseDecimal(held.data().getLat()) - AisFields.parseDecimal(candidate.data().getLat())) < SAME_PLACE
+            && Math.abs(AisFields.parseDecimal(held.data().getLon()) - AisFields.parseDecimal(candidate.data().getLon())) < SAME_PLACE;
+    }
+
+    private static long millis(Ranked ranked) {
+        return ranked.data().getTimestamp().toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,78 @@
+package no.maddin.ais.reader;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket that hands out reservations: a caller that finds the bucket empty gets the next free token
+ * and waits until it has been refilled, so waiting callers are served in order.
+ */
+public class TokenBucket {
+
+    private final long capacity;
+    private final long nanosPerToken;
+    private final LongSupplier nanoClock;
+
+    private long tokens;
+    private long lastRefill;
+    private long pausedUntil;
+
+    public TokenBucket(long capacity, Duration refillPeriod) {
+        this(capacity, refillPeriod, System::nanoTime);
+    }
+
+    TokenBucket(long capacity, Duration refillPeriod, LongSupplier nanoClock) {
+        if (capacity < 1 || refillPeriod.isNegative() || refillPeriod.isZero()) {
+            throw new IllegalArgumentException("capacity and refill period must be positive");
+        }
+        this.capacity = capacity;
+        this.nanosPerToken = refillPeriod.toNanos();
+        this.nanoClock = nanoClock;
+        this.lastRefill = nanoClock.getAsLong();
+        this.tokens = capacity;
+        this.pausedUntil = lastRefill;
+    }
+
+    /**
+     * Completes when a token is available.
+     */
+    public Mono<Void> acquire() {
+        return Mono.defer(() -> {
+            Duration wait = reserve();
+            return wait.isZero() ? Mono.empty() : Mono.delay(wait).then();
+        });
+    }
+
+    /**
+     * Takes the next token and returns how long to wait for it.
+     */
+    synchronized Duration reserve() {
+        long now = nanoClock.getAsLong();
+        refill(now);
+        tokens--;
+        long waitForToken = tokens >= 0 ? 0 : -tokens * nanosPerToken - (now - lastRefill);
+        long waitForPause = pausedUntil - now;
+        return Duration.ofNanos(Math.max(0, Math.max(waitForToken, waitForPause)));
+    }
+
+    /**
+     * No tokens are handed out for {@code duration}, e.g. when the provider asks us to wait.
+     */
+    public synchronized void pause(Duration duration) {
+        long now = nanoClock.getAsLong();
+        pausedUntil = Math.max(pausedUntil, now + duration.toNanos());
+    }
+
+    private void refill(long now) {
+        long newTokens = (now - lastRefill) / nanosPerToken;
+        if (newTokens > 0) {
+            tokens = Math.min(capacity, tokens + newTokens);
+            lastRefill += newTokens * nanosPerToken;
+        }
+        if (tokens == capacity) {
+            lastRefill = now;
+        }
+    }
+}
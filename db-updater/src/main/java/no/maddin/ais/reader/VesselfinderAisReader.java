@@ -4,7 +4,6 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import no.maddin.ais.data.AisData;
 import org.reactivestreams.Publisher;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Flux;
 
@@ -13,10 +12,12 @@ import java.time.OffsetDateTime;
 
 @RequiredArgsConstructor
 @Component
-@ConditionalOnProperty(prefix = "ais.reader", name = "type", havingValue = "vesselfinder", matchIfMissing = true)
+@ConditionalOnAisProvider(value = VesselfinderAisReader.PROVIDER, matchIfMissing = true)
 @Slf4j
 public class VesselfinderAisReader implements AisReader {
 
+    public static final String PROVIDER = "vesselfinder";
+
     /*
    HttpRequest request = HttpRequest.newBuilder()
 		.uri(URI.create("https://vesselfinder1.p.rapidapi.com/search"))
@@ -28,13 +29,16 @@ HttpResponse<String> response = HttpClient.newHttpClient().send(request, HttpRes
 System.out.println(response.body());
      */
 
+    @Override
+    public String provider() {
+        return PROVIDER;
+    }
+
     @Override
     public Publisher<AisData> readAis(String mmsi, LocalDateTime startDate, LocalDateTime endDate) {
         return Flux
             .just(
                 new AisData(null, "1", "1", "1", "speed", "lon", "lat", "course", "head", OffsetDateTime.now(), "1")
-            )
-            .log("vesselfinder")
-            ;
+            );
     }
 }
\ No newline at end of file
@@ -0,0 +1,157 @@
+package no.maddin.ais.repository;
+
+import com.mongodb.bulk.BulkWriteResult;
+import lombok.extern.slf4j.Slf4j;
+import no.maddin.ais.config.AisStorageConfig;
+import no.maddin.ais.config.AisWriterConfig;
+import no.maddin.ais.data.AisData;
+import no.maddin.ais.data.AisFields;
+import no.maddin.ais.metrics.AisMetrics;
+import no.maddin.ais.rollup.RollupUpdater;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.reactivestreams.Publisher;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes {@link AisData} in unordered bulk upserts keyed on (mmsi, timestamp), or inserts into a time-series collection.
+ * Records are buffered until {@link AisWriterConfig#getBatchSize()} is reached or {@link AisWriterConfig#getBatchTimeout()} has passed.
+ * Writing the same records again does not create duplicates, except in the time-series layout.
+ * Each document gets a GeoJSON {@code location} built from lon/lat.
+ * The {@link ResumePointStore} is moved forward after each batch has been written, so it never points past stored data.
+ * New records are added to the rollups by the {@link RollupUpdater} before the resume point moves.
+ * Records waiting for their batch are published as the {@code writer} queue depth, each bulk write is timed as {@code ais.writer.batch}.
+ */
+@Component
+@Slf4j
+public class AisDataBulkWriter {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    private final AisWriterConfig aisWriterConfig;
+
+    private final ResumePointStore resumePointStore;
+
+    private final AisStorageConfig aisStorageConfig;
+
+    private final AisMetrics aisMetrics;
+
+    private final RollupUpdater rollupUpdater;
+
+    private final AtomicLong pending = new AtomicLong();
+
+    public AisDataBulkWriter(ReactiveMongoTemplate mongoTemplate, AisWriterConfig aisWriterConfig, ResumePointStore resumePointStore,
+                             AisStorageConfig aisStorageConfig, AisMetrics aisMetrics, RollupUpdater rollupUpdater) {
+        this.mongoTemplate = mongoTemplate;
+        this.aisWriterConfig = aisWriterConfig;
+        this.resumePointStore = resumePointStore;
+        this.aisStorageConfig = aisStorageConfig;
+        this.aisMetrics = aisMetrics;
+        this.rollupUpdater = rollupUpdater;
+        aisMetrics.queue("writer", pending, AtomicLong::get);
+    }
+
+    /**
+     * Records without an id get a new one. It is only stored if the record was not in the database before.
+     */
+    public Flux<AisData> write(Publisher<AisData> data) {
+        return Flux.from(data)
+            .doOnNext(aisData -> pending.incrementAndGet())
+            .bufferTimeout(aisWriterConfig.getBatchSize(), aisWriterConfig.getBatchTimeout())
+            .concatMap(batch -> writeBatch(batch).doFinally(signal -> pending.addAndGet(-batch.size())))
+            .doOnDiscard(AisData.class, aisData -> pending.decrementAndGet());
+    }
+
+    Flux<AisData> writeBatch(List<AisData> batch) {
+        List<AisData> unique = deduplicate(batch);
+        var bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, AisData.class);
+        if (aisStorageConfig.isTimeSeries()) {
+            unique.forEach(aisData -> bulkOps.insert(documentOf(aisData)));
+        } else {
+            unique.forEach(aisData -> bulkOps.upsert(naturalKey(aisData), upsertOf(aisData)));
+        }
+        return bulkOps.execute()
+            .name("ais.writer.batch")
+            .tap(aisMetrics.tap())
+            .flatMap(result -> {
+                int inserted = aisStorageConfig.isTimeSeries() ? result.getInsertedCount() : result.getUpserts().size();
+                aisMetrics.written(inserted, result.getMatchedCount());
+                log.debug("Wrote batch of {}: {} inserted, {} matched", unique.size(), inserted, result.getMatchedCount());
+                return rollupUpdater.update(aisStorageConfig.isTimeSeries() ? unique : newRecords(unique, result));
+            })
+            .then(resumePointStore.update(unique))
+            .then(Mono.fromRunnable(() -> aisMetrics.ingested(unique)))
+            .thenMany(Flux.fromIterable(unique));
+    }
+
+    /**
+     * An unordered bulk must not contain the same key twice, the last record wins.
+     */
+    private static List<AisData> deduplicate(List<AisData> batch) {
+        Map<Key, AisData> unique = new LinkedHashMap<>(batch.size() * 2);
+        batch.forEach(aisData -> unique.put(new Key(aisData.getMmsi(), aisData.getTimestamp()), aisData));
+        return new ArrayList<>(unique.values());
+    }
+
+    /**
+     * The upserts that inserted a document, by their index in the bulk. Records that were already stored are left out,
+     * so they are not added to the rollups again.
+     */
+    private static List<AisData> newRecords(List<AisData> unique, BulkWriteResult result) {
+        return result.getUpserts().stream()
+            .map(upsert -> unique.get(upsert.getIndex()))
+            .toList();
+    }
+
+    private static Query naturalKey(AisData aisData) {
+        return Query.query(Criteria.where("mmsi").is(aisData.getMmsi()).and("timestamp").is(aisData.getTimestamp()));
+    }
+
+    private Update upsertOf(AisData aisData) {
+        Document fields = documentOf(aisData);
+        Object id = fields.remove("_id");
+        return Update.fromDocument(new Document("$set", fields).append("$setOnInsert", new Document("_id", id)));
+    }
+
+    private Document documentOf(AisData aisData) {
+        if (aisData.getId() == null) {
+            aisData.setId(new ObjectId().toHexString());
+        }
+        Document document = new Document();
+        mongoTemplate.getConverter().write(aisData, document);
+        Document location = locationOf(aisData);
+        if (location != null) {
+            document.put("location", location);
+        }
+        return document;
+    }
+
+    /**
+     * GeoJSON point for the 2dsphere index, {@code null} if the position is unknown or invalid.
+     */
+    static Document locationOf(AisData aisData) {
+        double lon = AisFields.parseDecimal(aisData.getLon());
+        double lat = AisFields.parseDecimal(aisData.getLat());
+        if (!AisFields.isLocation(lon, lat)) {
+            return null;
+        }
+        return new Document("type", "Point").append("coordinates", List.of(lon, lat));
+    }
+
+    private record Key(String mmsi, OffsetDateTime timestamp) {
+    }
+}
@@ -5,5 +5,5 @@ import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 import reactor.core.publisher.Mono;
 
 public interface AisDataReactiveRepository extends ReactiveMongoRepository<AisData, String> {
-    Mono<AisData> findFirstByOrderByTimestampDesc(String mmsi);
+    Mono<AisData> findFirstByMmsiOrderByTimestampDesc(String mmsi);
 }
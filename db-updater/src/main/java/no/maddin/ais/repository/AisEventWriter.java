@@ -0,0 +1,58 @@
+package no.maddin.ais.repository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import no.maddin.ais.data.AisEvent;
+import no.maddin.ais.metrics.AisMetrics;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Writes {@link AisEvent}s to {@code aisevents} in unordered bulk upserts keyed on (mmsi, timestamp, type, fence).
+ * Events never change once detected, an event that is already stored is left as it is.
+ * Each bulk write is timed as {@code ais.events.batch}.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AisEventWriter {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    private final AisMetrics aisMetrics;
+
+    public Mono<Void> write(List<AisEvent> events) {
+        var bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, AisEvent.class);
+        events.forEach(event -> bulkOps.upsert(naturalKey(event), insertOf(event)));
+        return bulkOps.execute()
+            .name("ais.events.batch")
+            .tap(aisMetrics.tap())
+            .doOnNext(result -> log.debug("Wrote {} events, {} new", events.size(), result.getUpserts().size()))
+            .then();
+    }
+
+    private static Query naturalKey(AisEvent event) {
+        return Query.query(Criteria.where("mmsi").is(event.getMmsi())
+            .and("timestamp").is(event.getTimestamp())
+            .and("type").is(event.getType())
+            .and("fence").is(event.getFence()));
+    }
+
+    private Update insertOf(AisEvent event) {
+        if (event.getId() == null) {
+            event.setId(new ObjectId().toHexString());
+        }
+        Document document = new Document();
+        mongoTemplate.getConverter().write(event, document);
+        return Update.fromDocument(new Document("$setOnInsert", document));
+    }
+}
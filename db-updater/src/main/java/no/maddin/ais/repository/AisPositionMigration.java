@@ -0,0 +1,88 @@
+package no.maddin.ais.repository;
+
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import no.maddin.ais.data.AisData;
+import no.maddin.ais.data.AisPosition;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Copies all documents from {@code aisdata} to {@value AisPosition#COLLECTION} in the typed layout.
+ * The copy is an upsert on (mmsi, timestamp), so it can be run again after an interruption or to pick up new data.
+ * Runs before the reader when {@code ais.migration.typed-positions=true}.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@Profile("!test")
+@ConditionalOnProperty(prefix = "ais.migration", name = "typed-positions", havingValue = "true")
+@Order(0)
+public class AisPositionMigration implements CommandLineRunner {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    @Override
+    public void run(String... args) {
+        log.info("Migrated {} positions to {}", migrate().block(), AisPosition.COLLECTION);
+    }
+
+    public Mono<Long> migrate() {
+        AtomicLong skipped = new AtomicLong();
+        return mongoTemplate.getCollection(AisPosition.COLLECTION)
+            .map(collection -> collection.withDocumentClass(AisPosition.class))
+            .flatMap(positions -> createIndexes(positions)
+                .then(mongoTemplate.findAll(AisData.class)
+                    .flatMap(aisData -> {
+                        try {
+                            return Mono.just(AisPosition.of(aisData));
+                        } catch (IllegalArgumentException e) {
+                            skipped.incrementAndGet();
+                            return Mono.empty();
+                        }
+                    })
+                    .buffer(BATCH_SIZE)
+                    .concatMap(batch -> write(positions, batch).thenReturn((long) batch.size()))
+                    .reduce(0L, Long::sum)))
+            .doOnSuccess(count -> log.info("Skipped {} documents without valid MMSI or timestamp", skipped.get()));
+    }
+
+    private static Mono<Void> createIndexes(MongoCollection<AisPosition> positions) {
+        return Flux.concat(
+                positions.createIndex(Indexes.compoundIndex(Indexes.ascending("mmsi"), Indexes.ascending("timestamp")),
+                    new IndexOptions().unique(true).name("mmsi_timestamp")),
+                positions.createIndex(Indexes.geo2dsphere("location"), new IndexOptions().name("location"))
+            )
+            .then();
+    }
+
+    private static Mono<BulkWriteResult> write(MongoCollection<AisPosition> positions, List<AisPosition> batch) {
+        var models = batch.stream()
+            .map(position -> new ReplaceOneModel<>(
+                Filters.and(Filters.eq("mmsi", position.getMmsi()), Filters.eq("timestamp", new Date(position.getTimestamp()))),
+                position,
+                new ReplaceOptions().upsert(true)))
+            .toList();
+        return Mono.from(positions.bulkWrite(models, new BulkWriteOptions().ordered(false)));
+    }
+}
@@ -0,0 +1,71 @@
+package no.maddin.ais.repository;
+
+import lombok.RequiredArgsConstructor;
+import no.maddin.ais.data.AisData;
+import no.maddin.ais.data.ResumePoint;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers per MMSI the timestamp of the newest stored position, in the {@code resumepoints} collection and in memory.
+ * A lookup is a cache hit or a find by id. Vessels stored before this collection existed are looked up once in {@code aisdata}.
+ */
+@Component
+@RequiredArgsConstructor
+public class ResumePointStore {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    private final AisDataReactiveRepository aisDataReactiveRepository;
+
+    private final Map<String, OffsetDateTime> cache = new ConcurrentHashMap<>();
+
+    public Mono<OffsetDateTime> lastIngested(String mmsi) {
+        OffsetDateTime cached = cache.get(mmsi);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        return mongoTemplate.findById(mmsi, ResumePoint.class)
+            .map(ResumePoint::getTimestamp)
+            .switchIfEmpty(Mono.defer(() -> aisDataReactiveRepository.findFirstByMmsiOrderByTimestampDesc(mmsi).map(AisData::getTimestamp)))
+            .doOnNext(timestamp -> remember(mmsi, timestamp));
+    }
+
+    /**
+     * Moves the resume points forward to the newest position of each vessel in a batch that has been stored.
+     * Resume points never move backwards.
+     */
+    public Mono<Void> update(Collection<AisData> storedBatch) {
+        Map<String, OffsetDateTime> newest = new HashMap<>();
+        storedBatch.stream()
+            .filter(aisData -> aisData.getMmsi() != null && aisData.getTimestamp() != null)
+            .forEach(aisData -> newest.merge(aisData.getMmsi(), aisData.getTimestamp(), ResumePointStore::max));
+        if (newest.isEmpty()) {
+            return Mono.empty();
+        }
+        var bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ResumePoint.class);
+        newest.forEach((mmsi, timestamp) -> bulkOps.upsert(Query.query(Criteria.where("_id").is(mmsi)), new Update().max("timestamp", timestamp)));
+        return bulkOps.execute()
+            .doOnSuccess(result -> newest.forEach(this::remember))
+            .then();
+    }
+
+    private void remember(String mmsi, OffsetDateTime timestamp) {
+        cache.merge(mmsi, timestamp, ResumePointStore::max);
+    }
+
+    private static OffsetDateTime max(OffsetDateTime a, OffsetDateTime b) {
+        return a.isAfter(b) ? a : b;
+    }
+}
@@ -0,0 +1,128 @@
+package no.maddin.ais.rollup;
+
+import no.maddin.ais.config.AisRollupConfig;
+import no.maddin.ais.data.AisData;
+import no.maddin.ais.data.AisFields;
+import no.maddin.ais.data.RollupPeriod;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Adds positions to the hourly, daily and voyage rollups of their vessel. Positions of a vessel must be added in time order,
+ * a position that is not newer than the last one of its {@link VesselTrack} only counts as a position.
+ * Not thread-safe, use one accumulator per batch.
+ */
+class RollupAccumulator {
+
+    private static final long HOUR = 3_600_000;
+
+    private static final long DAY = 24 * HOUR;
+
+    private static final int SPEED_NOT_AVAILABLE = 1023;
+
+    private static final int STATUS_UNDER_WAY_USING_ENGINE = 0;
+
+    private static final int STATUS_AT_ANCHOR = 1;
+
+    private static final int STATUS_MOORED = 5;
+
+    private static final int STATUS_UNDER_WAY_SAILING = 8;
+
+    private static final double EARTH_RADIUS_METERS = 6_371_008.8;
+
+    private final int underwaySpeed;
+
+    private final long voyageMinStop;
+
+    private final long maxGap;
+
+    private final Map<Key, RollupDelta> deltas = new HashMap<>();
+
+    RollupAccumulator(AisRollupConfig config) {
+        this.underwaySpeed = config.getUnderwaySpeed();
+        this.voyageMinStop = config.getVoyageMinStop().toMillis();
+        this.maxGap = config.getMaxGap().toMillis();
+    }
+
+    void add(VesselTrack track, AisData data) {
+        if (data.getMmsi() == null || data.getTimestamp() == null) {
+            return;
+        }
+        long timestamp = data.getTimestamp().toInstant().toEpochMilli();
+        double lon = AisFields.parseDecimal(data.getLon());
+        double lat = AisFields.parseDecimal(data.getLat());
+        boolean validPosition = lon >= -180 && lon <= 180 && lat >= -90 && lat <= 90;
+        int speed = AisFields.parseInt(data.getSpeed(), -1);
+        if (speed >= SPEED_NOT_AVAILABLE) {
+            speed = -1;
+        }
+        int status = AisFields.parseInt(data.getStatus(), -1);
+        boolean underway = speed >= 0
+            ? speed >= underwaySpeed && status != STATUS_AT_ANCHOR && status != STATUS_MOORED
+            : status == STATUS_UNDER_WAY_USING_ENGINE || status == STATUS_UNDER_WAY_SAILING;
+
+        RollupDelta hour = delta(data.getMmsi(), RollupPeriod.HOUR, Math.floorDiv(timestamp, HOUR) * HOUR);
+        RollupDelta day = delta(data.getMmsi(), RollupPeriod.DAY, Math.floorDiv(timestamp, DAY) * DAY);
+        hour.position(timestamp, speed, lon, lat, validPosition);
+        day.position(timestamp, speed, lon, lat, validPosition);
+        if (timestamp <= track.last) {
+            return;
+        }
+
+        RollupDelta voyage = null;
+        if (underway) {
+            if (track.voyageStart == VesselTrack.NONE || timestamp - track.lastUnderway >= voyageMinStop) {
+                track.voyageStart = timestamp;
+            }
+            track.lastUnderway = timestamp;
+            voyage = delta(data.getMmsi(), RollupPeriod.VOYAGE, track.voyageStart);
+            voyage.lastUnderway = timestamp;
+        } else if (track.voyageStart != VesselTrack.NONE && timestamp - track.lastUnderway < voyageMinStop) {
+            voyage = delta(data.getMmsi(), RollupPeriod.VOYAGE, track.voyageStart);
+        }
+        if (voyage != null) {
+            voyage.position(timestamp, speed, lon, lat, validPosition);
+        }
+
+        if (validPosition) {
+            long millis = timestamp - track.positionTime;
+            if (track.positionTime != VesselTrack.NONE && millis <= maxGap) {
+                double meters = distance(track.lon, track.lat, lon, lat);
+                hour.segment(meters, millis / 1000.0, underway);
+                day.segment(meters, millis / 1000.0, underway);
+                if (voyage != null) {
+                    voyage.segment(meters, millis / 1000.0, underway);
+                }
+            }
+            track.positionTime = timestamp;
+            track.lon = lon;
+            track.lat = lat;
+        }
+        track.last = timestamp;
+    }
+
+    Collection<RollupDelta> deltas() {
+        return deltas.values();
+    }
+
+    private RollupDelta delta(String mmsi, RollupPeriod period, long start) {
+        return deltas.computeIfAbsent(new Key(mmsi, period, start), key -> new RollupDelta(mmsi, period, start));
+    }
+
+    /**
+     * Haversine distance in meters.
+     */
+    static double distance(double lon1, double lat1, double lon2, double lat2) {
+        double phi1 = Math.toRadians(lat1);
+        double phi2 = Math.toRadians(lat2);
+        double sinLat = Math.sin((phi2 - phi1) / 2);
+        double sinLon = Math.sin(Math.toRadians(lon2 - lon1) / 2);
+        double a = sinLat * sinLat + Math.cos(phi1) * Math.cos(phi2) * sinLon * sinLon;
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    private record Key(String mmsi, RollupPeriod period, long start) {
+    }
+}
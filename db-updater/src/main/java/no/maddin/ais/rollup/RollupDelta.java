@@ -0,0 +1,112 @@
+package no.maddin.ais.rollup;
+
+import no.maddin.ais.data.RollupPeriod;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * What a batch of positions adds to one rollup.
+ */
+final class RollupDelta {
+
+    final String mmsi;
+
+    final RollupPeriod period;
+
+    final long start;
+
+    long positions;
+
+    double distanceMeters;
+
+    double underwaySeconds;
+
+    double mooredSeconds;
+
+    long speedSum;
+
+    long speedCount;
+
+    int maxSpeed = -1;
+
+    double minLon = Double.POSITIVE_INFINITY;
+
+    double minLat = Double.POSITIVE_INFINITY;
+
+    double maxLon = Double.NEGATIVE_INFINITY;
+
+    double maxLat = Double.NEGATIVE_INFINITY;
+
+    long first = Long.MAX_VALUE;
+
+    long last = Long.MIN_VALUE;
+
+    long lastUnderway = Long.MIN_VALUE;
+
+    RollupDelta(String mmsi, RollupPeriod period, long start) {
+        this.mmsi = mmsi;
+        this.period = period;
+        this.start = start;
+    }
+
+    void position(long timestamp, int speed, double lon, double lat, boolean validPosition) {
+        positions++;
+        first = Math.min(first, timestamp);
+        last = Math.max(last, timestamp);
+        if (speed >= 0) {
+            speedSum += speed;
+            speedCount++;
+            maxSpeed = Math.max(maxSpeed, speed);
+        }
+        if (validPosition) {
+            minLon = Math.min(minLon, lon);
+            minLat = Math.min(minLat, lat);
+            maxLon = Math.max(maxLon, lon);
+            maxLat = Math.max(maxLat, lat);
+        }
+    }
+
+    void segment(double meters, double seconds, boolean underway) {
+        distanceMeters += meters;
+        if (underway) {
+            underwaySeconds += seconds;
+        } else {
+            mooredSeconds += seconds;
+        }
+    }
+
+    Query key() {
+        return Query.query(Criteria.where("mmsi").is(mmsi).and("period").is(period).and("start").is(time(start)));
+    }
+
+    Update update() {
+        Update update = new Update()
+            .inc("positions", positions)
+            .inc("distanceMeters", distanceMeters)
+            .inc("underwaySeconds", underwaySeconds)
+            .inc("mooredSeconds", mooredSeconds)
+            .inc("speedSum", speedSum)
+            .inc("speedCount", speedCount)
+            .min("first", time(first))
+            .max("last", time(last));
+        if (maxSpeed >= 0) {
+            update.max("maxSpeed", maxSpeed);
+        }
+        if (minLon <= maxLon) {
+            update.min("minLon", minLon).min("minLat", minLat).max("maxLon", maxLon).max("maxLat", maxLat);
+        }
+        if (lastUnderway != Long.MIN_VALUE) {
+            update.max("lastUnderway", time(lastUnderway));
+        }
+        return update;
+    }
+
+    private static OffsetDateTime time(long epochMillis) {
+        return OffsetDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneOffset.UTC);
+    }
+}
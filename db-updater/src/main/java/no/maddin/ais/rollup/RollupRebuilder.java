@@ -0,0 +1,59 @@
+package no.maddin.ais.rollup;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import no.maddin.ais.compaction.PositionHistory;
+import no.maddin.ais.config.AisRollupConfig;
+import no.maddin.ais.data.Rollup;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Recomputes the rollups of vessels from all their positions in {@code aisdata} and the compacted blocks, e.g. after
+ * an archive import or when rollups are introduced on an existing database. The positions of a vessel are streamed
+ * in time order from {@link PositionHistory}, so a rebuild costs one pass over the vessel's positions.
+ * Must not run while another process ingests the same vessels.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RollupRebuilder {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    private final AisRollupConfig aisRollupConfig;
+
+    private final RollupUpdater rollupUpdater;
+
+    private final PositionHistory positionHistory;
+
+    /**
+     * @return the number of positions read
+     */
+    public Mono<Long> rebuild() {
+        Flux<String> vessels = aisRollupConfig.getRebuildMmsis().isEmpty()
+            ? positionHistory.vessels()
+            : Flux.fromIterable(aisRollupConfig.getRebuildMmsis());
+        return vessels
+            .flatMap(this::rebuild, aisRollupConfig.getRebuildConcurrency())
+            .reduce(0L, Long::sum);
+    }
+
+    public Mono<Long> rebuild(String mmsi) {
+        VesselTrack track = new VesselTrack();
+        return mongoTemplate.remove(Query.query(Criteria.where("mmsi").is(mmsi)), Rollup.class)
+            .thenMany(positionHistory.track(mmsi, null, null, aisRollupConfig.getRebuildBatchSize()))
+            .buffer(aisRollupConfig.getRebuildBatchSize())
+            .concatMap(batch -> {
+                var accumulator = new RollupAccumulator(aisRollupConfig);
+                batch.forEach(aisData -> accumulator.add(track, aisData));
+                return rollupUpdater.write(accumulator.deltas()).thenReturn((long) batch.size());
+            })
+            .reduce(0L, Long::sum)
+            .doOnNext(count -> log.info("Rebuilt the rollups of {} from {} positions", mmsi, count));
+    }
+}
@@ -0,0 +1,154 @@
+package no.maddin.ais.rollup;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import no.maddin.ais.compaction.PositionCompactor;
+import no.maddin.ais.compaction.PositionHistory;
+import no.maddin.ais.config.AisCompactionConfig;
+import no.maddin.ais.config.AisRollupConfig;
+import no.maddin.ais.data.AisData;
+import no.maddin.ais.data.AisFields;
+import no.maddin.ais.data.Rollup;
+import no.maddin.ais.data.RollupPeriod;
+import no.maddin.ais.metrics.AisMetrics;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Adds the positions of each stored batch to the rollups in {@code aisrollups}, with one unordered bulk of
+ * {@code $inc}/{@code $min}/{@code $max} upserts per batch. Only positions that were new to {@code aisdata} may be added,
+ * otherwise they are counted twice. Of those, positions that are already in a compacted block are left out.
+ * <p>
+ * The first time a vessel is seen, its previous position is read from {@code aisdata} and its current voyage from
+ * {@code aisrollups}, so the first segment after a restart is counted as well. A failed rollup write does not fail the batch,
+ * the rollups of the vessel are then short until they are rebuilt by {@link RollupRebuilder}.
+ * Each bulk write is timed as {@code ais.rollups.batch}.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RollupUpdater {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    private final AisRollupConfig aisRollupConfig;
+
+    private final AisMetrics aisMetrics;
+
+    private final AisCompactionConfig aisCompactionConfig;
+
+    private final PositionHistory positionHistory;
+
+    private final Map<String, VesselTrack> tracks = new ConcurrentHashMap<>();
+
+    /**
+     * Positions of days that are already compacted are left out if they are in their block.
+     *
+     * @param newRecords positions that have just been inserted into {@code aisdata}
+     */
+    public Mono<Void> update(Collection<AisData> newRecords) {
+        if (!aisRollupConfig.isEnabled() || newRecords.isEmpty()) {
+            return Mono.empty();
+        }
+        return positionHistory.notCompacted(newRecords, PositionCompactor.cutoff(aisCompactionConfig.getHotWindow(), Instant.now()))
+            .onErrorResume(e -> {
+                log.warn("Could not look up compacted positions, rebuild the rollups: {}", e.getMessage());
+                return Mono.empty();
+            })
+            .flatMap(this::add);
+    }
+
+    private Mono<Void> add(Collection<AisData> newRecords) {
+        if (newRecords.isEmpty()) {
+            return Mono.empty();
+        }
+        Map<String, List<AisData>> byVessel = new LinkedHashMap<>();
+        newRecords.stream()
+            .filter(aisData -> aisData.getMmsi() != null && aisData.getTimestamp() != null)
+            .forEach(aisData -> byVessel.computeIfAbsent(aisData.getMmsi(), mmsi -> new ArrayList<>()).add(aisData));
+        return Mono.defer(() -> {
+                var accumulator = new RollupAccumulator(aisRollupConfig);
+                return Flux.fromIterable(byVessel.values())
+                    .concatMap(positions -> {
+                        positions.sort(Comparator.comparing(AisData::getTimestamp));
+                        return track(positions.getFirst().getMmsi(), positions.getFirst().getTimestamp())
+                            .doOnNext(track -> {
+                                synchronized (track) {
+                                    positions.forEach(aisData -> accumulator.add(track, aisData));
+                                }
+                            });
+                    })
+                    .then(Mono.defer(() -> write(accumulator.deltas())));
+            })
+            .onErrorResume(e -> {
+                log.warn("Could not update the rollups of {}, rebuild them: {}", byVessel.keySet(), e.getMessage());
+                return Mono.empty();
+            });
+    }
+
+    Mono<Void> write(Collection<RollupDelta> deltas) {
+        if (deltas.isEmpty()) {
+            return Mono.empty();
+        }
+        var bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Rollup.class);
+        deltas.forEach(delta -> bulkOps.upsert(delta.key(), delta.update()));
+        return bulkOps.execute()
+            .name("ais.rollups.batch")
+            .tap(aisMetrics.tap())
+            .doOnNext(result -> log.debug("Updated {} rollups, {} new", deltas.size(), result.getUpserts().size()))
+            .then();
+    }
+
+    private Mono<VesselTrack> track(String mmsi, OffsetDateTime before) {
+        VesselTrack cached = tracks.get(mmsi);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        Query previous = Query.query(Criteria.where("mmsi").is(mmsi).and("timestamp").lt(before))
+            .with(Sort.by(Sort.Direction.DESC, "timestamp"))
+            .limit(1);
+        previous.fields().include("timestamp", "lon", "lat");
+        Query voyage = Query.query(Criteria.where("mmsi").is(mmsi).and("period").is(RollupPeriod.VOYAGE))
+            .with(Sort.by(Sort.Direction.DESC, "start"))
+            .limit(1);
+        return Mono.zip(
+                mongoTemplate.findOne(previous, AisData.class).map(Optional::of).defaultIfEmpty(Optional.empty()),
+                mongoTemplate.findOne(voyage, Rollup.class).map(Optional::of).defaultIfEmpty(Optional.empty()))
+            .map(found -> {
+                VesselTrack track = new VesselTrack();
+                found.getT1().ifPresent(aisData -> {
+                    double lon = AisFields.parseDecimal(aisData.getLon());
+                    double lat = AisFields.parseDecimal(aisData.getLat());
+                    track.last = aisData.getTimestamp().toInstant().toEpochMilli();
+                    if (lon >= -180 && lon <= 180 && lat >= -90 && lat <= 90) {
+                        track.positionTime = track.last;
+                        track.lon = lon;
+                        track.lat = lat;
+                    }
+                });
+                found.getT2().filter(rollup -> rollup.getLastUnderway() != null).ifPresent(rollup -> {
+                    track.voyageStart = rollup.getStart().toInstant().toEpochMilli();
+                    track.lastUnderway = rollup.getLastUnderway().toInstant().toEpochMilli();
+                });
+                VesselTrack existing = tracks.putIfAbsent(mmsi, track);
+                return existing == null ? track : existing;
+            });
+    }
+}
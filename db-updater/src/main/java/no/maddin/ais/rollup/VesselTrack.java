@@ -0,0 +1,27 @@
+package no.maddin.ais.rollup;
+
+/**
+ * Where a vessel was last seen and its current voyage, as far as the rollups are concerned. Guarded by its own monitor.
+ */
+final class VesselTrack {
+
+    static final long NONE = Long.MIN_VALUE;
+
+    /**
+     * Time of the newest counted position.
+     */
+    long last = NONE;
+
+    /**
+     * Time and place of the newest valid position, the start of the next segment.
+     */
+    long positionTime = NONE;
+
+    double lon;
+
+    double lat;
+
+    long voyageStart = NONE;
+
+    long lastUnderway = NONE;
+}
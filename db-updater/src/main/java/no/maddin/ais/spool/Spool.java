@@ -0,0 +1,275 @@
+package no.maddin.ais.spool;
+
+import lombok.extern.slf4j.Slf4j;
+import no.maddin.ais.config.AisSpoolConfig;
+import no.maddin.ais.config.AisWriterConfig;
+import no.maddin.ais.data.AisData;
+import no.maddin.ais.metrics.AisMetrics;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-ahead spool between the readers and Mongo, in {@link AisSpoolConfig#getDirectory()}.
+ * Records are appended in batches of {@link AisWriterConfig#getBatchSize()}, and a batch is only passed on once it is on disk.
+ * Batches appended within {@link AisSpoolConfig#getFsyncInterval()} share one {@code fsync}.
+ * The {@link SpoolDrainer} writes them to Mongo at its own pace.
+ * <p>
+ * The newest spooled timestamp of each vessel is kept, so reading resumes after the spooled records and nothing is downloaded twice.
+ * After a restart it is rebuilt from the segments still on disk. Records waiting to be drained are published as the {@code spool} queue depth.
+ */
+@Component
+@Slf4j
+public class Spool implements SmartLifecycle {
+
+    private final AisSpoolConfig aisSpoolConfig;
+
+    private final AisWriterConfig aisWriterConfig;
+
+    private final Map<String, Long> newest = new ConcurrentHashMap<>();
+
+    private final AtomicLong pending = new AtomicLong();
+
+    private final Object signal = new Object();
+
+    private final SpoolLog spoolLog;
+
+    private final ScheduledExecutorService writer;
+
+    /**
+     * Batches appended since the last force, only used on the writer thread.
+     */
+    private final List<Waiting> waiting = new ArrayList<>();
+
+    private long unforced;
+
+    private ScheduledFuture<?> flushTask;
+
+    private volatile boolean running;
+
+    public Spool(AisSpoolConfig aisSpoolConfig, AisWriterConfig aisWriterConfig, AisMetrics aisMetrics) throws IOException {
+        this.aisSpoolConfig = aisSpoolConfig;
+        this.aisWriterConfig = aisWriterConfig;
+        if (!aisSpoolConfig.isEnabled()) {
+            spoolLog = null;
+            writer = null;
+            return;
+        }
+        spoolLog = new SpoolLog(aisSpoolConfig.getDirectory(), aisSpoolConfig.getSegmentSize().toBytes());
+        for (SpoolLog.Segment segment : spoolLog.segments()) {
+            long offset = 0;
+            SpoolLog.Frame frame;
+            while ((frame = SpoolLog.read(segment, offset)) != null) {
+                List<AisData> batch = SpoolCodec.decode(frame.payload());
+                index(batch);
+                pending.addAndGet(batch.size());
+                offset = frame.next();
+            }
+        }
+        if (pending.get() > 0) {
+            log.info("Recovered {} records in {} spool segments from {}", pending.get(), spoolLog.segments().size(), aisSpoolConfig.getDirectory());
+        }
+        writer = Executors.newSingleThreadScheduledExecutor(runnable -> new Thread(runnable, "spool-writer"));
+        aisMetrics.queue("spool", pending, AtomicLong::get);
+    }
+
+    public boolean isEnabled() {
+        return spoolLog != null;
+    }
+
+    /**
+     * Appends the records in batches and passes each batch on when it is on disk.
+     */
+    public Flux<AisData> append(Flux<AisData> data) {
+        return data
+            .bufferTimeout(aisWriterConfig.getBatchSize(), aisWriterConfig.getBatchTimeout())
+            .concatMap(batch -> append(batch).thenMany(Flux.fromIterable(batch)));
+    }
+
+    Mono<Void> append(List<AisData> batch) {
+        return Mono.fromCallable(() -> SpoolCodec.encode(batch))
+            .flatMap(payload -> Mono.create(sink -> writer.execute(() -> write(payload, batch, sink))));
+    }
+
+    private void write(ByteBuffer payload, List<AisData> batch, MonoSink<Void> sink) {
+        try {
+            if (spoolLog.size() + payload.remaining() > aisSpoolConfig.getMaxSize().toBytes()) {
+                throw new IOException("Spool is full: " + spoolLog.size() + " bytes in " + aisSpoolConfig.getDirectory());
+            }
+            unforced += payload.remaining();
+            spoolLog.append(payload);
+        } catch (IOException e) {
+            sink.error(new UncheckedIOException(e));
+            return;
+        }
+        waiting.add(new Waiting(batch, sink));
+        Duration interval = aisSpoolConfig.getFsyncInterval();
+        if (interval.isZero() || unforced >= aisSpoolConfig.getFsyncSize().toBytes()) {
+            flush();
+        } else if (flushTask == null) {
+            flushTask = writer.schedule(this::flush, interval.toNanos(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * One force for all batches appended since the last one.
+     */
+    private void flush() {
+        if (flushTask != null) {
+            flushTask.cancel(false);
+            flushTask = null;
+        }
+        if (waiting.isEmpty()) {
+            return;
+        }
+        try {
+            spoolLog.force();
+            for (Waiting batch : waiting) {
+                index(batch.records());
+                pending.addAndGet(batch.records().size());
+                batch.sink().success();
+            }
+        } catch (IOException e) {
+            waiting.forEach(batch -> batch.sink().error(new UncheckedIOException(e)));
+        }
+        waiting.clear();
+        unforced = 0;
+        synchronized (signal) {
+            signal.notifyAll();
+        }
+    }
+
+    private void index(List<AisData> batch) {
+        for (AisData aisData : batch) {
+            if (aisData.getMmsi() != null && aisData.getTimestamp() != null) {
+                newest.merge(aisData.getMmsi(), aisData.getTimestamp().toInstant().toEpochMilli(), Math::max);
+            }
+        }
+    }
+
+    /**
+     * Timestamp of the newest spooled record of the vessel, whether or not it has been drained.
+     */
+    public Optional<OffsetDateTime> newest(String mmsi) {
+        Long epochMillis = newest.get(mmsi);
+        return epochMillis == null ? Optional.empty() : Optional.of(OffsetDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneOffset.UTC));
+    }
+
+    /**
+     * Records appended and not yet drained.
+     */
+    public long pending() {
+        return pending.get();
+    }
+
+    SpoolLog.Segment oldest() {
+        return spoolLog.oldest();
+    }
+
+    void drained(int records) {
+        pending.addAndGet(-records);
+    }
+
+    /**
+     * Deletes the segment if everything up to {@code offset} has been drained and nothing more will be appended to it.
+     *
+     * @return whether the segment was deleted
+     */
+    boolean release(SpoolLog.Segment segment, long offset) throws IOException {
+        if (!segment.sealed) {
+            try {
+                if (!writer.submit(() -> spoolLog.sealIfConsumed(segment, offset)).get()) {
+                    return false;
+                }
+            } catch (ExecutionException e) {
+                throw new IOException(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        if (offset < segment.durable) {
+            return false;
+        }
+        spoolLog.remove(segment, false);
+        return true;
+    }
+
+    void quarantine(SpoolLog.Segment segment) throws IOException {
+        spoolLog.remove(segment, true);
+    }
+
+    /**
+     * Waits until new batches are on disk, or at most {@code timeout}.
+     */
+    void awaitData(Duration timeout) throws InterruptedException {
+        synchronized (signal) {
+            signal.wait(timeout.toMillis());
+        }
+    }
+
+    void wakeUp() {
+        synchronized (signal) {
+            signal.notifyAll();
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    /**
+     * Forces what is left and closes the segments. Runs after the {@link SpoolDrainer} has stopped.
+     */
+    @Override
+    public void stop() {
+        running = false;
+        if (!isEnabled()) {
+            return;
+        }
+        try {
+            writer.submit(this::flush).get();
+            writer.shutdown();
+            spoolLog.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | IOException e) {
+            log.warn("Could not close the spool: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return SpoolDrainer.PHASE - 1;
+    }
+
+    private record Waiting(List<AisData> records, MonoSink<Void> sink) {
+    }
+}
@@ -0,0 +1,115 @@
+package no.maddin.ais.spool;
+
+import no.maddin.ais.data.AisData;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary encoding of a batch of {@link AisData}: the number of records, then per record its string fields as
+ * length-prefixed UTF-8 (-1 for {@code null}) and the timestamp as epoch milliseconds and offset seconds.
+ */
+final class SpoolCodec {
+
+    private static final short NULL = -1;
+
+    private static final long NO_TIMESTAMP = Long.MIN_VALUE;
+
+    private SpoolCodec() {
+    }
+
+    static ByteBuffer encode(List<AisData> batch) {
+        ByteBuffer buffer = ByteBuffer.allocate(4 + batch.size() * 128);
+        buffer.putInt(batch.size());
+        for (AisData aisData : batch) {
+            buffer = put(buffer, aisData.getId());
+            buffer = put(buffer, aisData.getMmsi());
+            buffer = put(buffer, aisData.getImo());
+            buffer = put(buffer, aisData.getStatus());
+            buffer = put(buffer, aisData.getSpeed());
+            buffer = put(buffer, aisData.getLon());
+            buffer = put(buffer, aisData.getLat());
+            buffer = put(buffer, aisData.getCourse());
+            buffer = put(buffer, aisData.getHeading());
+            buffer = put(buffer, aisData.getShipId());
+            buffer = ensure(buffer, 12);
+            OffsetDateTime timestamp = aisData.getTimestamp();
+            buffer.putLong(timestamp == null ? NO_TIMESTAMP : timestamp.toInstant().toEpochMilli());
+            buffer.putInt(timestamp == null ? 0 : timestamp.getOffset().getTotalSeconds());
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * @throws IllegalArgumentException if the payload is not a batch
+     */
+    static List<AisData> decode(ByteBuffer payload) {
+        try {
+            int count = payload.getInt();
+            if (count < 0 || count > payload.remaining()) {
+                throw new IllegalArgumentException("Invalid record count " + count);
+            }
+            List<AisData> batch = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                AisData aisData = new AisData();
+                aisData.setId(string(payload));
+                aisData.setMmsi(string(payload));
+                aisData.setImo(string(payload));
+                aisData.setStatus(string(payload));
+                aisData.setSpeed(string(payload));
+                aisData.setLon(string(payload));
+                aisData.setLat(string(payload));
+                aisData.setCourse(string(payload));
+                aisData.setHeading(string(payload));
+                aisData.setShipId(string(payload));
+                long epochMillis = payload.getLong();
+                int offsetSeconds = payload.getInt();
+                if (epochMillis != NO_TIMESTAMP) {
+                    aisData.setTimestamp(OffsetDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneOffset.ofTotalSeconds(offsetSeconds)));
+                }
+                batch.add(aisData);
+            }
+            return batch;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated batch", e);
+        }
+    }
+
+    private static ByteBuffer put(ByteBuffer buffer, String value) {
+        if (value == null) {
+            return ensure(buffer, 2).putShort(NULL);
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Field too long: " + bytes.length + " bytes");
+        }
+        return ensure(buffer, 2 + bytes.length).putShort((short) bytes.length).put(bytes);
+    }
+
+    private static String string(ByteBuffer payload) {
+        short length = payload.getShort();
+        if (length == NULL) {
+            return null;
+        }
+        if (length < 0 || length > payload.remaining()) {
+            throw new IllegalArgumentException("Invalid field length " + length);
+        }
+        String value = new String(payload.array(), payload.arrayOffset() + payload.position(), length, StandardCharsets.UTF_8);
+        payload.position(payload.position() + length);
+        return value;
+    }
+
+    private static ByteBuffer ensure(ByteBuffer buffer, int bytes) {
+        if (buffer.remaining() >= bytes) {
+            return buffer;
+        }
+        ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+        return larger.put(buffer.flip());
+    }
+}
@@ -0,0 +1,156 @@
+package no.maddin.ais.spool;
+
+import lombok.extern.slf4j.Slf4j;
+import no.maddin.ais.config.AisSpoolConfig;
+import no.maddin.ais.data.AisData;
+import no.maddin.ais.repository.AisDataBulkWriter;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays the {@link Spool} into Mongo through the {@link AisDataBulkWriter}, oldest segment first, on its own thread.
+ * A segment is deleted when all its records have been written. A failed write is retried with growing backoff,
+ * the records stay on disk until it succeeds. Records are written at least once: after a crash the undeleted segments
+ * are written again, which the writer's upserts make harmless except in the time-series layout.
+ * <p>
+ * On shutdown it keeps writing for at most {@link AisSpoolConfig#getShutdownTimeout()} after the readers have stopped.
+ */
+@Component
+@Slf4j
+public class SpoolDrainer implements SmartLifecycle {
+
+    static final int PHASE = DEFAULT_PHASE - 2;
+
+    private static final Duration POLL_INTERVAL = Duration.ofSeconds(1);
+
+    private final Spool spool;
+
+    private final AisDataBulkWriter aisDataBulkWriter;
+
+    private final AisSpoolConfig aisSpoolConfig;
+
+    private final CountDownLatch stopped = new CountDownLatch(1);
+
+    private volatile boolean stopping;
+
+    private volatile Thread thread;
+
+    public SpoolDrainer(Spool spool, AisDataBulkWriter aisDataBulkWriter, AisSpoolConfig aisSpoolConfig) {
+        this.spool = spool;
+        this.aisDataBulkWriter = aisDataBulkWriter;
+        this.aisSpoolConfig = aisSpoolConfig;
+    }
+
+    @Override
+    public void start() {
+        if (!spool.isEnabled()) {
+            return;
+        }
+        thread = new Thread(this::drain, "spool-drainer");
+        thread.start();
+    }
+
+    private void drain() {
+        SpoolLog.Segment segment = null;
+        long offset = 0;
+        Duration backoff = aisSpoolConfig.getMinRetryBackoff();
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                SpoolLog.Segment oldest = spool.oldest();
+                if (oldest != segment) {
+                    segment = oldest;
+                    offset = 0;
+                }
+                if (segment == null) {
+                    if (stopping) {
+                        return;
+                    }
+                    spool.awaitData(POLL_INTERVAL);
+                    continue;
+                }
+                List<AisData> records = new ArrayList<>();
+                long next = offset;
+                try {
+                    SpoolLog.Frame frame;
+                    while (records.size() < aisSpoolConfig.getDrainBatchSize() && (frame = SpoolLog.read(segment, next)) != null) {
+                        records.addAll(SpoolCodec.decode(frame.payload()));
+                        next = frame.next();
+                    }
+                } catch (IOException | IllegalArgumentException e) {
+                    log.error("Spool segment {} can't be read after {} bytes, moving it aside: {}", segment, next, e.getMessage());
+                    spool.quarantine(segment);
+                    continue;
+                }
+                if (records.isEmpty()) {
+                    if (next > offset) {
+                        offset = next;
+                    } else if (!spool.release(segment, offset)) {
+                        if (stopping) {
+                            return;
+                        }
+                        spool.awaitData(POLL_INTERVAL);
+                    }
+                    continue;
+                }
+                try {
+                    aisDataBulkWriter.write(Flux.fromIterable(records)).then().block();
+                    offset = next;
+                    spool.drained(records.size());
+                    backoff = aisSpoolConfig.getMinRetryBackoff();
+                } catch (RuntimeException e) {
+                    log.warn("Could not write {} spooled records, retrying in {}: {}", records.size(), backoff, e.getMessage());
+                    Thread.sleep(backoff.toMillis());
+                    backoff = backoff.multipliedBy(2).compareTo(aisSpoolConfig.getMaxRetryBackoff()) > 0 ? aisSpoolConfig.getMaxRetryBackoff() : backoff.multipliedBy(2);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            log.error("Spool drainer stopped, {} records left", spool.pending(), e);
+        } finally {
+            stopped.countDown();
+        }
+    }
+
+    /**
+     * Waits until the drainer has caught up with the spool, at most {@link AisSpoolConfig#getShutdownTimeout()}.
+     */
+    @Override
+    public void stop() {
+        if (thread == null) {
+            return;
+        }
+        stopping = true;
+        spool.wakeUp();
+        try {
+            if (!stopped.await(aisSpoolConfig.getShutdownTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                log.warn("Spool not drained within {}, {} records stay in {}", aisSpoolConfig.getShutdownTimeout(), spool.pending(), aisSpoolConfig.getDirectory());
+                thread.interrupt();
+                stopped.await(aisSpoolConfig.getShutdownTimeout().toMillis(), TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return thread != null && stopped.getCount() > 0;
+    }
+
+    /**
+     * Stop after the readers and the event engine, before the {@link Spool} closes.
+     */
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+}
@@ -0,0 +1,251 @@
+package no.maddin.ais.spool;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of frames in numbered segment files. A frame is the payload length, the CRC32C of the payload and the payload.
+ * Appends go to the active segment and only become visible to readers when they are forced to disk, a segment is sealed
+ * when it reaches its size or when a reader has consumed all of it.
+ * <p>
+ * When a log is opened all segments are checked frame by frame and sealed, a torn or corrupt tail is cut off.
+ * Appending, forcing and sealing must happen on one thread, reading and deleting may happen on another.
+ */
+@Slf4j
+final class SpoolLog implements AutoCloseable {
+
+    static final String SUFFIX = ".spool";
+
+    private static final int HEADER = 8;
+
+    private final Path directory;
+
+    private final long segmentSize;
+
+    private final Deque<Segment> segments = new ConcurrentLinkedDeque<>();
+
+    private final AtomicLong size = new AtomicLong();
+
+    private Segment active;
+
+    private long nextSequence;
+
+    SpoolLog(Path directory, long segmentSize) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directory);
+        List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = list.filter(file -> file.getFileName().toString().endsWith(SUFFIX)).sorted().toList();
+        }
+        for (Path file : files) {
+            Segment segment = recover(file);
+            nextSequence = segment.sequence + 1;
+            if (segment.written == 0) {
+                segment.channel.close();
+                Files.delete(file);
+            } else {
+                segments.add(segment);
+                size.addAndGet(segment.written);
+            }
+        }
+    }
+
+    private static Segment recover(Path file) throws IOException {
+        String name = file.getFileName().toString();
+        long sequence = Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        Segment segment = new Segment(sequence, file, channel);
+        segment.durable = channel.size();
+        long end = 0;
+        try {
+            Frame frame;
+            while ((frame = read(segment, end)) != null) {
+                end = frame.next();
+            }
+        } catch (IOException e) {
+            log.warn("Spool segment {} is corrupt after {} bytes: {}", file, end, e.getMessage());
+        }
+        if (end < channel.size()) {
+            log.warn("Cutting {} bytes off the end of spool segment {}", channel.size() - end, file);
+            channel.truncate(end);
+            channel.force(true);
+        }
+        segment.written = end;
+        segment.durable = end;
+        segment.sealed = true;
+        return segment;
+    }
+
+    /**
+     * Appends a frame to the active segment. It is read by nobody until {@link #force()}.
+     */
+    void append(ByteBuffer payload) throws IOException {
+        if (active == null) {
+            Path file = directory.resolve(String.format("%020d%s", nextSequence, SUFFIX));
+            active = new Segment(nextSequence++, file,
+                FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE));
+            segments.add(active);
+        }
+        var crc = new CRC32C();
+        crc.update(payload.duplicate());
+        ByteBuffer header = ByteBuffer.allocate(HEADER).putInt(payload.remaining()).putInt((int) crc.getValue()).flip();
+        long length = HEADER + payload.remaining();
+        ByteBuffer[] frame = {header, payload};
+        try {
+            while (header.hasRemaining() || payload.hasRemaining()) {
+                active.channel.write(frame);
+            }
+        } catch (IOException e) {
+            // don't leave half a frame in front of the next one
+            active.channel.truncate(active.written);
+            active.channel.position(active.written);
+            throw e;
+        }
+        active.written += length;
+        size.addAndGet(length);
+    }
+
+    /**
+     * Forces the active segment to disk, makes its frames visible and seals it if it is full.
+     */
+    void force() throws IOException {
+        if (active == null) {
+            return;
+        }
+        active.channel.force(false);
+        active.durable = active.written;
+        if (active.written >= segmentSize) {
+            active.sealed = true;
+            active = null;
+        }
+    }
+
+    /**
+     * Seals the active segment if a reader has consumed everything in it, so it can be deleted.
+     */
+    boolean sealIfConsumed(Segment segment, long offset) {
+        if (segment == active && segment.written == segment.durable && segment.durable == offset) {
+            segment.sealed = true;
+            active = null;
+        }
+        return segment.sealed;
+    }
+
+    Segment oldest() {
+        return segments.peekFirst();
+    }
+
+    /**
+     * @return the frame at {@code offset}, {@code null} at the durable end of the segment
+     * @throws IOException also if the frame is corrupt
+     */
+    static Frame read(Segment segment, long offset) throws IOException {
+        long end = segment.durable;
+        if (offset + HEADER > end) {
+            return null;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER);
+        readFully(segment.channel, header, offset);
+        int length = header.getInt(0);
+        int checksum = header.getInt(4);
+        if (length < 0 || offset + HEADER + length > end) {
+            throw new IOException("Invalid frame length " + length + " at " + offset);
+        }
+        ByteBuffer payload = ByteBuffer.allocate(length);
+        readFully(segment.channel, payload, offset + HEADER);
+        var crc = new CRC32C();
+        crc.update(payload.array(), 0, length);
+        if ((int) crc.getValue() != checksum) {
+            throw new IOException("Checksum mismatch at " + offset);
+        }
+        return new Frame(payload, offset + HEADER + length);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of segment at " + (position + buffer.position()));
+            }
+        }
+        buffer.flip();
+    }
+
+    /**
+     * Deletes a sealed segment, or moves it aside as {@code .corrupt} if it can't be read.
+     */
+    void remove(Segment segment, boolean corrupt) throws IOException {
+        segments.remove(segment);
+        size.addAndGet(-segment.written);
+        segment.channel.close();
+        if (corrupt) {
+            Files.move(segment.path, segment.path.resolveSibling(segment.path.getFileName() + ".corrupt"), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.delete(segment.path);
+        }
+    }
+
+    List<Segment> segments() {
+        return List.copyOf(segments);
+    }
+
+    /**
+     * Bytes in all segments.
+     */
+    long size() {
+        return size.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Segment segment : segments) {
+            segment.channel.close();
+        }
+    }
+
+    static final class Segment {
+
+        final long sequence;
+
+        final Path path;
+
+        final FileChannel channel;
+
+        /**
+         * Only used by the appending thread.
+         */
+        long written;
+
+        volatile long durable;
+
+        volatile boolean sealed;
+
+        Segment(long sequence, Path path, FileChannel channel) {
+            this.sequence = sequence;
+            this.path = path;
+            this.channel = channel;
+        }
+
+        @Override
+        public String toString() {
+            return path.getFileName().toString();
+        }
+    }
+
+    record Frame(ByteBuffer payload, long next) {
+    }
+}
@@ -0,0 +1,32 @@
+package no.maddin.ais;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.DefaultBootstrapContext;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.context.event.ApplicationEnvironmentPreparedEvent;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+class DbUpdaterApplicationTest {
+
+    @Test
+    void onlyTheDaemonStartsAWebServer() {
+        assertThat(webApplicationType(null), equalTo(WebApplicationType.NONE));
+        assertThat(webApplicationType("import"), equalTo(WebApplicationType.NONE));
+        assertThat(webApplicationType("rebuild-rollups"), equalTo(WebApplicationType.NONE));
+        assertThat(webApplicationType("daemon"), equalTo(WebApplicationType.REACTIVE));
+    }
+
+    private static WebApplicationType webApplicationType(String mode) {
+        var environment = new MockEnvironment();
+        if (mode != null) {
+            environment.setProperty("ais.reader.mode", mode);
+        }
+        var application = new SpringApplication(DbUpdaterApplication.class);
+        DbUpdaterApplication.webApplicationType(new ApplicationEnvironmentPreparedEvent(new DefaultBootstrapContext(), application, new String[0], environment));
+        return application.getWebApplicationType();
+    }
+}
@@ -0,0 +1,98 @@
+package no.maddin.ais.compaction;
+
+import com.mongodb.client.result.DeleteResult;
+import no.maddin.ais.config.AisCompactionConfig;
+import no.maddin.ais.data.AisData;
+import no.maddin.ais.data.AisPosition;
+import no.maddin.ais.data.PositionBlock;
+import no.maddin.ais.data.PositionBlockCodec;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PositionCompactorTest {
+
+    private static final OffsetDateTime START = OffsetDateTime.of(2024, 5, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+
+    private static final String MMSI = "257961640";
+
+    @Test
+    void mergeIntoTheExistingBlockThenDeleteThePositions() {
+        ReactiveMongoTemplate mongoTemplate = Mockito.mock(ReactiveMongoTemplate.class);
+        PositionBlock existing = PositionCompactor.block(PositionBlock.id(MMSI, START.toLocalDate()), MMSI, START.toLocalDate(),
+            List.of(typed(1, 100), typed(2, 100)));
+        AtomicReference<PositionBlock> saved = new AtomicReference<>();
+        AtomicReference<PositionBlock> savedBeforeRemove = new AtomicReference<>();
+        when(mongoTemplate.find(any(Query.class), eq(AisData.class))).thenReturn(Flux.just(position("a", 0, 50), position("b", 2, 50), position("c", 3, 50)));
+        when(mongoTemplate.findById("257961640/2024-05-01", PositionBlock.class)).thenReturn(Mono.just(existing));
+        when(mongoTemplate.save(any(PositionBlock.class))).thenAnswer(invocation -> Mono.fromSupplier(() -> {
+            saved.set(invocation.getArgument(0));
+            return saved.get();
+        }));
+        when(mongoTemplate.remove(any(Query.class), eq(AisData.class))).thenReturn(Mono.fromSupplier(() -> {
+            savedBeforeRemove.set(saved.get());
+            return DeleteResult.acknowledged(3);
+        }));
+
+        StepVerifier.create(new PositionCompactor(mongoTemplate, new AisCompactionConfig()).compact(MMSI, START.plusDays(1).toInstant()))
+            .expectNext(3L)
+            .verifyComplete();
+
+        assertThat(savedBeforeRemove.get(), notNullValue());
+        assertThat(saved.get().getCount(), equalTo(4));
+        assertThat(PositionBlockCodec.decode(saved.get()).stream().map(AisPosition::getSpeed).toList(), equalTo(List.of(50, 100, 100, 50)));
+        ArgumentCaptor<Query> removed = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).remove(removed.capture(), eq(AisData.class));
+        assertThat(removed.getValue().getQueryObject(), equalTo(new Document("_id", new Document("$in", List.of("a", "b", "c")))));
+    }
+
+    @Test
+    void keepTheBlockAndThePositionsIfTheBlockIsOfAnUnknownVersion() {
+        ReactiveMongoTemplate mongoTemplate = Mockito.mock(ReactiveMongoTemplate.class);
+        PositionBlock existing = PositionCompactor.block(PositionBlock.id(MMSI, START.toLocalDate()), MMSI, START.toLocalDate(), List.of(typed(1, 100)));
+        existing.setVersion(PositionBlockCodec.VERSION + 1);
+        when(mongoTemplate.find(any(Query.class), eq(AisData.class))).thenReturn(Flux.just(position("a", 0, 50)));
+        when(mongoTemplate.findById("257961640/2024-05-01", PositionBlock.class)).thenReturn(Mono.just(existing));
+        when(mongoTemplate.save(any(PositionBlock.class))).thenReturn(Mono.error(new AssertionError("saved")));
+        when(mongoTemplate.remove(any(Query.class), eq(AisData.class))).thenReturn(Mono.error(new AssertionError("removed")));
+
+        StepVerifier.create(new PositionCompactor(mongoTemplate, new AisCompactionConfig()).compact(MMSI, START.plusDays(1).toInstant()))
+            .verifyError(IllegalArgumentException.class);
+    }
+
+    @Test
+    void cutoffIsTheStartOfTheFirstHotDay() {
+        assertThat(PositionCompactor.cutoff(Duration.ofDays(30), Instant.parse("2024-05-31T13:00:00Z")),
+            equalTo(LocalDate.of(2024, 5, 1).atStartOfDay(ZoneOffset.UTC).toInstant()));
+    }
+
+    private static AisData position(String id, int minutes, int speed) {
+        return AisData.builder().id(id).mmsi(MMSI).timestamp(START.plusMinutes(minutes)).speed(Integer.toString(speed)).build();
+    }
+
+    private static AisPosition typed(int minutes, int speed) {
+        return AisPosition.builder().mmsi(257961640).speed(speed).timestamp(START.plusMinutes(minutes).toInstant().toEpochMilli()).build();
+    }
+}
@@ -0,0 +1,103 @@
+package no.maddin.ais.compaction;
+
+import no.maddin.ais.data.AisData;
+import no.maddin.ais.data.AisPosition;
+import no.maddin.ais.data.PositionBlock;
+import no.maddin.ais.data.PositionBlockCodec;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class PositionHistoryTest {
+
+    private static final OffsetDateTime START = OffsetDateTime.of(2024, 5, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+
+    @Test
+    void mergesCompactedAndHotPositionsOnce() {
+        Flux<AisData> hot = Flux.just(position(1, "hot"), position(3, "hot"), position(5, "hot"));
+        Flux<AisData> cold = Flux.just(position(0, null), position(1, null), position(2, null));
+
+        StepVerifier.create(PositionHistory.merge(hot, cold).map(aisData -> aisData.getTimestamp().getMinute()))
+            .expectNext(0, 1, 2, 3, 5)
+            .verifyComplete();
+    }
+
+    @Test
+    void compactedPositionsWinWhenADayIsCompactedAgain() {
+        var compacted = List.of(typed(1, 100), typed(2, 100));
+        var late = List.of(typed(0, 50), typed(2, 50), typed(3, 50));
+
+        var merged = PositionCompactor.merge(compacted, late);
+        PositionBlock block = PositionCompactor.block(PositionBlock.id("257961640", LocalDate.of(2024, 5, 1)), "257961640", LocalDate.of(2024, 5, 1), merged);
+
+        assertThat(block.getId(), equalTo("257961640/2024-05-01"));
+        assertThat(block.getCount(), equalTo(4));
+        assertThat(block.getEnd(), equalTo(START.plusDays(1)));
+        assertThat(PositionBlockCodec.decode(block.getPositions(), 257961640, START.toInstant().toEpochMilli()).stream().map(AisPosition::getSpeed).toList(),
+            equalTo(List.of(50, 100, 100, 50)));
+    }
+
+    @Test
+    void leaveOutRecordsThatAreInACompactedBlock() {
+        ReactiveMongoTemplate mongoTemplate = Mockito.mock(ReactiveMongoTemplate.class);
+        PositionBlock block = PositionCompactor.block(PositionBlock.id("257961640", START.toLocalDate()), "257961640", START.toLocalDate(),
+            List.of(typed(1, 100), typed(2, 100)));
+        when(mongoTemplate.find(any(Query.class), eq(PositionBlock.class))).thenReturn(Flux.just(block));
+        var history = new PositionHistory(mongoTemplate);
+        Instant cutoff = START.plusDays(2).toInstant();
+
+        AisData compacted = position(2, "compacted");
+        AisData late = position(3, "late");
+        AisData otherDay = AisData.builder().id("other").mmsi("257961640").timestamp(START.plusDays(1)).build();
+        AisData hot = AisData.builder().id("hot").mmsi("257961640").timestamp(START.plusDays(2)).build();
+        StepVerifier.create(history.notCompacted(List.of(compacted, late, otherDay, hot), cutoff))
+            .expectNext(List.of(late, otherDay, hot))
+            .verifyComplete();
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(query.capture(), eq(PositionBlock.class));
+        assertThat((Collection<?>) query.getValue().getQueryObject().get("_id", Document.class).get("$in"),
+            containsInAnyOrder("257961640/2024-05-01", "257961640/2024-05-02"));
+    }
+
+    @Test
+    void recentRecordsAreNotLookedUp() {
+        ReactiveMongoTemplate mongoTemplate = Mockito.mock(ReactiveMongoTemplate.class);
+        AisData hot = position(1, "hot");
+
+        StepVerifier.create(new PositionHistory(mongoTemplate).notCompacted(List.of(hot), START.toInstant()))
+            .expectNext(List.of(hot))
+            .verifyComplete();
+
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    private static AisData position(int minutes, String id) {
+        return AisData.builder().id(id).mmsi("257961640").timestamp(START.plusMinutes(minutes)).build();
+    }
+
+    private static AisPosition typed(int minutes, int speed) {
+        return AisPosition.builder().mmsi(257961640).speed(speed).timestamp(START.plusMinutes(minutes).toInstant().toEpochMilli()).build();
+    }
+}
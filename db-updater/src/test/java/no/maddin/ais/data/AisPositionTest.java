@@ -0,0 +1,113 @@
+package no.maddin.ais.data;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonDocumentWriter;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+
+class AisPositionTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @ParameterizedTest
+    @ValueSource(strings = {"ais-data-simple-json.json", "ais-data-simple-jsono.json"})
+    void deserializeMarineTraffic(String file) throws IOException {
+        List<AisPosition> positions;
+        try (InputStream in = getClass().getResourceAsStream("/__files/" + file)) {
+            positions = objectMapper.readValue(in, new TypeReference<>() {});
+        }
+
+        assertThat(positions, hasSize(2));
+        AisPosition second = positions.get(1);
+        assertThat(second.getMmsi(), equalTo(123456789));
+        assertThat(second.getStatus(), equalTo(15));
+        assertThat(second.getSpeed(), equalTo(2));
+        assertThat(second.getLon(), equalTo(23.548990));
+        assertThat(second.getLat(), equalTo(37.903030));
+        assertThat(second.getCourse(), equalTo(1600));
+        assertThat(second.getHeading(), equalTo(160));
+    }
+
+    @Test
+    void codecRoundTrip() {
+        AisPosition position = AisPosition.builder()
+            .mmsi(257961640)
+            .speed(23)
+            .lon(10.7522)
+            .lat(59.9139)
+            .timestamp(1612789021000L)
+            .build();
+        AisPositionCodec codec = new AisPositionCodec();
+
+        BsonDocument document = new BsonDocument();
+        codec.encode(new BsonDocumentWriter(document), position, EncoderContext.builder().build());
+
+        assertThat(document.getDocument("location").getString("type").getValue(), equalTo("Point"));
+        assertThat(document.containsKey("heading"), equalTo(false));
+        assertThat(codec.decode(new BsonDocumentReader(document), DecoderContext.builder().build()), equalTo(position));
+    }
+
+    @Test
+    void unknownLocationIsNotStored() {
+        AisPosition position = AisPosition.builder().mmsi(257961640).timestamp(0).build();
+
+        BsonDocument document = new BsonDocument();
+        new AisPositionCodec().encode(new BsonDocumentWriter(document), position, EncoderContext.builder().build());
+
+        assertThat(document.keySet(), equalTo(Set.of("mmsi", "timestamp")));
+    }
+
+    @Test
+    void outOfRangeLocationIsNotStored() {
+        for (AisPosition position : List.of(
+            AisPosition.builder().mmsi(257961640).lon(181).lat(91).timestamp(0).build(),
+            AisPosition.builder().mmsi(257961640).lon(10.75).lat(-90.5).timestamp(0).build())) {
+            BsonDocument document = new BsonDocument();
+            new AisPositionCodec().encode(new BsonDocumentWriter(document), position, EncoderContext.builder().build());
+
+            assertThat(position.hasLocation(), equalTo(false));
+            assertThat(document.keySet(), equalTo(Set.of("mmsi", "timestamp")));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"2021-02-08T12:57:01.000Z", "2021-02-08T12:57:01Z", "1969-12-31T23:59:59.5Z", "2024-02-29T23:00:00+02:00", "2000-03-01T00:00:00.123-0130"})
+    void parseEpochMillis(String timestamp) {
+        assertThat(AisFields.parseEpochMillis(timestamp), equalTo(OffsetDateTime.parse(timestamp.replaceAll("([+-]\\d\\d)(\\d\\d)$", "$1:$2")).toInstant().toEpochMilli()));
+    }
+
+    @Test
+    void parseTimestampWithoutOffsetAsUtc() {
+        assertThat(AisFields.parseEpochMillis("2021-02-08 12:57:01"), equalTo(1612789021000L));
+    }
+
+    @Test
+    void convertFromAisData() {
+        AisData aisData = AisData.builder()
+            .mmsi("123456789").imo("0").status("5").speed("0").lon("23.726880").lat("37.878850")
+            .course("0").heading("320").timestamp(OffsetDateTime.parse("2021-02-08T12:57:01Z")).shipId("1234567")
+            .build();
+
+        AisPosition position = AisPosition.of(aisData);
+
+        assertThat(position.getTimestamp(), equalTo(1612789021000L));
+        assertThat(position.getLat(), equalTo(37.878850));
+        assertThat(AisPosition.of(position.toAisData()), equalTo(position));
+    }
+}
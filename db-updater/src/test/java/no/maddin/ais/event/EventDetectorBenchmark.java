@@ -0,0 +1,102 @@
+package no.maddin.ais.event;
+
+import no.maddin.ais.config.AisEventsConfig;
+import no.maddin.ais.data.AisData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time per position of the {@link EventDetector}: 1000 vessels wandering through the North Sea, with
+ * {@code fences} random polygons of up to 60 km in it. Every invocation starts with a new detector, so each position is evaluated.
+ * <p>
+ * {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args="EventDetectorBenchmark -prof gc"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class EventDetectorBenchmark {
+
+    private static final int VESSELS = 1000;
+
+    private static final int POSITIONS = 100_000;
+
+    @Param({"0", "1000", "10000"})
+    public int fences;
+
+    @Param("0.25")
+    public double cellSize;
+
+    private GeofenceIndex index;
+
+    private AisData[] positions;
+
+    private EventDetector detector;
+
+    @Setup
+    public void setUp() {
+        var random = new Random(1);
+        List<Geofence> polygons = new ArrayList<>(fences);
+        for (int i = 0; i < fences; i++) {
+            polygons.add(GeofenceIndexTest.randomFence(random, Integer.toString(i)));
+        }
+        index = GeofenceIndex.of(polygons, cellSize);
+
+        double[] lon = new double[VESSELS];
+        double[] lat = new double[VESSELS];
+        for (int v = 0; v < VESSELS; v++) {
+            lon[v] = random.nextDouble() * 20 - 5;
+            lat[v] = random.nextDouble() * 10 + 50;
+        }
+        OffsetDateTime start = OffsetDateTime.of(2024, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+        positions = new AisData[POSITIONS];
+        for (int i = 0; i < POSITIONS; i++) {
+            int v = i % VESSELS;
+            lon[v] += (random.nextDouble() - 0.5) / 50;
+            lat[v] += (random.nextDouble() - 0.5) / 50;
+            positions[i] = AisData.builder()
+                .mmsi(Integer.toString(200_000_000 + v))
+                .status(Integer.toString(random.nextInt(10) == 0 ? 5 : 0))
+                .speed(Integer.toString(random.nextInt(150)))
+                .lon(String.format(Locale.ROOT, "%.6f", lon[v]))
+                .lat(String.format(Locale.ROOT, "%.6f", lat[v]))
+                .timestamp(start.plusSeconds(i / VESSELS * 60L))
+                .build();
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void newDetector() {
+        detector = new EventDetector(new AisEventsConfig(), index);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POSITIONS)
+    public void detect(Blackhole blackhole) {
+        for (AisData position : positions) {
+            detector.accept(position, blackhole::consume);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package no.maddin.ais.event;
+
+import no.maddin.ais.config.AisEventsConfig;
+import no.maddin.ais.data.AisData;
+import no.maddin.ais.data.AisEvent;
+import no.maddin.ais.data.AisEventType;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+
+class EventDetectorTest {
+
+    private static final OffsetDateTime START = OffsetDateTime.of(2024, 5, 1, 8, 0, 0, 0, ZoneOffset.UTC);
+
+    private static final GeofenceIndex FENCES = GeofenceIndex.of(List.of(
+        square("zone", false, 10.4, 59.4, 10.6, 59.6),
+        square("harbour", true, 11.0, 59.0, 11.1, 59.1)
+    ), 0.25);
+
+    private final EventDetector detector = new EventDetector(new AisEventsConfig(), FENCES);
+
+    private final List<AisEvent> events = new ArrayList<>();
+
+    @Test
+    void zoneAndPortCall() {
+        position(0, 10.0, 59.0, 120, 0);
+        assertThat(events, empty());
+
+        position(10, 10.5, 59.5, 120, 0);
+        position(20, 10.7, 59.5, 120, 0);
+        position(30, 11.05, 59.05, 30, 0);
+        position(40, 11.05, 59.05, 2, 5);
+        position(80, 11.05, 59.05, 0, 5);
+        position(80, 11.05, 59.05, 0, 5);
+        position(60, 10.0, 59.0, 0, 5);
+        position(90, 11.05, 59.05, 50, 0);
+        position(100, 10.9, 59.05, 100, 0);
+
+        assertThat(events.stream().map(AisEvent::getType).toList(), contains(
+            AisEventType.ENTER, AisEventType.EXIT, AisEventType.ENTER,
+            AisEventType.STATUS_CHANGED, AisEventType.STOPPED, AisEventType.PORT_CALL_START,
+            AisEventType.STATUS_CHANGED, AisEventType.UNDERWAY,
+            AisEventType.EXIT, AisEventType.PORT_CALL_END));
+        assertThat(events.get(1).getFence(), equalTo("zone"));
+        assertThat(events.get(1).getDurationSeconds(), equalTo(600L));
+        assertThat(events.get(3).getFromStatus(), equalTo(0));
+        assertThat(events.get(3).getToStatus(), equalTo(5));
+        assertThat(events.get(5).getFence(), equalTo("harbour"));
+        assertThat(events.get(5).getTimestamp(), equalTo(START.plusMinutes(40)));
+        assertThat(events.get(8).getDurationSeconds(), equalTo(70 * 60L));
+        assertThat(events.get(9).getDurationSeconds(), equalTo(60 * 60L));
+        assertThat(events.get(9).getTimestamp(), equalTo(START.plusMinutes(100)));
+    }
+
+    @Test
+    void vesselAlreadyInsideDoesNotEnter() {
+        position(0, 10.5, 59.5, 0, 1);
+        position(10, 10.51, 59.5, 0, 1);
+
+        assertThat(events, empty());
+    }
+
+    @Test
+    void loiteringOutsideOfPorts() {
+        for (int minutes = 0; minutes <= 150; minutes += 30) {
+            position(minutes, 10.0 + minutes / 100_000.0, 59.0, 40, 0);
+        }
+        position(180, 10.1, 59.0, 40, 0);
+
+        assertThat(events.stream().map(AisEvent::getType).toList(), contains(AisEventType.LOITERING_START, AisEventType.LOITERING_END));
+        assertThat(events.get(0).getTimestamp(), equalTo(START));
+        assertThat(events.get(1).getDurationSeconds(), equalTo(Duration.ofMinutes(180).toSeconds()));
+    }
+
+    @Test
+    void slowDriftDoesNotFlap() {
+        int[] speeds = {80, 4, 10, 4, 19, 6, 25, 10, 21};
+        for (int i = 0; i < speeds.length; i++) {
+            position(i * 10, 10.0 + i / 10.0, 59.0, speeds[i], 0);
+        }
+
+        assertThat(events.stream().map(AisEvent::getType).toList(), contains(AisEventType.STOPPED, AisEventType.UNDERWAY));
+    }
+
+    private void position(int minutes, double lon, double lat, int speed, int status) {
+        detector.accept(AisData.builder()
+            .mmsi("257961640")
+            .timestamp(START.plusMinutes(minutes))
+            .lon(String.format(Locale.ROOT, "%.6f", lon))
+            .lat(String.format(Locale.ROOT, "%.6f", lat))
+            .speed(Integer.toString(speed))
+            .status(Integer.toString(status))
+            .build(), events::add);
+    }
+
+    private static Geofence square(String id, boolean port, double minLon, double minLat, double maxLon, double maxLat) {
+        return Geofence.of(id, id, port, new double[] {minLon, maxLon, maxLon, minLon}, new double[] {minLat, minLat, maxLat, maxLat});
+    }
+}
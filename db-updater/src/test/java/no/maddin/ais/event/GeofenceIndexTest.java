@@ -0,0 +1,95 @@
+package no.maddin.ais.event;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+class GeofenceIndexTest {
+
+    @Test
+    void polygonsWithHolesAndPartsFromGeoJson(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("fences.geojson");
+        Files.writeString(file, """
+            {"type": "FeatureCollection", "features": [
+              {"type": "Feature", "id": "oslo", "properties": {"name": "Oslo", "type": "port"},
+               "geometry": {"type": "Polygon", "coordinates": [
+                 [[10.0, 59.0], [11.0, 59.0], [11.0, 60.0], [10.0, 60.0], [10.0, 59.0]],
+                 [[10.4, 59.4], [10.6, 59.4], [10.6, 59.6], [10.4, 59.6], [10.4, 59.4]]]}},
+              {"type": "Feature", "properties": {"id": "islands", "name": "Islands"},
+               "geometry": {"type": "MultiPolygon", "coordinates": [
+                 [[[5.0, 60.0], [5.5, 60.0], [5.5, 60.5], [5.0, 60.0]]],
+                 [[[10.9, 59.9], [12.0, 59.9], [12.0, 61.0], [10.9, 61.0], [10.9, 59.9]]]]}},
+              {"type": "Feature", "properties": {"name": "Lighthouse"}, "geometry": {"type": "Point", "coordinates": [10.5, 59.5]}}
+            ]}
+            """);
+
+        GeofenceIndex index = GeofenceIndex.read(file, 0.25, new ObjectMapper());
+
+        assertThat(index.size(), equalTo(2));
+        assertThat(index.get(0).getId(), equalTo("oslo"));
+        assertThat(index.get(0).isPort(), equalTo(true));
+        assertThat(index.get(1).getId(), equalTo("islands"));
+        assertThat(index.get(1).isPort(), equalTo(false));
+        assertThat(find(index, 10.2, 59.2), equalTo(List.of(0)));
+        assertThat(find(index, 10.5, 59.5), equalTo(List.of()));
+        assertThat(find(index, 10.95, 59.95), equalTo(List.of(0, 1)));
+        assertThat(find(index, 5.4, 60.1), equalTo(List.of(1)));
+        assertThat(find(index, 5.1, 60.4), equalTo(List.of()));
+        assertThat(find(index, -170, 10), equalTo(List.of()));
+        assertThat(find(index, Double.NaN, 10), equalTo(List.of()));
+    }
+
+    @Test
+    void sameResultAsTestingEveryFence() {
+        var random = new Random(3);
+        List<Geofence> fences = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            fences.add(randomFence(random, Integer.toString(i)));
+        }
+        GeofenceIndex index = GeofenceIndex.of(fences, 0.1);
+
+        for (int i = 0; i < 20_000; i++) {
+            double lon = random.nextDouble() * 20 - 5;
+            double lat = random.nextDouble() * 10 + 50;
+            List<Integer> expected = IntStream.range(0, fences.size()).filter(f -> fences.get(f).contains(lon, lat)).boxed().toList();
+            assertThat(find(index, lon, lat), equalTo(expected));
+        }
+    }
+
+    /**
+     * A star-shaped polygon of 12 points in the North Sea.
+     */
+    static Geofence randomFence(Random random, String id) {
+        double lon = random.nextDouble() * 20 - 5;
+        double lat = random.nextDouble() * 10 + 50;
+        double radius = 0.01 + random.nextDouble() * 0.3;
+        int points = 12;
+        double[] x = new double[points];
+        double[] y = new double[points];
+        for (int p = 0; p < points; p++) {
+            double angle = 2 * Math.PI * p / points;
+            double r = radius * (0.5 + random.nextDouble() / 2);
+            x[p] = lon + r * Math.cos(angle);
+            y[p] = lat + r * Math.sin(angle);
+        }
+        return Geofence.of(id, "fence " + id, random.nextInt(10) == 0, x, y);
+    }
+
+    private static List<Integer> find(GeofenceIndex index, double lon, double lat) {
+        int[] result = new int[index.maxCandidates()];
+        int count = index.find(lon, lat, result);
+        return Arrays.stream(result, 0, count).boxed().toList();
+    }
+}
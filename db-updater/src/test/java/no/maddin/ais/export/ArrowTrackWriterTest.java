@@ -0,0 +1,106 @@
+package no.maddin.ais.export;
+
+import no.maddin.ais.data.AisData;
+import no.maddin.ais.data.AisPosition;
+import org.apache.arrow.compression.CommonsCompressionFactory;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.compression.CompressionUtil;
+import org.apache.arrow.vector.ipc.ArrowFileReader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.nullValue;
+
+class ArrowTrackWriterTest {
+
+    private static final OffsetDateTime START = OffsetDateTime.of(2024, 5, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+
+    @Test
+    void typedColumnsWithNulls(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("257961640").resolve("2024-05-01.arrow");
+        try (BufferAllocator allocator = new RootAllocator()) {
+            try (var writer = new ArrowTrackWriter(allocator, file, 4, CompressionUtil.CodecType.ZSTD)) {
+                writer.write(AisPosition.of(AisData.builder().mmsi("257961640").imo("9234567").status("0").speed("123").course("45.5")
+                    .heading("44").lon("10.700001").lat("59.900002").shipId("4223").timestamp(START).build()));
+                writer.write(AisPosition.of(AisData.builder().mmsi("257961640").timestamp(START.plusMinutes(1)).build()));
+                assertThat(Files.exists(file), equalTo(false));
+                writer.commit();
+                assertThat(writer.records(), equalTo(2L));
+            }
+
+            List<List<Object>> rows = read(allocator, file);
+            assertThat(rows.get(0), equalTo(List.of(257961640, START.toInstant().toEpochMilli(), 10.700001, 59.900002, 12.3f, 45.5f, (short) 44, (byte) 0, 9234567, 4223)));
+            assertThat(rows.get(1).get(1), equalTo(START.plusMinutes(1).toInstant().toEpochMilli()));
+            assertThat(rows.get(1).get(2), nullValue());
+            assertThat(rows.get(1).get(4), nullValue());
+            assertThat(rows.get(1).get(7), equalTo((byte) AisPosition.STATUS_NOT_DEFINED));
+            assertThat(rows.get(1).get(8), nullValue());
+        }
+    }
+
+    @Test
+    void batchesReuseTheBuffers(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("2024-05-01.arrow");
+        int batchRows = 1024;
+        try (BufferAllocator allocator = new RootAllocator(1024L * ArrowTrackWriter.ROW_BYTES)) {
+            try (var writer = new ArrowTrackWriter(allocator, file, batchRows, CompressionUtil.CodecType.ZSTD)) {
+                for (int i = 0; i < 10 * batchRows + 7; i++) {
+                    writer.write(AisPosition.of(AisData.builder().mmsi("257961640").speed(Integer.toString(i % 200))
+                        .lon(Double.toString(10 + i / 100_000.0)).lat("59.9").timestamp(START.plusSeconds(i)).build()));
+                }
+                writer.commit();
+            }
+            assertThat(allocator.getAllocatedMemory(), equalTo(0L));
+        }
+        try (BufferAllocator allocator = new RootAllocator()) {
+            List<List<Object>> rows = read(allocator, file);
+            assertThat(rows.size(), equalTo(10 * batchRows + 7));
+            assertThat(rows.get(10 * batchRows + 6).get(1), equalTo(START.plusSeconds(10 * batchRows + 6).toInstant().toEpochMilli()));
+        }
+        // 47 bytes per row uncompressed
+        assertThat(Files.size(file), lessThan(47L * 10 * batchRows / 2));
+    }
+
+    @Test
+    void abortedFileIsRemoved(@TempDir Path dir) throws IOException {
+        try (BufferAllocator allocator = new RootAllocator();
+             var writer = new ArrowTrackWriter(allocator, dir.resolve("2024-05-01.arrow"), 16, CompressionUtil.CodecType.LZ4_FRAME)) {
+            writer.write(AisPosition.of(AisData.builder().mmsi("257961640").timestamp(START).build()));
+        }
+        try (var files = Files.list(dir)) {
+            assertThat(files.count(), equalTo(0L));
+        }
+    }
+
+    private static List<List<Object>> read(BufferAllocator allocator, Path file) throws IOException {
+        List<List<Object>> rows = new ArrayList<>();
+        try (var reader = new ArrowFileReader(FileChannel.open(file), allocator, CommonsCompressionFactory.INSTANCE)) {
+            VectorSchemaRoot root = reader.getVectorSchemaRoot();
+            assertThat(root.getSchema().getFields(), equalTo(ArrowTrackWriter.SCHEMA.getFields()));
+            while (reader.loadNextBatch()) {
+                for (int row = 0; row < root.getRowCount(); row++) {
+                    List<Object> values = new ArrayList<>();
+                    for (var vector : root.getFieldVectors()) {
+                        values.add(vector.isNull(row) ? null : vector.getObject(row));
+                    }
+                    rows.add(values);
+                }
+            }
+        }
+        return rows;
+    }
+}
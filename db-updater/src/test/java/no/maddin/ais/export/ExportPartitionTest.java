@@ -0,0 +1,30 @@
+package no.maddin.ais.export;
+
+import no.maddin.ais.config.AisExportConfig;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+class ExportPartitionTest {
+
+    @Test
+    void days() {
+        ExportPartition day = ExportPartition.of(AisExportConfig.Partition.DAY, Instant.parse("2024-02-29T23:59:59.999Z"));
+
+        assertThat(day, equalTo(new ExportPartition("2024-02-29", Instant.parse("2024-02-29T00:00:00Z"), Instant.parse("2024-03-01T00:00:00Z"))));
+        assertThat(ExportPartition.parse(AisExportConfig.Partition.DAY, "2024-02-29"), equalTo(day));
+        assertThat(day.contains(day.end()), equalTo(false));
+    }
+
+    @Test
+    void months() {
+        ExportPartition month = ExportPartition.of(AisExportConfig.Partition.MONTH, Instant.parse("2023-12-31T12:00:00Z"));
+
+        assertThat(month, equalTo(new ExportPartition("2023-12", Instant.parse("2023-12-01T00:00:00Z"), Instant.parse("2024-01-01T00:00:00Z"))));
+        assertThat(ExportPartition.parse(AisExportConfig.Partition.MONTH, "2023-12"), equalTo(month));
+        assertThat(month.contains(month.start()), equalTo(true));
+    }
+}
@@ -0,0 +1,60 @@
+package no.maddin.ais.metrics;
+
+import io.micrometer.core.instrument.MockClock;
+import io.micrometer.core.instrument.simple.SimpleConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import no.maddin.ais.data.AisData;
+import no.maddin.ais.reader.AivdmDecoder;
+import no.maddin.ais.reader.SyntheticNmea;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+class AisMetricsTest {
+
+    @Test
+    void lagIsTheAgeOfTheNewestStoredPosition() {
+        var clock = new MockClock();
+        var registry = new SimpleMeterRegistry(SimpleConfig.DEFAULT, clock);
+        var metrics = new AisMetrics(registry);
+        Instant now = Instant.ofEpochMilli(clock.wallTime());
+
+        metrics.ingested(List.of(position("1", now.minusSeconds(60)), position("1", now.minusSeconds(30)), position("2", now.minusSeconds(600))));
+        metrics.ingested(List.of(position("1", now.minusSeconds(90))));
+        clock.add(10, TimeUnit.SECONDS);
+
+        assertThat(registry.get("ais.ingestion.lag").tag("mmsi", "1").timeGauge().value(TimeUnit.SECONDS), equalTo(40.0));
+        assertThat(registry.get("ais.ingestion.lag").tag("mmsi", "2").timeGauge().value(TimeUnit.SECONDS), equalTo(610.0));
+    }
+
+    @Test
+    void decoderCountsBySentenceResult() {
+        var registry = new SimpleMeterRegistry();
+        var metrics = new AisMetrics(registry);
+        var decoder = new AivdmDecoder();
+        metrics.decoder("udp://0.0.0.0:10110", decoder);
+
+        decode(decoder, SyntheticNmea.sentence(1, 1, "", SyntheticNmea.positionA(257961640, 0, 55, 10.5, 59.9, 900, 90), 0));
+        decode(decoder, "!AIVDM,1,1,,A,garbage,0*00");
+
+        assertThat(registry.get("ais.nmea.sentences").tag("result", "position").functionCounter().count(), equalTo(1.0));
+        assertThat(registry.get("ais.nmea.sentences").tag("result", "checksum-error").functionCounter().count(), equalTo(1.0));
+    }
+
+    private static void decode(AivdmDecoder decoder, String sentence) {
+        byte[] line = sentence.getBytes(StandardCharsets.US_ASCII);
+        decoder.decode(line, 0, line.length, 0L);
+    }
+
+    private static AisData position(String mmsi, Instant timestamp) {
+        return AisData.builder().mmsi(mmsi).timestamp(OffsetDateTime.ofInstant(timestamp, ZoneOffset.UTC)).build();
+    }
+}
@@ -0,0 +1,84 @@
+package no.maddin.ais.quality;
+
+import no.maddin.ais.config.AisQualityConfig;
+import no.maddin.ais.data.AisData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time per position of the {@link PositionValidator}: 1000 vessels wandering through the North Sea, one in a hundred
+ * positions a jump across it. Every invocation starts with a new validator, so each position is checked against a vessel's state.
+ * <p>
+ * {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args="PositionValidatorBenchmark -prof gc"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PositionValidatorBenchmark {
+
+    private static final int VESSELS = 1000;
+
+    private static final int POSITIONS = 100_000;
+
+    private AisData[] positions;
+
+    private PositionValidator validator;
+
+    @Setup
+    public void setUp() {
+        var random = new Random(1);
+        double[] lon = new double[VESSELS];
+        double[] lat = new double[VESSELS];
+        for (int v = 0; v < VESSELS; v++) {
+            lon[v] = random.nextDouble() * 20 - 5;
+            lat[v] = random.nextDouble() * 10 + 50;
+        }
+        OffsetDateTime start = OffsetDateTime.of(2024, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+        positions = new AisData[POSITIONS];
+        for (int i = 0; i < POSITIONS; i++) {
+            int v = i % VESSELS;
+            lon[v] += (random.nextDouble() - 0.5) / 50;
+            lat[v] += (random.nextDouble() - 0.5) / 50;
+            boolean jump = random.nextInt(100) == 0;
+            positions[i] = AisData.builder()
+                .mmsi(Integer.toString(200_000_000 + v))
+                .lon(String.format(Locale.ROOT, "%.6f", jump ? lon[v] + 5 : lon[v]))
+                .lat(String.format(Locale.ROOT, "%.6f", lat[v]))
+                .timestamp(start.plusSeconds(i / VESSELS * 60L))
+                .build();
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void newValidator() {
+        validator = new PositionValidator(new AisQualityConfig());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POSITIONS)
+    public void check(Blackhole blackhole) {
+        for (AisData position : positions) {
+            blackhole.consume(validator.check(position));
+        }
+    }
+}
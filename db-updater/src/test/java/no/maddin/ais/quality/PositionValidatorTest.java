@@ -0,0 +1,78 @@
+package no.maddin.ais.quality;
+
+import no.maddin.ais.config.AisQualityConfig;
+import no.maddin.ais.data.AisData;
+import org.junit.jupiter.api.Test;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Locale;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+class PositionValidatorTest {
+
+    private static final OffsetDateTime START = OffsetDateTime.of(2024, 5, 1, 8, 0, 0, 0, ZoneOffset.UTC);
+
+    private final PositionValidator validator = new PositionValidator(new AisQualityConfig());
+
+    @Test
+    void rangeAndNullIsland() {
+        assertThat(check(0, "0.0", "51.5"), nullValue());
+        assertThat(check(1, "181", "91"), equalTo(QualityReason.OUT_OF_RANGE));
+        assertThat(check(2, null, "51.5"), equalTo(QualityReason.OUT_OF_RANGE));
+        assertThat(check(3, "east", "51.5"), equalTo(QualityReason.OUT_OF_RANGE));
+        assertThat(check(4, "0.0", "0.0"), equalTo(QualityReason.NULL_ISLAND));
+        assertThat(check(5, "0.001", "51.5"), nullValue());
+    }
+
+    @Test
+    void duplicatesAndOutOfOrder() {
+        assertThat(check(10, "10.5", "59.5"), nullValue());
+        assertThat(check(10, "10.5", "59.5"), equalTo(QualityReason.DUPLICATE));
+        assertThat(check(5, "10.5", "59.5"), equalTo(QualityReason.OUT_OF_ORDER));
+        assertThat(check(11, "10.5", "59.5"), nullValue());
+        assertThat(validator.check(AisData.builder().mmsi("257961640").build()), nullValue());
+    }
+
+    @Test
+    void speedOutliers() {
+        // 20 knots for 10 minutes is 6.2 km, about 0.11 degrees of lon at 59.5 N
+        assertThat(check(0, "10.0", "59.5"), nullValue());
+        assertThat(check(10, lon(10.11), "59.5"), nullValue());
+        assertThat(check(20, lon(12.0), "59.5"), equalTo(QualityReason.SPEED_OUTLIER));
+        assertThat(check(30, lon(10.22), "59.5"), nullValue());
+        // GPS jitter within the tolerance, even a second apart
+        assertThat(check(30.02, lon(10.225), "59.5"), nullValue());
+    }
+
+    @Test
+    void recoverFromWrongFirstPosition() {
+        assertThat(check(0, "5.0", "55.0"), nullValue());
+        assertThat(check(10, "10.0", "59.5"), equalTo(QualityReason.SPEED_OUTLIER));
+        assertThat(check(20, lon(10.11), "59.5"), nullValue());
+        assertThat(check(30, lon(10.22), "59.5"), nullValue());
+        assertThat(check(40, "5.0", "55.0"), equalTo(QualityReason.SPEED_OUTLIER));
+    }
+
+    @Test
+    void acrossTheAntimeridian() {
+        assertThat(check(0, "179.95", "0.5"), nullValue());
+        assertThat(check(10, "-179.95", "0.5"), nullValue());
+    }
+
+    private QualityReason check(double minutes, String lon, String lat) {
+        return validator.check(AisData.builder()
+            .mmsi("257961640")
+            .timestamp(START.plusSeconds(Math.round(minutes * 60)))
+            .lon(lon)
+            .lat(lat)
+            .build());
+    }
+
+    private static String lon(double lon) {
+        return String.format(Locale.ROOT, "%.6f", lon);
+    }
+}
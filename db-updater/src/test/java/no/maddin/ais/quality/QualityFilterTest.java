@@ -0,0 +1,45 @@
+package no.maddin.ais.quality;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import no.maddin.ais.config.AisQualityConfig;
+import no.maddin.ais.data.AisData;
+import no.maddin.ais.metrics.AisMetrics;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.EnumSet;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+class QualityFilterTest {
+
+    private static final OffsetDateTime START = OffsetDateTime.of(2024, 5, 1, 8, 0, 0, 0, ZoneOffset.UTC);
+
+    @Test
+    void rejectOrFlagAndCountPerReason() {
+        var registry = new SimpleMeterRegistry();
+        var config = new AisQualityConfig();
+        config.setReject(EnumSet.of(QualityReason.NULL_ISLAND, QualityReason.DUPLICATE));
+        var filter = new QualityFilter(config, new AisMetrics(registry));
+
+        AisData first = position(0, "10.5", "59.5");
+        AisData jump = position(60, "20.5", "59.5");
+        AisData next = position(120, "10.51", "59.5");
+        StepVerifier.create(filter.filter(Flux.just(first, position(0, "10.5", "59.5"), position(30, "0.0", "0.0"), jump, next)))
+            .expectNext(first, jump, next)
+            .verifyComplete();
+
+        assertThat(registry.get("ais.quality.failed").tag("reason", "DUPLICATE").tag("result", "rejected").counter().count(), equalTo(1.0));
+        assertThat(registry.get("ais.quality.failed").tag("reason", "NULL_ISLAND").tag("result", "rejected").counter().count(), equalTo(1.0));
+        assertThat(registry.get("ais.quality.failed").tag("reason", "SPEED_OUTLIER").tag("result", "flagged").counter().count(), equalTo(1.0));
+        assertThat(registry.get("ais.quality.failed").tag("reason", "OUT_OF_ORDER").tag("result", "flagged").counter().count(), equalTo(0.0));
+    }
+
+    private static AisData position(int seconds, String lon, String lat) {
+        return AisData.builder().mmsi("257961640").timestamp(START.plusSeconds(seconds)).lon(lon).lat(lat).build();
+    }
+}
@@ -0,0 +1,67 @@
+package no.maddin.ais.reader;
+
+import no.maddin.ais.config.AisReaderConfig;
+import no.maddin.ais.data.IngestResult;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.mockito.Mockito.when;
+
+class AisPollingDaemonTest {
+
+    @Test
+    void stopFinishesRunningCycle() throws InterruptedException {
+        AisReaderConfig config = new AisReaderConfig();
+        config.setPollInterval(Duration.ofMinutes(1));
+        AtomicInteger cycles = new AtomicInteger();
+        AtomicBoolean completed = new AtomicBoolean();
+        AisReaderService service = Mockito.mock(AisReaderService.class);
+        when(service.readFleet()).thenAnswer(inv -> Flux.just(IngestResult.empty("123456789"))
+            .doOnSubscribe(s -> cycles.incrementAndGet())
+            .delayElements(Duration.ofMillis(300))
+            .doOnComplete(() -> completed.set(true)));
+
+        var daemon = new AisPollingDaemon(service, config);
+        daemon.start();
+        Thread.sleep(100);
+        assertThat(daemon.isRunning(), equalTo(true));
+
+        daemon.stop();
+
+        assertThat(daemon.isRunning(), equalTo(false));
+        assertThat(cycles.get(), equalTo(1));
+        assertThat(completed.get(), equalTo(true));
+    }
+
+    @Test
+    void overrunningCycleDropsTicks() {
+        AisReaderConfig config = new AisReaderConfig();
+        config.setPollInterval(Duration.ofMinutes(1));
+        AtomicInteger cycles = new AtomicInteger();
+        AisReaderService service = Mockito.mock(AisReaderService.class);
+        when(service.readFleet()).thenAnswer(inv -> Flux.just(IngestResult.empty("123456789"))
+            .doOnSubscribe(s -> cycles.incrementAndGet())
+            .delayElements(Duration.ofSeconds(150)));
+
+        // the first cycle ends after 150 s, the ticks at 60 and 120 s are dropped and the next cycle starts at 180 s
+        StepVerifier.withVirtualTime(() -> new AisPollingDaemon(service, config).cycles())
+            .expectSubscription()
+            .thenAwait(Duration.ofSeconds(150))
+            .expectNext(1L)
+            .thenAwait(Duration.ofSeconds(29))
+            .then(() -> assertThat(cycles.get(), equalTo(1)))
+            .thenAwait(Duration.ofSeconds(151))
+            .expectNext(1L)
+            .then(() -> assertThat(cycles.get(), equalTo(2)))
+            .thenCancel()
+            .verify();
+    }
+}
@@ -0,0 +1,114 @@
+package no.maddin.ais.reader;
+
+import no.maddin.ais.config.AisReaderConfig;
+import no.maddin.ais.data.AisData;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.http.HttpStatus;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.function.Predicate;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+
+class AisReaderRegistryTest {
+
+    private static final OffsetDateTime T0 = OffsetDateTime.of(2024, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+
+    private static final LocalDateTime START = T0.toLocalDateTime();
+
+    @Test
+    void mergeInTimestampOrder() {
+        var registry = registry(List.of("a", "b"),
+            reader("a", Flux.just(data(0, "60.0"), data(60, "60.1"), data(180, "60.3"))),
+            reader("b", Flux.just(data(30, "60.05"), data(120, "60.2"))));
+
+        StepVerifier.create(registry.readAis("123456789", START, START.plusDays(1)))
+            .expectNextMatches(at(0))
+            .expectNextMatches(at(30))
+            .expectNextMatches(at(60))
+            .expectNextMatches(at(120))
+            .expectNextMatches(at(180))
+            .verifyComplete();
+    }
+
+    @Test
+    void higherPriorityWinsConflicts() {
+        var b = data(60, "60.2");
+        var a = data(60, "60.1");
+        var bNear = data(120, "60.3");
+        var aNear = data(121, "60.3");
+        // b is registered first but a has the higher priority
+        var registry = registry(List.of("a", "b"),
+            reader("b", Flux.just(b, bNear)),
+            reader("a", Flux.just(a, aNear)));
+
+        StepVerifier.create(registry.readAis("123456789", START, START.plusDays(1)))
+            .expectNext(a, aNear)
+            .verifyComplete();
+    }
+
+    @Test
+    void failingProviderIsSkipped() {
+        var registry = registry(List.of("a", "b"),
+            reader("a", Flux.error(new MarineTrafficException(HttpStatus.TOO_MANY_REQUESTS, "42", "throttled"))),
+            reader("b", Flux.just(data(0, "60.0"))));
+
+        StepVerifier.create(registry.readAis("123456789", START, START.plusDays(1)))
+            .expectNextCount(1)
+            .verifyComplete();
+    }
+
+    @Test
+    void failWhenAllProvidersFail() {
+        var registry = registry(List.of("a", "b"),
+            reader("a", Flux.error(new IllegalStateException("a"))),
+            reader("b", Flux.error(new IllegalStateException("b"))));
+
+        StepVerifier.create(registry.readAis("123456789", START, START.plusDays(1)))
+            .verifyError(IllegalStateException.class);
+    }
+
+    @Test
+    void activateListedProviders() {
+        new ApplicationContextRunner()
+            .withPropertyValues("ais.reader.providers=vesselfinder")
+            .withUserConfiguration(AisReaderConfig.class, VesselfinderAisReader.class, AisReaderRegistry.class)
+            .run(context -> assertThat(context.getBean(AisReaderRegistry.class).readers(), contains(context.getBean(VesselfinderAisReader.class))));
+    }
+
+    private static AisReaderRegistry registry(List<String> providers, AisReader... readers) {
+        var config = new AisReaderConfig();
+        config.setProviders(providers);
+        return new AisReaderRegistry(List.of(readers), config);
+    }
+
+    private static AisReader reader(String name, Flux<AisData> data) {
+        return new AisReader() {
+            @Override
+            public Publisher<AisData> readAis(String mmsi, LocalDateTime startDate, LocalDateTime endDate) {
+                return data;
+            }
+
+            @Override
+            public String provider() {
+                return name;
+            }
+        };
+    }
+
+    private static Predicate<AisData> at(int seconds) {
+        return data -> data.getTimestamp().equals(T0.plusSeconds(seconds));
+    }
+
+    private static AisData data(int seconds, String lat) {
+        return new AisData(null, "123456789", "0", "0", "10", "10.0", lat, "90", "90", T0.plusSeconds(seconds), "1");
+    }
+}
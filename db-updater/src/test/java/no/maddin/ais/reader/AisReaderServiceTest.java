@@ -0,0 +1,109 @@
+package no.maddin.ais.reader;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import no.maddin.ais.config.AisEventsConfig;
+import no.maddin.ais.config.AisQualityConfig;
+import no.maddin.ais.config.AisReaderConfig;
+import no.maddin.ais.config.AisSpoolConfig;
+import no.maddin.ais.config.AisStorageConfig;
+import no.maddin.ais.config.AisWriterConfig;
+import no.maddin.ais.data.AisData;
+import no.maddin.ais.event.AisEventEngine;
+import no.maddin.ais.metrics.AisMetrics;
+import no.maddin.ais.quality.QualityFilter;
+import no.maddin.ais.repository.AisDataBulkWriter;
+import no.maddin.ais.repository.AisEventWriter;
+import no.maddin.ais.repository.ResumePointStore;
+import no.maddin.ais.spool.Spool;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+class AisReaderServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void trackedVesselsFromListAndFile() throws IOException {
+        Path mmsiFile = tempDir.resolve("vessels.txt");
+        Files.write(mmsiFile, List.of("# fleet", "222222222", "", " 333333333 ", "111111111"));
+
+        AisReaderConfig config = new AisReaderConfig();
+        config.setMmsi("111111111");
+        config.setMmsis(List.of("222222222"));
+        config.setMmsiFile(mmsiFile);
+
+        var service = new AisReaderService(Mockito.mock(AisReader.class), Mockito.mock(ResumePointStore.class), Mockito.mock(AisDataBulkWriter.class), config, new AisStorageConfig(), events(), noSpool(), noQualityFilter());
+
+        StepVerifier.create(service.trackedVessels())
+            .expectNext("111111111", "222222222", "333333333")
+            .verifyComplete();
+    }
+
+    @Test
+    void failingVesselDoesNotStopFleet() throws IOException {
+        AisReaderConfig config = new AisReaderConfig();
+        config.setMmsis(List.of("111111111", "222222222"));
+        config.setStartDate(LocalDate.of(2024, 1, 1));
+
+        AisReader reader = Mockito.mock(AisReader.class);
+        var timestamp = OffsetDateTime.of(2024, 1, 2, 0, 0, 0, 0, ZoneOffset.UTC);
+        when(reader.readAis(eq("111111111"), any(), any())).thenReturn(Flux.just(AisData.builder().mmsi("111111111").timestamp(timestamp).build()));
+        when(reader.readAis(eq("222222222"), any(), any())).thenReturn(Flux.error(new RuntimeException("INSUFFICIENT CREDITS.")));
+
+        ResumePointStore resumePointStore = Mockito.mock(ResumePointStore.class);
+        when(resumePointStore.lastIngested(anyString())).thenReturn(Mono.empty());
+        AisDataBulkWriter writer = Mockito.mock(AisDataBulkWriter.class);
+        when(writer.write(any())).thenAnswer(inv -> Flux.from(inv.getArgument(0)));
+
+        var service = new AisReaderService(reader, resumePointStore, writer, config, new AisStorageConfig(), events(), noSpool(), noQualityFilter());
+
+        StepVerifier.create(service.readFleet().collectList())
+            .assertNext(results -> {
+                var ok = results.stream().filter(r -> r.mmsi().equals("111111111")).findFirst().orElseThrow();
+                var failed = results.stream().filter(r -> r.mmsi().equals("222222222")).findFirst().orElseThrow();
+                assertThat(ok.records(), equalTo(1L));
+                assertThat(ok.lastTimestamp(), equalTo(timestamp));
+                assertThat(failed.isSuccess(), equalTo(false));
+                assertThat(failed.error(), instanceOf(RuntimeException.class));
+            })
+            .verifyComplete();
+    }
+
+    private static AisEventEngine events() throws IOException {
+        var config = new AisEventsConfig();
+        config.setEnabled(false);
+        return new AisEventEngine(config, Mockito.mock(AisEventWriter.class), new AisMetrics(new SimpleMeterRegistry()), new ObjectMapper());
+    }
+
+    private static Spool noSpool() throws IOException {
+        return new Spool(new AisSpoolConfig(), new AisWriterConfig(), new AisMetrics(new SimpleMeterRegistry()));
+    }
+
+    private static QualityFilter noQualityFilter() {
+        var config = new AisQualityConfig();
+        config.setEnabled(false);
+        return new QualityFilter(config, new AisMetrics(new SimpleMeterRegistry()));
+    }
+}
@@ -0,0 +1,152 @@
+package no.maddin.ais.reader;
+
+import no.maddin.ais.data.AisPosition;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-threaded AIVDM decoding of a receiver log, by default 1M synthetic sentences of 5000 vessels.
+ * Set {@code -p log=/path/to/recorded.nmea} to decode a recorded log instead.
+ * The {@code sentences} counter is the number of lines decoded per second; the primary score counts whole logs.
+ * <p>
+ * {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args="AivdmDecoderBenchmark -prof gc"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AivdmDecoderBenchmark {
+
+    private static final int SENTENCES = 1_000_000;
+
+    @Param("")
+    public String log;
+
+    private Path file;
+
+    private byte[] content;
+
+    private int[] lineStarts;
+
+    private int lineCount;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Counters {
+
+        public long sentences;
+
+        public long positions;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            sentences = 0;
+            positions = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        if (log.isEmpty()) {
+            file = Files.createTempFile("aivdm", ".nmea");
+            Files.write(file, SyntheticNmea.log(SENTENCES, 5000));
+        } else {
+            file = Path.of(log);
+        }
+        content = Files.readAllBytes(file);
+        lineStarts = new int[1024];
+        for (int i = 0; i < content.length; i++) {
+            if (i == 0 || content[i - 1] == '\n') {
+                if (lineCount + 1 >= lineStarts.length) {
+                    lineStarts = Arrays.copyOf(lineStarts, lineStarts.length * 2);
+                }
+                lineStarts[lineCount++] = i;
+            }
+        }
+        lineStarts[lineCount] = content.length;
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        if (log.isEmpty()) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Decoding only, the log is in memory and split into lines.
+     */
+    @Benchmark
+    public void decode(Counters counters, Blackhole blackhole) {
+        var decoder = new AivdmDecoder();
+        for (int i = 0; i < lineCount; i++) {
+            AisPosition position = decoder.decode(content, lineStarts[i], lineStarts[i + 1] - lineStarts[i], 0);
+            if (position != null) {
+                blackhole.consume(position);
+                counters.positions++;
+            }
+        }
+        counters.sentences += lineCount;
+    }
+
+    /**
+     * Reading the memory-mapped log line by line and decoding, as {@link NmeaAisReader} does.
+     */
+    @Benchmark
+    public void mappedFile(Counters counters, Blackhole blackhole) throws IOException {
+        var decoder = new AivdmDecoder();
+        byte[] line = new byte[1024];
+        try (var lines = new MappedLines(file)) {
+            int length;
+            while ((length = lines.next(line)) >= 0) {
+                counters.sentences++;
+                AisPosition position = decoder.decode(line, 0, length, 0);
+                if (position != null) {
+                    blackhole.consume(position);
+                    counters.positions++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Vessel lookup in a log, all other vessels are filtered before a result is built.
+     */
+    @Benchmark
+    public void mappedFileOneVessel(Counters counters, Blackhole blackhole) throws IOException {
+        var decoder = new AivdmDecoder(mmsi -> mmsi == 257_000_042);
+        byte[] line = new byte[1024];
+        try (var lines = new MappedLines(file)) {
+            int length;
+            while ((length = lines.next(line)) >= 0) {
+                counters.sentences++;
+                AisPosition position = decoder.decode(line, 0, length, 0);
+                if (position != null) {
+                    blackhole.consume(position);
+                    counters.positions++;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package no.maddin.ais.reader;
+
+import no.maddin.ais.data.AisPosition;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+class AivdmDecoderTest {
+
+    private static final long RECEIVED = 1_700_000_000_000L;
+
+    private final AivdmDecoder decoder = new AivdmDecoder();
+
+    @Test
+    void classAPosition() {
+        AisPosition position = decode("!AIVDM,1,1,,A,15RTgt0PAso;90TKcjM8h6g208CQ,0*4A");
+
+        assertThat(position.getMmsi(), equalTo(371798000));
+        assertThat(position.getStatus(), equalTo(0));
+        assertThat(position.getSpeed(), equalTo(123));
+        assertThat(position.getLon(), closeTo(-123.395383, 1e-6));
+        assertThat(position.getLat(), closeTo(48.381633, 1e-6));
+        assertThat(position.getCourse(), equalTo(2240));
+        assertThat(position.getHeading(), equalTo(215));
+        assertThat(position.getTimestamp(), equalTo(RECEIVED));
+    }
+
+    @Test
+    void notAvailableHeading() {
+        AisPosition position = decode("!AIVDM,1,1,,B,177KQJ5000G?tO`K>RA1wUbN0TKH,0*5C");
+
+        assertThat(position.getMmsi(), equalTo(477553000));
+        assertThat(position.getStatus(), equalTo(5));
+        assertThat(position.getCourse(), equalTo(510));
+        assertThat(position.getHeading(), equalTo(181));
+    }
+
+    @Test
+    void multipartStaticReportAddsImo() {
+        assertThat(decode("!AIVDM,2,1,1,A,55?MbV02;H;s<HtKR20EHE:0@T4@Dn2222222216L961O5Gf0NSQEp6ClRp8,0*1C"), nullValue());
+        assertThat(decode("!AIVDM,2,2,1,A,88888888880,2*25"), nullValue());
+        assertThat(decoder.getStaticReports(), equalTo(1L));
+
+        AisPosition position = decode(SyntheticNmea.sentence(1, 1, "", payload(SyntheticNmea.positionA(351759000, 0, 100, 10.5, 59.5, 900, 90)), 0));
+
+        assertThat(position.getImo(), equalTo(9134270));
+    }
+
+    @Test
+    void fragmentOutOfOrderIsDropped() {
+        assertThat(decode("!AIVDM,2,2,1,A,88888888880,2*25"), nullValue());
+        assertThat(decoder.getDroppedFragments(), equalTo(1L));
+        assertThat(decoder.getStaticReports(), equalTo(0L));
+    }
+
+    @Test
+    void rejectWrongChecksum() {
+        assertThat(decode("!AIVDM,1,1,,A,15RTgt0PAso;90TKcjM8h6g208CQ,0*4B"), nullValue());
+        assertThat(decoder.getChecksumErrors(), equalTo(1L));
+    }
+
+    @Test
+    void timestampFromTagBlock() {
+        AisPosition position = decode("\\s:receiver,c:1609459200*00\\!AIVDM,1,1,,A,15RTgt0PAso;90TKcjM8h6g208CQ,0*4A");
+
+        assertThat(position.getTimestamp(), equalTo(1_609_459_200_000L));
+    }
+
+    @Test
+    void timestampAfterChecksum() {
+        AisPosition position = decode("!AIVDM,1,1,,A,15RTgt0PAso;90TKcjM8h6g208CQ,0*4A,1609459260\r\n");
+
+        assertThat(position.getTimestamp(), equalTo(1_609_459_260_000L));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {18, 19})
+    void classBPosition(int type) {
+        AisPosition position = decode(SyntheticNmea.sentence(1, 1, "", payload(SyntheticNmea.positionB(type, 257123450, 57, -5.25, 60.125, 3600, 511)), fill(SyntheticNmea.positionB(type, 257123450, 57, -5.25, 60.125, 3600, 511))));
+
+        assertThat(position, notNullValue());
+        assertThat(position.getMmsi(), equalTo(257123450));
+        assertThat(position.getStatus(), equalTo(AisPosition.STATUS_NOT_DEFINED));
+        assertThat(position.getSpeed(), equalTo(57));
+        assertThat(position.getLon(), closeTo(-5.25, 1e-6));
+        assertThat(position.getLat(), closeTo(60.125, 1e-6));
+        assertThat(position.getCourse(), equalTo(AisPosition.COURSE_NOT_AVAILABLE));
+        assertThat(position.getHeading(), equalTo(AisPosition.HEADING_NOT_AVAILABLE));
+        assertThat(position.toAisData().getCourse(), nullValue());
+    }
+
+    @Test
+    void filterByMmsi() {
+        var filtering = new AivdmDecoder(mmsi -> mmsi == 477553000);
+        byte[] other = "!AIVDM,1,1,,A,15RTgt0PAso;90TKcjM8h6g208CQ,0*4A".getBytes(StandardCharsets.US_ASCII);
+        byte[] own = "!AIVDM,1,1,,B,177KQJ5000G?tO`K>RA1wUbN0TKH,0*5C".getBytes(StandardCharsets.US_ASCII);
+
+        assertThat(filtering.decode(other, 0, other.length, RECEIVED), nullValue());
+        assertThat(filtering.decode(own, 0, own.length, RECEIVED), notNullValue());
+        assertThat(filtering.getFiltered(), equalTo(1L));
+    }
+
+    @Test
+    void skipUnsupportedSentences() {
+        assertThat(decode("$GPGGA,123519,4807.038,N,01131.000,E,1,08,0.9,545.4,M,46.9,M,,*47"), nullValue());
+        assertThat(decode("garbage"), nullValue());
+    }
+
+    private AisPosition decode(String line) {
+        byte[] bytes = line.getBytes(StandardCharsets.US_ASCII);
+        return decoder.decode(bytes, 0, bytes.length, RECEIVED);
+    }
+
+    private static String payload(String armored) {
+        return armored.substring(0, armored.length() - 1);
+    }
+
+    private static int fill(String armored) {
+        return armored.charAt(armored.length() - 1) - '0';
+    }
+}
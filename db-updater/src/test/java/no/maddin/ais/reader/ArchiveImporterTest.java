@@ -0,0 +1,137 @@
+package no.maddin.ais.reader;
+
+import no.maddin.ais.config.AisImportConfig;
+import no.maddin.ais.data.AisData;
+import no.maddin.ais.repository.AisDataBulkWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.reactivestreams.Publisher;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.hasSize;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+class ArchiveImporterTest {
+
+    private static final String DMA_CSV = """
+        # Timestamp,Type of mobile,MMSI,Latitude,Longitude,Navigational status,ROT,SOG,COG,Heading,IMO,Callsign,Name
+        01/01/2024 00:00:01,Class A,219000001,55.676100,12.568300,Under way using engine,0.0,12.3,224.5,223,9134270,OXAB2,"NAME, WITH COMMA"
+        01/01/2024 00:00:02,Class A,219000002,55.676100,12.568300,Moored,,0.0,,511,Unknown,,
+        01/01/2024 00:00:03,Class B,219000001,91.000000,181.000000,Unknown value,,,,,,,
+        """;
+
+    private static final String MARINE_CADASTRE_CSV = """
+        MMSI,BaseDateTime,LAT,LON,SOG,COG,Heading,VesselName,IMO,CallSign,VesselType,Status
+        367000001,2023-01-01T00:00:09,29.93,-89.99,0.1,360.0,511,TUG,IMO9134270,WDA1,31,5
+        """;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void chunksEndAtLineBreaks() throws IOException {
+        Path file = tempDir.resolve("log.nmea");
+        byte[] log = SyntheticNmea.log(1000, 10);
+        Files.write(file, log);
+
+        List<ArchiveImporter.Chunk> chunks = ArchiveImporter.chunks(file, 1000);
+
+        assertThat(chunks.get(0).start(), equalTo(0L));
+        assertThat(chunks.get(chunks.size() - 1).end(), equalTo((long) log.length));
+        for (int i = 1; i < chunks.size(); i++) {
+            assertThat(chunks.get(i).start(), equalTo(chunks.get(i - 1).end()));
+            assertThat(log[(int) chunks.get(i).start() - 1], equalTo((byte) '\n'));
+        }
+    }
+
+    @Test
+    void danishMaritimeAuthorityCsv() throws IOException {
+        List<AisData> written = importFile("aisdk.csv", DMA_CSV, 1 << 20, true);
+
+        assertThat(written, hasSize(3));
+        AisData first = written.get(0);
+        assertThat(first.getMmsi(), equalTo("219000001"));
+        assertThat(first.getTimestamp().toString(), equalTo("2024-01-01T00:00:01Z"));
+        assertThat(first.getStatus(), equalTo("0"));
+        assertThat(first.getSpeed(), equalTo("123"));
+        assertThat(first.getCourse(), equalTo("224.5"));
+        assertThat(first.getHeading(), equalTo("223"));
+        assertThat(first.getImo(), equalTo("9134270"));
+        assertThat(written.get(1).getStatus(), equalTo("5"));
+        assertThat(written.get(1).getHeading(), equalTo(null));
+        assertThat(written.get(2).getLat(), equalTo(null));
+    }
+
+    @Test
+    void marineCadastreCsv() throws IOException {
+        List<AisData> written = importFile("AIS_2023_01_01.csv", MARINE_CADASTRE_CSV, 1 << 20, true);
+
+        assertThat(written, hasSize(1));
+        assertThat(written.get(0).getTimestamp().toString(), equalTo("2023-01-01T00:00:09Z"));
+        assertThat(written.get(0).getImo(), equalTo("9134270"));
+        assertThat(written.get(0).getCourse(), equalTo(null));
+        assertThat(written.get(0).getStatus(), equalTo("5"));
+    }
+
+    @Test
+    void onlyTrackedVesselsInParallelChunks() throws IOException {
+        String log = new String(SyntheticNmea.log(20_000, 50), StandardCharsets.US_ASCII);
+
+        List<AisData> written = importFile("log.nmea", log, 16 * 1024, false);
+
+        assertThat(written.isEmpty(), equalTo(false));
+        assertThat(written.stream().map(AisData::getMmsi).toList(), everyItem(equalTo("257000007")));
+    }
+
+    @Test
+    void resumeFromCheckpoint() throws IOException {
+        String log = new String(SyntheticNmea.log(5_000, 5), StandardCharsets.US_ASCII);
+        int all = importFile("log.nmea", log, 16 * 1024, true).size();
+
+        assertThat(importFile("log.nmea", log, 16 * 1024, true), hasSize(0));
+
+        Path checkpoint = tempDir.resolve("ais-import.checkpoint");
+        List<String> completed = Files.readAllLines(checkpoint);
+        Files.write(checkpoint, completed.subList(0, completed.size() - 1));
+        int lastChunk = importFile("log.nmea", log, 16 * 1024, true).size();
+        assertThat(lastChunk > 0 && lastChunk < all, equalTo(true));
+    }
+
+    private List<AisData> importFile(String name, String content, int chunkSize, boolean allVessels) throws IOException {
+        Path file = tempDir.resolve(name);
+        if (!Files.exists(file)) {
+            Files.writeString(file, content, StandardCharsets.UTF_8);
+        }
+        var config = new AisImportConfig();
+        config.setFiles(List.of(file));
+        config.setChunkSize(DataSize.ofBytes(chunkSize));
+        config.setCheckpointFile(tempDir.resolve("ais-import.checkpoint"));
+        config.setAllVessels(allVessels);
+        config.setParallelism(4);
+
+        AisReaderService readerService = Mockito.mock(AisReaderService.class);
+        when(readerService.trackedVessels()).thenReturn(Flux.just("257000007"));
+        AisDataBulkWriter writer = Mockito.mock(AisDataBulkWriter.class);
+        Queue<AisData> written = new ConcurrentLinkedQueue<>();
+        when(writer.write(any())).thenAnswer(invocation -> Flux.from(invocation.<Publisher<AisData>>getArgument(0)).doOnNext(written::add));
+
+        long count = new ArchiveImporter(config, readerService, writer).importArchives().block();
+
+        assertThat(count, equalTo((long) written.size()));
+        return List.copyOf(written);
+    }
+}
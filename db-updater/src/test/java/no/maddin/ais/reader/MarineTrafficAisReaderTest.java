@@ -0,0 +1,156 @@
+package no.maddin.ais.reader;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.tomakehurst.wiremock.junit5.WireMockExtension;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
+import com.github.tomakehurst.wiremock.stubbing.ServeEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import no.maddin.ais.config.MarineTrafficProperties;
+import no.maddin.ais.config.ProviderHttpClientConfig;
+import no.maddin.ais.config.ProviderPoolMetrics;
+import no.maddin.ais.data.AisData;
+import no.maddin.ais.data.DataInterval;
+import no.maddin.ais.metrics.AisMetrics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Set;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.lessThan;
+
+class MarineTrafficAisReaderTest {
+
+    private static final int ROWS_PER_WINDOW = 3;
+
+    @RegisterExtension
+    static final WireMockExtension wm = WireMockExtension.newInstance()
+        .options(wireMockConfig().dynamicPort())
+        .build();
+
+    private MarineTrafficAisReader reader;
+
+    private ProviderPoolMetrics poolMetrics;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        var properties = new MarineTrafficProperties();
+        properties.setApiKey("1234567890");
+        properties.setUrl("http://localhost:" + wm.getPort() + "/exportvesseltrack/{apikey}/mmsi:{mmsi}/fromdate:{fromdate}/todate:{todate}");
+        properties.setWindowConcurrency(3);
+        var objectMapper = new ObjectMapper();
+        poolMetrics = new ProviderPoolMetrics();
+        meterRegistry = new SimpleMeterRegistry();
+        poolMetrics.bindTo(meterRegistry);
+        var metrics = new AisMetrics(meterRegistry);
+        var webClient = ProviderHttpClientConfig.providerWebClient(WebClient.builder(), "marinetraffic", properties.getHttp(), poolMetrics);
+        properties.getRateLimit().setMinBackoff(Duration.ofMillis(10));
+        properties.getRateLimit().setRequestsPerMinute(6000);
+        properties.getRateLimit().setBurst(10);
+        reader = new MarineTrafficAisReader(properties, objectMapper, new MarineTrafficDecoder(objectMapper), webClient, new MarineTrafficRateLimiter(properties, metrics), metrics);
+    }
+
+    @Test
+    void everyWindowFetchesOnlyItsOwnRange() {
+        var startDate = LocalDateTime.of(2020, 1, 1, 0, 0);
+        var endDate = startDate.plusDays(3 * 190 + 10);
+        List<DataInterval> windows = MarineTrafficAisReader.intervals(startDate, endDate).collectList().block();
+
+        long expectedBytes = 0;
+        for (int i = 0; i < windows.size(); i++) {
+            DataInterval window = windows.get(i);
+            byte[] body = SyntheticTracks.track("123456789", window.fromDate().toInstant(ZoneOffset.UTC), ROWS_PER_WINDOW, true);
+            expectedBytes += body.length;
+            wm.stubFor(get(urlPathMatching("/exportvesseltrack/1234567890/mmsi:123456789/fromdate:" + date(window.fromDate()) + "[^/]*/todate:" + date(window.toDate()) + ".*"))
+                .willReturn(aResponse()
+                    .withBody(body)
+                    .withHeader("Content-Type", "application/json")
+                    // later windows answer first, the result must still be in order
+                    .withFixedDelay(100 * (windows.size() - i))
+                    .withStatus(200)));
+        }
+
+        List<AisData> result = Flux.from(reader.readAis("123456789", startDate, endDate)).collectList().block();
+
+        List<ServeEvent> requests = wm.getAllServeEvents();
+        assertThat(requests, hasSize(windows.size()));
+        assertThat(requests.stream().filter(e -> e.getResponse().getStatus() == 200).count(), equalTo((long) windows.size()));
+        assertThat(requests.stream().mapToLong(e -> e.getResponse().getBody().length).sum(), equalTo(expectedBytes));
+        assertThat(result, hasSize(windows.size() * ROWS_PER_WINDOW));
+        assertThat(poolMetrics.providers(), equalTo(Set.of("marinetraffic")));
+        assertThat(meterRegistry.get("ais.provider.received").tag("provider", "marinetraffic").counter().count(), equalTo((double) expectedBytes));
+        assertThat(meterRegistry.get("ais.records.decoded").counter().count(), equalTo((double) result.size()));
+        assertThat(meterRegistry.get("ais.provider.request.flow.duration").tag("status", "completed").timer().count(), equalTo((long) windows.size()));
+        assertThat(meterRegistry.get("ais.provider.pool.idle").tag("provider", "marinetraffic").gauge().value(), greaterThan(0.0));
+        for (int i = 1; i < result.size(); i++) {
+            OffsetDateTime previous = result.get(i - 1).getTimestamp();
+            assertThat(previous.compareTo(result.get(i).getTimestamp()), lessThan(0));
+        }
+    }
+
+    private static String date(LocalDateTime dateTime) {
+        return dateTime.format(DateTimeFormatter.ISO_LOCAL_DATE);
+    }
+
+    @Test
+    void retryServerErrors() {
+        var startDate = LocalDateTime.of(2020, 1, 1, 0, 0);
+        wm.stubFor(get(urlPathMatching("/exportvesseltrack/.*"))
+            .inScenario("unavailable").whenScenarioStateIs(Scenario.STARTED)
+            .willReturn(aResponse().withStatus(503))
+            .willSetStateTo("available"));
+        wm.stubFor(get(urlPathMatching("/exportvesseltrack/.*"))
+            .inScenario("unavailable").whenScenarioStateIs("available")
+            .willReturn(aResponse()
+                .withBody(SyntheticTracks.track("123456789", startDate.toInstant(ZoneOffset.UTC), ROWS_PER_WINDOW, true))
+                .withHeader("Content-Type", "application/json")
+                .withStatus(200)));
+
+        StepVerifier.create(reader.readAis("123456789", startDate, startDate.plusDays(1)))
+            .expectNextCount(ROWS_PER_WINDOW)
+            .verifyComplete();
+
+        assertThat(wm.getAllServeEvents(), hasSize(2));
+        assertThat(meterRegistry.get("ais.provider.retries").tag("code", "HTTP 503").counter().count(), equalTo(1.0));
+    }
+
+    @Test
+    void failFastOnInsufficientCredits() {
+        var startDate = LocalDateTime.of(2020, 1, 1, 0, 0);
+        wm.stubFor(get(urlPathMatching("/exportvesseltrack/.*"))
+            .willReturn(aResponse()
+                .withBodyFile("insufficient-credits.json")
+                .withHeader("Content-Type", "text/html; charset=UTF-8")
+                .withStatus(401)));
+
+        StepVerifier.create(reader.readAis("123456789", startDate, startDate.plusDays(1)))
+            .expectErrorSatisfies(e -> {
+                assertThat(e, instanceOf(MarineTrafficException.class));
+                assertThat(((MarineTrafficException) e).getCode(), equalTo("5a2"));
+            })
+            .verify();
+
+        assertThat(wm.getAllServeEvents(), hasSize(1));
+        assertThat(meterRegistry.get("ais.provider.errors").tag("code", "5a2").counter().count(), equalTo(1.0));
+    }
+}
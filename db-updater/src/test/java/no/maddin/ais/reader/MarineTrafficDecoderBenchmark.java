@@ -0,0 +1,89 @@
+package no.maddin.ais.reader;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import no.maddin.ais.data.AisData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import reactor.core.publisher.Flux;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link MarineTrafficDecoder} with the {@code bodyToFlux(AisData.class)} databinding it replaced.
+ * One operation is one record, so the score is records per second and, with {@code -prof gc},
+ * {@code gc.alloc.rate.norm} is the number of bytes allocated per record.
+ * <p>
+ * {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args="MarineTrafficDecoderBenchmark -prof gc"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MarineTrafficDecoderBenchmark {
+
+    private static final int ROWS = 1_000_000;
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private byte[] jsono;
+
+    private byte[] json;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private MarineTrafficDecoder streamingDecoder;
+
+    private Jackson2JsonDecoder databindingDecoder;
+
+    @Setup
+    public void setUp() {
+        jsono = SyntheticTracks.track(ROWS, true);
+        json = SyntheticTracks.track(ROWS, false);
+        streamingDecoder = new MarineTrafficDecoder(objectMapper);
+        databindingDecoder = new Jackson2JsonDecoder(objectMapper);
+        databindingDecoder.setMaxInMemorySize(-1);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long streamingJsono() {
+        return streamingDecoder.decode(chunks(jsono)).count().block();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long streamingJson() {
+        return streamingDecoder.decode(chunks(json)).count().block();
+    }
+
+    /**
+     * Only the jsono protocol can be bound to {@link AisData}.
+     */
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long databindingJsono() {
+        return databindingDecoder.decode(chunks(jsono), ResolvableType.forClass(AisData.class), null, null).count().block();
+    }
+
+    private static Flux<DataBuffer> chunks(byte[] body) {
+        return Flux.range(0, (body.length + CHUNK_SIZE - 1) / CHUNK_SIZE)
+            .map(i -> DefaultDataBufferFactory.sharedInstance.wrap(ByteBuffer.wrap(body, i * CHUNK_SIZE, Math.min(CHUNK_SIZE, body.length - i * CHUNK_SIZE)).slice()));
+    }
+}
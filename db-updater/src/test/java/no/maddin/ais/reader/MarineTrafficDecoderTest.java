@@ -0,0 +1,82 @@
+package no.maddin.ais.reader;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import no.maddin.ais.data.AisData;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.sameInstance;
+
+class MarineTrafficDecoderTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    private final MarineTrafficDecoder decoder = new MarineTrafficDecoder(objectMapper);
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 7, 64, 8192})
+    void decodeJsonoLikeDatabinding(int chunkSize) throws IOException {
+        byte[] body = resource("ais-data-simple-jsono.json");
+        List<AisData> expected = objectMapper.readValue(body, new TypeReference<>() {});
+
+        List<AisData> decoded = decoder.decode(chunks(body, chunkSize)).collectList().block();
+
+        assertThat(decoded, equalTo(expected));
+        assertThat(decoded.get(1).getMmsi(), sameInstance(decoded.get(0).getMmsi()));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 7, 64, 8192})
+    void decodeJson(int chunkSize) throws IOException {
+        byte[] body = resource("ais-data-simple-json.json");
+
+        StepVerifier.create(decoder.decode(chunks(body, chunkSize)))
+            .assertNext(aisData -> {
+                assertThat(aisData.getMmsi(), equalTo("123456789"));
+                assertThat(aisData.getImo(), equalTo("8348678"));
+                assertThat(aisData.getLon(), equalTo("23.726880"));
+                assertThat(aisData.getTimestamp(), equalTo(OffsetDateTime.parse("2021-02-08T12:57:01Z")));
+                assertThat(aisData.getShipId(), equalTo("4317723"));
+            })
+            .assertNext(aisData -> {
+                assertThat(aisData.getStatus(), equalTo("15"));
+                assertThat(aisData.getHeading(), equalTo("160"));
+            })
+            .verifyComplete();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"[", "[[\"1\"", "{\"errors\":[]}"})
+    void rejectIncompleteOrUnexpectedBody(String body) {
+        StepVerifier.create(decoder.decode(chunks(body.getBytes(StandardCharsets.UTF_8), 8192)))
+            .expectError(DecodingException.class)
+            .verify();
+    }
+
+    private byte[] resource(String file) throws IOException {
+        try (InputStream in = getClass().getResourceAsStream("/__files/" + file)) {
+            return in.readAllBytes();
+        }
+    }
+
+    static Flux<DataBuffer> chunks(byte[] body, int chunkSize) {
+        return Flux.range(0, (body.length + chunkSize - 1) / chunkSize)
+            .map(i -> DefaultDataBufferFactory.sharedInstance.wrap(Arrays.copyOfRange(body, i * chunkSize, Math.min(body.length, (i + 1) * chunkSize))));
+    }
+}
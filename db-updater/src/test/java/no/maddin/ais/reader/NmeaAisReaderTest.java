@@ -0,0 +1,138 @@
+package no.maddin.ais.reader;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import no.maddin.ais.config.AisReaderConfig;
+import no.maddin.ais.config.NmeaProperties;
+import no.maddin.ais.data.AisData;
+import no.maddin.ais.data.AisPosition;
+import no.maddin.ais.metrics.AisMetrics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+
+class NmeaAisReaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void readVesselFromLogFile() throws URISyntaxException {
+        var properties = new NmeaProperties();
+        properties.getSources().add(Objects.requireNonNull(getClass().getResource("/nmea/sample.nmea")).toURI());
+        var reader = new NmeaAisReader(properties, new AisMetrics(new SimpleMeterRegistry()), tracking("371798000"));
+
+        StepVerifier.create(Flux.from(reader.readAis("371798000", LocalDateTime.of(2021, 1, 1, 0, 0), LocalDateTime.of(2021, 1, 2, 0, 0))))
+            .expectNextMatches(data -> data.getTimestamp().toString().equals("2021-01-01T00:00Z") && data.getSpeed().equals("123") && data.getCourse().equals("224"))
+            .expectNextMatches(data -> data.getTimestamp().toString().equals("2021-01-01T00:01Z"))
+            .verifyComplete();
+    }
+
+    @Test
+    void linesAcrossSegments() throws IOException {
+        Path file = tempDir.resolve("receiver.nmea");
+        byte[] log = SyntheticNmea.log(1000, 10);
+        Files.write(file, log);
+        List<String> expected = new String(log, StandardCharsets.US_ASCII).lines().toList();
+
+        List<String> lines = new ArrayList<>();
+        byte[] line = new byte[1024];
+        try (var mapped = new MappedLines(file, 0, -1, 4096)) {
+            int length;
+            while ((length = mapped.next(line)) >= 0) {
+                lines.add(new String(line, 0, length, StandardCharsets.US_ASCII));
+            }
+        }
+
+        assertThat(lines, equalTo(expected));
+    }
+
+    @Test
+    void drainReceivedPositions() {
+        var properties = new NmeaProperties();
+        properties.setVesselBufferSize(2);
+        var reader = new NmeaAisReader(properties, new AisMetrics(new SimpleMeterRegistry()), tracking("371798000"));
+        reader.refreshTracked();
+        for (int second = 0; second < 3; second++) {
+            reader.receive(position(second));
+        }
+
+        List<AisData> drained = reader.drain("371798000", 0, 1609459201000L);
+
+        assertThat(drained.stream().map(data -> data.getTimestamp().toEpochSecond()).toList(), contains(1609459201L));
+        assertThat(reader.drain("371798000", 0, Long.MAX_VALUE).size(), equalTo(1));
+    }
+
+    @Test
+    void untrackedVesselsAreNotBuffered() {
+        var properties = new NmeaProperties();
+        var reader = new NmeaAisReader(properties, new AisMetrics(new SimpleMeterRegistry()), tracking("257961640"));
+        reader.refreshTracked();
+
+        reader.receive(position(0));
+
+        assertThat(reader.buffered(), equalTo(0));
+    }
+
+    @Test
+    void dropPositionsNotDrained() {
+        var reader = new NmeaAisReader(new NmeaProperties(), new AisMetrics(new SimpleMeterRegistry()), tracking("371798000"));
+        reader.refreshTracked();
+        reader.receive(position(0));
+
+        reader.evict(System.currentTimeMillis() - 60_000);
+        assertThat(reader.buffered(), equalTo(1));
+
+        reader.evict(System.currentTimeMillis() + 1);
+        assertThat(reader.buffered(), equalTo(0));
+    }
+
+    /**
+     * The file claims to be written before the positions in it, only a skipped file explains an empty result.
+     */
+    @Test
+    void skipLogFilesOlderThanStart() throws IOException {
+        Path file = tempDir.resolve("receiver.nmea");
+        Files.copy(Objects.requireNonNull(getClass().getResourceAsStream("/nmea/sample.nmea")), file);
+        Files.setLastModifiedTime(file, FileTime.from(Instant.parse("2020-12-31T00:00:00Z")));
+        var properties = new NmeaProperties();
+        properties.getSources().add(file.toUri());
+        var reader = new NmeaAisReader(properties, new AisMetrics(new SimpleMeterRegistry()), tracking("371798000"));
+
+        StepVerifier.create(Flux.from(reader.readAis("371798000", LocalDateTime.of(2020, 12, 30, 0, 0), LocalDateTime.of(2021, 1, 2, 0, 0))))
+            .expectNextCount(2)
+            .verifyComplete();
+        StepVerifier.create(Flux.from(reader.readAis("371798000", LocalDateTime.of(2020, 12, 31, 12, 0), LocalDateTime.of(2021, 1, 2, 0, 0))))
+            .verifyComplete();
+    }
+
+    private static AisReaderConfig tracking(String mmsi) {
+        var config = new AisReaderConfig();
+        config.setMmsi(mmsi);
+        return config;
+    }
+
+    /**
+     * A position of 371798000 at {@code second} after 2021-01-01T00:00:00Z.
+     */
+    private static AisPosition position(int second) {
+        byte[] line = ("\\c:" + (1609459200 + second) + "*00\\!AIVDM,1,1,,A,15RTgt0PAso;90TKcjM8h6g208CQ,0*4A").getBytes(StandardCharsets.US_ASCII);
+        return new AivdmDecoder().decode(line, 0, line.length, 0);
+    }
+}
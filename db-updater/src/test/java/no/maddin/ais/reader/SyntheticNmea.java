@@ -0,0 +1,128 @@
+package no.maddin.ais.reader;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Random;
+
+/**
+ * AIVDM receiver logs of any size for tests and benchmarks.
+ * The mix is roughly that of a coastal receiver: mostly class A positions, some class B, and two-part static reports.
+ */
+public final class SyntheticNmea {
+
+    private static final Instant START = Instant.parse("2021-01-01T00:00:00Z");
+
+    private SyntheticNmea() {
+    }
+
+    /**
+     * @param sentences number of lines, each prefixed with a tag block holding the receive time
+     */
+    public static byte[] log(int sentences, int vessels) {
+        var out = new StringBuilder(sentences * 72);
+        var random = new Random(sentences);
+        long seconds = START.getEpochSecond();
+        int sequence = 0;
+        int written = 0;
+        while (written < sentences) {
+            int mmsi = 257_000_000 + random.nextInt(vessels);
+            double lon = 10 + random.nextDouble();
+            double lat = 59 + random.nextDouble();
+            int kind = random.nextInt(100);
+            if (kind < 80) {
+                written += append(out, seconds, 0, positionA(mmsi, random.nextInt(9), random.nextInt(300), lon, lat, random.nextInt(3600), random.nextInt(360)));
+            } else if (kind < 95) {
+                written += append(out, seconds, 0, positionB(18, mmsi, random.nextInt(300), lon, lat, random.nextInt(3600), random.nextInt(360)));
+            } else if (written + 2 <= sentences) {
+                written += append(out, seconds, sequence++ % 10, staticReport(mmsi, 9_000_000 + mmsi % 1_000_000));
+            }
+            seconds += random.nextInt(2);
+        }
+        return out.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    public static String positionA(int mmsi, int status, int speed, double lon, double lat, int course, int heading) {
+        var bits = new Bits(168);
+        bits.put(1, 6).put(0, 2).put(mmsi, 30).put(status, 4).put(128, 8).put(speed, 10).put(0, 1)
+            .put(Math.round(lon * 600_000), 28).put(Math.round(lat * 600_000), 27).put(course, 12).put(heading, 9).put(0, 6).put(0, 25);
+        return bits.armor();
+    }
+
+    public static String positionB(int type, int mmsi, int speed, double lon, double lat, int course, int heading) {
+        var bits = new Bits(type == 18 ? 168 : 312);
+        bits.put(type, 6).put(0, 2).put(mmsi, 30).put(0, 8).put(speed, 10).put(0, 1)
+            .put(Math.round(lon * 600_000), 28).put(Math.round(lat * 600_000), 27).put(course, 12).put(heading, 9).put(0, 6);
+        return bits.armor();
+    }
+
+    public static String staticReport(int mmsi, int imo) {
+        var bits = new Bits(424);
+        bits.put(5, 6).put(0, 2).put(mmsi, 30).put(0, 2).put(imo, 30);
+        return bits.armor();
+    }
+
+    /**
+     * @return complete sentence with checksum, without line break
+     */
+    public static String sentence(int count, int number, String sequence, String payload, int fill) {
+        String body = "AIVDM," + count + "," + number + "," + sequence + ",A," + payload + "," + fill;
+        int checksum = 0;
+        for (int i = 0; i < body.length(); i++) {
+            checksum ^= body.charAt(i);
+        }
+        return "!" + body + "*" + String.format("%02X", checksum);
+    }
+
+    /**
+     * Splits payloads of more than 60 characters into several sentences, like receivers do.
+     *
+     * @return number of lines written
+     */
+    private static int append(StringBuilder out, long seconds, int sequence, String armored) {
+        int fill = armored.charAt(armored.length() - 1) - '0';
+        String payload = armored.substring(0, armored.length() - 1);
+        int parts = (payload.length() + 59) / 60;
+        for (int i = 0; i < parts; i++) {
+            String part = payload.substring(i * 60, Math.min(payload.length(), (i + 1) * 60));
+            out.append("\\c:").append(seconds).append("*00\\")
+                .append(sentence(parts, i + 1, parts == 1 ? "" : Integer.toString(sequence), part, i == parts - 1 ? fill : 0))
+                .append('\n');
+        }
+        return parts;
+    }
+
+    private static final class Bits {
+
+        private final boolean[] bits;
+
+        private int position;
+
+        Bits(int length) {
+            bits = new boolean[length];
+        }
+
+        Bits put(long value, int length) {
+            for (int i = length - 1; i >= 0; i--) {
+                bits[position++] = (value >> i & 1) == 1;
+            }
+            return this;
+        }
+
+        /**
+         * @return 6-bit armored payload followed by the number of fill bits
+         */
+        String armor() {
+            var out = new StringBuilder();
+            int chars = (bits.length + 5) / 6;
+            for (int c = 0; c < chars; c++) {
+                int value = 0;
+                for (int i = 0; i < 6; i++) {
+                    int index = c * 6 + i;
+                    value = value << 1 | (index < bits.length && bits[index] ? 1 : 0);
+                }
+                out.append((char) (value < 40 ? value + 48 : value + 56));
+            }
+            return out.append(chars * 6 - bits.length).toString();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package no.maddin.ais.reader;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * MarineTraffic track exports of any size for tests and benchmarks.
+ */
+public final class SyntheticTracks {
+
+    private static final String[] FIELD_NAMES = {"MMSI", "IMO", "STATUS", "SPEED", "LON", "LAT", "COURSE", "HEADING", "TIMESTAMP", "SHIP_ID"};
+
+    private static final Instant START = Instant.parse("2021-01-01T00:00:00Z");
+
+    private SyntheticTracks() {
+    }
+
+    /**
+     * @param objects {@code true} for the jsono protocol, {@code false} for the json protocol
+     */
+    public static byte[] track(String mmsi, Instant start, int rows, boolean objects) {
+        var out = new StringBuilder(rows * 220);
+        var random = new Random(rows);
+        double lon = 10.0;
+        double lat = 59.0;
+        out.append('[');
+        for (int i = 0; i < rows; i++) {
+            lon += (random.nextDouble() - 0.5) / 100;
+            lat += (random.nextDouble() - 0.5) / 100;
+            String[] values = {
+                mmsi, "9351098", Integer.toString(random.nextInt(16)), Integer.toString(random.nextInt(200)),
+                String.format(Locale.ROOT, "%.6f", lon), String.format(Locale.ROOT, "%.6f", lat),
+                Integer.toString(random.nextInt(360)), Integer.toString(random.nextInt(360)),
+                DateTimeFormatter.ISO_INSTANT.format(start.plus(i * 10L, ChronoUnit.SECONDS).truncatedTo(ChronoUnit.MILLIS)),
+                "4317723"
+            };
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append(objects ? '{' : '[');
+            for (int f = 0; f < values.length; f++) {
+                if (f > 0) {
+                    out.append(',');
+                }
+                if (objects) {
+                    out.append('"').append(FIELD_NAMES[f]).append("\":");
+                }
+                out.append('"').append(values[f]).append('"');
+            }
+            out.append(objects ? '}' : ']');
+        }
+        out.append(']');
+        return out.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    public static byte[] track(int rows, boolean objects) {
+        return track("123456789", START, rows, objects);
+    }
+}
@@ -0,0 +1,48 @@
+package no.maddin.ais.reader;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+class TokenBucketTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private final TokenBucket tokenBucket = new TokenBucket(2, Duration.ofSeconds(1), clock::get);
+
+    @Test
+    void burstThenOneTokenPerPeriod() {
+        assertThat(tokenBucket.reserve(), equalTo(Duration.ZERO));
+        assertThat(tokenBucket.reserve(), equalTo(Duration.ZERO));
+        assertThat(tokenBucket.reserve(), equalTo(Duration.ofSeconds(1)));
+        assertThat(tokenBucket.reserve(), equalTo(Duration.ofSeconds(2)));
+
+        clock.addAndGet(Duration.ofMillis(2500).toNanos());
+
+        assertThat(tokenBucket.reserve(), equalTo(Duration.ofMillis(500)));
+    }
+
+    @Test
+    void refillsNoMoreThanCapacity() {
+        clock.addAndGet(Duration.ofMinutes(1).toNanos());
+
+        assertThat(tokenBucket.reserve(), equalTo(Duration.ZERO));
+        assertThat(tokenBucket.reserve(), equalTo(Duration.ZERO));
+        assertThat(tokenBucket.reserve(), equalTo(Duration.ofSeconds(1)));
+    }
+
+    @Test
+    void pauseHoldsBackAllTokens() {
+        tokenBucket.pause(Duration.ofSeconds(30));
+
+        assertThat(tokenBucket.reserve(), equalTo(Duration.ofSeconds(30)));
+
+        clock.addAndGet(Duration.ofSeconds(30).toNanos());
+
+        assertThat(tokenBucket.reserve(), equalTo(Duration.ZERO));
+    }
+}
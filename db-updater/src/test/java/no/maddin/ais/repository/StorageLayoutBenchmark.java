@@ -0,0 +1,161 @@
+package no.maddin.ais.repository;
+
+import com.mongodb.client.model.CreateCollectionOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.TimeSeriesGranularity;
+import com.mongodb.client.model.TimeSeriesOptions;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import com.mongodb.reactivestreams.client.MongoDatabase;
+import org.bson.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.testcontainers.containers.MongoDBContainer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the plain {@code aisdata} layout (unique (mmsi, timestamp) and 2dsphere indexes) with a time-series collection.
+ * Each trial loads {@code points} synthetic positions into a fresh Mongo testcontainer and prints the load rate and the
+ * storage and index sizes. The benchmarks measure the insert rate of further batches and the latency of one-day range queries of one vessel.
+ * <p>
+ * Needs Docker. {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args="StorageLayoutBenchmark -p points=20000000"}
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class StorageLayoutBenchmark {
+
+    private static final int BATCH = 10_000;
+
+    private static final int VESSELS = 1000;
+
+    private static final long START = Instant.parse("2021-01-01T00:00:00Z").toEpochMilli();
+
+    private static final long INTERVAL_MILLIS = 10_000;
+
+    @Param({"plain", "timeseries"})
+    String layout;
+
+    @Param({"10000000"})
+    int points;
+
+    private MongoDBContainer mongodb;
+
+    private MongoClient client;
+
+    private MongoCollection<Document> aisdata;
+
+    private long nextPoint;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mongodb = new MongoDBContainer("mongo:8.0.0-noble");
+        mongodb.start();
+        client = MongoClients.create(mongodb.getConnectionString());
+        MongoDatabase database = client.getDatabase("benchmark");
+        if (layout.equals("timeseries")) {
+            Mono.from(database.createCollection("aisdata", new CreateCollectionOptions()
+                .timeSeriesOptions(new TimeSeriesOptions("timestamp").metaField("mmsi").granularity(TimeSeriesGranularity.SECONDS)))).block();
+        }
+        aisdata = database.getCollection("aisdata");
+        Mono.from(aisdata.createIndex(Indexes.compoundIndex(Indexes.ascending("mmsi"), Indexes.ascending("timestamp")),
+            new IndexOptions().unique(layout.equals("plain")))).block();
+        Mono.from(aisdata.createIndex(Indexes.geo2dsphere("location"))).block();
+
+        long start = System.nanoTime();
+        while (nextPoint < points) {
+            insertBatch();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%n%s: loaded %d points in %.1f s, %.0f points/s%n", layout, points, seconds, points / seconds);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Document stats = Mono.from(client.getDatabase("benchmark").runCommand(new Document("collStats", "aisdata"))).block();
+        System.out.printf("%n%s: storageSize %d bytes, totalIndexSize %d bytes%n", layout,
+            stats.get("storageSize", Number.class).longValue(), stats.get("totalIndexSize", Number.class).longValue());
+        client.close();
+        mongodb.stop();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(BATCH)
+    public void insert() {
+        insertBatch();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int rangeQuery() {
+        int vessel = ThreadLocalRandom.current().nextInt(VESSELS);
+        long perVessel = points / VESSELS;
+        long from = START + ThreadLocalRandom.current().nextLong(Math.max(1, perVessel - 8640)) * INTERVAL_MILLIS;
+        return Flux.from(aisdata.find(Filters.and(
+                Filters.eq("mmsi", mmsi(vessel)),
+                Filters.gte("timestamp", new Date(from)),
+                Filters.lt("timestamp", new Date(from + 86_400_000L)))))
+            .count()
+            .block()
+            .intValue();
+    }
+
+    /**
+     * Points are spread round robin over {@link #VESSELS} vessels, each reporting every 10 seconds.
+     */
+    private void insertBatch() {
+        Random random = new Random(nextPoint);
+        List<Document> batch = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++, nextPoint++) {
+            int vessel = (int) (nextPoint % VESSELS);
+            long timestamp = START + (nextPoint / VESSELS) * INTERVAL_MILLIS;
+            double lon = 5 + vessel % 100 * 0.1 + random.nextDouble() / 100;
+            double lat = 58 + vessel / 100 * 0.1 + random.nextDouble() / 100;
+            batch.add(new Document("mmsi", mmsi(vessel))
+                .append("imo", "9351098")
+                .append("status", "0")
+                .append("speed", Integer.toString(random.nextInt(200)))
+                .append("lon", Double.toString(lon))
+                .append("lat", Double.toString(lat))
+                .append("course", Integer.toString(random.nextInt(360)))
+                .append("heading", Integer.toString(random.nextInt(360)))
+                .append("timestamp", new Date(timestamp))
+                .append("shipId", "4317723")
+                .append("location", new Document("type", "Point").append("coordinates", List.of(lon, lat))));
+        }
+        Mono.from(aisdata.insertMany(batch, new InsertManyOptions().ordered(false))).block();
+    }
+
+    private static String mmsi(int vessel) {
+        return Integer.toString(257000000 + vessel);
+    }
+}
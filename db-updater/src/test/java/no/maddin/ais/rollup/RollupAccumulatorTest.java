@@ -0,0 +1,132 @@
+package no.maddin.ais.rollup;
+
+import no.maddin.ais.config.AisRollupConfig;
+import no.maddin.ais.data.AisData;
+import no.maddin.ais.data.RollupPeriod;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasKey;
+import static org.hamcrest.Matchers.not;
+
+class RollupAccumulatorTest {
+
+    private static final OffsetDateTime START = OffsetDateTime.of(2024, 5, 1, 9, 30, 0, 0, ZoneOffset.UTC);
+
+    /**
+     * One minute of latitude.
+     */
+    private static final double NAUTICAL_MILE = 1853.2;
+
+    private final RollupAccumulator accumulator = new RollupAccumulator(new AisRollupConfig());
+
+    private final VesselTrack track = new VesselTrack();
+
+    @Test
+    void distanceTimeAndSpeedPerHourAndDay() {
+        add(0, 59.0, 100, 0);
+        add(20, 59.0 + 1 / 60.0, 120, 0);
+        add(40, 59.0 + 2 / 60.0, 80, 0);
+        add(60, 59.0 + 2 / 60.0, 0, 5);
+
+        RollupDelta firstHour = delta(RollupPeriod.HOUR, START.withMinute(0));
+        RollupDelta secondHour = delta(RollupPeriod.HOUR, START.withMinute(0).plusHours(1));
+        RollupDelta day = delta(RollupPeriod.DAY, START.withHour(0).withMinute(0));
+        assertThat(firstHour.positions, equalTo(2L));
+        assertThat(firstHour.distanceMeters, closeTo(NAUTICAL_MILE, 1));
+        assertThat(firstHour.underwaySeconds, equalTo(1200.0));
+        assertThat(firstHour.maxSpeed, equalTo(120));
+        assertThat(secondHour.positions, equalTo(2L));
+        assertThat(secondHour.underwaySeconds, equalTo(1200.0));
+        assertThat(secondHour.mooredSeconds, equalTo(1200.0));
+        assertThat(day.positions, equalTo(4L));
+        assertThat(day.distanceMeters, closeTo(2 * NAUTICAL_MILE, 2));
+        assertThat(day.speedSum, equalTo(300L));
+        assertThat(day.speedCount, equalTo(4L));
+        assertThat(day.minLat, equalTo(59.0));
+        assertThat(day.maxLat, closeTo(59.0 + 2 / 60.0, 1e-6));
+        assertThat(day.first, equalTo(START.toInstant().toEpochMilli()));
+        assertThat(day.last, equalTo(START.plusMinutes(60).toInstant().toEpochMilli()));
+    }
+
+    @Test
+    void aLongStopEndsTheVoyage() {
+        add(0, 59.0, 100, 0);
+        add(30, 59.1, 100, 0);
+        add(60, 59.1, 0, 5);
+        add(180, 59.1, 0, 5);
+        add(300, 59.1, 0, 5);
+        add(330, 59.2, 100, 0);
+
+        List<RollupDelta> voyages = accumulator.deltas().stream()
+            .filter(delta -> delta.period == RollupPeriod.VOYAGE)
+            .sorted(Comparator.comparingLong(delta -> delta.start))
+            .toList();
+        assertThat(voyages.stream().map(delta -> Instant.ofEpochMilli(delta.start)).toList(),
+            contains(START.toInstant(), START.plusMinutes(330).toInstant()));
+        assertThat(voyages.getFirst().positions, equalTo(3L));
+        assertThat(voyages.getFirst().mooredSeconds, equalTo(1800.0));
+        assertThat(voyages.getFirst().lastUnderway, equalTo(START.plusMinutes(30).toInstant().toEpochMilli()));
+        assertThat(voyages.get(1).positions, equalTo(1L));
+        assertThat(voyages.get(1).underwaySeconds, equalTo(1800.0));
+    }
+
+    @Test
+    void latePositionsAndGapsAreNotSegments() {
+        add(0, 59.0, 100, 0);
+        add(10, 59.1, 100, 0);
+        add(5, 59.05, 100, 0);
+        add(10 + 7 * 60, 60.0, 100, 0);
+
+        RollupDelta day = delta(RollupPeriod.DAY, START.withHour(0).withMinute(0));
+        assertThat(day.positions, equalTo(4L));
+        assertThat(day.underwaySeconds, equalTo(600.0));
+        assertThat(day.distanceMeters, closeTo(6 * NAUTICAL_MILE, 6));
+    }
+
+    @Test
+    void updateOnlyTouchesKnownValues() {
+        accumulator.add(track, AisData.builder().mmsi("257961640").timestamp(START).speed("1023").lon("181").lat("91").build());
+
+        Document update = delta(RollupPeriod.DAY, START.withHour(0).withMinute(0)).update().getUpdateObject();
+        assertThat(update.get("$inc", Document.class).get("positions"), equalTo(1L));
+        assertThat(update.get("$max", Document.class), not(hasKey("maxSpeed")));
+        assertThat(update.get("$max", Document.class), not(hasKey("maxLon")));
+        assertThat(update.get("$min", Document.class), hasKey("first"));
+    }
+
+    @Test
+    void haversine() {
+        assertThat(RollupAccumulator.distance(0, 0, 0, 1), closeTo(111_195, 1));
+        assertThat(RollupAccumulator.distance(10.0, 59.0, 11.0, 59.0), closeTo(57_270, 10));
+    }
+
+    private void add(int minutes, double lat, int speed, int status) {
+        accumulator.add(track, AisData.builder()
+            .mmsi("257961640")
+            .timestamp(START.plusMinutes(minutes))
+            .lon("10.000000")
+            .lat(String.format(Locale.ROOT, "%.6f", lat))
+            .speed(Integer.toString(speed))
+            .status(Integer.toString(status))
+            .build());
+    }
+
+    private RollupDelta delta(RollupPeriod period, OffsetDateTime start) {
+        return accumulator.deltas().stream()
+            .filter(delta -> delta.period == period && delta.start == start.toInstant().toEpochMilli())
+            .findFirst()
+            .orElseThrow();
+    }
+}
@@ -0,0 +1,152 @@
+package no.maddin.ais.spool;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import no.maddin.ais.config.AisSpoolConfig;
+import no.maddin.ais.config.AisWriterConfig;
+import no.maddin.ais.data.AisData;
+import no.maddin.ais.metrics.AisMetrics;
+import no.maddin.ais.repository.AisDataBulkWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import org.springframework.util.unit.DataSize;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+class SpoolDrainerTest {
+
+    private static final OffsetDateTime START = OffsetDateTime.of(2024, 5, 1, 8, 0, 0, 0, ZoneOffset.UTC);
+
+    private final List<AisData> written = new CopyOnWriteArrayList<>();
+
+    private final AtomicInteger failures = new AtomicInteger();
+
+    @Test
+    void drainsIntoTheWriterAndDeletesSegments(@TempDir Path dir) throws Exception {
+        AisSpoolConfig config = config(dir);
+        Spool spool = spool(config);
+        SpoolDrainer drainer = new SpoolDrainer(spool, writer(), config);
+        spool.start();
+        drainer.start();
+
+        List<AisData> records = records(1000);
+        StepVerifier.create(spool.append(Flux.fromIterable(records)))
+            .expectNextCount(records.size())
+            .verifyComplete();
+
+        awaitDrained(spool);
+        drainer.stop();
+        spool.stop();
+
+        assertThat(written, equalTo(records));
+        assertThat(spool.newest("257961641"), equalTo(Optional.of(START.plusMinutes(999))));
+        try (var files = Files.list(dir)) {
+            assertThat(files.toList(), empty());
+        }
+    }
+
+    @Test
+    void recordsSurviveAFailingWriterAndARestart(@TempDir Path dir) throws Exception {
+        AisSpoolConfig config = config(dir);
+        failures.set(Integer.MAX_VALUE);
+        Spool spool = spool(config);
+        SpoolDrainer drainer = new SpoolDrainer(spool, writer(), config);
+        spool.start();
+        drainer.start();
+
+        List<AisData> records = records(300);
+        StepVerifier.create(spool.append(Flux.fromIterable(records)))
+            .expectNextCount(records.size())
+            .verifyComplete();
+        config.setShutdownTimeout(Duration.ofMillis(100));
+        drainer.stop();
+        spool.stop();
+        assertThat(written, empty());
+
+        config.setShutdownTimeout(Duration.ofSeconds(10));
+        failures.set(2);
+        Spool restarted = spool(config);
+        assertThat(restarted.pending(), equalTo(300L));
+        assertThat(restarted.newest("257961641"), equalTo(Optional.of(START.plusMinutes(299))));
+        SpoolDrainer redrainer = new SpoolDrainer(restarted, writer(), config);
+        restarted.start();
+        redrainer.start();
+
+        awaitDrained(restarted);
+        redrainer.stop();
+        restarted.stop();
+
+        assertThat(written, equalTo(records));
+        assertThat(failures.get(), equalTo(0));
+    }
+
+    private AisDataBulkWriter writer() {
+        AisDataBulkWriter writer = Mockito.mock(AisDataBulkWriter.class);
+        when(writer.write(any())).thenAnswer(invocation -> {
+            Publisher<AisData> data = invocation.getArgument(0);
+            if (failures.getAndUpdate(n -> n > 0 ? n - 1 : 0) > 0) {
+                return Flux.error(new IllegalStateException("Mongo is down"));
+            }
+            return Flux.from(data).doOnNext(written::add);
+        });
+        return writer;
+    }
+
+    private static Spool spool(AisSpoolConfig config) throws IOException {
+        var writerConfig = new AisWriterConfig();
+        writerConfig.setBatchSize(100);
+        return new Spool(config, writerConfig, new AisMetrics(new SimpleMeterRegistry()));
+    }
+
+    private static AisSpoolConfig config(Path dir) {
+        var config = new AisSpoolConfig();
+        config.setEnabled(true);
+        config.setDirectory(dir);
+        config.setSegmentSize(DataSize.ofKilobytes(8));
+        config.setDrainBatchSize(150);
+        config.setMinRetryBackoff(Duration.ofMillis(10));
+        config.setMaxRetryBackoff(Duration.ofMillis(20));
+        config.setShutdownTimeout(Duration.ofSeconds(10));
+        return config;
+    }
+
+    private static List<AisData> records(int count) {
+        return IntStream.range(0, count)
+            .mapToObj(i -> AisData.builder()
+                .mmsi("25796164" + (i % 2))
+                .lon("10.7")
+                .lat("59.9")
+                .speed(Integer.toString(i % 200))
+                .timestamp(START.plusMinutes(i))
+                .build())
+            .toList();
+    }
+
+    private static void awaitDrained(Spool spool) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (spool.pending() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat("drained in time", deadline - System.nanoTime(), greaterThan(0L));
+    }
+}
@@ -0,0 +1,117 @@
+package no.maddin.ais.spool;
+
+import no.maddin.ais.data.AisData;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.nullValue;
+
+class SpoolLogTest {
+
+    private static final OffsetDateTime TIMESTAMP = OffsetDateTime.of(2024, 5, 1, 8, 0, 0, 0, ZoneOffset.ofHours(2));
+
+    @Test
+    void codecKeepsNullsAndOffsets() {
+        List<AisData> batch = List.of(
+            AisData.builder().id("a").mmsi("257961640").lat("59.9").lon("10.7").speed("123").status("0").timestamp(TIMESTAMP).build(),
+            AisData.builder().mmsi("257961641").shipId("ø").build());
+
+        List<AisData> decoded = SpoolCodec.decode(SpoolCodec.encode(batch));
+
+        assertThat(decoded, equalTo(batch));
+        assertThat(decoded.get(0).getTimestamp().getOffset(), equalTo(ZoneOffset.ofHours(2)));
+    }
+
+    @Test
+    void frameBecomesVisibleWhenForced(@TempDir Path dir) throws IOException {
+        try (var log = new SpoolLog(dir, 1024)) {
+            log.append(payload(1));
+
+            assertThat(SpoolLog.read(log.oldest(), 0), nullValue());
+
+            log.force();
+            SpoolLog.Frame frame = SpoolLog.read(log.oldest(), 0);
+            assertThat(SpoolCodec.decode(frame.payload()), equalTo(batch(1)));
+            assertThat(SpoolLog.read(log.oldest(), frame.next()), nullValue());
+        }
+    }
+
+    @Test
+    void fullSegmentsAreSealedAndConsumedOnesDeleted(@TempDir Path dir) throws IOException {
+        try (var log = new SpoolLog(dir, 100)) {
+            for (int i = 0; i < 5; i++) {
+                log.append(payload(i));
+                log.force();
+            }
+            assertThat(log.segments(), hasSize(3));
+            assertThat(log.oldest().sealed, equalTo(true));
+
+            SpoolLog.Segment active = log.segments().get(2);
+            long end = SpoolLog.read(active, 0).next();
+            assertThat(log.sealIfConsumed(active, 0), equalTo(false));
+            assertThat(log.sealIfConsumed(active, end), equalTo(true));
+
+            log.remove(log.oldest(), false);
+            assertThat(log.segments(), hasSize(2));
+            try (var files = Files.list(dir)) {
+                assertThat(files.toList(), hasSize(2));
+            }
+        }
+    }
+
+    @Test
+    void tornTailIsCutOffOnRecovery(@TempDir Path dir) throws IOException {
+        Path file;
+        long good;
+        try (var log = new SpoolLog(dir, 1024 * 1024)) {
+            log.append(payload(1));
+            log.append(payload(2));
+            log.force();
+            file = log.oldest().path;
+            good = Files.size(file);
+        }
+        try (var channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer torn = payload(3);
+            channel.write(ByteBuffer.allocate(8 + torn.remaining()).putInt(torn.remaining()).putInt(42).put(torn.limit(torn.limit() / 2)).flip());
+        }
+
+        try (var log = new SpoolLog(dir, 1024 * 1024)) {
+            List<AisData> recovered = new ArrayList<>();
+            long offset = 0;
+            SpoolLog.Frame frame;
+            while ((frame = SpoolLog.read(log.oldest(), offset)) != null) {
+                recovered.addAll(SpoolCodec.decode(frame.payload()));
+                offset = frame.next();
+            }
+            assertThat(recovered, equalTo(List.of(batch(1).get(0), batch(2).get(0))));
+            assertThat(Files.size(file), equalTo(good));
+            assertThat(log.oldest().sealed, equalTo(true));
+
+            log.append(payload(4));
+            log.force();
+            assertThat(log.segments(), hasSize(2));
+        }
+    }
+
+    private static ByteBuffer payload(int i) {
+        return SpoolCodec.encode(batch(i));
+    }
+
+    private static List<AisData> batch(int i) {
+        return List.of(AisData.builder().mmsi("25796164" + i).speed("12").timestamp(TIMESTAMP.plusMinutes(i)).build());
+    }
+}
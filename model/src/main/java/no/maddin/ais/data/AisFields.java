@@ -0,0 +1,169 @@
+package no.maddin.ais.data;
+
+/**
+ * Parses the string fields of AIS providers without creating intermediate objects.
+ * All methods work on a slice of a char array, as returned by Jackson's {@code getTextCharacters()}.
+ */
+public final class AisFields {
+
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15};
+
+    private AisFields() {
+    }
+
+    public static int parseInt(char[] chars, int offset, int length, int defaultValue) {
+        int end = offset + length;
+        int i = offset;
+        if (i >= end) {
+            return defaultValue;
+        }
+        boolean negative = chars[i] == '-';
+        if (negative || chars[i] == '+') {
+            i++;
+        }
+        long value = 0;
+        int digits = 0;
+        for (; i < end; i++) {
+            char c = chars[i];
+            if (c == '.') {
+                break; // "12.0" is 12
+            }
+            if (c < '0' || c > '9' || ++digits > 10) {
+                return defaultValue;
+            }
+            value = value * 10 + (c - '0');
+        }
+        if (digits == 0) {
+            return defaultValue;
+        }
+        value = negative ? -value : value;
+        return value < Integer.MIN_VALUE || value > Integer.MAX_VALUE ? defaultValue : (int) value;
+    }
+
+    public static int parseInt(String value, int defaultValue) {
+        return value == null ? defaultValue : parseInt(value.toCharArray(), 0, value.length(), defaultValue);
+    }
+
+    /**
+     * Plain decimal numbers like {@code -23.726880}. Anything else is handed to {@link Double#parseDouble(String)}.
+     *
+     * @return NaN if the value is empty or not a number
+     */
+    public static double parseDecimal(char[] chars, int offset, int length) {
+        int end = offset + length;
+        int i = offset;
+        if (i >= end) {
+            return Double.NaN;
+        }
+        boolean negative = chars[i] == '-';
+        if (negative || chars[i] == '+') {
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        for (; i < end; i++) {
+            char c = chars[i];
+            if (c == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else if (c >= '0' && c <= '9' && digits < 15) {
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (fractionDigits >= 0) {
+                    fractionDigits++;
+                }
+            } else {
+                return parseDouble(chars, offset, length);
+            }
+        }
+        if (digits == 0) {
+            return Double.NaN;
+        }
+        double value = fractionDigits > 0 ? mantissa / POWERS_OF_TEN[fractionDigits] : mantissa;
+        return negative ? -value : value;
+    }
+
+    /**
+     * Whether lon/lat is a point a 2dsphere index accepts. False for NaN and for the AIS "not available" values 181/91.
+     */
+    public static boolean isLocation(double lon, double lat) {
+        return lon >= -180 && lon <= 180 && lat >= -90 && lat <= 90;
+    }
+
+    public static double parseDecimal(String value) {
+        return value == null ? Double.NaN : parseDecimal(value.toCharArray(), 0, value.length());
+    }
+
+    private static double parseDouble(char[] chars, int offset, int length) {
+        try {
+            return Double.parseDouble(new String(chars, offset, length));
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * ISO-8601 like timestamps: {@code yyyy-MM-dd[T ]HH:mm:ss[.SSS][Z|+hh:mm|+hhmm]}.
+     * Timestamps without offset are UTC, which is what MarineTraffic sends.
+     *
+     * @throws IllegalArgumentException if the value is not a timestamp
+     */
+    public static long parseEpochMillis(char[] chars, int offset, int length) {
+        if (length < 19 || chars[offset + 4] != '-' || chars[offset + 7] != '-' || chars[offset + 13] != ':' || chars[offset + 16] != ':') {
+            throw new IllegalArgumentException("Not a timestamp: " + new String(chars, offset, length));
+        }
+        int year = digits(chars, offset, 4);
+        int month = digits(chars, offset + 5, 2);
+        int day = digits(chars, offset + 8, 2);
+        int hour = digits(chars, offset + 11, 2);
+        int minute = digits(chars, offset + 14, 2);
+        int second = digits(chars, offset + 17, 2);
+        int i = offset + 19;
+        int end = offset + length;
+        int millis = 0;
+        if (i < end && chars[i] == '.') {
+            int scale = 100;
+            for (i++; i < end && chars[i] >= '0' && chars[i] <= '9'; i++) {
+                millis += (chars[i] - '0') * scale;
+                scale /= 10;
+            }
+        }
+        int offsetSeconds = 0;
+        if (i < end && chars[i] != 'Z') {
+            int sign = chars[i] == '-' ? -1 : 1;
+            int hours = digits(chars, i + 1, 2);
+            int minutes = end - i > 3 ? digits(chars, end - 2, 2) : 0;
+            offsetSeconds = sign * (hours * 3600 + minutes * 60);
+        }
+        long seconds = epochDay(year, month, day) * 86400L + hour * 3600L + minute * 60L + second - offsetSeconds;
+        return seconds * 1000L + millis;
+    }
+
+    public static long parseEpochMillis(String value) {
+        return parseEpochMillis(value.toCharArray(), 0, value.length());
+    }
+
+    private static int digits(char[] chars, int offset, int count) {
+        int value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            char c = chars[i];
+            if (c < '0' || c > '9') {
+                throw new IllegalArgumentException("Not a number: " + new String(chars, offset, count));
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Days since 1970-01-01 in the proleptic Gregorian calendar, same as {@link java.time.LocalDate#toEpochDay()}.
+     */
+    static long epochDay(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468L;
+    }
+}
@@ -0,0 +1,118 @@
+package no.maddin.ais.data;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Typed form of {@link AisData}, stored in the {@value #COLLECTION} collection by {@link AisPositionCodec}.
+ * Values that are not available are stored as the AIS "not available" values and left out of the BSON document.
+ */
+@Value
+@Builder(toBuilder = true)
+@JsonDeserialize(using = AisPositionDeserializer.class)
+public class AisPosition {
+
+    public static final String COLLECTION = "aisposition";
+
+    public static final int STATUS_NOT_DEFINED = 15;
+    public static final int SPEED_NOT_AVAILABLE = 1023;
+    public static final int COURSE_NOT_AVAILABLE = 3600;
+    public static final int HEADING_NOT_AVAILABLE = 511;
+
+    int mmsi;
+
+    /**
+     * 0 if unknown.
+     */
+    int imo;
+
+    @Builder.Default
+    int status = STATUS_NOT_DEFINED;
+
+    /**
+     * Speed over ground in 1/10 knots, as sent by MarineTraffic.
+     */
+    @Builder.Default
+    int speed = SPEED_NOT_AVAILABLE;
+
+    /**
+     * Course over ground in 1/10 degrees.
+     */
+    @Builder.Default
+    int course = COURSE_NOT_AVAILABLE;
+
+    @Builder.Default
+    int heading = HEADING_NOT_AVAILABLE;
+
+    /**
+     * NaN if unknown.
+     */
+    @Builder.Default
+    double lon = Double.NaN;
+
+    /**
+     * NaN if unknown.
+     */
+    @Builder.Default
+    double lat = Double.NaN;
+
+    /**
+     * Epoch milliseconds.
+     */
+    long timestamp;
+
+    /**
+     * 0 if unknown.
+     */
+    int shipId;
+
+    /**
+     * False if lon/lat are unknown or out of range, such positions have no {@code location}.
+     */
+    public boolean hasLocation() {
+        return AisFields.isLocation(lon, lat);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the MMSI or timestamp can't be parsed
+     */
+    public static AisPosition of(AisData aisData) {
+        int mmsi = AisFields.parseInt(aisData.getMmsi(), -1);
+        if (mmsi < 0 || aisData.getTimestamp() == null) {
+            throw new IllegalArgumentException("Invalid MMSI or timestamp: " + aisData.getMmsi() + " " + aisData.getTimestamp());
+        }
+        double course = AisFields.parseDecimal(aisData.getCourse());
+        return AisPosition.builder()
+            .mmsi(mmsi)
+            .imo(AisFields.parseInt(aisData.getImo(), 0))
+            .status(AisFields.parseInt(aisData.getStatus(), STATUS_NOT_DEFINED))
+            .speed(AisFields.parseInt(aisData.getSpeed(), SPEED_NOT_AVAILABLE))
+            .course(Double.isNaN(course) ? COURSE_NOT_AVAILABLE : (int) Math.round(course * 10))
+            .heading(AisFields.parseInt(aisData.getHeading(), HEADING_NOT_AVAILABLE))
+            .lon(AisFields.parseDecimal(aisData.getLon()))
+            .lat(AisFields.parseDecimal(aisData.getLat()))
+            .timestamp(aisData.getTimestamp().toInstant().toEpochMilli())
+            .shipId(AisFields.parseInt(aisData.getShipId(), 0))
+            .build();
+    }
+
+    public AisData toAisData() {
+        return AisData.builder()
+            .mmsi(Integer.toString(mmsi))
+            .imo(Integer.toString(imo))
+            .status(Integer.toString(status))
+            .speed(speed == SPEED_NOT_AVAILABLE ? null : Integer.toString(speed))
+            .course(course == COURSE_NOT_AVAILABLE ? null : course % 10 == 0 ? Integer.toString(course / 10) : Double.toString(course / 10.0))
+            .heading(heading == HEADING_NOT_AVAILABLE ? null : Integer.toString(heading))
+            .lon(Double.isNaN(lon) ? null : Double.toString(lon))
+            .lat(Double.isNaN(lat) ? null : Double.toString(lat))
+            .timestamp(OffsetDateTime.ofInstant(Instant.ofEpochMilli(timestamp), ZoneOffset.UTC))
+            .shipId(Integer.toString(shipId))
+            .build();
+    }
+}
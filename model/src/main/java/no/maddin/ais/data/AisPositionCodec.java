@@ -0,0 +1,96 @@
+package no.maddin.ais.data;
+
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+
+/**
+ * Stores an {@link AisPosition} with int32 fields, a GeoJSON point in {@code location} and a BSON date in {@code timestamp}.
+ * Fields that are not available are left out, as is a location out of range, which the 2dsphere index would reject.
+ */
+public class AisPositionCodec implements Codec<AisPosition> {
+
+    @Override
+    public AisPosition decode(BsonReader reader, DecoderContext decoderContext) {
+        var builder = AisPosition.builder();
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            switch (reader.readName()) {
+                case "mmsi" -> builder.mmsi(reader.readInt32());
+                case "imo" -> builder.imo(reader.readInt32());
+                case "status" -> builder.status(reader.readInt32());
+                case "speed" -> builder.speed(reader.readInt32());
+                case "course" -> builder.course(reader.readInt32());
+                case "heading" -> builder.heading(reader.readInt32());
+                case "shipId" -> builder.shipId(reader.readInt32());
+                case "timestamp" -> builder.timestamp(reader.readDateTime());
+                case "location" -> readLocation(reader, builder);
+                default -> reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+        return builder.build();
+    }
+
+    private static void readLocation(BsonReader reader, AisPosition.AisPositionBuilder builder) {
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            if (reader.readName().equals("coordinates")) {
+                reader.readStartArray();
+                reader.readBsonType();
+                builder.lon(readNumber(reader));
+                reader.readBsonType();
+                builder.lat(readNumber(reader));
+                reader.readEndArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+    }
+
+    private static double readNumber(BsonReader reader) {
+        return switch (reader.getCurrentBsonType()) {
+            case INT32 -> reader.readInt32();
+            case INT64 -> reader.readInt64();
+            default -> reader.readDouble();
+        };
+    }
+
+    @Override
+    public void encode(BsonWriter writer, AisPosition value, EncoderContext encoderContext) {
+        writer.writeStartDocument();
+        writer.writeInt32("mmsi", value.getMmsi());
+        writer.writeDateTime("timestamp", value.getTimestamp());
+        if (value.hasLocation()) {
+            writer.writeStartDocument("location");
+            writer.writeString("type", "Point");
+            writer.writeStartArray("coordinates");
+            writer.writeDouble(value.getLon());
+            writer.writeDouble(value.getLat());
+            writer.writeEndArray();
+            writer.writeEndDocument();
+        }
+        writeUnless(writer, "speed", value.getSpeed(), AisPosition.SPEED_NOT_AVAILABLE);
+        writeUnless(writer, "course", value.getCourse(), AisPosition.COURSE_NOT_AVAILABLE);
+        writeUnless(writer, "heading", value.getHeading(), AisPosition.HEADING_NOT_AVAILABLE);
+        writeUnless(writer, "status", value.getStatus(), AisPosition.STATUS_NOT_DEFINED);
+        writeUnless(writer, "imo", value.getImo(), 0);
+        writeUnless(writer, "shipId", value.getShipId(), 0);
+        writer.writeEndDocument();
+    }
+
+    private static void writeUnless(BsonWriter writer, String name, int value, int notAvailable) {
+        if (value != notAvailable) {
+            writer.writeInt32(name, value);
+        }
+    }
+
+    @Override
+    public Class<AisPosition> getEncoderClass() {
+        return AisPosition.class;
+    }
+}
@@ -0,0 +1,94 @@
+package no.maddin.ais.data;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+import java.io.IOException;
+
+/**
+ * Reads both MarineTraffic formats straight into an {@link AisPosition}:
+ * the {@code json} protocol sends each position as an array of strings in the order of
+ * {@link AisData}'s {@code @JsonPropertyOrder}, the {@code jsono} protocol as an object.
+ */
+public class AisPositionDeserializer extends StdDeserializer<AisPosition> {
+
+    static final String[] FIELDS = {"MMSI", "IMO", "STATUS", "SPEED", "LON", "LAT", "COURSE", "HEADING", "TIMESTAMP", "SHIP_ID"};
+
+    public AisPositionDeserializer() {
+        super(AisPosition.class);
+    }
+
+    @Override
+    public AisPosition deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        var builder = AisPosition.builder();
+        if (p.currentToken() == JsonToken.START_ARRAY) {
+            int index = 0;
+            while (p.nextToken() != JsonToken.END_ARRAY) {
+                if (index < FIELDS.length) {
+                    setField(builder, index, p);
+                } else {
+                    p.skipChildren();
+                }
+                index++;
+            }
+        } else if (p.currentToken() == JsonToken.START_OBJECT) {
+            String name;
+            while ((name = p.nextFieldName()) != null) {
+                p.nextToken();
+                int index = fieldIndex(name);
+                if (index >= 0) {
+                    setField(builder, index, p);
+                } else {
+                    p.skipChildren();
+                }
+            }
+        } else {
+            return (AisPosition) ctxt.handleUnexpectedToken(AisPosition.class, p);
+        }
+        return builder.build();
+    }
+
+    static int fieldIndex(String name) {
+        return switch (name) {
+            case "MMSI" -> 0;
+            case "IMO" -> 1;
+            case "STATUS" -> 2;
+            case "SPEED" -> 3;
+            case "LON" -> 4;
+            case "LAT" -> 5;
+            case "COURSE" -> 6;
+            case "HEADING" -> 7;
+            case "TIMESTAMP" -> 8;
+            case "SHIP_ID" -> 9;
+            default -> -1;
+        };
+    }
+
+    private static void setField(AisPosition.AisPositionBuilder builder, int index, JsonParser p) throws IOException {
+        if (p.currentToken() == JsonToken.VALUE_NULL) {
+            return;
+        }
+        char[] chars = p.getTextCharacters();
+        int offset = p.getTextOffset();
+        int length = p.getTextLength();
+        switch (index) {
+            case 0 -> builder.mmsi(AisFields.parseInt(chars, offset, length, 0));
+            case 1 -> builder.imo(AisFields.parseInt(chars, offset, length, 0));
+            case 2 -> builder.status(AisFields.parseInt(chars, offset, length, AisPosition.STATUS_NOT_DEFINED));
+            case 3 -> builder.speed(AisFields.parseInt(chars, offset, length, AisPosition.SPEED_NOT_AVAILABLE));
+            case 4 -> builder.lon(AisFields.parseDecimal(chars, offset, length));
+            case 5 -> builder.lat(AisFields.parseDecimal(chars, offset, length));
+            case 6 -> {
+                double course = AisFields.parseDecimal(chars, offset, length);
+                builder.course(Double.isNaN(course) ? AisPosition.COURSE_NOT_AVAILABLE : (int) Math.round(course * 10));
+            }
+            case 7 -> builder.heading(AisFields.parseInt(chars, offset, length, AisPosition.HEADING_NOT_AVAILABLE));
+            case 8 -> builder.timestamp(AisFields.parseEpochMillis(chars, offset, length));
+            case 9 -> builder.shipId(AisFields.parseInt(chars, offset, length, 0));
+            default -> {
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package no.maddin.ais.data;
+
+import org.springframework.data.convert.ConverterBuilder;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * {@link OffsetDateTime} fields are stored as BSON dates and read back in UTC. Both the db-updater and the ui register these
+ * conversions, the documents of this module can't be mapped without them.
+ */
+public final class OffsetDateTimeConversions {
+
+    private OffsetDateTimeConversions() {
+    }
+
+    public static MongoCustomConversions customConversions() {
+        ConverterBuilder.WritingConverterBuilder<OffsetDateTime, Date> writer = ConverterBuilder.writing(OffsetDateTime.class, Date.class, offsetDateTime -> Date.from(offsetDateTime.toInstant()));
+        ConverterBuilder.ReadingConverterBuilder<Date, OffsetDateTime> reader = ConverterBuilder.reading(Date.class, OffsetDateTime.class, date -> OffsetDateTime.ofInstant(date.toInstant(), ZoneOffset.UTC));
+
+        return new MongoCustomConversions(List.of(reader, writer));
+    }
+}
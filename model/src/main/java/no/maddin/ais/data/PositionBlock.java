@@ -0,0 +1,47 @@
+package no.maddin.ais.data;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+
+/**
+ * The positions of one vessel on one UTC day, compacted by {@link PositionBlockCodec}.
+ * The id is the MMSI and the day, so a day is written again by replacing its block.
+ */
+@Document(collection = "aispositionblocks")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PositionBlock {
+    @Id
+    private String id;
+
+    private String mmsi;
+
+    private OffsetDateTime start;
+
+    /**
+     * Start of the next day, exclusive.
+     */
+    private OffsetDateTime end;
+
+    private int count;
+
+    /**
+     * Of {@link PositionBlockCodec}.
+     */
+    private int version;
+
+    private byte[] positions;
+
+    public static String id(String mmsi, LocalDate day) {
+        return mmsi + "/" + day;
+    }
+}
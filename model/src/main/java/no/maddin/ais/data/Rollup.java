@@ -0,0 +1,65 @@
+package no.maddin.ais.data;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Statistics of one vessel in one period, unique on (mmsi, period, start). Maintained with {@code $inc}, {@code $min}
+ * and {@code $max} upserts, so adding positions never needs the positions that are already counted.
+ * Distances and times belong to the period of the position that ends them.
+ */
+@Document(collection = "aisrollups")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class Rollup {
+    @Id
+    private String id;
+
+    private String mmsi;
+
+    private RollupPeriod period;
+
+    private OffsetDateTime start;
+
+    private long positions;
+
+    private double distanceMeters;
+
+    private double underwaySeconds;
+
+    private double mooredSeconds;
+
+    /**
+     * Sum of the reported speeds in tenths of a knot, divided by {@link #speedCount} it is the average speed.
+     */
+    private long speedSum;
+
+    private long speedCount;
+
+    private Integer maxSpeed;
+
+    private Double minLon;
+
+    private Double minLat;
+
+    private Double maxLon;
+
+    private Double maxLat;
+
+    private OffsetDateTime first;
+
+    private OffsetDateTime last;
+
+    /**
+     * Newest position under way, only on voyages.
+     */
+    private OffsetDateTime lastUnderway;
+}
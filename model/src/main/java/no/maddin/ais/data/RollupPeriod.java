@@ -0,0 +1,17 @@
+package no.maddin.ais.data;
+
+public enum RollupPeriod {
+    /**
+     * UTC hour.
+     */
+    HOUR,
+    /**
+     * UTC day.
+     */
+    DAY,
+    /**
+     * From getting under way after a stop of at least {@code ais.rollups.voyage-min-stop} until the next such stop.
+     * Starts with the first position under way.
+     */
+    VOYAGE
+}
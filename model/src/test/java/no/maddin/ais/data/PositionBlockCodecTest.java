@@ -0,0 +1,86 @@
+package no.maddin.ais.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PositionBlockCodecTest {
+
+    private static final long START = Instant.parse("2024-05-01T00:00:00Z").toEpochMilli();
+
+    @Test
+    void roundTripWithValuesNotAvailable() {
+        List<AisPosition> positions = List.of(
+            AisPosition.builder().mmsi(257961640).imo(9234567).status(0).speed(123).course(455).heading(44)
+                .lon(10.726880).lat(-59.878850).timestamp(START + 1000).shipId(4223).build(),
+            AisPosition.builder().mmsi(257961640).timestamp(START + 1000).build(),
+            AisPosition.builder().mmsi(257961640).lon(-179.999999).lat(89.999999).speed(0).timestamp(START + 86_399_999).build());
+
+        byte[] block = PositionBlockCodec.encode(positions, START);
+
+        assertThat(PositionBlockCodec.decode(block, 257961640, START), equalTo(positions));
+    }
+
+    @Test
+    void aDayOfPositionsTakesAFewBytesEach() {
+        var random = new Random(1);
+        List<AisPosition> positions = new ArrayList<>();
+        double lon = 10.5;
+        double lat = 59.5;
+        int speed = 120;
+        int course = 1800;
+        for (long t = START; t < START + 86_400_000; t += 8_000 + random.nextInt(4_000)) {
+            lon += 0.0001 + random.nextInt(20) / 1_000_000.0;
+            lat += random.nextInt(21) / 1_000_000.0 - 0.00001;
+            speed = Math.max(0, speed + random.nextInt(5) - 2);
+            course = (course + random.nextInt(11) - 5 + 3600) % 3600;
+            positions.add(AisPosition.builder().mmsi(257961640).imo(9234567).status(0).speed(speed).course(course).heading(course / 10)
+                .lon(Math.round(lon * 1e6) / 1e6).lat(Math.round(lat * 1e6) / 1e6).timestamp(t).shipId(4223).build());
+        }
+
+        byte[] block = PositionBlockCodec.encode(positions, START);
+
+        assertThat(PositionBlockCodec.decode(block, 257961640, START), equalTo(positions));
+        assertThat((double) block.length / positions.size(), lessThan(8.0));
+    }
+
+    @Test
+    void rejectsUnorderedPositionsAndCorruptBlocks() {
+        List<AisPosition> unordered = List.of(
+            AisPosition.builder().mmsi(1).timestamp(START + 2).build(),
+            AisPosition.builder().mmsi(1).timestamp(START + 1).build());
+        assertThrows(IllegalArgumentException.class, () -> PositionBlockCodec.encode(unordered, START));
+
+        byte[] block = PositionBlockCodec.encode(List.of(AisPosition.builder().mmsi(1).timestamp(START).build()), START);
+        assertThrows(IllegalArgumentException.class, () -> PositionBlockCodec.decode(Arrays.copyOf(block, block.length - 2), 1, START));
+        assertThrows(IllegalArgumentException.class, () -> PositionBlockCodec.decode(new byte[] {1, 2, 3}, 1, START));
+    }
+
+    @Test
+    void decodesStoredBlocksOfThisVersionOnly() {
+        List<AisPosition> positions = List.of(AisPosition.builder().mmsi(257961640).speed(50).timestamp(START + 1000).build());
+        var block = PositionBlock.builder()
+            .id("257961640/2024-05-01")
+            .mmsi("257961640")
+            .start(Instant.ofEpochMilli(START).atOffset(ZoneOffset.UTC))
+            .count(1)
+            .version(PositionBlockCodec.VERSION)
+            .positions(PositionBlockCodec.encode(positions, START))
+            .build();
+
+        assertThat(PositionBlockCodec.decode(block), equalTo(positions));
+
+        block.setVersion(PositionBlockCodec.VERSION + 1);
+        assertThrows(IllegalArgumentException.class, () -> PositionBlockCodec.decode(block));
+    }
+}
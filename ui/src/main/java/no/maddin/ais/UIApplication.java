@@ -1,7 +1,11 @@
 package no.maddin.ais;
 
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+@SpringBootApplication
 public class UIApplication {
     public static void main(String[] args) {
-        System.out.println("Hello world!");
+        SpringApplication.run(UIApplication.class, args);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,157 @@
+package no.maddin.ais.api;
+
+import lombok.RequiredArgsConstructor;
+import no.maddin.ais.config.TrackProperties;
+import no.maddin.ais.data.BoundingBox;
+import no.maddin.ais.data.Rollup;
+import no.maddin.ais.data.RollupPeriod;
+import no.maddin.ais.data.RollupSummary;
+import no.maddin.ais.data.TrackPoint;
+import no.maddin.ais.live.LatestPositionTable;
+import no.maddin.ais.repository.RollupRepository;
+import no.maddin.ais.repository.TrackRepository;
+import no.maddin.ais.track.TrackService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Read API over the positions and rollups written by the db-updater.
+ * Lists are streamed as NDJSON or Server-Sent Events while they are read from Mongo, so memory use does not grow with the result.
+ */
+@RestController
+@RequestMapping("/api/vessels")
+@RequiredArgsConstructor
+public class TrackController {
+
+    private final TrackRepository trackRepository;
+
+    private final TrackService trackService;
+
+    private final TrackProperties trackProperties;
+
+    private final RollupRepository rollupRepository;
+
+    private final LatestPositionTable latestPositionTable;
+
+    /**
+     * @param zoom   simplify the track for this map zoom level
+     * @param bucket keep one position per time bucket, e.g. {@code PT5M}
+     */
+    @GetMapping(path = "/{mmsi}/track", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public Flux<TrackPoint> track(@PathVariable String mmsi,
+                                  @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+                                  @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+                                  @RequestParam(required = false) Integer zoom,
+                                  @RequestParam(required = false) Duration bucket) {
+        Instant end = to == null ? Instant.now() : to;
+        if (!from.isBefore(end)) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+        if (zoom != null && (zoom < 0 || zoom > 24)) {
+            throw new IllegalArgumentException("zoom must be between 0 and 24");
+        }
+        return trackService.track(mmsi, from, end, zoom, bucket);
+    }
+
+    @GetMapping(path = "/{mmsi}/latest", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<TrackPoint> latest(@PathVariable String mmsi) {
+        return trackRepository.latest(mmsi);
+    }
+
+    /**
+     * @param mmsi vessels to include, all vessels if not given
+     */
+    @GetMapping(path = "/latest", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public Flux<TrackPoint> latest(@RequestParam(required = false) List<String> mmsi) {
+        return trackRepository.latest(mmsi == null ? List.of() : mmsi);
+    }
+
+    /**
+     * Latest position of every vessel from the {@link LatestPositionTable} in one response, without a query to Mongo.
+     * 503 until the table has been seeded from Mongo at startup, which needs {@code ais.live.enabled}.
+     *
+     * @param bbox {@code minLon,minLat,maxLon,maxLat}, all vessels if not given
+     */
+    @GetMapping(path = "/snapshot", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<TrackPoint>> snapshot(@RequestParam(required = false) String bbox) {
+        if (!latestPositionTable.isWarm()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(latestPositionTable.snapshot(bbox == null ? null : BoundingBox.parse(bbox)));
+    }
+
+    /**
+     * The snapshot in the fixed-width binary encoding of {@link LatestPositionTable}, 27 bytes per vessel.
+     */
+    @GetMapping(path = "/snapshot", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<byte[]> binarySnapshot(@RequestParam(required = false) String bbox) {
+        if (!latestPositionTable.isWarm()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(latestPositionTable.encode(bbox == null ? null : BoundingBox.parse(bbox)));
+    }
+
+    /**
+     * @param bbox  {@code minLon,minLat,maxLon,maxLat}
+     * @param since vessels seen in the box after this time, default {@code ais.track.recent} ago
+     */
+    @GetMapping(path = "/within", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public Flux<TrackPoint> within(@RequestParam String bbox,
+                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant since) {
+        return trackRepository.within(BoundingBox.parse(bbox), since == null ? Instant.now().minus(trackProperties.getRecent()) : since);
+    }
+
+    /**
+     * Hourly, daily or voyage statistics starting in {@code [from, to)}.
+     */
+    @GetMapping(path = "/{mmsi}/rollups", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public Flux<Rollup> rollups(@PathVariable String mmsi,
+                                @RequestParam(defaultValue = "DAY") RollupPeriod period,
+                                @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+                                @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to) {
+        Instant end = to == null ? Instant.now() : to;
+        if (!from.isBefore(end)) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+        return rollupRepository.rollups(mmsi, period, from, end);
+    }
+
+    /**
+     * The rollups starting in {@code [from, to)} added up, e.g. the distance sailed in a month from the daily rollups.
+     * 404 if there are none.
+     */
+    @GetMapping(path = "/{mmsi}/summary", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<RollupSummary>> summary(@PathVariable String mmsi,
+                                                       @RequestParam(defaultValue = "DAY") RollupPeriod period,
+                                                       @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+                                                       @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to) {
+        Instant end = to == null ? Instant.now() : to;
+        if (!from.isBefore(end)) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+        return rollupRepository.summary(mmsi, period, from, end)
+            .map(ResponseEntity::ok)
+            .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public Mono<String> badRequest(IllegalArgumentException e) {
+        return Mono.just(e.getMessage());
+    }
+}
@@ -0,0 +1,30 @@
+package no.maddin.ais.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "ais.live")
+@Configuration
+@Data
+public class LiveProperties {
+
+    /**
+     * Tail {@code aisdata} with a change stream. Needs a replica set and a regular (not time-series) collection.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Updates pushed to each browser per second. Changes in between are coalesced per vessel.
+     */
+    private int framesPerSecond = 4;
+
+    /**
+     * First delay before the change stream is reopened after an error, doubled on every further error.
+     */
+    private Duration retryBackoff = Duration.ofSeconds(1);
+
+    private Duration maxRetryBackoff = Duration.ofMinutes(1);
+}
@@ -0,0 +1,18 @@
+package no.maddin.ais.config;
+
+import no.maddin.ais.data.OffsetDateTimeConversions;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+
+/**
+ * Reads the db-updater's documents with the same conversions it writes them with.
+ */
+@Configuration
+public class MongoDbConfig {
+
+    @Bean
+    public MongoCustomConversions customConversions() {
+        return OffsetDateTimeConversions.customConversions();
+    }
+}
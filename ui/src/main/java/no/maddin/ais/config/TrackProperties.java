@@ -0,0 +1,52 @@
+package no.maddin.ais.config;
+
+import lombok.Data;
+import no.maddin.ais.track.Simplification;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "ais.track")
+@Configuration
+@Data
+public class TrackProperties {
+
+    /**
+     * Documents fetched from Mongo per cursor batch. Responses are streamed batch by batch.
+     */
+    private int cursorBatchSize = 1000;
+
+    /**
+     * Default time window of the bounding box query.
+     */
+    private Duration recent = Duration.ofHours(1);
+
+    private Simplify simplify = new Simplify();
+
+    @Data
+    public static class Simplify {
+
+        private Simplification algorithm = Simplification.DOUGLAS_PEUCKER;
+
+        /**
+         * Points closer than this many screen pixels to the simplified line are dropped.
+         */
+        private double tolerancePixels = 1.0;
+
+        /**
+         * Points simplified at a time. Bounds the memory used per request.
+         */
+        private int chunkSize = 10_000;
+
+        /**
+         * Number of simplified tracks kept in memory.
+         */
+        private int cacheSize = 256;
+
+        /**
+         * Simplified tracks with more points than this are not cached.
+         */
+        private int maxCachedPoints = 100_000;
+    }
+}
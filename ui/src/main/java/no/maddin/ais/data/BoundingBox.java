@@ -0,0 +1,29 @@
+package no.maddin.ais.data;
+
+/**
+ * Area between two corners in WGS84 degrees.
+ */
+public record BoundingBox(double minLon, double minLat, double maxLon, double maxLat) {
+
+    public BoundingBox {
+        if (!(minLon >= -180 && maxLon <= 180 && minLat >= -90 && maxLat <= 90 && minLon < maxLon && minLat < maxLat)) {
+            throw new IllegalArgumentException("Invalid bounding box " + minLon + "," + minLat + "," + maxLon + "," + maxLat);
+        }
+    }
+
+    /**
+     * @param bbox {@code minLon,minLat,maxLon,maxLat}
+     */
+    public static BoundingBox parse(String bbox) {
+        String[] parts = bbox.split(",");
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("Expected minLon,minLat,maxLon,maxLat: " + bbox);
+        }
+        return new BoundingBox(Double.parseDouble(parts[0].trim()), Double.parseDouble(parts[1].trim()),
+            Double.parseDouble(parts[2].trim()), Double.parseDouble(parts[3].trim()));
+    }
+
+    public boolean contains(double lon, double lat) {
+        return lon >= minLon && lon <= maxLon && lat >= minLat && lat <= maxLat;
+    }
+}
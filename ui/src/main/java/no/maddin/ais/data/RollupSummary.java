@@ -0,0 +1,48 @@
+package no.maddin.ais.data;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.Instant;
+
+/**
+ * The rollups of a vessel in {@code [from, to)} added up. Speeds are in tenths of a knot.
+ *
+ * @param buckets number of rollups added up
+ */
+public record RollupSummary(
+    String mmsi,
+    RollupPeriod period,
+    Instant from,
+    Instant to,
+    long buckets,
+    long positions,
+    double distanceMeters,
+    double underwaySeconds,
+    double mooredSeconds,
+    long speedSum,
+    long speedCount,
+    Integer maxSpeed,
+    Double minLon,
+    Double minLat,
+    Double maxLon,
+    Double maxLat,
+    Instant first,
+    Instant last
+) {
+
+    /**
+     * Average of the reported speeds, {@code null} without speeds.
+     */
+    @JsonProperty
+    public Double averageSpeed() {
+        return speedCount == 0 ? null : (double) speedSum / speedCount;
+    }
+
+    /**
+     * Distance over time under way in knots, {@code null} if the vessel was not under way.
+     */
+    @JsonProperty
+    public Double averageSpeedUnderway() {
+        return underwaySeconds == 0 ? null : distanceMeters / 1852 / (underwaySeconds / 3600);
+    }
+}
@@ -0,0 +1,45 @@
+package no.maddin.ais.data;
+
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Read model of a position stored by the db-updater in {@code aisdata}.
+ */
+@Document(collection = "aisdata")
+public record TrackPoint(
+    String mmsi,
+    Instant timestamp,
+    String lat,
+    String lon,
+    String speed,
+    String course,
+    String heading,
+    String status
+) {
+
+    /**
+     * A compacted position, values that are not available become {@code null} as they are missing in {@code aisdata}.
+     */
+    public static TrackPoint of(String mmsi, AisPosition position) {
+        int course = position.getCourse();
+        return new TrackPoint(
+            mmsi,
+            Instant.ofEpochMilli(position.getTimestamp()),
+            degrees(position.getLat()),
+            degrees(position.getLon()),
+            position.getSpeed() == AisPosition.SPEED_NOT_AVAILABLE ? null : Integer.toString(position.getSpeed()),
+            course == AisPosition.COURSE_NOT_AVAILABLE ? null : BigDecimal.valueOf(course, 1).stripTrailingZeros().toPlainString(),
+            position.getHeading() == AisPosition.HEADING_NOT_AVAILABLE ? null : Integer.toString(position.getHeading()),
+            Integer.toString(position.getStatus()));
+    }
+
+    /**
+     * Blocks store millionths of a degree.
+     */
+    private static String degrees(double degrees) {
+        return Double.isNaN(degrees) ? null : BigDecimal.valueOf(Math.round(degrees * 1_000_000), 6).stripTrailingZeros().toPlainString();
+    }
+}
@@ -0,0 +1,93 @@
+package no.maddin.ais.live;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import no.maddin.ais.config.LiveProperties;
+import no.maddin.ais.data.TrackPoint;
+import no.maddin.ais.repository.TrackRepository;
+import org.bson.BsonValue;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.util.retry.Retry;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Feeds {@link LivePositions} from one change stream on {@code aisdata}, however many viewers are connected.
+ * <p>
+ * The table is seeded with the latest stored position per vessel, and the {@link LatestPositionTable} is warm from then on. The stream starts at the time the seed query was issued,
+ * so nothing written meanwhile is missed, and after an error only the stream is reopened, from the last resume token.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(prefix = "ais.live", name = "enabled", matchIfMissing = true)
+public class ChangeStreamTailer implements SmartLifecycle {
+
+    private static final String COLLECTION = "aisdata";
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    private final TrackRepository trackRepository;
+
+    private final LivePositions livePositions;
+
+    private final LatestPositionTable latestPositionTable;
+
+    private final LiveProperties liveProperties;
+
+    private volatile BsonValue resumeToken;
+
+    private volatile Disposable tailing;
+
+    @Override
+    public void start() {
+        Instant startAt = Instant.now();
+        tailing = trackRepository.latest(List.of())
+            .doOnNext(livePositions::update)
+            .count()
+            .doOnNext(count -> {
+                latestPositionTable.warmedUp();
+                log.info("Seeded live positions with {} vessels", count);
+            })
+            .thenMany(Flux.defer(() -> changes(startAt))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, liveProperties.getRetryBackoff())
+                    .maxBackoff(liveProperties.getMaxRetryBackoff())
+                    .doBeforeRetry(signal -> log.warn("Change stream on {} failed, reopening", COLLECTION, signal.failure()))))
+            .subscribe(livePositions::update, e -> log.error("Change stream on {} stopped", COLLECTION, e));
+    }
+
+    private Flux<TrackPoint> changes(Instant startAt) {
+        ChangeStreamOptions.ChangeStreamOptionsBuilder options = ChangeStreamOptions.builder()
+            .filter(Aggregation.newAggregation(Aggregation.match(Criteria.where("operationType").in("insert", "update", "replace"))))
+            .returnFullDocumentOnUpdate();
+        BsonValue token = resumeToken;
+        if (token != null) {
+            options.resumeAfter(token);
+        } else {
+            options.resumeAt(startAt);
+        }
+        return mongoTemplate.changeStream(COLLECTION, options.build(), TrackPoint.class)
+            .doOnNext(event -> resumeToken = event.getResumeToken())
+            .mapNotNull(ChangeStreamEvent::getBody);
+    }
+
+    @Override
+    public void stop() {
+        tailing.dispose();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return tailing != null && !tailing.isDisposed();
+    }
+}
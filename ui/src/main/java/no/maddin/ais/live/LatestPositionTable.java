@@ -0,0 +1,307 @@
+package no.maddin.ais.live;
+
+import no.maddin.ais.data.BoundingBox;
+import no.maddin.ais.data.TrackPoint;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Latest position per MMSI in primitive columns of 27 bytes per row, plus an open-addressing index of 8 bytes per row.
+ * The rows grow by doubling, so 100,000 vessels take at most 4.5 MB.
+ * Values are kept as the db-updater's {@code AisPosition} keeps them: lon and lat in millionths of a degree,
+ * course in tenths of a degree, and the AIS "not available" values for missing fields.
+ * <p>
+ * Updates take a short write lock, snapshots a read lock while the matching rows are copied into the binary encoding.
+ * <p>
+ * Binary encoding, little-endian: {@code int} version, {@code int} count, then per vessel {@link #RECORD_BYTES} bytes:
+ * {@code int} mmsi, {@code long} timestamp (epoch milliseconds), {@code int} lat, {@code int} lon, {@code short} speed,
+ * {@code short} course, {@code short} heading, {@code byte} status.
+ */
+@Component
+public class LatestPositionTable {
+
+    public static final int VERSION = 1;
+
+    public static final int HEADER_BYTES = 8;
+
+    public static final int RECORD_BYTES = 27;
+
+    public static final int NO_LOCATION = Integer.MIN_VALUE;
+    public static final int SPEED_NOT_AVAILABLE = 1023;
+    public static final int COURSE_NOT_AVAILABLE = 3600;
+    public static final int HEADING_NOT_AVAILABLE = 511;
+    public static final int STATUS_NOT_DEFINED = 15;
+
+    private static final int INITIAL_ROWS = 1024;
+
+    private final StampedLock lock = new StampedLock();
+
+    /**
+     * Row of each MMSI plus one, {@code 0} for a free slot. Never more than half full.
+     */
+    private int[] index = new int[2 * INITIAL_ROWS];
+
+    private int rows;
+
+    private int[] mmsi = new int[INITIAL_ROWS];
+    private long[] timestamp = new long[INITIAL_ROWS];
+    private int[] lat = new int[INITIAL_ROWS];
+    private int[] lon = new int[INITIAL_ROWS];
+    private short[] speed = new short[INITIAL_ROWS];
+    private short[] course = new short[INITIAL_ROWS];
+    private short[] heading = new short[INITIAL_ROWS];
+    private byte[] status = new byte[INITIAL_ROWS];
+
+    private volatile boolean warm;
+
+    /**
+     * Older positions than the one in the table are ignored, so the order of updates does not matter.
+     * Points without a numeric MMSI or a timestamp are ignored.
+     *
+     * @return whether the point is now the latest of its vessel
+     */
+    public boolean update(TrackPoint point) {
+        int key = parseInt(point.mmsi(), 0);
+        if (key <= 0 || point.timestamp() == null) {
+            return false;
+        }
+        long millis = point.timestamp().toEpochMilli();
+        long stamp = lock.writeLock();
+        try {
+            int row = findOrAdd(key);
+            if (millis < timestamp[row]) {
+                return false;
+            }
+            timestamp[row] = millis;
+            lat[row] = fixed(point.lat());
+            lon[row] = fixed(point.lon());
+            speed[row] = (short) parseInt(point.speed(), SPEED_NOT_AVAILABLE);
+            course[row] = (short) tenths(point.course());
+            heading[row] = (short) parseInt(point.heading(), HEADING_NOT_AVAILABLE);
+            status[row] = (byte) parseInt(point.status(), STATUS_NOT_DEFINED);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Set once the table holds the latest stored position of every vessel, not only those received since startup.
+     */
+    public void warmedUp() {
+        warm = true;
+    }
+
+    public boolean isWarm() {
+        return warm;
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return rows;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * @param bbox only vessels in this box, all vessels if {@code null}
+     */
+    public List<TrackPoint> snapshot(BoundingBox bbox) {
+        return decode(encode(bbox));
+    }
+
+    /**
+     * The binary encoding described above.
+     *
+     * @param bbox only vessels in this box, all vessels if {@code null}
+     */
+    public byte[] encode(BoundingBox bbox) {
+        long stamp = lock.readLock();
+        try {
+            int minLon = 0;
+            int minLat = 0;
+            int width = -1;
+            int height = -1;
+            int count = rows;
+            if (bbox != null) {
+                minLon = (int) Math.ceil(bbox.minLon() * 1e6);
+                minLat = (int) Math.ceil(bbox.minLat() * 1e6);
+                width = (int) Math.floor(bbox.maxLon() * 1e6) - minLon;
+                height = (int) Math.floor(bbox.maxLat() * 1e6) - minLat;
+                count = 0;
+                for (int row = 0; row < rows; row++) {
+                    if (within(row, minLon, minLat, width, height)) {
+                        count++;
+                    }
+                }
+            }
+            ByteBuffer out = ByteBuffer.allocate(HEADER_BYTES + count * RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            out.putInt(VERSION).putInt(count);
+            for (int row = 0; row < rows; row++) {
+                if (bbox == null || within(row, minLon, minLat, width, height)) {
+                    out.putInt(mmsi[row])
+                        .putLong(timestamp[row])
+                        .putInt(lat[row])
+                        .putInt(lon[row])
+                        .putShort(speed[row])
+                        .putShort(course[row])
+                        .putShort(heading[row])
+                        .put(status[row]);
+                }
+            }
+            return out.array();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Reads the binary encoding. Values that are not available become {@code null}, as they are missing in {@code aisdata}.
+     *
+     * @throws IllegalArgumentException if the data is not of a known version or truncated
+     */
+    public static List<TrackPoint> decode(byte[] data) {
+        ByteBuffer in = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        if (in.remaining() < HEADER_BYTES) {
+            throw new IllegalArgumentException("Truncated position snapshot");
+        }
+        int version = in.getInt();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unknown position snapshot version " + version);
+        }
+        int count = in.getInt();
+        if (count < 0 || in.remaining() != (long) count * RECORD_BYTES) {
+            throw new IllegalArgumentException("Position snapshot of " + count + " vessels has " + in.remaining() + " bytes");
+        }
+        List<TrackPoint> points = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int mmsi = in.getInt();
+            long timestamp = in.getLong();
+            int lat = in.getInt();
+            int lon = in.getInt();
+            short speed = in.getShort();
+            short course = in.getShort();
+            short heading = in.getShort();
+            byte status = in.get();
+            points.add(new TrackPoint(
+                Integer.toString(mmsi),
+                Instant.ofEpochMilli(timestamp),
+                degrees(lat),
+                degrees(lon),
+                speed == SPEED_NOT_AVAILABLE ? null : Integer.toString(speed),
+                course == COURSE_NOT_AVAILABLE ? null : BigDecimal.valueOf(course, 1).stripTrailingZeros().toPlainString(),
+                heading == HEADING_NOT_AVAILABLE ? null : Integer.toString(heading),
+                status == STATUS_NOT_DEFINED ? null : Integer.toString(status)));
+        }
+        return points;
+    }
+
+    /**
+     * Unsigned comparisons, so the result does not depend on a branch per coordinate, which would be mispredicted for
+     * half of the vessels. {@link #NO_LOCATION} is further from any box than 360 degrees and never within it.
+     */
+    private boolean within(int row, int minLon, int minLat, int width, int height) {
+        return Integer.compareUnsigned(lon[row] - minLon, width) <= 0 & Integer.compareUnsigned(lat[row] - minLat, height) <= 0;
+    }
+
+    private int findOrAdd(int key) {
+        int mask = index.length - 1;
+        for (int slot = hash(key, index.length); ; slot = (slot + 1) & mask) {
+            int row = index[slot] - 1;
+            if (row < 0) {
+                return add(key, slot);
+            }
+            if (mmsi[row] == key) {
+                return row;
+            }
+        }
+    }
+
+    private int add(int key, int slot) {
+        if (rows == mmsi.length) {
+            grow();
+            return findOrAdd(key);
+        }
+        int row = rows++;
+        index[slot] = row + 1;
+        mmsi[row] = key;
+        timestamp[row] = Long.MIN_VALUE;
+        return row;
+    }
+
+    private void grow() {
+        int capacity = mmsi.length * 2;
+        mmsi = Arrays.copyOf(mmsi, capacity);
+        timestamp = Arrays.copyOf(timestamp, capacity);
+        lat = Arrays.copyOf(lat, capacity);
+        lon = Arrays.copyOf(lon, capacity);
+        speed = Arrays.copyOf(speed, capacity);
+        course = Arrays.copyOf(course, capacity);
+        heading = Arrays.copyOf(heading, capacity);
+        status = Arrays.copyOf(status, capacity);
+        index = new int[2 * capacity];
+        int mask = index.length - 1;
+        for (int row = 0; row < rows; row++) {
+            int slot = hash(mmsi[row], index.length);
+            while (index[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            index[slot] = row + 1;
+        }
+    }
+
+    /**
+     * MMSIs share their country prefix, so they are spread with a Fibonacci hash: the top bits of the product.
+     *
+     * @param slots a power of two
+     */
+    private static int hash(int key, int slots) {
+        return key * 0x9E3779B9 >>> Integer.numberOfLeadingZeros(slots) + 1;
+    }
+
+    private static int fixed(String degrees) {
+        double value = parseDecimal(degrees);
+        return Double.isNaN(value) ? NO_LOCATION : (int) Math.round(value * 1e6);
+    }
+
+    private static int tenths(String degrees) {
+        double value = parseDecimal(degrees);
+        return Double.isNaN(value) ? COURSE_NOT_AVAILABLE : (int) Math.round(value * 10);
+    }
+
+    private static String degrees(int fixed) {
+        return fixed == NO_LOCATION ? null : BigDecimal.valueOf(fixed, 6).stripTrailingZeros().toPlainString();
+    }
+
+    private static int parseInt(String value, int notAvailable) {
+        if (value == null || value.isBlank()) {
+            return notAvailable;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return notAvailable;
+        }
+    }
+
+    private static double parseDecimal(String value) {
+        if (value == null || value.isBlank()) {
+            return Double.NaN;
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+}
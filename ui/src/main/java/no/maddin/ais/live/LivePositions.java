@@ -0,0 +1,141 @@
+package no.maddin.ais.live;
+
+import lombok.extern.slf4j.Slf4j;
+import no.maddin.ais.config.LiveProperties;
+import no.maddin.ais.data.TrackPoint;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+
+/**
+ * Latest position per MMSI, shared by all viewers, kept in the {@link LatestPositionTable}.
+ * <p>
+ * Every subscriber has its own pending changes, keyed by MMSI, so a vessel that reports several times between two frames
+ * is sent once and the pending changes of a slow subscriber never grow beyond one entry per vessel.
+ * A frame is skipped for a subscriber while its previous frame is still being applied.
+ */
+@Component
+@Slf4j
+public class LivePositions implements SmartLifecycle {
+
+    private final LatestPositionTable latest;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    private final Duration frameInterval;
+
+    private volatile Disposable frames;
+
+    public LivePositions(LiveProperties liveProperties, LatestPositionTable latest) {
+        this.latest = latest;
+        this.frameInterval = Duration.ofMillis(1000 / Math.max(1, liveProperties.getFramesPerSecond()));
+    }
+
+    /**
+     * Receives the vessels changed since its last frame.
+     */
+    @FunctionalInterface
+    public interface FrameListener {
+
+        /**
+         * @return completes when the frame has been applied, the next frame waits for it
+         */
+        Future<?> onFrame(List<TrackPoint> changed);
+    }
+
+    /**
+     * Older positions than the one in the table are ignored, so the order of updates does not matter.
+     */
+    public void update(TrackPoint point) {
+        if (latest.update(point)) {
+            subscribers.forEach(s -> s.pending.merge(point.mmsi(), point, LivePositions::newer));
+        }
+    }
+
+    public Collection<TrackPoint> snapshot() {
+        return latest.snapshot(null);
+    }
+
+    /**
+     * The first frame contains all known vessels.
+     *
+     * @return unsubscribes
+     */
+    public Runnable subscribe(FrameListener listener) {
+        Subscriber subscriber = new Subscriber(listener);
+        latest.snapshot(null).forEach(p -> subscriber.pending.put(p.mmsi(), p));
+        subscribers.add(subscriber);
+        return () -> subscribers.remove(subscriber);
+    }
+
+    int subscriberCount() {
+        return subscribers.size();
+    }
+
+    void frame() {
+        subscribers.forEach(Subscriber::flush);
+    }
+
+    @Override
+    public void start() {
+        frames = Flux.interval(frameInterval)
+            .onBackpressureDrop()
+            .subscribe(tick -> frame(), e -> log.error("Live frames stopped", e));
+    }
+
+    @Override
+    public void stop() {
+        frames.dispose();
+        subscribers.clear();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return frames != null && !frames.isDisposed();
+    }
+
+    private static TrackPoint newer(TrackPoint current, TrackPoint candidate) {
+        return candidate.timestamp().isBefore(current.timestamp()) ? current : candidate;
+    }
+
+    private static final class Subscriber {
+
+        private final FrameListener listener;
+
+        private final Map<String, TrackPoint> pending = new ConcurrentHashMap<>();
+
+        private Future<?> inFlight;
+
+        Subscriber(FrameListener listener) {
+            this.listener = listener;
+        }
+
+        void flush() {
+            if (pending.isEmpty() || inFlight != null && !inFlight.isDone()) {
+                return;
+            }
+            List<TrackPoint> changed = new ArrayList<>(pending.size());
+            for (String mmsi : pending.keySet()) {
+                TrackPoint point = pending.remove(mmsi);
+                if (point != null) {
+                    changed.add(point);
+                }
+            }
+            try {
+                inFlight = listener.onFrame(changed);
+            } catch (RuntimeException e) {
+                log.warn("Live frame of {} vessels failed", changed.size(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package no.maddin.ais.repository;
+
+import lombok.RequiredArgsConstructor;
+import no.maddin.ais.config.TrackProperties;
+import no.maddin.ais.data.Rollup;
+import no.maddin.ais.data.RollupPeriod;
+import no.maddin.ais.data.RollupSummary;
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.Date;
+
+/**
+ * Queries on {@code aisrollups}. Both read one document per period over the unique (mmsi, period, start) index,
+ * however many positions the periods contain.
+ */
+@Repository
+@RequiredArgsConstructor
+public class RollupRepository {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    private final TrackProperties trackProperties;
+
+    /**
+     * Rollups of one vessel starting in {@code [from, to)}, oldest first.
+     */
+    public Flux<Rollup> rollups(String mmsi, RollupPeriod period, Instant from, Instant to) {
+        Query query = Query.query(criteria(mmsi, period, from, to))
+            .with(Sort.by("start"))
+            .cursorBatchSize(trackProperties.getCursorBatchSize());
+        query.fields().exclude("_id");
+        return mongoTemplate.find(query, Rollup.class);
+    }
+
+    /**
+     * The rollups of one vessel starting in {@code [from, to)}, added up by Mongo. Empty if there are none.
+     */
+    public Mono<RollupSummary> summary(String mmsi, RollupPeriod period, Instant from, Instant to) {
+        Aggregation aggregation = Aggregation.newAggregation(
+            Aggregation.match(criteria(mmsi, period, from, to)),
+            Aggregation.group()
+                .count().as("buckets")
+                .sum("positions").as("positions")
+                .sum("distanceMeters").as("distanceMeters")
+                .sum("underwaySeconds").as("underwaySeconds")
+                .sum("mooredSeconds").as("mooredSeconds")
+                .sum("speedSum").as("speedSum")
+                .sum("speedCount").as("speedCount")
+                .max("maxSpeed").as("maxSpeed")
+                .min("minLon").as("minLon")
+                .min("minLat").as("minLat")
+                .max("maxLon").as("maxLon")
+                .max("maxLat").as("maxLat")
+                .min("first").as("first")
+                .max("last").as("last"));
+        return mongoTemplate.aggregate(aggregation, Rollup.class, Document.class)
+            .next()
+            .map(sums -> new RollupSummary(mmsi, period, from, to,
+                number(sums, "buckets").longValue(),
+                number(sums, "positions").longValue(),
+                number(sums, "distanceMeters").doubleValue(),
+                number(sums, "underwaySeconds").doubleValue(),
+                number(sums, "mooredSeconds").doubleValue(),
+                number(sums, "speedSum").longValue(),
+                number(sums, "speedCount").longValue(),
+                sums.get("maxSpeed", Number.class) == null ? null : sums.get("maxSpeed", Number.class).intValue(),
+                sums.get("minLon", Double.class),
+                sums.get("minLat", Double.class),
+                sums.get("maxLon", Double.class),
+                sums.get("maxLat", Double.class),
+                instant(sums.get("first", Date.class)),
+                instant(sums.get("last", Date.class))));
+    }
+
+    private static Criteria criteria(String mmsi, RollupPeriod period, Instant from, Instant to) {
+        return Criteria.where("mmsi").is(mmsi).and("period").is(period).and("start").gte(from).lt(to);
+    }
+
+    private static Number number(Document document, String key) {
+        Number value = document.get(key, Number.class);
+        return value == null ? 0 : value;
+    }
+
+    private static Instant instant(Date date) {
+        return date == null ? null : date.toInstant();
+    }
+}
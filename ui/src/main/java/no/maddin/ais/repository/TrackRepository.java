@@ -0,0 +1,161 @@
+package no.maddin.ais.repository;
+
+import lombok.RequiredArgsConstructor;
+import no.maddin.ais.config.TrackProperties;
+import no.maddin.ais.data.AisPosition;
+import no.maddin.ais.data.BoundingBox;
+import no.maddin.ais.data.PositionBlock;
+import no.maddin.ais.data.PositionBlockCodec;
+import no.maddin.ais.data.TrackPoint;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.geo.GeoJsonPolygon;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.geo.Point;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Queries on {@code aisdata}. All results are streamed from the Mongo cursor, the subscriber's demand decides how many
+ * batches of {@link TrackProperties#getCursorBatchSize()} documents are fetched.
+ * Tracks and latest positions include the days the db-updater has compacted into {@code aispositionblocks}.
+ */
+@Repository
+@RequiredArgsConstructor
+public class TrackRepository {
+
+    private static final String[] FIELDS = {"mmsi", "timestamp", "lat", "lon", "speed", "course", "heading", "status"};
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    private final TrackProperties trackProperties;
+
+    /**
+     * Positions of one vessel in {@code [from, to)}, oldest first. Uses the (mmsi, timestamp) index.
+     * Compacted days are decoded one block at a time and merged in, a position that is in both is returned once.
+     */
+    public Flux<TrackPoint> track(String mmsi, Instant from, Instant to) {
+        Query query = Query.query(Criteria.where("mmsi").is(mmsi).and("timestamp").gte(from).lt(to))
+            .with(Sort.by("timestamp"))
+            .cursorBatchSize(trackProperties.getCursorBatchSize());
+        query.fields().include(FIELDS).exclude("_id");
+        Query blocks = Query.query(Criteria.where("mmsi").is(mmsi).and("start").lt(to).and("end").gt(from))
+            .with(Sort.by("start"));
+        Flux<TrackPoint> compacted = mongoTemplate.find(blocks, PositionBlock.class)
+            .concatMapIterable(TrackRepository::points)
+            .filter(point -> !point.timestamp().isBefore(from) && point.timestamp().isBefore(to));
+        return Flux.mergeComparing(Comparator.comparing(TrackPoint::timestamp), mongoTemplate.find(query, TrackPoint.class), compacted)
+            .distinctUntilChanged(TrackPoint::timestamp);
+    }
+
+    /**
+     * The last position of the newest block if the vessel has none in {@code aisdata}, because it has been silent for
+     * longer than the db-updater's hot window.
+     */
+    public Mono<TrackPoint> latest(String mmsi) {
+        Query query = Query.query(Criteria.where("mmsi").is(mmsi))
+            .with(Sort.by(Sort.Direction.DESC, "timestamp"))
+            .limit(1);
+        query.fields().include(FIELDS).exclude("_id");
+        Query block = Query.query(Criteria.where("mmsi").is(mmsi))
+            .with(Sort.by(Sort.Direction.DESC, "start"))
+            .limit(1);
+        return mongoTemplate.findOne(query, TrackPoint.class)
+            .switchIfEmpty(Mono.defer(() -> mongoTemplate.findOne(block, PositionBlock.class)).mapNotNull(TrackRepository::last));
+    }
+
+    /**
+     * Latest position of every given vessel, or of all vessels if {@code mmsis} is empty.
+     * Vessels without positions in {@code aisdata} follow with the last position of their newest block,
+     * only their blocks are decoded.
+     */
+    public Flux<TrackPoint> latest(Collection<String> mmsis) {
+        Criteria criteria = mmsis.isEmpty() ? new Criteria() : Criteria.where("mmsi").in(mmsis);
+        return Flux.defer(() -> {
+            Set<String> found = ConcurrentHashMap.newKeySet();
+            return Flux.concat(
+                latestPerVessel(criteria).doOnNext(point -> found.add(point.mmsi())),
+                Flux.defer(() -> newestBlockPerVessel(criteria))
+                    .filter(block -> !found.contains(block.getMmsi()))
+                    .mapNotNull(TrackRepository::last));
+        });
+    }
+
+    /**
+     * Latest position of every vessel that was inside the box since {@code since}.
+     * Only {@code aisdata} is searched, compacted positions have no location: a {@code since} before the db-updater's
+     * hot window finds the vessels that were in the box within it.
+     */
+    public Flux<TrackPoint> within(BoundingBox box, Instant since) {
+        GeoJsonPolygon polygon = new GeoJsonPolygon(
+            new Point(box.minLon(), box.minLat()),
+            new Point(box.maxLon(), box.minLat()),
+            new Point(box.maxLon(), box.maxLat()),
+            new Point(box.minLon(), box.maxLat()),
+            new Point(box.minLon(), box.minLat()));
+        return latestPerVessel(Criteria.where("location").within(polygon).and("timestamp").gte(since));
+    }
+
+    /**
+     * Sorting by (mmsi, timestamp) before grouping lets Mongo use the (mmsi, timestamp) index.
+     */
+    private Flux<TrackPoint> latestPerVessel(Criteria criteria) {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(criteria),
+                Aggregation.sort(Sort.by(Sort.Order.asc("mmsi"), Sort.Order.desc("timestamp"))),
+                Aggregation.group("mmsi")
+                    .first("timestamp").as("timestamp")
+                    .first("lat").as("lat")
+                    .first("lon").as("lon")
+                    .first("speed").as("speed")
+                    .first("course").as("course")
+                    .first("heading").as("heading")
+                    .first("status").as("status"),
+                Aggregation.project(FIELDS).and("_id").as("mmsi").andExclude("_id"))
+            .withOptions(AggregationOptions.builder().allowDiskUse(true).cursorBatchSize(trackProperties.getCursorBatchSize()).build());
+        return mongoTemplate.aggregate(aggregation, "aisdata", TrackPoint.class);
+    }
+
+    /**
+     * Sorted in reverse to use the (mmsi, start) index.
+     */
+    private Flux<PositionBlock> newestBlockPerVessel(Criteria criteria) {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(criteria),
+                Aggregation.sort(Sort.by(Sort.Order.desc("mmsi"), Sort.Order.desc("start"))),
+                Aggregation.group("mmsi")
+                    .first("start").as("start")
+                    .first("end").as("end")
+                    .first("count").as("count")
+                    .first("version").as("version")
+                    .first("positions").as("positions"),
+                Aggregation.project("start", "end", "count", "version", "positions").and("_id").as("mmsi").andExclude("_id"))
+            .withOptions(AggregationOptions.builder().allowDiskUse(true).build());
+        return mongoTemplate.aggregate(aggregation, "aispositionblocks", PositionBlock.class);
+    }
+
+    /**
+     * {@code null} if the block is empty.
+     */
+    static TrackPoint last(PositionBlock block) {
+        List<AisPosition> positions = PositionBlockCodec.decode(block);
+        return positions.isEmpty() ? null : TrackPoint.of(block.getMmsi(), positions.getLast());
+    }
+
+    private static List<TrackPoint> points(PositionBlock block) {
+        return PositionBlockCodec.decode(block).stream()
+            .map(position -> TrackPoint.of(block.getMmsi(), position))
+            .toList();
+    }
+}
@@ -0,0 +1,17 @@
+package no.maddin.ais.track;
+
+/**
+ * Line simplification applied to a track before it is sent to the map.
+ */
+public enum Simplification {
+    NONE,
+    /**
+     * Drops points closer than the tolerance to the line between the points kept around them.
+     */
+    DOUGLAS_PEUCKER,
+    /**
+     * Repeatedly drops the point whose triangle with its neighbours has the smallest area, until all areas exceed the
+     * square of the tolerance. Keeps the shape of slow turns better than Douglas–Peucker.
+     */
+    VISVALINGAM
+}
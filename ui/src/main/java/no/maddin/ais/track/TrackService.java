@@ -0,0 +1,106 @@
+package no.maddin.ais.track;
+
+import no.maddin.ais.config.TrackProperties;
+import no.maddin.ais.data.TrackPoint;
+import no.maddin.ais.repository.TrackRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tracks prepared for the map: downsampled to time buckets, simplified for a zoom level and cached.
+ * <p>
+ * Only ranges that ended in the past are cached, newer positions may still arrive for an open range.
+ */
+@Service
+public class TrackService {
+
+    private final TrackRepository trackRepository;
+
+    private final TrackProperties.Simplify properties;
+
+    private final Clock clock;
+
+    private final Map<Key, List<TrackPoint>> cache;
+
+    @Autowired
+    public TrackService(TrackRepository trackRepository, TrackProperties trackProperties) {
+        this(trackRepository, trackProperties, Clock.systemUTC());
+    }
+
+    TrackService(TrackRepository trackRepository, TrackProperties trackProperties, Clock clock) {
+        this.trackRepository = trackRepository;
+        this.properties = trackProperties.getSimplify();
+        this.clock = clock;
+        int cacheSize = properties.getCacheSize();
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, List<TrackPoint>> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * @param zoom   map zoom level to simplify for, no simplification if {@code null}
+     * @param bucket keep one position per bucket, no downsampling if {@code null}
+     */
+    public Flux<TrackPoint> track(String mmsi, Instant from, Instant to, Integer zoom, Duration bucket) {
+        if (zoom == null && bucket == null) {
+            return trackRepository.track(mmsi, from, to);
+        }
+        Key key = new Key(mmsi, from, to, zoom, bucket);
+        List<TrackPoint> cached = cached(key);
+        if (cached != null) {
+            return Flux.fromIterable(cached);
+        }
+        Flux<TrackPoint> points = trackRepository.track(mmsi, from, to);
+        if (bucket != null) {
+            points = TrackSimplifier.downsample(points, bucket);
+        }
+        if (zoom != null) {
+            points = TrackSimplifier.simplify(points, properties.getAlgorithm(),
+                TrackSimplifier.tolerance(zoom, properties.getTolerancePixels()), properties.getChunkSize());
+        }
+        if (!to.isBefore(clock.instant())) {
+            return points;
+        }
+        return cacheOnComplete(key, points);
+    }
+
+    private Flux<TrackPoint> cacheOnComplete(Key key, Flux<TrackPoint> points) {
+        return Flux.defer(() -> {
+            List<TrackPoint> collected = new ArrayList<>();
+            return points
+                .doOnNext(p -> {
+                    if (collected.size() <= properties.getMaxCachedPoints()) {
+                        collected.add(p);
+                    }
+                })
+                .doOnComplete(() -> {
+                    if (collected.size() <= properties.getMaxCachedPoints()) {
+                        synchronized (cache) {
+                            cache.put(key, List.copyOf(collected));
+                        }
+                    }
+                });
+        });
+    }
+
+    private List<TrackPoint> cached(Key key) {
+        synchronized (cache) {
+            return cache.get(key);
+        }
+    }
+
+    private record Key(String mmsi, Instant from, Instant to, Integer zoom, Duration bucket) {
+    }
+}
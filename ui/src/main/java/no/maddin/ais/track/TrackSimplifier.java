@@ -0,0 +1,358 @@
+package no.maddin.ais.track;
+
+import no.maddin.ais.data.TrackPoint;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reduces the number of positions in a track without changing its shape at a given zoom level.
+ * <p>
+ * Points are projected to Web Mercator, where one pixel at zoom {@code z} is {@code 156543.03 / 2^z} units everywhere,
+ * so a tolerance in pixels becomes a single distance for the whole track.
+ * Streams are simplified in chunks: the last point of a chunk starts the next one, so memory is bounded by the chunk size
+ * and the only difference to simplifying the whole track at once is that chunk ends are always kept.
+ */
+public final class TrackSimplifier {
+
+    /**
+     * Web Mercator units per pixel of a 256 pixel tile at zoom 0.
+     */
+    static final double RESOLUTION_ZOOM_0 = 156543.03392804097;
+
+    private static final double EARTH_RADIUS = 6378137.0;
+
+    private static final double MAX_LAT = 85.05112878;
+
+    private TrackSimplifier() {
+    }
+
+    /**
+     * @return Web Mercator distance covered by {@code pixels} at {@code zoom}
+     */
+    public static double tolerance(int zoom, double pixels) {
+        return pixels * RESOLUTION_ZOOM_0 / Math.pow(2, zoom);
+    }
+
+    static double mercatorX(double lon) {
+        return Math.toRadians(lon) * EARTH_RADIUS;
+    }
+
+    static double mercatorY(double lat) {
+        double clamped = Math.max(-MAX_LAT, Math.min(MAX_LAT, lat));
+        return Math.log(Math.tan(Math.PI / 4 + Math.toRadians(clamped) / 2)) * EARTH_RADIUS;
+    }
+
+    /**
+     * Keeps the first point of every time bucket and the last point of the track.
+     * Points must be ordered by timestamp.
+     */
+    public static Flux<TrackPoint> downsample(Flux<TrackPoint> points, Duration bucket) {
+        long bucketMillis = bucket.toMillis();
+        if (bucketMillis <= 0) {
+            return points;
+        }
+        return Flux.defer(() -> {
+            long[] lastBucket = {Long.MIN_VALUE};
+            TrackPoint[] held = new TrackPoint[1];
+            return points
+                .filter(p -> {
+                    long current = Math.floorDiv(p.timestamp().toEpochMilli(), bucketMillis);
+                    boolean first = current != lastBucket[0];
+                    lastBucket[0] = current;
+                    held[0] = first ? null : p;
+                    return first;
+                })
+                .concatWith(Mono.fromSupplier(() -> held[0]));
+        });
+    }
+
+    /**
+     * Simplifies an ordered stream of positions, {@code chunkSize} points at a time.
+     * Positions without a valid location are dropped.
+     */
+    public static Flux<TrackPoint> simplify(Flux<TrackPoint> points, Simplification algorithm, double tolerance, int chunkSize) {
+        if (algorithm == Simplification.NONE || tolerance <= 0) {
+            return points;
+        }
+        return Flux.defer(() -> {
+            Chunk chunk = new Chunk(chunkSize + 1);
+            return points
+                .buffer(chunkSize)
+                .concatMapIterable(buffer -> chunk.simplify(buffer, algorithm, tolerance));
+        });
+    }
+
+    /**
+     * @return for every point, whether it is kept
+     */
+    public static boolean[] simplify(double[] x, double[] y, int n, Simplification algorithm, double tolerance) {
+        return switch (algorithm) {
+            case NONE -> keepAll(n);
+            case DOUGLAS_PEUCKER -> douglasPeucker(x, y, n, tolerance);
+            case VISVALINGAM -> visvalingam(x, y, n, tolerance);
+        };
+    }
+
+    static boolean[] douglasPeucker(double[] x, double[] y, int n, double tolerance) {
+        boolean[] keep = new boolean[n];
+        if (n <= 2) {
+            Arrays.fill(keep, true);
+            return keep;
+        }
+        keep[0] = true;
+        keep[n - 1] = true;
+        double toleranceSquared = tolerance * tolerance;
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = n - 1;
+        while (top > 0) {
+            int end = stack[--top];
+            int start = stack[--top];
+            int farthest = -1;
+            double max = toleranceSquared;
+            for (int i = start + 1; i < end; i++) {
+                double d = segmentDistanceSquared(x[i], y[i], x[start], y[start], x[end], y[end]);
+                if (d > max) {
+                    max = d;
+                    farthest = i;
+                }
+            }
+            if (farthest < 0) {
+                continue;
+            }
+            keep[farthest] = true;
+            if (top + 4 > stack.length) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+            }
+            if (farthest - start > 1) {
+                stack[top++] = start;
+                stack[top++] = farthest;
+            }
+            if (end - farthest > 1) {
+                stack[top++] = farthest;
+                stack[top++] = end;
+            }
+        }
+        return keep;
+    }
+
+    static boolean[] visvalingam(double[] x, double[] y, int n, double tolerance) {
+        boolean[] keep = keepAll(n);
+        if (n <= 2) {
+            return keep;
+        }
+        double threshold = tolerance * tolerance;
+        int[] prev = new int[n];
+        int[] next = new int[n];
+        double[] area = new double[n];
+        for (int i = 0; i < n; i++) {
+            prev[i] = i - 1;
+            next[i] = i + 1;
+        }
+        AreaHeap heap = new AreaHeap(area, n);
+        for (int i = 1; i < n - 1; i++) {
+            area[i] = triangleArea(x, y, i - 1, i, i + 1);
+            heap.add(i);
+        }
+        double lastRemoved = 0;
+        while (!heap.isEmpty()) {
+            int i = heap.peek();
+            // the effective area of a point never drops below the area of a point removed before it
+            double effective = Math.max(area[i], lastRemoved);
+            if (effective >= threshold) {
+                break;
+            }
+            heap.poll();
+            lastRemoved = effective;
+            keep[i] = false;
+            int p = prev[i];
+            int q = next[i];
+            next[p] = q;
+            prev[q] = p;
+            if (p > 0) {
+                area[p] = triangleArea(x, y, prev[p], p, q);
+                heap.update(p);
+            }
+            if (q < n - 1) {
+                area[q] = triangleArea(x, y, p, q, next[q]);
+                heap.update(q);
+            }
+        }
+        return keep;
+    }
+
+    private static boolean[] keepAll(int n) {
+        boolean[] keep = new boolean[n];
+        Arrays.fill(keep, true);
+        return keep;
+    }
+
+    private static double segmentDistanceSquared(double px, double py, double ax, double ay, double bx, double by) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        double lengthSquared = dx * dx + dy * dy;
+        double t = lengthSquared == 0 ? 0 : Math.max(0, Math.min(1, ((px - ax) * dx + (py - ay) * dy) / lengthSquared));
+        double ex = px - (ax + t * dx);
+        double ey = py - (ay + t * dy);
+        return ex * ex + ey * ey;
+    }
+
+    private static double triangleArea(double[] x, double[] y, int a, int b, int c) {
+        return Math.abs((x[a] - x[c]) * (y[b] - y[a]) - (x[a] - x[b]) * (y[c] - y[a])) / 2;
+    }
+
+    /**
+     * Per subscription buffers, reused for every chunk.
+     */
+    private static final class Chunk {
+
+        private final double[] x;
+
+        private final double[] y;
+
+        private final TrackPoint[] points;
+
+        private TrackPoint carry;
+
+        Chunk(int capacity) {
+            x = new double[capacity];
+            y = new double[capacity];
+            points = new TrackPoint[capacity];
+        }
+
+        List<TrackPoint> simplify(List<TrackPoint> buffer, Simplification algorithm, double tolerance) {
+            int n = 0;
+            if (carry != null) {
+                n = add(carry, n);
+            }
+            int first = n;
+            for (TrackPoint point : buffer) {
+                n = add(point, n);
+            }
+            if (n == first) {
+                return List.of();
+            }
+            boolean[] keep = TrackSimplifier.simplify(x, y, n, algorithm, tolerance);
+            List<TrackPoint> kept = new ArrayList<>();
+            for (int i = first; i < n; i++) {
+                if (keep[i]) {
+                    kept.add(points[i]);
+                }
+            }
+            carry = points[n - 1];
+            Arrays.fill(points, 0, n, null);
+            return kept;
+        }
+
+        private int add(TrackPoint point, int n) {
+            double lat = parse(point.lat());
+            double lon = parse(point.lon());
+            if (Double.isNaN(lat) || Double.isNaN(lon) || Math.abs(lat) > 90 || Math.abs(lon) > 180) {
+                return n;
+            }
+            x[n] = mercatorX(lon);
+            y[n] = mercatorY(lat);
+            points[n] = point;
+            return n + 1;
+        }
+
+        private static double parse(String value) {
+            if (value == null) {
+                return Double.NaN;
+            }
+            try {
+                return Double.parseDouble(value);
+            } catch (NumberFormatException e) {
+                return Double.NaN;
+            }
+        }
+    }
+
+    /**
+     * Binary min-heap of point indexes ordered by area, with positions tracked so an area can be updated in place.
+     */
+    private static final class AreaHeap {
+
+        private final double[] area;
+
+        private final int[] heap;
+
+        private final int[] position;
+
+        private int size;
+
+        AreaHeap(double[] area, int n) {
+            this.area = area;
+            this.heap = new int[n];
+            this.position = new int[n];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        int peek() {
+            return heap[0];
+        }
+
+        void add(int index) {
+            heap[size] = index;
+            position[index] = size;
+            up(size++);
+        }
+
+        int poll() {
+            int top = heap[0];
+            heap[0] = heap[--size];
+            position[heap[0]] = 0;
+            down(0);
+            return top;
+        }
+
+        void update(int index) {
+            int i = position[index];
+            up(i);
+            down(position[index]);
+        }
+
+        private void up(int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (area[heap[parent]] <= area[heap[i]]) {
+                    return;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void down(int i) {
+            while (true) {
+                int left = 2 * i + 1;
+                if (left >= size) {
+                    return;
+                }
+                int smallest = left + 1 < size && area[heap[left + 1]] < area[heap[left]] ? left + 1 : left;
+                if (area[heap[i]] <= area[heap[smallest]]) {
+                    return;
+                }
+                swap(i, smallest);
+                i = smallest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int tmp = heap[a];
+            heap[a] = heap[b];
+            heap[b] = tmp;
+            position[heap[a]] = a;
+            position[heap[b]] = b;
+        }
+    }
+}
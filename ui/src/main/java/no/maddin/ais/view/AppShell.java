@@ -0,0 +1,11 @@
+package no.maddin.ais.view;
+
+import com.vaadin.flow.component.page.AppShellConfigurator;
+import com.vaadin.flow.component.page.Push;
+
+/**
+ * Server push over WebSocket, so views can update without the browser polling.
+ */
+@Push
+public class AppShell implements AppShellConfigurator {
+}
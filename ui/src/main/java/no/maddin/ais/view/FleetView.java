@@ -0,0 +1,87 @@
+package no.maddin.ais.view;
+
+import com.vaadin.flow.component.AttachEvent;
+import com.vaadin.flow.component.DetachEvent;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.grid.Grid;
+import com.vaadin.flow.component.orderedlayout.VerticalLayout;
+import com.vaadin.flow.data.provider.ListDataProvider;
+import com.vaadin.flow.router.PageTitle;
+import com.vaadin.flow.router.Route;
+import no.maddin.ais.data.TrackPoint;
+import no.maddin.ais.live.LivePositions;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Latest position of every vessel, updated by server push from {@link LivePositions}.
+ */
+@Route("")
+@PageTitle("AIS fleet")
+public class FleetView extends VerticalLayout {
+
+    private final LivePositions livePositions;
+
+    private final List<TrackPoint> rows = new ArrayList<>();
+
+    private final Map<String, Integer> rowIndex = new HashMap<>();
+
+    private final ListDataProvider<TrackPoint> dataProvider = new ListDataProvider<>(rows) {
+        @Override
+        public Object getId(TrackPoint item) {
+            return item.mmsi();
+        }
+    };
+
+    private Runnable unsubscribe;
+
+    public FleetView(LivePositions livePositions) {
+        this.livePositions = livePositions;
+        Grid<TrackPoint> grid = new Grid<>();
+        grid.addColumn(TrackPoint::mmsi).setHeader("MMSI").setSortable(true);
+        grid.addColumn(TrackPoint::timestamp).setHeader("Time").setSortable(true);
+        grid.addColumn(TrackPoint::lat).setHeader("Lat");
+        grid.addColumn(TrackPoint::lon).setHeader("Lon");
+        grid.addColumn(TrackPoint::speed).setHeader("Speed");
+        grid.addColumn(TrackPoint::course).setHeader("Course");
+        grid.addColumn(TrackPoint::status).setHeader("Status");
+        grid.setItems(dataProvider);
+        grid.setSizeFull();
+        add(grid);
+        setSizeFull();
+    }
+
+    @Override
+    protected void onAttach(AttachEvent attachEvent) {
+        UI ui = attachEvent.getUI();
+        unsubscribe = livePositions.subscribe(changed -> ui.access(() -> apply(changed)));
+    }
+
+    @Override
+    protected void onDetach(DetachEvent detachEvent) {
+        unsubscribe.run();
+    }
+
+    private void apply(List<TrackPoint> changed) {
+        boolean added = false;
+        for (TrackPoint point : changed) {
+            Integer index = rowIndex.get(point.mmsi());
+            if (index == null) {
+                rowIndex.put(point.mmsi(), rows.size());
+                rows.add(point);
+                added = true;
+            } else {
+                rows.set(index, point);
+                if (!added) {
+                    dataProvider.refreshItem(point);
+                }
+            }
+        }
+        if (added) {
+            dataProvider.refreshAll();
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package no.maddin.ais.api;
+
+import no.maddin.ais.config.TrackProperties;
+import no.maddin.ais.data.BoundingBox;
+import no.maddin.ais.data.RollupPeriod;
+import no.maddin.ais.data.RollupSummary;
+import no.maddin.ais.data.TrackPoint;
+import no.maddin.ais.live.LatestPositionTable;
+import no.maddin.ais.repository.RollupRepository;
+import no.maddin.ais.repository.TrackRepository;
+import no.maddin.ais.track.TrackService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@WebFluxTest(TrackController.class)
+@Import({TrackProperties.class, TrackService.class, LatestPositionTable.class})
+class TrackControllerTest {
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @MockBean
+    TrackRepository trackRepository;
+
+    @MockBean
+    RollupRepository rollupRepository;
+
+    @Autowired
+    LatestPositionTable latestPositionTable;
+
+    @Test
+    void trackAsNdjson() {
+        Instant from = Instant.parse("2021-01-01T00:00:00Z");
+        Instant to = Instant.parse("2021-01-02T00:00:00Z");
+        when(trackRepository.track("123456789", from, to)).thenReturn(Flux.just(
+            new TrackPoint("123456789", from, "37.878850", "23.726880", "0", "0", "320", "5"),
+            new TrackPoint("123456789", from.plusSeconds(60), "37.903030", "23.548990", "2", "160", "160", "15")));
+
+        webTestClient.get()
+            .uri("/api/vessels/123456789/track?from={from}&to={to}", from, to)
+            .accept(MediaType.APPLICATION_NDJSON)
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+            .expectBody(String.class)
+            .value(body -> assertThat(body.lines().count(), equalTo(2L)));
+    }
+
+    @Test
+    void downsampledTrack() {
+        Instant from = Instant.parse("2021-01-01T00:00:00Z");
+        Instant to = Instant.parse("2021-01-02T00:00:00Z");
+        when(trackRepository.track("123456789", from, to)).thenReturn(Flux.just(
+            new TrackPoint("123456789", from, "37.878850", "23.726880", "0", "0", "320", "5"),
+            new TrackPoint("123456789", from.plusSeconds(60), "37.903030", "23.548990", "2", "160", "160", "15"),
+            new TrackPoint("123456789", from.plusSeconds(120), "37.903030", "23.548990", "2", "160", "160", "15"),
+            new TrackPoint("123456789", from.plusSeconds(360), "37.903030", "23.548990", "2", "160", "160", "15")));
+
+        webTestClient.get()
+            .uri("/api/vessels/123456789/track?from={from}&to={to}&zoom=10&bucket=PT5M", from, to)
+            .accept(MediaType.APPLICATION_NDJSON)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(String.class)
+            .value(body -> assertThat(body.lines().count(), equalTo(2L)));
+    }
+
+    @Test
+    void withinBoundingBox() {
+        when(trackRepository.within(eq(new BoundingBox(10, 59, 11, 60)), any())).thenReturn(Flux.empty());
+
+        webTestClient.get()
+            .uri("/api/vessels/within?bbox=10,59,11,60")
+            .accept(MediaType.APPLICATION_NDJSON)
+            .exchange()
+            .expectStatus().isOk();
+    }
+
+    @Test
+    void rejectInvalidBoundingBox() {
+        webTestClient.get()
+            .uri("/api/vessels/within?bbox=11,59,10,60")
+            .accept(MediaType.APPLICATION_NDJSON)
+            .exchange()
+            .expectStatus().isBadRequest();
+
+        verifyNoInteractions(trackRepository);
+    }
+
+    @Test
+    void snapshotFromMemoryOnceWarm() {
+        Instant now = Instant.parse("2024-05-01T00:00:00Z");
+        webTestClient.get()
+            .uri("/api/vessels/snapshot")
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus().isEqualTo(503);
+
+        latestPositionTable.update(new TrackPoint("123456789", now, "59.5", "10.5", "120", "90.5", "91", "0"));
+        latestPositionTable.update(new TrackPoint("987654321", now, "37.87885", "23.72688", "0", "0", "320", "5"));
+        latestPositionTable.warmedUp();
+
+        webTestClient.get()
+            .uri("/api/vessels/snapshot?bbox=10,59,11,60")
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.length()").isEqualTo(1)
+            .jsonPath("$[0].mmsi").isEqualTo("123456789")
+            .jsonPath("$[0].course").isEqualTo("90.5");
+
+        webTestClient.get()
+            .uri("/api/vessels/snapshot")
+            .accept(MediaType.APPLICATION_OCTET_STREAM)
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().contentType(MediaType.APPLICATION_OCTET_STREAM)
+            .expectBody(byte[].class)
+            .value(body -> assertThat(LatestPositionTable.decode(body).size(), equalTo(2)));
+    }
+
+    @Test
+    void monthlySummaryFromDailyRollups() {
+        Instant from = Instant.parse("2024-05-01T00:00:00Z");
+        Instant to = Instant.parse("2024-06-01T00:00:00Z");
+        when(rollupRepository.summary("123456789", RollupPeriod.DAY, from, to)).thenReturn(Mono.just(
+            new RollupSummary("123456789", RollupPeriod.DAY, from, to, 31, 40_000, 1852 * 120.0, 3600 * 10.0, 3600 * 700.0,
+                400_000, 40_000, 140, 10.0, 59.0, 11.0, 60.0, from, to.minusSeconds(60))));
+
+        webTestClient.get()
+            .uri("/api/vessels/123456789/summary?period=DAY&from={from}&to={to}", from, to)
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.buckets").isEqualTo(31)
+            .jsonPath("$.averageSpeed").isEqualTo(10.0)
+            .jsonPath("$.averageSpeedUnderway").isEqualTo(12.0);
+    }
+
+    @Test
+    void noRollupsNoSummary() {
+        when(rollupRepository.summary(eq("123456789"), eq(RollupPeriod.VOYAGE), any(), any())).thenReturn(Mono.empty());
+
+        webTestClient.get()
+            .uri("/api/vessels/123456789/summary?period=VOYAGE&from=2024-05-01T00:00:00Z")
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus().isNotFound();
+    }
+}
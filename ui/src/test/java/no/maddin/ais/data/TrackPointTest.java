@@ -0,0 +1,39 @@
+package no.maddin.ais.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+class TrackPointTest {
+
+    private static final Instant START = Instant.parse("2024-05-01T00:00:00Z");
+
+    /**
+     * Written by the db-updater: a position under way, a moored one without course and one without any values.
+     */
+    private static final byte[] BLOCK = Base64.getDecoder().decode(
+        "eNpjfsH+4AozEB3YPpfr/2Lm/ZNndQm0bO+13HOKaX/jhJ0C3xi/Mv7j72OfZMgQsYydgYFLpG/Rc45eIGb45/jXkQEAAlcc+w==");
+
+    @Test
+    void compactedPositionsAsInAisdata() {
+        var block = PositionBlock.builder()
+            .mmsi("257961640")
+            .start(START.atOffset(ZoneOffset.UTC))
+            .end(START.plusSeconds(86_400).atOffset(ZoneOffset.UTC))
+            .count(3)
+            .version(PositionBlockCodec.VERSION)
+            .positions(BLOCK)
+            .build();
+
+        assertThat(PositionBlockCodec.decode(block).stream().map(position -> TrackPoint.of(block.getMmsi(), position)).toList(), equalTo(List.of(
+            new TrackPoint("257961640", START.plusSeconds(1), "59.87885", "10.72688", "123", "45.5", "44", "0"),
+            new TrackPoint("257961640", START.plusSeconds(61), "59.9", "10.7", "0", null, null, "5"),
+            new TrackPoint("257961640", START.plusSeconds(121), null, null, null, null, null, "15"))));
+    }
+}
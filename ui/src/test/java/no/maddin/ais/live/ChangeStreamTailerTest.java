@@ -0,0 +1,52 @@
+package no.maddin.ais.live;
+
+import no.maddin.ais.config.LiveProperties;
+import no.maddin.ais.data.TrackPoint;
+import no.maddin.ais.repository.TrackRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ChangeStreamTailerTest {
+
+    @Test
+    void reopenOnlyTheStreamAfterAnError() {
+        ReactiveMongoTemplate mongoTemplate = Mockito.mock(ReactiveMongoTemplate.class);
+        TrackRepository trackRepository = Mockito.mock(TrackRepository.class);
+        AtomicInteger seeds = new AtomicInteger();
+        when(trackRepository.latest(List.of())).thenReturn(Flux.defer(() -> {
+            seeds.incrementAndGet();
+            return Flux.just(new TrackPoint("257961640", Instant.parse("2024-05-01T00:00:00Z"), "59.9", "10.7", "0", null, null, "5"));
+        }));
+        Flux<ChangeStreamEvent<TrackPoint>> failing = Flux.error(new IllegalStateException("Connection reset"));
+        when(mongoTemplate.changeStream(eq("aisdata"), any(ChangeStreamOptions.class), eq(TrackPoint.class))).thenReturn(failing, failing, Flux.never());
+        var liveProperties = new LiveProperties();
+        liveProperties.setRetryBackoff(Duration.ofMillis(1));
+        var latestPositionTable = new LatestPositionTable();
+        var tailer = new ChangeStreamTailer(mongoTemplate, trackRepository, new LivePositions(liveProperties, latestPositionTable), latestPositionTable, liveProperties);
+
+        tailer.start();
+        try {
+            verify(mongoTemplate, timeout(5000).times(3)).changeStream(eq("aisdata"), any(ChangeStreamOptions.class), eq(TrackPoint.class));
+            assertThat(seeds.get(), equalTo(1));
+        } finally {
+            tailer.stop();
+        }
+    }
+}
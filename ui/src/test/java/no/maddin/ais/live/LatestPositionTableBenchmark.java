@@ -0,0 +1,81 @@
+package no.maddin.ais.live;
+
+import no.maddin.ais.data.BoundingBox;
+import no.maddin.ais.data.TrackPoint;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Snapshots of a table of 100,000 vessels spread over the world: the whole fleet and the North Sea, about 0.25% of them,
+ * binary and as {@link TrackPoint}s.
+ * <p>
+ * {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args="LatestPositionTableBenchmark -prof gc"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LatestPositionTableBenchmark {
+
+    private static final int VESSELS = 100_000;
+
+    private static final BoundingBox NORTH_SEA = new BoundingBox(-4, 51, 9, 61);
+
+    private static final Instant START = Instant.parse("2024-05-01T00:00:00Z");
+
+    private final LatestPositionTable table = new LatestPositionTable();
+
+    private TrackPoint[] updates;
+
+    private int next;
+
+    @Setup
+    public void setUp() {
+        var random = new Random(1);
+        updates = new TrackPoint[VESSELS];
+        for (int i = 0; i < VESSELS; i++) {
+            updates[i] = new TrackPoint(Integer.toString(200_000_000 + random.nextInt(600_000_000)), START.plusSeconds(i),
+                String.format(Locale.ROOT, "%.6f", random.nextDouble() * 140 - 70),
+                String.format(Locale.ROOT, "%.6f", random.nextDouble() * 360 - 180),
+                Integer.toString(random.nextInt(200)), Integer.toString(random.nextInt(3600) / 10), Integer.toString(random.nextInt(360)), "0");
+            table.update(updates[i]);
+        }
+    }
+
+    @Benchmark
+    public byte[] fleetBinary() {
+        return table.encode(null);
+    }
+
+    @Benchmark
+    public byte[] northSeaBinary() {
+        return table.encode(NORTH_SEA);
+    }
+
+    @Benchmark
+    public List<TrackPoint> northSeaPoints() {
+        return table.snapshot(NORTH_SEA);
+    }
+
+    @Benchmark
+    public boolean update() {
+        TrackPoint point = updates[next++ % VESSELS];
+        return table.update(point);
+    }
+}
@@ -0,0 +1,57 @@
+package no.maddin.ais.live;
+
+import no.maddin.ais.data.BoundingBox;
+import no.maddin.ais.data.TrackPoint;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LatestPositionTableTest {
+
+    private static final Instant START = Instant.parse("2024-05-01T00:00:00Z");
+
+    private final LatestPositionTable table = new LatestPositionTable();
+
+    @Test
+    void newestPositionPerVessel() {
+        assertThat(table.update(new TrackPoint("257961640", START.plusSeconds(60), "59.9", "10.7", "120", "271.3", "270", "0")), equalTo(true));
+        assertThat(table.update(new TrackPoint("257961640", START, "59.0", "10.0", "0", "0", "0", "5")), equalTo(false));
+        assertThat(table.update(new TrackPoint("237035400", START, null, null, null, null, null, null)), equalTo(true));
+        assertThat(table.update(new TrackPoint("not a number", START, "59.0", "10.0", "0", "0", "0", "5")), equalTo(false));
+
+        assertThat(table.snapshot(null), containsInAnyOrder(
+            new TrackPoint("257961640", START.plusSeconds(60), "59.9", "10.7", "120", "271.3", "270", "0"),
+            new TrackPoint("237035400", START, null, null, null, null, null, null)));
+    }
+
+    @Test
+    void boundingBoxAcrossGrowth() {
+        for (int i = 0; i < 10_000; i++) {
+            table.update(new TrackPoint(Integer.toString(200_000_000 + i), START, Double.toString(50 + i / 1000.0), "10", "0", "0", "0", "0"));
+        }
+
+        assertThat(table.size(), equalTo(10_000));
+        assertThat(table.snapshot(new BoundingBox(9, 51, 11, 51.002)).stream().map(TrackPoint::mmsi).toList(),
+            contains("200001000", "200001001", "200001002"));
+        assertThat(table.snapshot(new BoundingBox(-10, 0, 0, 10)), equalTo(List.of()));
+    }
+
+    @Test
+    void binaryEncoding() {
+        table.update(new TrackPoint("257961640", START, "-33.856784", "151.215297", "5", "12", "13", "1"));
+
+        byte[] encoded = table.encode(null);
+
+        assertThat(encoded.length, equalTo(LatestPositionTable.HEADER_BYTES + LatestPositionTable.RECORD_BYTES));
+        assertThat(LatestPositionTable.decode(encoded), contains(new TrackPoint("257961640", START, "-33.856784", "151.215297", "5", "12", "13", "1")));
+        assertThrows(IllegalArgumentException.class, () -> LatestPositionTable.decode(Arrays.copyOf(encoded, encoded.length - 1)));
+    }
+}
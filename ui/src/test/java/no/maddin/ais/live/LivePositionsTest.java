@@ -0,0 +1,101 @@
+package no.maddin.ais.live;
+
+import no.maddin.ais.config.LiveProperties;
+import no.maddin.ais.data.TrackPoint;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasSize;
+
+class LivePositionsTest {
+
+    private static final Instant START = Instant.parse("2021-01-01T00:00:00Z");
+
+    private final LivePositions livePositions = new LivePositions(new LiveProperties(), new LatestPositionTable());
+
+    @Test
+    void coalescePerVessel() {
+        List<List<TrackPoint>> frames = new ArrayList<>();
+        livePositions.subscribe(changed -> {
+            frames.add(changed);
+            return CompletableFuture.completedFuture(null);
+        });
+
+        livePositions.update(point("1", 0));
+        livePositions.update(point("1", 10));
+        livePositions.update(point("2", 5));
+        livePositions.update(point("1", 3));
+        livePositions.frame();
+        livePositions.frame();
+
+        assertThat(frames, hasSize(1));
+        assertThat(frames.get(0), containsInAnyOrder(point("1", 10), point("2", 5)));
+    }
+
+    @Test
+    void firstFrameIsSnapshot() {
+        livePositions.update(point("1", 0));
+        livePositions.update(point("2", 0));
+        List<TrackPoint> received = new ArrayList<>();
+
+        livePositions.subscribe(changed -> {
+            received.addAll(changed);
+            return CompletableFuture.completedFuture(null);
+        });
+        livePositions.frame();
+
+        assertThat(received, containsInAnyOrder(point("1", 0), point("2", 0)));
+    }
+
+    @Test
+    void skipFramesWhileSlowSubscriberIsBusy() {
+        CompletableFuture<Void> applied = new CompletableFuture<>();
+        List<List<TrackPoint>> frames = new ArrayList<>();
+        livePositions.subscribe(changed -> {
+            frames.add(changed);
+            return applied;
+        });
+
+        livePositions.update(point("1", 0));
+        livePositions.frame();
+        for (int i = 1; i <= 100; i++) {
+            livePositions.update(point("1", i));
+            livePositions.frame();
+        }
+        assertThat(frames, hasSize(1));
+
+        applied.complete(null);
+        livePositions.frame();
+
+        assertThat(frames, hasSize(2));
+        assertThat(frames.get(1), contains(point("1", 100)));
+    }
+
+    @Test
+    void unsubscribe() {
+        List<TrackPoint> received = new ArrayList<>();
+        Runnable unsubscribe = livePositions.subscribe(changed -> {
+            received.addAll(changed);
+            return CompletableFuture.completedFuture(null);
+        });
+
+        unsubscribe.run();
+        livePositions.update(point("1", 0));
+        livePositions.frame();
+
+        assertThat(received, empty());
+        assertThat(livePositions.snapshot(), contains(point("1", 0)));
+    }
+
+    private static TrackPoint point(String mmsi, int seconds) {
+        return new TrackPoint(mmsi, START.plusSeconds(seconds), "60", "10", "0", "0", "0", "0");
+    }
+}
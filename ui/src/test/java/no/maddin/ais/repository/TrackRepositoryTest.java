@@ -0,0 +1,74 @@
+package no.maddin.ais.repository;
+
+import no.maddin.ais.config.TrackProperties;
+import no.maddin.ais.data.PositionBlock;
+import no.maddin.ais.data.PositionBlockCodec;
+import no.maddin.ais.data.TrackPoint;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+class TrackRepositoryTest {
+
+    private static final Instant START = Instant.parse("2024-05-01T00:00:00Z");
+
+    /**
+     * Written by the db-updater's codec, see {@code TrackPointTest}. The last position has no values.
+     */
+    private static final byte[] BLOCK = Base64.getDecoder().decode(
+        "eNpjfsH+4AozEB3YPpfr/2Lm/ZNndQm0bO+13HOKaX/jhJ0C3xi/Mv7j72OfZMgQsYydgYFLpG/Rc45eIGb45/jXkQEAAlcc+w==");
+
+    private static final TrackPoint LAST_COMPACTED = new TrackPoint("257961640", START.plusSeconds(121), null, null, null, null, null, "15");
+
+    private final ReactiveMongoTemplate mongoTemplate = Mockito.mock(ReactiveMongoTemplate.class);
+
+    private final TrackRepository trackRepository = new TrackRepository(mongoTemplate, new TrackProperties());
+
+    @Test
+    void latestOfASilentVesselIsInItsNewestBlock() {
+        when(mongoTemplate.findOne(any(Query.class), eq(TrackPoint.class))).thenReturn(Mono.empty());
+        when(mongoTemplate.findOne(any(Query.class), eq(PositionBlock.class))).thenReturn(Mono.just(block("257961640")));
+
+        StepVerifier.create(trackRepository.latest("257961640"))
+            .expectNext(LAST_COMPACTED)
+            .verifyComplete();
+    }
+
+    @Test
+    void latestOfAllVesselsFallsBackToBlocksForThoseMissingInAisdata() {
+        TrackPoint hot = new TrackPoint("311000000", START.plusSeconds(86_400 * 40), "59.9", "10.7", "0", null, null, "5");
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq("aisdata"), eq(TrackPoint.class))).thenReturn(Flux.just(hot));
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq("aispositionblocks"), eq(PositionBlock.class)))
+            .thenReturn(Flux.just(block("311000000"), block("257961640")));
+
+        StepVerifier.create(trackRepository.latest(List.of()))
+            .expectNext(hot)
+            .expectNext(LAST_COMPACTED)
+            .verifyComplete();
+    }
+
+    private static PositionBlock block(String mmsi) {
+        return PositionBlock.builder()
+            .mmsi(mmsi)
+            .start(START.atOffset(ZoneOffset.UTC))
+            .end(START.plusSeconds(86_400).atOffset(ZoneOffset.UTC))
+            .count(3)
+            .version(PositionBlockCodec.VERSION)
+            .positions(BLOCK)
+            .build();
+    }
+}
@@ -0,0 +1,111 @@
+package no.maddin.ais.track;
+
+import no.maddin.ais.data.TrackPoint;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simplification of a 10M point track, a vessel reporting every 3 seconds for a year.
+ * One operation is one input point, so the score is points per second and, with {@code -prof gc},
+ * {@code gc.alloc.rate.norm} is the number of bytes allocated per point.
+ * <p>
+ * {@code simplifyArrays} runs the algorithm on the whole track at once, {@code simplifyStream} runs it chunk by chunk on
+ * {@link TrackPoint}s generated on the fly; {@code generateStream} measures the generation alone.
+ * <p>
+ * {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args="TrackSimplifierBenchmark -prof gc"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class TrackSimplifierBenchmark {
+
+    private static final int POINTS = 10_000_000;
+
+    private static final Instant START = Instant.parse("2021-01-01T00:00:00Z");
+
+    @Param({"DOUGLAS_PEUCKER", "VISVALINGAM"})
+    public Simplification algorithm;
+
+    @Param({"8", "14"})
+    public int zoom;
+
+    private double[] lat;
+
+    private double[] lon;
+
+    private double[] x;
+
+    private double[] y;
+
+    private double tolerance;
+
+    @Setup
+    public void setUp() {
+        lat = new double[POINTS];
+        lon = new double[POINTS];
+        x = new double[POINTS];
+        y = new double[POINTS];
+        Random random = new Random(42);
+        double heading = 0;
+        lat[0] = 59.9;
+        lon[0] = 10.7;
+        for (int i = 1; i < POINTS; i++) {
+            heading += random.nextGaussian() * 0.05;
+            lat[i] = lat[i - 1] + Math.cos(heading) * 0.0001;
+            lon[i] = lon[i - 1] + Math.sin(heading) * 0.0002;
+        }
+        for (int i = 0; i < POINTS; i++) {
+            x[i] = TrackSimplifier.mercatorX(lon[i]);
+            y[i] = TrackSimplifier.mercatorY(lat[i]);
+        }
+        tolerance = TrackSimplifier.tolerance(zoom, 1);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public boolean[] simplifyArrays() {
+        return TrackSimplifier.simplify(x, y, POINTS, algorithm, tolerance);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public long simplifyStream() {
+        return TrackSimplifier.simplify(points(), algorithm, tolerance, 10_000).count().block();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public long downsampleAndSimplifyStream() {
+        return TrackSimplifier.simplify(TrackSimplifier.downsample(points(), Duration.ofMinutes(1)), algorithm, tolerance, 10_000).count().block();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public long generateStream() {
+        return points().count().block();
+    }
+
+    private Flux<TrackPoint> points() {
+        return Flux.range(0, POINTS)
+            .map(i -> new TrackPoint("257000000", START.plusSeconds(3L * i), Double.toString(lat[i]), Double.toString(lon[i]), "120", "900", "90", "0"));
+    }
+}
@@ -0,0 +1,106 @@
+package no.maddin.ais.track;
+
+import no.maddin.ais.data.TrackPoint;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+
+class TrackSimplifierTest {
+
+    private static final Instant START = Instant.parse("2021-01-01T00:00:00Z");
+
+    @Test
+    void toleranceHalvesPerZoomLevel() {
+        assertThat(TrackSimplifier.tolerance(0, 1), closeTo(156543.03, 0.01));
+        assertThat(TrackSimplifier.tolerance(10, 2), closeTo(305.75, 0.01));
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = Simplification.class, names = {"DOUGLAS_PEUCKER", "VISVALINGAM"})
+    void straightLineKeepsEndpoints(Simplification algorithm) {
+        double[] x = {0, 1, 2, 3, 4};
+        double[] y = {0, 0, 0, 0, 0};
+
+        boolean[] keep = TrackSimplifier.simplify(x, y, x.length, algorithm, 0.1);
+
+        assertThat(keep, equalTo(new boolean[]{true, false, false, false, true}));
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = Simplification.class, names = {"DOUGLAS_PEUCKER", "VISVALINGAM"})
+    void cornerAboveToleranceIsKept(Simplification algorithm) {
+        double[] x = {0, 1, 2, 3, 4};
+        double[] y = {0, 0.9, 2, 0.9, 0};
+
+        boolean[] keep = TrackSimplifier.simplify(x, y, x.length, algorithm, 0.5);
+
+        assertThat(keep, equalTo(new boolean[]{true, false, true, false, true}));
+    }
+
+    @Test
+    void streamingMatchesEndpointsAcrossChunks() {
+        List<TrackPoint> line = IntStream.range(0, 25)
+            .mapToObj(i -> point(i * 60, 60.0, 10.0 + i * 0.001))
+            .toList();
+
+        StepVerifier.create(TrackSimplifier.simplify(Flux.fromIterable(line), Simplification.DOUGLAS_PEUCKER, 10, 10))
+            .expectNext(line.get(0), line.get(9), line.get(19), line.get(24))
+            .verifyComplete();
+    }
+
+    @Test
+    void streamingDropsPointsWithoutLocation() {
+        TrackPoint invalid = new TrackPoint("1", START, "91", "10", null, null, null, null);
+
+        StepVerifier.create(TrackSimplifier.simplify(Flux.just(point(0, 60, 10), invalid, point(60, 60, 10.1)), Simplification.VISVALINGAM, 10, 100))
+            .expectNextCount(2)
+            .verifyComplete();
+    }
+
+    @Test
+    void downsampleKeepsFirstPerBucketAndLast() {
+        List<TrackPoint> points = IntStream.range(0, 10)
+            .mapToObj(i -> point(i * 60, 60, 10))
+            .toList();
+
+        List<TrackPoint> sampled = TrackSimplifier.downsample(Flux.fromIterable(points), Duration.ofMinutes(4)).collectList().block();
+
+        assertThat(sampled, contains(points.get(0), points.get(4), points.get(8), points.get(9)));
+    }
+
+    @Test
+    void largeTrackIsReduced() {
+        int n = 100_000;
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = i;
+            y[i] = Math.sin(i / 1000.0) * 100;
+        }
+
+        boolean[] keep = TrackSimplifier.simplify(x, y, n, Simplification.VISVALINGAM, 1);
+
+        int kept = 0;
+        for (boolean k : keep) {
+            kept += k ? 1 : 0;
+        }
+        assertThat(kept, lessThan(n / 10));
+    }
+
+    private static TrackPoint point(int seconds, double lat, double lon) {
+        return new TrackPoint("1", START.plusSeconds(seconds), String.valueOf(lat), String.valueOf(lon), "0", "0", "0", "0");
+    }
+}